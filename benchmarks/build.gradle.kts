@@ -0,0 +1,25 @@
+val jmhVersion = "1.37"
+
+dependencies {
+    implementation(project(":factory"))
+    // the benchmarks build actions and percepts with the Jason types of the environment
+    implementation("io.github.jason-lang:jason-interpreter:3.2.1")
+    implementation("org.openjdk.jmh:jmh-core:$jmhVersion")
+    annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks of the environment hot paths and writes their results to build/results/jmh/results.json, " +
+        "-Pjmh.args=\"...\" passes JMH options such as a benchmark pattern or -p gridSize=64"
+    val results = layout.buildDirectory.file("results/jmh/results.json")
+    classpath = sourceSets.getByName("main").runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args("-rf", "json", "-rff", results.get().asFile.path)
+    (findProperty("jmh.args") as String?)?.let { args(it.split(" ").filter(String::isNotBlank)) }
+    outputs.file(results)
+    // a benchmark run measures the machine as it is now, so it is never up to date
+    outputs.upToDateWhen { false }
+    doFirst { results.get().asFile.parentFile.mkdirs() }
+    javaLauncher.set(javaToolchains.launcherFor(java.toolchain))
+}
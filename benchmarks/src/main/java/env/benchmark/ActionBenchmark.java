@@ -0,0 +1,161 @@
+package env.benchmark;
+
+import env.FactoryEnv;
+import env.FactoryModel;
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.NumberTerm;
+import jason.asSyntax.Structure;
+import jason.environment.grid.Location;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link FactoryEnv#executeAction(String, Structure)} for each action of the environment,
+ * from the decoding of the arguments to the update of the model and of the percepts.
+ * Actions toggling a value alternate between two of them, so that every call changes the state as the agents do;
+ * the moves are built from the current position of the robot, which goes back and forth between two far cells,
+ * out of number terms created once, so that no call parses its action.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActionBenchmark {
+    private static final int STATIONS = 16;
+
+    @Param({"13", "128", "512"})
+    public int gridSize;
+
+    @Param({"10", "500"})
+    public int robots;
+
+    @Param({"register_dbot", "register_human", "register_charging_station", "move_towards_target", "move_randomly",
+        "update_battery_level", "compute_closest_charging_station", "query_closest_charging_station",
+        "compute_closest_robot", "going_towards_delivery_location", "moving_to_robot_to_repair_it",
+        "recharging_robot_after_malfunction", "battery_charging_update", "going_towards_charging_station",
+        "waiting_reparations_due_to_malfunction"})
+    public String action;
+
+    private FactoryEnv env;
+    private FactoryModel model;
+    private String actor;
+    private int actorId;
+    private Structure[] variants;
+    private Location[] targets;
+    private NumberTerm[] numbers;
+    private int target;
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        env = Fixtures.environment(gridSize);
+        model = FactoryModel.current();
+        List<String> names = Fixtures.addRobots(env, robots);
+        List<Location> stations = Fixtures.addStations(env, STATIONS);
+        List<Location> free = Fixtures.freeCells(model, 2, new Random(Fixtures.SEED + 2));
+        actor = names.get(0);
+        targets = new Location[] {free.get(0), free.get(1)};
+        numbers = new NumberTerm[gridSize];
+        for (int i = 0; i < gridSize; i++) {
+            numbers[i] = ASSyntax.createNumber(i);
+        }
+        switch (action) {
+            case "register_dbot":
+                variants = parse("register_dbot(d_bot_bench, 100, " + free.get(0).x + ", " + free.get(0).y + ")");
+                break;
+            case "register_human":
+                actor = "humn_1";
+                variants = parse("register_human(humn_1, " + free.get(0).x + ", " + free.get(0).y + ")");
+                break;
+            case "register_charging_station":
+                actor = "ch_st_bench";
+                variants = parse("register_charging_station(" + free.get(0).x + ", " + free.get(0).y + ")");
+                break;
+            case "update_battery_level":
+                variants = parse("update_battery_level(70)", "update_battery_level(71)");
+                break;
+            case "compute_closest_charging_station":
+                variants = fromBothTargets(action + "(" + list(stations, null) + ", ");
+                break;
+            case "query_closest_charging_station":
+                variants = fromBothTargets(action + "(");
+                break;
+            case "compute_closest_robot":
+                variants = fromBothTargets(action + "(" + list(null, names) + ", ");
+                break;
+            case "move_towards_target":
+            case "move_randomly":
+                // built from the current position at each call, out of the cached numbers
+                variants = null;
+                break;
+            default:
+                variants = parse(action + "(true)", action + "(false)");
+        }
+        actorId = model.getAgentRegistry().getId(actor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        env.stop();
+    }
+
+    @Benchmark
+    public boolean executeAction() {
+        return env.executeAction(actor, next());
+    }
+
+    private Structure next() {
+        if (variants != null) {
+            return variants[tick++ % variants.length];
+        }
+        Location at = model.getAgPos(actorId);
+        if (action.equals("move_randomly")) {
+            return ASSyntax.createStructure(action, numbers[at.x], numbers[at.y]);
+        }
+        if (at.equals(targets[target])) {
+            target = 1 - target;
+        }
+        Location to = targets[target];
+        return ASSyntax.createStructure(action, numbers[to.x], numbers[to.y], numbers[at.x], numbers[at.y]);
+    }
+
+    private Structure[] fromBothTargets(String prefix) {
+        return parse(prefix + targets[0].x + ", " + targets[0].y + ")", prefix + targets[1].x + ", " + targets[1].y + ")");
+    }
+
+    // the [[Name, X, Y], ...] list the agents send, of the stations or of the robots
+    private String list(List<Location> stations, List<String> names) {
+        StringBuilder list = new StringBuilder("[");
+        int count = stations != null ? stations.size() : names.size();
+        for (int i = 0; i < count; i++) {
+            String name = stations != null ? "ch_st_" + (i + 1) : names.get(i);
+            Location location = stations != null ? stations.get(i) : model.getAgPos(model.getAgentRegistry().getId(name));
+            list.append(i > 0 ? ", " : "").append("[\"").append(name).append("\", ").append(location.x).append(", ").append(location.y).append("]");
+        }
+        return list.append("]").toString();
+    }
+
+    private static Structure[] parse(String... actions) {
+        Structure[] parsed = new Structure[actions.length];
+        for (int i = 0; i < actions.length; i++) {
+            parsed[i] = Structure.parse(actions[i]);
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,110 @@
+package env.benchmark;
+
+import env.FactoryEnv;
+import env.FactoryModel;
+import jason.asSyntax.Structure;
+import jason.environment.grid.Location;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Builds the environments and models measured by the benchmarks, always from the same seed,
+ * so that two runs of a benchmark measure the same layout.
+ */
+final class Fixtures {
+    /** Seed of every layout and every random choice of the benchmarks. */
+    static final long SEED = 1L;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Creates an environment without GUI nor log, on a square grid with the random walls of the model.
+     * @param size the side of the grid
+     * @return the initialized environment
+     */
+    static FactoryEnv environment(int size) {
+        FactoryEnv env = new FactoryEnv();
+        env.init(new String[] {"grid=" + size, "seed=" + SEED, "log=off"});
+        return env;
+    }
+
+    /**
+     * Creates a model on a square grid, without any wall or with walls on about a quarter of the cells.
+     * @param size      the side of the grid
+     * @param cluttered true to add walls, false for an open grid
+     * @return the model
+     */
+    static FactoryModel model(int size, boolean cluttered) {
+        Random random = new Random(SEED);
+        FactoryModel model = new FactoryModel(size, size, 0, random);
+        if (!cluttered) {
+            return model;
+        }
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (random.nextInt(4) == 0 && model.isFree(FactoryModel.TRUCK | FactoryModel.DELIVERY, x, y)) {
+                    model.add(FactoryModel.OBSTACLE, x, y);
+                }
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Picks distinct free cells of a model at random.
+     * @param model  the model
+     * @param count  the number of cells to pick
+     * @param random the source of randomness
+     * @return the cells, fewer than asked if the grid has no more free cells
+     */
+    static List<Location> freeCells(FactoryModel model, int count, Random random) {
+        List<Location> cells = new ArrayList<>();
+        Set<Location> taken = new HashSet<>();
+        for (int attempt = 0; cells.size() < count && attempt < count * 100; attempt++) {
+            Location cell = new Location(random.nextInt(model.getWidth()), random.nextInt(model.getHeight()));
+            if (model.isFree(cell) && model.isFree(FactoryModel.CHARGING_STATION | FactoryModel.TRUCK | FactoryModel.DELIVERY, cell)
+                    && taken.add(cell)) {
+                cells.add(cell);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Registers delivery robots named {@code d_bot_<i>} through their action, placing them on free cells.
+     * @param env   the environment
+     * @param count the number of robots
+     * @return the names of the robots
+     */
+    static List<String> addRobots(FactoryEnv env, int count) {
+        FactoryModel model = FactoryModel.current();
+        List<String> names = new ArrayList<>();
+        for (Location cell : freeCells(model, count, new Random(SEED))) {
+            String name = "d_bot_" + (names.size() + 1);
+            env.executeAction(name, Structure.parse("register_dbot(" + name + ", 100, " + cell.x + ", " + cell.y + ")"));
+            model.getMovementManager().updatePos(model.getAgentRegistry().getId(name), cell);
+            names.add(name);
+        }
+        return names;
+    }
+
+    /**
+     * Registers charging stations named {@code ch_st_<i>} through their action, on free cells.
+     * @param env   the environment
+     * @param count the number of stations
+     * @return the locations of the stations
+     */
+    static List<Location> addStations(FactoryEnv env, int count) {
+        FactoryModel model = FactoryModel.current();
+        List<Location> stations = freeCells(model, count, new Random(SEED + 1));
+        for (int i = 0; i < stations.size(); i++) {
+            Location cell = stations.get(i);
+            env.executeAction("ch_st_" + (i + 1), Structure.parse("register_charging_station(" + cell.x + ", " + cell.y + ")"));
+        }
+        return stations;
+    }
+}
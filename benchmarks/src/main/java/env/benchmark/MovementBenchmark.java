@@ -0,0 +1,84 @@
+package env.benchmark;
+
+import env.FactoryModel;
+import env.agent.DeliveryRobot;
+import env.behaviour.MovementManager;
+import env.behaviour.MovementMode;
+import jason.environment.grid.Location;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one step of {@link MovementManager#moveTowards(int, Location, Location)} in each movement mode,
+ * on open grids and on grids with walls on about a quarter of the cells. The robots take their steps in turn,
+ * each going back and forth between two cells picked at random, so the planners see robots in each other's way.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovementBenchmark {
+
+    @Param({"32", "128", "512"})
+    public int gridSize;
+
+    @Param({"open", "cluttered"})
+    public String layout;
+
+    @Param({"1", "64"})
+    public int robots;
+
+    @Param({"GREEDY", "SHORTEST_PATH", "COOPERATIVE"})
+    public MovementMode mode;
+
+    private FactoryModel model;
+    private MovementManager movement;
+    private int[] ids;
+    private Location[][] targets;
+    private int[] target;
+    private int turn;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = Fixtures.model(gridSize, layout.equals("cluttered"));
+        movement = model.getMovementManager();
+        movement.setMode(mode);
+        List<Location> cells = Fixtures.freeCells(model, 3 * robots, new Random(Fixtures.SEED));
+        int count = cells.size() / 3;
+        ids = new int[count];
+        targets = new Location[count][];
+        target = new int[count];
+        for (int i = 0; i < count; i++) {
+            String name = "d_bot_" + (i + 1);
+            model.addDeliveryRobot(new DeliveryRobot(name, 100, cells.get(i)));
+            ids[i] = model.getAgentRegistry().getId(name);
+            model.setAgPos(ids[i], cells.get(i));
+            targets[i] = new Location[] {cells.get(count + 2 * i), cells.get(count + 2 * i + 1)};
+        }
+    }
+
+    @Benchmark
+    public boolean moveTowards() {
+        int robot = turn++ % ids.length;
+        Location at = model.getAgPos(ids[robot]);
+        if (at.equals(targets[robot][target[robot]])) {
+            target[robot] = 1 - target[robot];
+        }
+        return movement.moveTowards(ids[robot], targets[robot][target[robot]], at);
+    }
+}
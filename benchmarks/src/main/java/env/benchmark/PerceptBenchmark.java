@@ -0,0 +1,83 @@
+package env.benchmark;
+
+import env.percept.PerceptStore;
+import env.percept.PerceptTemplate;
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+import jason.environment.Environment;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the replacement of a position percept of many agents, each holding a few other percepts:
+ * through the {@link PerceptStore}, with a new value and with the value already perceived,
+ * and by removal by unification followed by an addition, as the environment did before the store.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerceptBenchmark {
+    private static final Literal ANY_POSITION = Literal.parseLiteral("current_position(_,_)");
+
+    @Param({"10", "1000"})
+    public int agents;
+
+    @Param({"0", "20"})
+    public int otherPercepts;
+
+    private Environment environment;
+    private PerceptStore store;
+    private PerceptTemplate position;
+    private String[] names;
+    private int update;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = new Environment();
+        store = new PerceptStore(environment);
+        position = store.define("current_position", 2);
+        names = new String[agents];
+        for (int i = 0; i < agents; i++) {
+            names[i] = "d_bot_" + (i + 1);
+            for (int p = 0; p < otherPercepts; p++) {
+                environment.addPercept(names[i], ASSyntax.createLiteral("fact", ASSyntax.createNumber(p)));
+            }
+            store.update(names[i], position, 0, 0);
+        }
+    }
+
+    @Benchmark
+    public boolean storeChanged() {
+        int i = update++;
+        // each agent perceives 0 and 1 in turn
+        return store.update(names[i % agents], position, i / agents & 1, 0);
+    }
+
+    @Benchmark
+    public boolean storeUnchanged() {
+        return store.update(names[update++ % agents], position, 0, 0);
+    }
+
+    @Benchmark
+    public int removeByUnification() {
+        int i = update++;
+        String name = names[i % agents];
+        int removed = environment.removePerceptsByUnif(name, ANY_POSITION);
+        environment.addPercept(name, ASSyntax.createLiteral("current_position", ASSyntax.createNumber(i & 1), ASSyntax.createNumber(0)));
+        return removed;
+    }
+}
@@ -0,0 +1,86 @@
+package env.benchmark;
+
+import env.FactoryModel;
+import env.agent.AbstractAgent;
+import env.agent.DeliveryRobot;
+import jason.environment.grid.Location;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the lookups of the model behind the closest-station and closest-robot actions and the robot found on a cell,
+ * from cells spread over the grid. Half of the cells queried for a robot hold one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"64", "512", "1000"})
+    public int gridSize;
+
+    @Param({"10", "1000"})
+    public int robots;
+
+    @Param({"4", "64"})
+    public int stations;
+
+    private FactoryModel model;
+    private Location[] from;
+    private Location[] cells;
+    private int query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = Fixtures.model(gridSize, false);
+        Random random = new Random(Fixtures.SEED);
+        List<Location> free = Fixtures.freeCells(model, robots + stations, random);
+        int placed = Math.min(robots, free.size() - stations);
+        for (int i = 0; i < placed; i++) {
+            String name = "d_bot_" + (i + 1);
+            model.addDeliveryRobot(new DeliveryRobot(name, 100, free.get(i)));
+            model.setAgPos(model.getAgentRegistry().getId(name), free.get(i));
+        }
+        for (int i = 0; i < stations; i++) {
+            model.addChargingStation("ch_st_" + (i + 1), free.get(placed + i));
+        }
+        from = new Location[QUERIES];
+        cells = new Location[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            from[i] = new Location(random.nextInt(gridSize), random.nextInt(gridSize));
+            cells[i] = i % 2 == 0 ? free.get(random.nextInt(placed)) : from[i];
+        }
+    }
+
+    @Benchmark
+    public String closestChargingStation() {
+        return model.getClosestChargingStation(from[query++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public List<DeliveryRobot> closestAvailableRobot() {
+        return model.getClosestAvailableRobots(from[query++ & (QUERIES - 1)], 1);
+    }
+
+    @Benchmark
+    public AbstractAgent deliveryRobotByLocation() {
+        return model.getDeliveryRobotByLocation(cells[query++ & (QUERIES - 1)]);
+    }
+}
@@ -20,7 +20,9 @@ allprojects {
     group = "it.unibo.ise"
 }
 
-subprojects {
+// the simulation only: the benchmarks declare what they need, so that the run tasks, the Jason defaults and
+// -Pjfr do not reach the JMH runs
+project(":factory") {
     sourceSets {
         main {
             resources {
@@ -46,9 +48,29 @@ subprojects {
                 mainClass.set("jason.infra.centralised.RunCentralisedMAS")
                 args(mas2jFile.path)
                 standardInput = System.`in`
+                // forward the factory.* options given to gradle with -D to the simulation
+                systemProperties(System.getProperties().filterKeys { it.toString().startsWith("factory.") }.mapKeys { it.key.toString() })
                 javaLauncher.set(javaToolchains.launcherFor(java.toolchain))
             }
+            tasks.register<JavaExec>("run${mas2jFile.nameWithoutExtension.capitalized()}MasHeadless") {
+                group = "run"
+                description = "Runs the simulation without GUI and writes a run summary, see the factory.* options in the README"
+                classpath = sourceSets.getByName("main").runtimeClasspath
+                mainClass.set("jason.infra.centralised.RunCentralisedMAS")
+                args(mas2jFile.path)
+                systemProperty("java.awt.headless", "true")
+                systemProperty("factory.headless", "true")
+                systemProperties(System.getProperties().filterKeys { it.toString().startsWith("factory.") }.mapKeys { it.key.toString() })
+                javaLauncher.set(javaToolchains.launcherFor(java.toolchain))
+            }
+        }
+
+    // -Pjfr=<file> records the runs with Flight Recorder, with the events of the environment enabled
+    (findProperty("jfr") as String?)?.let { recording ->
+        tasks.withType<JavaExec>().configureEach {
+            jvmArgs("-XX:StartFlightRecording=settings=default,settings=${rootProject.file("factory/factory.jfc")},filename=${file(recording)}")
         }
+    }
 
     tasks.withType<Test>().configureEach {
         useJUnitPlatform()
@@ -0,0 +1,114 @@
+/**
+ * An end-to-end run of the whole multi-agent system: how many robots, charging stations and humans,
+ * and the factory.* options of the environment.
+ */
+data class Scenario(val name: String, val robots: Int, val stations: Int, val humans: Int, val options: Map<String, String>) {
+    fun mas2j(aslSourcePath: String): String {
+        fun agents(prefix: String, asl: String, count: Int, arch: String) =
+            if (count == 1) "\t\t${prefix}1 $asl$arch;\n" else "\t\t$prefix $asl$arch #$count;\n"
+        val arch = " agentArchClass env.metrics.ReasoningMetricsArch"
+        return "MAS $name {\n\n" +
+            "\tinfrastructure: Centralised\n\n" +
+            "\tenvironment: env.FactoryEnv\n\n" +
+            "\tagents:\n" +
+            agents("d_bot_", "delivery_robot", robots, arch) +
+            agents("ch_st_", "charging_station", stations, arch) +
+            "\t\tdelivery_place$arch;\n" +
+            "\t\ttruck$arch;\n" +
+            agents("humn_", "human", humans, arch) +
+            "\n\taslSourcePath:\n\t\t\"$aslSourcePath\";\n}\n"
+    }
+}
+
+val scenarios = listOf(
+    Scenario("small5", robots = 5, stations = 3, humans = 1, options = mapOf("grid" to "13")),
+    Scenario("sparse50", robots = 50, stations = 8, humans = 2, options = mapOf("grid" to "40", "walls" to "2")),
+    Scenario("dense50", robots = 50, stations = 8, humans = 2, options = mapOf("grid" to "40", "walls" to "40")),
+    Scenario("malfunction50", robots = 50, stations = 8, humans = 2, options = mapOf("grid" to "40", "malfunction" to "0.01")),
+    Scenario("large500", robots = 500, stations = 40, humans = 10, options = mapOf("grid" to "128")),
+)
+
+val scenarioDir = layout.buildDirectory.dir("scenarios")
+val baselineDir = file(findProperty("scenario.baseline") as String? ?: "scenario-baseline")
+
+val scenarioRuns = scenarios.map { scenario ->
+    val taskName = scenario.name.replaceFirstChar { it.uppercase() }
+    val mas2j = scenarioDir.map { it.file("${scenario.name}.mas2j") }
+    val summary = scenarioDir.map { it.file("${scenario.name}.json") }
+
+    val generate = tasks.register("generate${taskName}Scenario") {
+        group = "scenario"
+        description = "Writes the .mas2j of the ${scenario.name} scenario"
+        val content = scenario.mas2j(file("src/main/asl").path.replace('\\', '/'))
+        inputs.property("mas2j", content)
+        outputs.file(mas2j)
+        doLast { mas2j.get().asFile.writeText(content) }
+    }
+
+    tasks.register<JavaExec>("scenario$taskName") {
+        group = "scenario"
+        description = "Runs the ${scenario.name} scenario headless (${scenario.robots} robots, ${scenario.options}) and writes its summary " +
+            "to build/scenarios/${scenario.name}.json, -Pscenario.duration=<simulated seconds> (default 3600) and -Pscenario.seed=<n> (default 1)"
+        dependsOn(generate)
+        classpath = sourceSets.getByName("main").runtimeClasspath
+        mainClass.set("jason.infra.centralised.RunCentralisedMAS")
+        args(mas2j.get().asFile.path)
+        systemProperty("java.awt.headless", "true")
+        systemProperty("factory.headless", "true")
+        systemProperty("factory.speedup", "max")
+        systemProperty("factory.log", "off")
+        systemProperty("factory.duration", findProperty("scenario.duration") ?: "3600")
+        systemProperty("factory.seed", findProperty("scenario.seed") ?: "1")
+        scenario.options.forEach { (option, value) -> systemProperty("factory.$option", value) }
+        systemProperty("factory.summary", summary.get().asFile.path)
+        outputs.file(summary)
+        // a scenario run measures the machine as it is now, so it is never up to date
+        outputs.upToDateWhen { false }
+        javaLauncher.set(javaToolchains.launcherFor(java.toolchain))
+    }
+}
+
+// one scenario at a time, so that the runs do not compete for the machine
+scenarioRuns.zipWithNext { previous, next -> next.configure { mustRunAfter(previous) } }
+
+tasks.register("scenarios") {
+    group = "scenario"
+    description = "Runs every benchmark scenario, see compareScenarios and saveScenarioBaseline"
+    dependsOn(scenarioRuns)
+}
+
+tasks.register<Copy>("saveScenarioBaseline") {
+    group = "scenario"
+    description = "Keeps the summaries of the last scenario runs as the baseline, in scenario-baseline or -Pscenario.baseline=<dir>"
+    mustRunAfter(scenarioRuns)
+    from(scenarioDir) { include("*.json") }
+    into(baselineDir)
+}
+
+tasks.register<JavaExec>("compareScenarios") {
+    group = "scenario"
+    description = "Compares the summaries of the last scenario runs with the baseline and fails if a throughput dropped " +
+        "by more than -Pscenario.tolerance=<fraction> (default 0.1)"
+    mustRunAfter(scenarioRuns)
+    classpath = sourceSets.getByName("main").runtimeClasspath
+    mainClass.set("env.metrics.ScenarioComparison")
+    args(baselineDir.path, scenarioDir.get().asFile.path, findProperty("scenario.tolerance") ?: "0.1")
+    javaLauncher.set(javaToolchains.launcherFor(java.toolchain))
+}
+
+tasks.register<JavaExec>("replayJournal") {
+    group = "run"
+    description = "Replays the journal of -Pjournal=<directory> without agents, at -Preplay.rate=<factor|max> (default max), " +
+        "from -Preplay.from=<ms> until -Preplay.until=<ms>, with the view if -Preplay.gui is given"
+    classpath = sourceSets.getByName("main").runtimeClasspath
+    mainClass.set("env.journal.JournalReplay")
+    args(listOfNotNull(
+        "journal=${file(findProperty("journal") ?: "journal")}",
+        "rate=${findProperty("replay.rate") ?: "max"}",
+        findProperty("replay.from")?.let { "from=$it" },
+        findProperty("replay.until")?.let { "until=$it" },
+        findProperty("replay.gui")?.let { "gui" }
+    ))
+    systemProperties(System.getProperties().filterKeys { it.toString().startsWith("factory.") }.mapKeys { it.key.toString() })
+    javaLauncher.set(javaToolchains.launcherFor(java.toolchain))
+}
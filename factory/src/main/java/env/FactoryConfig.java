@@ -0,0 +1,199 @@
+package env;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * FactoryConfig holds the options of a simulation run.
+ * Options come from the environment arguments in the .mas2j file, either as bare flags
+ * (e.g. {@code gui}) or as {@code key=value} pairs (e.g. {@code "log=factory-events.log"}).
+ * Java system properties prefixed with {@code factory.} override them, so that a run can be
+ * tuned from the command line without editing the project file.
+ */
+public final class FactoryConfig {
+    /** Prefix of the system properties that override environment arguments. */
+    public static final String PROPERTY_PREFIX = "factory.";
+
+    private final Set<String> flags = new HashSet<>();
+    private final Map<String, String> values = new HashMap<>();
+
+    private FactoryConfig() {
+    }
+
+    /**
+     * Parses the environment arguments and overlays the {@code factory.*} system properties.
+     *
+     * @param args the arguments given to the environment
+     * @return the parsed configuration
+     */
+    public static FactoryConfig parse(String[] args) {
+        return parse(args, System.getProperties());
+    }
+
+    /**
+     * Parses the environment arguments and overlays the given properties.
+     *
+     * @param args       the arguments given to the environment
+     * @param properties the properties overriding the arguments
+     * @return the parsed configuration
+     */
+    public static FactoryConfig parse(String[] args, Properties properties) {
+        FactoryConfig config = new FactoryConfig();
+        if (args != null) {
+            for (String arg : args) {
+                config.put(arg);
+            }
+        }
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(PROPERTY_PREFIX)) {
+                config.values.put(name.substring(PROPERTY_PREFIX.length()), properties.getProperty(name).trim());
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Adds a single argument, either a flag or a key=value pair.
+     *
+     * @param arg the argument to add
+     */
+    private void put(String arg) {
+        if (arg == null) {
+            return;
+        }
+        String option = unquote(arg.trim());
+        int separator = option.indexOf('=');
+        if (separator < 0) {
+            if (!option.isEmpty()) {
+                flags.add(option);
+            }
+        } else {
+            values.put(option.substring(0, separator).trim(), option.substring(separator + 1).trim());
+        }
+    }
+
+    /**
+     * Removes the quotes Jason may keep around string arguments.
+     *
+     * @param value the raw argument
+     * @return the argument without surrounding quotes
+     */
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * Checks whether a bare flag was given, or a key was set to {@code true}.
+     *
+     * @param name the flag name
+     * @return true if the flag is set
+     */
+    public boolean hasFlag(String name) {
+        String value = values.get(name);
+        return value != null ? Boolean.parseBoolean(value) : flags.contains(name);
+    }
+
+    /**
+     * Checks whether a key was given.
+     *
+     * @param key the option key
+     * @return true if the option has a value
+     */
+    public boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * Returns the value of an option.
+     *
+     * @param key          the option key
+     * @param defaultValue the value to return if the option is not set
+     * @return the option value
+     */
+    public String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * Returns the value of an integer option.
+     *
+     * @param key          the option key
+     * @param defaultValue the value to return if the option is not set
+     * @return the option value
+     * @throws IllegalArgumentException if the value is not an integer
+     */
+    public int getInt(String key, int defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + key + " must be an integer but was: " + value, e);
+        }
+    }
+
+    /**
+     * Returns the value of a long option.
+     *
+     * @param key          the option key
+     * @param defaultValue the value to return if the option is not set
+     * @return the option value
+     * @throws IllegalArgumentException if the value is not an integer
+     */
+    public long getLong(String key, long defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + key + " must be an integer but was: " + value, e);
+        }
+    }
+
+    /**
+     * Returns the value of a decimal option.
+     *
+     * @param key          the option key
+     * @param defaultValue the value to return if the option is not set
+     * @return the option value
+     * @throws IllegalArgumentException if the value is not a number
+     */
+    public double getDouble(String key, double defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + key + " must be a number but was: " + value, e);
+        }
+    }
+
+    /**
+     * Returns every option whose key starts with the given prefix, with the prefix removed.
+     *
+     * @param prefix the key prefix, e.g. {@code "log.level."}
+     * @return the matching options
+     */
+    public Map<String, String> withPrefix(String prefix) {
+        Map<String, String> matching = new HashMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                matching.put(entry.getKey().substring(prefix.length()), entry.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(matching);
+    }
+}
@@ -1,20 +1,50 @@
 package env;
 
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import env.action.ActionArgs;
+import env.action.ActionRegistry;
+import env.action.AgentHandle;
+import env.action.ArgType;
+import env.action.StepCoordinator;
 import env.agent.DeliveryRobot;
 import env.agent.HumanTechnician;
 import env.agent.AbstractAgent;
+import env.behaviour.MovementMode;
+import env.jfr.ActionEvent;
+import env.journal.ModelJournal;
+import env.log.EventLog;
+import env.log.LogCategory;
+import env.log.LogLevel;
+import env.metrics.LatencyHistogram;
+import env.metrics.MetricsExporter;
+import env.metrics.MetricsRegistry;
+import env.metrics.RunController;
+import env.metrics.RunSummary;
+import env.percept.PerceptStore;
+import env.percept.PerceptTemplate;
+import env.view.RenderScheduler;
 import jason.NoValueException;
-import jason.asSyntax.Atom;
+import jason.asSyntax.ASSyntax;
 import jason.asSyntax.ListTerm;
 import jason.asSyntax.Literal;
 import jason.asSyntax.NumberTerm;
+import jason.asSyntax.StringTerm;
 import jason.asSyntax.Structure;
 import jason.asSyntax.Term;
 import jason.environment.Environment;
 import jason.environment.grid.Location;
 
+import javax.management.JMException;
+
 /**
  * FactoryEnv is the main environment class for the factory simulation.
  * It manages the state of the factory, including delivery robots, charging stations,
@@ -32,665 +62,822 @@ public class FactoryEnv extends Environment {
     public static final Literal batteryChargingUpdate = Literal.parseLiteral("battery_charging_update(_)");
     public static final Literal movingToRobotToRepairIt = Literal.parseLiteral("moving_to_robot_to_repair_it(_)");
     public static final Literal computeClosestChargingStation = Literal.parseLiteral("compute_closest_charging_station(_,_,_)");
+    public static final Literal queryClosestChargingStation = Literal.parseLiteral("query_closest_charging_station(_,_)");
     public static final Literal computeClosestRobot = Literal.parseLiteral("compute_closest_robot(_,_,_)");
     public static final Literal rechargingRobotAfterMalfunction = Literal.parseLiteral("recharging_robot_after_malfunction(_)");
     public static final Literal goingTowardsDeliveryLocation = Literal.parseLiteral("going_towards_delivery_location(_)");
 
     private FactoryModel model = new FactoryModel();
     private FactoryView view;
+    private EventLog eventLog = EventLog.disabled();
+    private SimulationClock clock = SimulationClock.current();
+    private ActionRegistry actions;
+    private StepCoordinator stepCoordinator;
+    private RunSummary runSummary;
+    private RunController runController;
+    private MetricsRegistry metrics = new MetricsRegistry();
+    private MetricsExporter metricsExporter;
+    private ModelJournal journal = ModelJournal.disabled();
+    private final Map<String, ActionMetrics> actionMetrics = new ConcurrentHashMap<>();
+    private final Map<String, AgentHandle> agentHandles = new ConcurrentHashMap<>();
+    private PerceptStore percepts;
+    private PerceptTemplate currentPosition;
+    private PerceptTemplate batteryLevel;
+    private PerceptTemplate closestChargingStation;
+    private PerceptTemplate closestRobot;
 
     /**
      * Initialize the factory environment.
      */
     @Override
     public void init(final String[] args) {
-        this.model = new FactoryModel();
+        FactoryConfig config = FactoryConfig.parse(args);
+        EventLog previousLog = this.eventLog;
+        this.eventLog = createEventLog(config);
+        if (previousLog != this.eventLog) {
+            previousLog.close();
+        }
 
-        // initialize GUI if requested
-        if ((args.length == 1) && args[0].equals("gui")) {
-            this.view = new FactoryView(this.model);
+        this.clock = createClock(config);
+        SimulationClock.install(clock);
+
+        this.model = createModel(config);
+        FactoryModel.install(model);
+        this.model.setEventLog(eventLog);
+        this.metrics = new MetricsRegistry();
+        MetricsRegistry.install(metrics);
+        this.actionMetrics.clear();
+        this.model.setMetrics(metrics);
+        configureMovement(config);
+        configureMalfunctions(config);
+        startJournal(config);
+        this.agentHandles.clear();
+        this.actions = createActionRegistry();
+        createPerceptStore();
+        startLockstep(config);
+        startRun(config);
+        startMetrics(config);
+
+        // initialize GUI if requested, a headless run never shows it
+        if (config.hasFlag("gui") && !config.hasFlag("headless")) {
+            this.view = new FactoryView(this.model, createRenderScheduler(config));
             view.setEnvironment(this);
         }
     }
 
     /**
-     * Execute an action based on the agent's name and the action structure.
-     * This method interprets the action and updates the state of the factory accordingly.
+     * Creates the event log described by the configuration,
+     * falling back to the console log if the log file cannot be opened.
+     * @param config the configuration of the run
+     * @return the event log of this environment
      */
-    @Override
-    public boolean executeAction(String agentName, Structure action) {
-        System.out.println("[" + agentName + "] doing: " + action);
-        boolean result = false;
-
-        switch (action.getFunctor()) {
-            case "register_dbot":
-                result = executeInitDeliveryRobot(agentName, action);
-                break;
-            case "register_human":
-                result = executeInitHumanTechnician(agentName, action);
-                break;
-            case "move_towards_target":
-                result = executeMoveTowardsTarget(agentName, action);
-                break;
-            case "move_randomly":
-                result = executeMoveRandomly(agentName, action);
-                break;
-            case "update_battery_level":
-                result = executeUpdateBatteryLevel(agentName, action);
-                break;
-            case "waiting_reparations_due_to_malfunction":
-                result = executeWaitingReparationsDueToMalfunction(agentName, action);
-                break;
-            case "going_towards_charging_station":
-                result = executeMovingTowardsChargingStation(agentName, action);
-                break;
-            case "battery_charging_update":
-                result = executeBatteryChargingUpdate(agentName, action);
-                break;
-            case "moving_to_robot_to_repair_it":
-                result = executeMovingToRobotToRepairIt(agentName, action);
-                break;
-            case "compute_closest_charging_station":
-                result = executeComputeClosestChargingStation(agentName, action);
-                break;
-            case "compute_closest_robot":
-                result = executeComputeClosestRobot(agentName, action);
-                break;
-            case "register_charging_station":
-                result = executeRegisterChargingStation(agentName, action);
-                break;
-            case "recharging_robot_after_malfunction":
-                result = executeRechargingRobotAfterMalfunction(agentName, action);
-                break;
-            case "going_towards_delivery_location":
-                result = executeGoingTowardsDeliveryLocation(agentName, action);
-                break;
-            default:
-                System.err.println("Unknown action: " + action);
-                return false;
-        }
-        return result;
-    }
-
-    /**
-     * Handles the action of a delivery robot going towards a delivery location.
-     * It updates the model and view with the robot's carrying package status
-     * based on the provided action.
-     * @param agentName the name of the agent performing the action
-     * @param action the action structure containing the status of carrying a package
-     * @return true if the action was executed successfully, false otherwise
+    private EventLog createEventLog(FactoryConfig config) {
+        try {
+            return EventLog.fromConfig(config);
+        } catch (IOException | IllegalArgumentException e) {
+            EventLog fallback = EventLog.console();
+            fallback.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot configure the event log, using the console: {}", e);
+            return fallback;
+        }
+    }
+
+    /**
+     * Creates the render scheduler of the view described by the configuration,
+     * falling back to the default frame rate if the one given is not valid.
+     * @param config the configuration of the run
+     * @return the scheduler of the frames of the view
      */
-    private boolean executeGoingTowardsDeliveryLocation(String agentName, Structure action) {
+    private RenderScheduler createRenderScheduler(FactoryConfig config) {
         try {
-            if (action.getArity() != 1) {
-                System.err.println("going_towards_delivery_location expects 1 argument: Status");
-                return false;
-            }
-            Term statusT = action.getTerm(0);
-            if (!(statusT instanceof Atom)) {
-                System.err.println("going_towards_delivery_location argument must be: Status (Atom) but got: " + (statusT.getClass().getSimpleName()));
-                return false;
-            }
-            String status = ((Atom) statusT).toString();
-            DeliveryRobot robot = (DeliveryRobot) model.getAgentById(FactoryUtils.getAgIdBasedOnName(agentName));
-            if (robot == null) {
-                System.err.println("Unknown robot: " + agentName);
-                return false;
-            }
-            
-            // store previous state for comparison
-            boolean previousCarryingState = robot.isCarryingPackage();
-            robot.setCarryingPackage(status.equals("true"));
-            
-            // only update view if state actually changed
-            if (view != null && previousCarryingState != robot.isCarryingPackage()) {
-                view.updateAgent(robot.getLocation(), FactoryUtils.getAgIdBasedOnName(agentName));
-            }
-            
-            return true;
-        } catch (Exception e) {
-            System.err.println("Error updating carrying package status for " + agentName + ": " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            return RenderScheduler.fromConfig(config, model.getWidth(), model.getHeight());
+        } catch (IllegalArgumentException e) {
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot configure the frame rate, using {} fps: {}", RenderScheduler.DEFAULT_FPS, e.getMessage());
+            return new RenderScheduler(model.getWidth(), model.getHeight(), RenderScheduler.DEFAULT_FPS);
         }
     }
 
     /**
-     *  Handles the action of a delivery robot moving towards a target location.
-     *  It updates the robot's location in the model and view.
-     * @param agentName the name of the agent performing the action
-     * @param action the action structure containing the target location
-     * @return true if the action was executed successfully, false otherwise
+     * Creates the simulation clock described by the configuration,
+     * falling back to real time if the speedup is not valid.
+     * @param config the configuration of the run
+     * @return the clock of this environment
      */
-    private boolean executeMovingToRobotToRepairIt(String agentName, Structure action) {
+    private SimulationClock createClock(FactoryConfig config) {
         try {
-            if (action.getArity() != 1) {
-                System.err.println("moving_to_robot_to_repair_it expects 1 argument: Status");
-                return false;
-            }
-            Term statusT = action.getTerm(0);
-            if (!(statusT instanceof Atom)) {
-                System.err.println("moving_to_robot_to_repair_it argument must be: Status (Atom)");
-                return false;
+            SimulationClock configured = SimulationClock.fromConfig(config);
+            if (!configured.isRealTime()) {
+                eventLog.log(LogCategory.SYSTEM, LogLevel.INFO, "Simulation clock running {} times faster than real time", configured.getSpeedup());
             }
-            String status = ((Atom) statusT).toString();
-            DeliveryRobot robot = (DeliveryRobot) model.getAgentById(FactoryUtils.getAgIdBasedOnName(agentName));
-            if (robot == null) {
-                System.err.println("Unknown robot: " + agentName);
-                return false;
-            }
-            
-            // store previous state for comparison
-            boolean previousHelpingState = robot.isHelpingRobot();
-            robot.setHelpingRobot(status.equals("true"));
-            
-            // update view if helping state changed
-            if (view != null && previousHelpingState != robot.isHelpingRobot()) {
-                view.updateAgent(robot.getLocation(), FactoryUtils.getAgIdBasedOnName(agentName));
-            }
-            
-            return true;
-        } catch (Exception e) {
-            System.err.println("Error updating helping robot status for " + agentName + ": " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            return configured;
+        } catch (IllegalArgumentException e) {
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot configure the simulation clock, running in real time: {}", e.getMessage());
+            return new SimulationClock(1.0);
         }
     }
 
     /**
-     *  Executes the action of recharging a robot sharing
-     *  its battery with another one after a malfunction.
-     * @param agentName the name of the agent performing the action
-     * @param action the action structure containing the status of battery sharing
-     * @return true if the action was executed successfully, false otherwise
+     * Creates the model described by the configuration,
+     * falling back to the default grid if its size is not valid.
+     * @param config the configuration of the run
+     * @return the model of this environment
      */
-    private boolean executeRechargingRobotAfterMalfunction(String agentName, Structure action) {
+    private FactoryModel createModel(FactoryConfig config) {
         try {
-            if (action.getArity() != 1) {
-                System.err.println("recharging_robot_after_malfunction expects 1 argument: Status");
-                return false;
-            }
-            Term statusT = action.getTerm(0);
-            if (!(statusT instanceof Atom)) {
-                System.err.println("recharging_robot_after_malfunction argument must be: Status (Atom)");
-                return false;
-            }
-            String status = ((Atom) statusT).toString();
-            DeliveryRobot robot = (DeliveryRobot) model.getAgentById(FactoryUtils.getAgIdBasedOnName(agentName));
-            if (robot == null) {
-                System.err.println("Unknown robot: " + agentName);
-                return false;
-            }
-            
-            // store previous state for comparison
-            boolean previousBatterySharingState = robot.isBatterySharingActive();
-            robot.setBatterySharingActive(status.equals("true"));
-            
-            // update view if battery sharing state changed
-            if (view != null && previousBatterySharingState != robot.isBatterySharingActive()) {
-                view.updateAgent(robot.getLocation(), FactoryUtils.getAgIdBasedOnName(agentName));
-            }
-            
-            return true;
-        } catch (Exception e) {
-            System.err.println("Error updating battery sharing active status for " + agentName + ": " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            FactoryModel configured = FactoryModel.fromConfig(config);
+            eventLog.log(LogCategory.SYSTEM, LogLevel.INFO, "Factory grid of {}x{} cells", configured.getWidth(), configured.getHeight());
+            return configured;
+        } catch (IllegalArgumentException e) {
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot configure the factory grid, using the default one: {}", e.getMessage());
+            return config.has("seed") ? new FactoryModel(new Random(config.getLong("seed", 0L))) : new FactoryModel();
         }
     }
 
     /**
-     * Executes the action of charging a battery of a delivery robot, updating its battery level.
-     * @param agentName the name of the agent performing the action
-     * @param action the action structure containing the status of battery charging
-     * @return true if the action was executed successfully, false otherwise
+     * Sets how the robots find their way, keeping the greedy movement if the mode is not valid.
+     * @param config the configuration of the run
      */
-    private boolean executeBatteryChargingUpdate(String agentName, Structure action) {
+    private void configureMovement(FactoryConfig config) {
         try {
-            if (action.getArity() != 1) {
-                System.err.println("battery_charging_update expects 1 argument: Status");
-                return false;
-            }
-            Term statusT = action.getTerm(0);
-            if (!(statusT instanceof Atom)) {
-                System.err.println("battery_charging_update argument must be: Status (Atom)");
-                return false;
-            }
-            String status = ((Atom) statusT).toString();
-            DeliveryRobot robot = (DeliveryRobot) model.getAgentById(FactoryUtils.getAgIdBasedOnName(agentName));
-            if (robot == null) {
-                System.err.println("Unknown robot: " + agentName);
-                return false;
-            }
-            
-            // store previous state for comparison
-            boolean previousChargingState = robot.isCharging();
-            robot.setCharging(status.equals("true"));
-            
-            // update view if charging state changed
-            if (view != null && previousChargingState != robot.isCharging()) {
-                view.updateAgent(robot.getLocation(), FactoryUtils.getAgIdBasedOnName(agentName));
-            }
-            
-            return true;
-        } catch (Exception e) {
-            System.err.println("Error updating charging status for " + agentName + ": " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            MovementMode mode = MovementMode.fromConfig(config);
+            model.getMovementManager().setMode(mode);
+            eventLog.log(LogCategory.SYSTEM, LogLevel.INFO, "Robots moving in {} mode", mode);
+        } catch (IllegalArgumentException e) {
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot configure the movement, using the greedy one: {}", e.getMessage());
         }
     }
 
     /**
-     * Executes the action of moving a delivery robot towards a target location.
-     * It updates the robot's location in the model and view.
-     * @param agentName the name of the agent performing the action
-     * @param action the action structure containing the target location
-     * @return true if the action was executed successfully, false otherwise
+     * Sets the probability of a malfunction at each check of a moving robot if {@code malfunction=<probability>} is given,
+     * leaving the draw to the agents if the probability is not valid.
+     * @param config the configuration of the run
      */
-    private boolean executeMovingTowardsChargingStation(String agentName, Structure action) {
+    private void configureMalfunctions(FactoryConfig config) {
+        if (!config.has("malfunction")) {
+            return;
+        }
         try {
-            if (action.getArity() != 1) {
-                System.err.println("going_towards_charging_station expects 1 argument: Status");
-                return false;
-            }
-            Term statusT = action.getTerm(0);
-            if (!(statusT instanceof Atom)) {
-                System.err.println("going_towards_charging_station argument must be: Status (Atom)");
-                return false;
+            double probability = config.getDouble("malfunction", -1);
+            if (probability < 0) {
+                throw new IllegalArgumentException("Malfunction probability cannot be negative but was " + probability);
             }
-            String status = ((Atom) statusT).toString();
-            DeliveryRobot robot = (DeliveryRobot) model.getAgentById(FactoryUtils.getAgIdBasedOnName(agentName));
-            if (robot == null) {
-                System.err.println("Unknown robot: " + agentName);
-                return false;
-            }
-            
-            // store previous state for comparison
-            boolean previousSeekingState = robot.isSeekingChargingStation();
-            robot.setSeekingChargingStation(status.equals("true"));
-            
-            // update view if seeking state changed
-            if (view != null && previousSeekingState != robot.isSeekingChargingStation()) {
-                view.updateAgent(robot.getLocation(), FactoryUtils.getAgIdBasedOnName(agentName));
-            }
-            
-            return true;
-        } catch (Exception e) {
-            System.err.println("Error updating seeking charging station status for " + agentName + ": " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            model.setMalfunctionProbability(probability);
+            eventLog.log(LogCategory.SYSTEM, LogLevel.INFO, "Robots malfunctioning with probability {} per check", probability);
+        } catch (IllegalArgumentException e) {
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot configure the malfunctions, leaving them to the agents: {}", e.getMessage());
         }
     }
 
     /**
-     * Handles the malfunctioning status of a delivery robot waiting for reparations.
-     * @param agentName the name of the agent performing the action
-     * @param action the action structure containing the new battery level
-     * @return true if the action was executed successfully, false otherwise
+     * Records the changes of the model in the journal given by {@code journal=<directory>},
+     * running without a journal if it cannot be created.
+     * @param config the configuration of the run
      */
-    private boolean executeWaitingReparationsDueToMalfunction(String agentName, Structure action) {
+    private void startJournal(FactoryConfig config) {
+        closeJournal();
         try {
-            if (action.getArity() != 1) {
-                System.err.println("waiting_reparations_due_to_malfunction expects 1 argument: Status");
-                return false;
-            }
-            Term statusT = action.getTerm(0);
-            if (!(statusT instanceof Atom)) {
-                System.err.println("waiting_reparations_due_to_malfunction argument must be: Status (Atom)");
-                return false;
-            }
-            String status = ((Atom) statusT).toString();
-            DeliveryRobot robot = (DeliveryRobot) model.getAgentById(FactoryUtils.getAgIdBasedOnName(agentName));
-            if (robot == null) {
-                System.err.println("Unknown robot: " + agentName);
-                return false;
-            }
-            
-            // store previous state for comparison
-            boolean previousMalfunctioningState = robot.isMalfunctioning();
-            robot.setMalfunctioning(status.equals("true"));
-            
-            // update view if malfunction state changed
-            if (view != null && previousMalfunctioningState != robot.isMalfunctioning()) {
-                view.updateAgent(robot.getLocation(), FactoryUtils.getAgIdBasedOnName(agentName));
-            }
-            
-            return true;
-        } catch (Exception e) {
-            System.err.println("Error updating malfunctioning status for " + agentName + ": " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            journal = ModelJournal.fromConfig(config, clock);
+        } catch (IOException | IllegalArgumentException e) {
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot create the journal, running without it: {}", e.getMessage());
+            journal = ModelJournal.disabled();
+        }
+        if (journal.isEnabled()) {
+            model.setJournal(journal);
+            eventLog.log(LogCategory.SYSTEM, LogLevel.INFO, "Journal of the model written to {}", journal.getDirectory());
         }
     }
 
     /**
-     * Executes the initialization of a delivery robot,
-     * setting its name, location, and battery level.
-     * @param agentName the name of the agent performing the action
-     * @param action the action structure containing the new battery level
-     * @return true if the action was executed successfully, false otherwise
+     * Closes the journal of the model, reporting the records it had to drop.
      */
-    private boolean executeInitDeliveryRobot(String agentName, Structure action) {
+    private void closeJournal() {
+        if (!journal.isEnabled()) {
+            return;
+        }
         try {
-            if (action.getArity() != 4) {
-                System.err.println("register_dbot expects 4 arguments: Name, X, Y, BatteryLevel");
-                return false;
-            }
-            Term nameT = action.getTerm(0);
-            Term xT = action.getTerm(2);
-            Term yT = action.getTerm(3);
-            Term batteryT = action.getTerm(1);
-            if (!(xT instanceof NumberTerm) || !(yT instanceof NumberTerm) || !(batteryT instanceof NumberTerm) || !(nameT instanceof Atom)) {
-                System.err.println("register_dbot arguments must be: Name (Atom), X (Number), Y (Number), BatteryLevel (Number) but got: " + (nameT.getClass().getSimpleName()) + ", " + (xT.getClass().getSimpleName()) + ", " + (yT.getClass().getSimpleName()) + ", " + (batteryT.getClass().getSimpleName()));
-                return false;
-            }
-            String name = ((Atom) nameT).toString();
-            int x = (int) ((NumberTerm) xT).solve();
-            int y = (int) ((NumberTerm) yT).solve();
-            int batteryLevel = (int) ((NumberTerm) batteryT).solve();
-            // register in the model
-            Location loc = new Location(x, y);
-            DeliveryRobot robot = new DeliveryRobot(name, batteryLevel, loc);
-            model.addDeliveryRobot(robot);
-            addPercept(agentName, Structure.parse("robot_initialized(" + x + "," + y + "," + batteryLevel + ")"));
-            return true;
-        } catch (Exception e) {
-            System.err.println("Error initializing delivery robot for " + agentName + ": " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            journal.close();
+        } catch (IOException e) {
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot close the journal {}", journal.getDirectory(), e);
+        }
+        if (journal.getFailure() != null) {
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Journal stopped after {} records, {} dropped: {}",
+                journal.getRecords(), journal.getDropped(), journal.getFailure().getMessage());
         }
     }
 
     /**
-     * Executes the initialization of a human agent.
+     * Returns the virtual clock of the simulation.
+     * @return the simulation clock
+     */
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Returns the simulated time elapsed since the environment started.
+     * @return the simulated milliseconds since the start of the run
+     */
+    public long getSimulationTime() {
+        return clock.currentTimeMillis();
+    }
+
+    /**
+     * Runs the environment in lockstep if requested by the {@code lockstep} flag:
+     * the actions of a tick of {@code tick} simulated milliseconds (default 750) are executed together,
+     * and the percepts they change are published together at the end of the tick.
+     * The tick then paces the agents, whose {@code utils.step_wait} does not wait on top of it.
+     * @param config the configuration of the run
      */
-    private boolean executeInitHumanTechnician(String agentName, Structure action) {
+    private void startLockstep(FactoryConfig config) {
+        if (stepCoordinator != null) {
+            stepCoordinator.stop();
+            stepCoordinator = null;
+        }
+        if (!config.hasFlag("lockstep")) {
+            return;
+        }
+        long tick = config.getLong("tick", 750L);
+        percepts.setDeferred(true);
+        stepCoordinator = new StepCoordinator(agName -> getAgentHandle(agName).getId(), this::executeAction,
+            percepts::publish, this::reportActionExecuted, eventLog);
+        stepCoordinator.start(clock.toRealMillis(tick));
+        eventLog.log(LogCategory.SYSTEM, LogLevel.INFO, "Lockstep mode with ticks of {} simulated ms", tick);
+    }
+
+    /**
+     * Starts collecting the run summary. In a headless run, the {@code duration} and {@code packages}
+     * options end the simulation, and the summary is written to the {@code summary} file;
+     * outside of headless runs it is only written if a {@code summary} file is given.
+     * @param config the configuration of the run
+     */
+    private void startRun(FactoryConfig config) {
+        if (runController != null) {
+            runController.close();
+            runController = null;
+        }
+        this.runSummary = new RunSummary(clock);
+        if (!config.hasFlag("headless") && !config.has("summary")) {
+            return;
+        }
         try {
-            if (action.getArity() != 3) {
-                System.err.println("register_human expects 3 arguments: Name, X, Y");
-                return false;
-            }
-            Term nameT = action.getTerm(0);
-            Term xLoc = action.getTerm(1);
-            Term yLoc = action.getTerm(2);
-            if (!(nameT instanceof Atom) || !(xLoc instanceof NumberTerm) || !(yLoc instanceof NumberTerm)) {
-                System.err.println("register_human arguments must be: Name (Atom), X (Number), Y (Number) but got: " + (nameT.getClass().getSimpleName()) + ", " + (xLoc.getClass().getSimpleName()) + ", " + (yLoc.getClass().getSimpleName()));
-                return false;
-            }
-            String name = ((Atom) nameT).toString();
-            int x = (int) ((NumberTerm) xLoc).solve();
-            int y = (int) ((NumberTerm) yLoc).solve();
-            // register in the model
-            Location loc = new Location(x, y);
-            HumanTechnician human = new HumanTechnician(name, loc);
-            model.addHumanTechnician(human);
-            addPercept(agentName, Structure.parse("human_initialized(" + x + "," + y + ")"));
-            model.getMovementManager().updatePos(FactoryUtils.getAgIdBasedOnName(human.getName()), loc);
-            return true;
-        } catch (Exception e) {
-            System.err.println("Error initializing human agent for " + agentName + ": " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            runController = RunController.fromConfig(config, runSummary, this::stopSimulation, eventLog);
+        } catch (IllegalArgumentException e) {
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot configure the run, no summary will be written: {}", e.getMessage());
+            return;
+        }
+        if (config.hasFlag("headless")) {
+            runController.start();
         }
     }
 
     /**
-     * Executes the action of registering a charging station in the environment.
-     * @param agentName the name of the agent performing the action
-     * @param action the action structure containing the charging station location
-     * @return true if the action was executed successfully, false otherwise
+     * Publishes the metrics of the hot paths over JMX and, if {@code metrics.port=<port>} is given,
+     * over HTTP on the loopback interface; a failure to publish them does not stop the run.
+     * @param config the configuration of the run
      */
-    private boolean executeRegisterChargingStation(String agName, Structure action) {
+    private void startMetrics(FactoryConfig config) {
+        if (metricsExporter != null) {
+            metricsExporter.close();
+            metricsExporter = null;
+        }
         try {
-            if (action.getArity() != 2) {
-                System.err.println("register_charging_station expects 2 arguments: X, Y");
-                return false;
-            }
-            Term xT = action.getTerm(0);
-            Term yT = action.getTerm(1);
-            if (!(xT instanceof NumberTerm) || !(yT instanceof NumberTerm)) {
-                System.err.println("register_charging_station arguments must be numbers");
-                return false;
+            metricsExporter = MetricsExporter.fromConfig(config, metrics);
+        } catch (IllegalArgumentException e) {
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot configure the metrics endpoint, publishing them over JMX only: {}", e.getMessage());
+            metricsExporter = new MetricsExporter(metrics, -1);
+        }
+        try {
+            metricsExporter.registerMBean();
+        } catch (JMException e) {
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot register the metrics MBean {}", MetricsExporter.OBJECT_NAME, e);
+        }
+        try {
+            int port = metricsExporter.startHttp();
+            if (port >= 0) {
+                eventLog.log(LogCategory.SYSTEM, LogLevel.INFO, "Metrics served at http://127.0.0.1:{}{}", port, MetricsExporter.PATH);
             }
-            int x = (int) ((NumberTerm) xT).solve();
-            int y = (int) ((NumberTerm) yT).solve();
+        } catch (IOException e) {
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot serve the metrics over HTTP: {}", e.getMessage());
+        }
+    }
 
-            // register in the model
-            Location loc = new Location(x, y);
-            model.addChargingStation(agName, loc);
+    /**
+     * Returns the counters and latency histograms of the hot paths of this environment.
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
 
-            // optionally, inform the agent
-            addPercept(agName, Structure.parse("station_registered(" + x + "," + y + ")"));
-            return true;
+    /**
+     * Stops the whole multi-agent system at the end of a headless run.
+     */
+    private void stopSimulation() {
+        if (getEnvironmentInfraTier() == null) {
+            return;
+        }
+        try {
+            getEnvironmentInfraTier().getRuntimeServices().stopMAS();
         } catch (Exception e) {
-            System.err.println("Error registering charging station for " + agName + ": " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot stop the simulation", e);
         }
     }
 
     /**
-     * Execute move_randomly action, moving in a 
-     * completely random direction without any logic.
-     * @param agentName the name of the agent performing the action
-     * @param action the action structure containing the agent's current location
-     * @return true if the action was executed successfully, false otherwise
+     * Returns the figures collected about this run.
+     * @return the run summary
      */
-    private boolean executeMoveRandomly(String agentName, Structure action) {
-        try {
-            // parse target coordinates from action parameters
-            if (action.getArity() != 2) {
-                System.err.println("move_towards_target expects 2 arguments: AgentLocationX, AgentLocationY");
-                return false;
-            }
+    public RunSummary getRunSummary() {
+        return runSummary;
+    }
 
-            Term agLocationXTerm = action.getTerm(0);
-            Term agLocationYTerm = action.getTerm(1);
+    /**
+     * Queues the action for the current tick in lockstep mode, or executes it right away otherwise.
+     */
+    @Override
+    public void scheduleAction(String agName, Structure action, Object infraData) {
+        StepCoordinator coordinator = this.stepCoordinator;
+        if (coordinator != null) {
+            coordinator.submit(agName, action, infraData);
+        } else {
+            super.scheduleAction(agName, action, infraData);
+        }
+    }
 
-            if (!(agLocationXTerm instanceof NumberTerm) || !(agLocationYTerm instanceof NumberTerm)) {
-                System.err.println("move_towards_target arguments must be numbers");
-                return false;
-            }
+    /**
+     * Gives the outcome of an action executed in lockstep back to its agent.
+     * @param agName the name of the agent
+     * @param action the executed action
+     * @param success whether the action succeeded
+     * @param infraData the data given by the infrastructure with the action
+     */
+    private void reportActionExecuted(String agName, Structure action, boolean success, Object infraData) {
+        if (getEnvironmentInfraTier() != null) {
+            getEnvironmentInfraTier().actionExecuted(agName, action, success, infraData);
+        }
+    }
 
-            int agLocationX = (int) ((NumberTerm) agLocationXTerm).solve();
-            int agLocationY = (int) ((NumberTerm) agLocationYTerm).solve();
-            Location agentLocation = new Location(agLocationX, agLocationY);
+    /**
+     * Returns the coordinator of the lockstep mode.
+     * @return the step coordinator, or null if the environment is not in lockstep
+     */
+    public StepCoordinator getStepCoordinator() {
+        return stepCoordinator;
+    }
 
-            // get agent ID from name
-            int agentId = FactoryUtils.getAgIdBasedOnName(agentName);
-            if (agentId == -1) {
-                System.err.println("Unknown agent: " + agentName);
-                return false;
-            }
+    /**
+     * Stops the environment, writing out every pending event of the log and the journal.
+     */
+    @Override
+    public void stop() {
+        if (stepCoordinator != null) {
+            stepCoordinator.stop();
+            percepts.setDeferred(false);
+        }
+        if (runController != null) {
+            runController.close();
+        }
+        if (metricsExporter != null) {
+            metricsExporter.close();
+        }
+        closeJournal();
+        super.stop();
+        eventLog.close();
+    }
+
+    /**
+     * Defines the single-valued percepts that the environment keeps up to date for each agent.
+     */
+    private void createPerceptStore() {
+        this.percepts = new PerceptStore(this, metrics);
+        this.currentPosition = percepts.define("current_position", 2);
+        this.batteryLevel = percepts.define("batteryLevel", 1);
+        this.closestChargingStation = percepts.define("closestChargingStation", 3);
+        this.closestRobot = percepts.define("closestRobot", 3);
+    }
+
+    /**
+     * Returns the store of the single-valued percepts of the agents.
+     * @return the percept store
+     */
+    public PerceptStore getPerceptStore() {
+        return percepts;
+    }
 
-            // execute one step movement using MovementManager
-            model.getMovementManager().updatePos(agentId, agentLocation);
+    /**
+     * Builds the table of actions understood by this environment.
+     * Every action is bound to its functor, its arity and the type of each argument,
+     * so that handlers only receive validated and decoded values.
+     * @return the registry of all the actions of the factory
+     */
+    private ActionRegistry createActionRegistry() {
+        ActionRegistry registry = new ActionRegistry(eventLog);
+        registry.register("register_dbot", "Name, BatteryLevel, X, Y", this::executeInitDeliveryRobot,
+            ArgType.NAME, ArgType.INT, ArgType.INT, ArgType.INT);
+        registry.register("register_human", "Name, X, Y", this::executeInitHumanTechnician,
+            ArgType.NAME, ArgType.INT, ArgType.INT);
+        registry.register("register_charging_station", "X, Y", this::executeRegisterChargingStation,
+            ArgType.INT, ArgType.INT);
+        registry.register("move_towards_target", "TargetX, TargetY, AgentLocationX, AgentLocationY", this::executeMoveTowardsTarget,
+            ArgType.INT, ArgType.INT, ArgType.INT, ArgType.INT);
+        registry.register("move_randomly", "AgentLocationX, AgentLocationY", this::executeMoveRandomly,
+            ArgType.INT, ArgType.INT);
+        registry.register("update_battery_level", "NewBatteryLevel", this::executeUpdateBatteryLevel,
+            ArgType.INT);
+        registry.register("compute_closest_charging_station", "StationList, ThisRobotX, ThisRobotY", this::executeComputeClosestChargingStation,
+            ArgType.LIST, ArgType.INT, ArgType.INT);
+        registry.register("query_closest_charging_station", "ThisRobotX, ThisRobotY", this::executeQueryClosestChargingStation,
+            ArgType.INT, ArgType.INT);
+        registry.register("compute_closest_robot", "RobotList, ThisRobotX, ThisRobotY", this::executeComputeClosestRobot,
+            ArgType.LIST, ArgType.INT, ArgType.INT);
+
+        // status actions only toggle one flag of the robot
+        registry.register("going_towards_delivery_location", "Status",
+            (agent, args) -> executeStatusUpdate(agent, args.getBool(0), DeliveryRobot.CARRYING_PACKAGE,
+                this::recordDelivery),
+            ArgType.BOOL);
+        registry.register("moving_to_robot_to_repair_it", "Status",
+            (agent, args) -> executeStatusUpdate(agent, args.getBool(0), DeliveryRobot.HELPING_ROBOT),
+            ArgType.BOOL);
+        registry.register("recharging_robot_after_malfunction", "Status",
+            (agent, args) -> executeStatusUpdate(agent, args.getBool(0), DeliveryRobot.BATTERY_SHARING),
+            ArgType.BOOL);
+        registry.register("battery_charging_update", "Status",
+            (agent, args) -> executeStatusUpdate(agent, args.getBool(0), DeliveryRobot.CHARGING),
+            ArgType.BOOL);
+        registry.register("going_towards_charging_station", "Status",
+            (agent, args) -> executeStatusUpdate(agent, args.getBool(0), DeliveryRobot.SEEKING_CHARGING_STATION),
+            ArgType.BOOL);
+        registry.register("waiting_reparations_due_to_malfunction", "Status",
+            (agent, args) -> executeStatusUpdate(agent, args.getBool(0), DeliveryRobot.MALFUNCTIONING,
+                this::recordMalfunction),
+            ArgType.BOOL);
+        return registry;
+    }
 
-            // get new position after move
-            Location newPos = model.getAgPos(agentId);
+    /**
+     * Execute an action based on the agent's name and the action structure.
+     * This method interprets the action and updates the state of the factory accordingly.
+     */
+    @Override
+    public boolean executeAction(String agentName, Structure action) {
+        eventLog.log(LogCategory.ACTION, LogLevel.INFO, "[{}] doing: {}", agentName, action);
+        runSummary.actionExecuted();
+        ActionEvent event = new ActionEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = actions.dispatch(getAgentHandle(agentName), action);
+        getActionMetrics(action.getFunctor()).record(success, System.nanoTime() - start);
+        event.complete(agentName, action.getFunctor(), success);
+        return success;
+    }
 
-            // update agent with new position
-            updateAgentPosition(agentName, newPos);
+    /**
+     * Returns the series of the metrics registry receiving the actions of a functor, looked up once per functor.
+     * @param functor the functor of the actions
+     * @return the metrics of the actions
+     */
+    private ActionMetrics getActionMetrics(String functor) {
+        ActionMetrics functorMetrics = actionMetrics.get(functor);
+        if (functorMetrics == null) {
+            MetricsRegistry registry = this.metrics;
+            functorMetrics = actionMetrics.computeIfAbsent(functor, name -> new ActionMetrics(registry, name));
+        }
+        return functorMetrics;
+    }
 
-            return true;
-        } catch (Exception e) {
-            System.err.println("Error executing move_randomly for " + agentName + ": " + e.getMessage());
-            e.printStackTrace();
-            return false;
+    /**
+     * Returns the cached handle of an agent, creating it the first time the agent acts.
+     * @param agentName the name of the agent
+     * @return the handle of the agent
+     */
+    private AgentHandle getAgentHandle(String agentName) {
+        if (agentName == null) {
+            return new AgentHandle(null, -1, model);
         }
+        AgentHandle handle = agentHandles.get(agentName);
+        if (handle == null) {
+            handle = agentHandles.computeIfAbsent(agentName, name -> new AgentHandle(name, model.getAgentRegistry().getId(name), model));
+        }
+        return handle;
     }
 
     /**
-     * Execute move_towards_target action, moving towards a specified target location.
-     * @param agName the name of the agent performing the action
-     * @param action the action structure containing the target coordinates and agent's current location
+     * Handles the actions that toggle a single status flag of a delivery robot,
+     * such as carrying a package, charging or waiting for reparations.
+     * The view is only updated when the flag actually changes.
+     * @param agent the handle of the agent performing the action
+     * @param status the new value of the flag
+     * @param flag the flag, one of the flags of {@link DeliveryRobot}
      * @return true if the action was executed successfully, false otherwise
      */
-    private boolean executeMoveTowardsTarget(String agName, Structure action) {
-        try {
-            // parse target coordinates from action parameters
-            if (action.getArity() != 4) {
-                System.err.println("move_towards_target expects 4 arguments: TargetX, TargetY, AgentLocationX, AgentLocationY");
-                return false;
-            }
-            
-            Term targetXTerm = action.getTerm(0);
-            Term targetYTerm = action.getTerm(1);
-            Term agLocationXTerm = action.getTerm(2);
-            Term agLocationYTerm = action.getTerm(3);
-            
-            if (!(targetXTerm instanceof NumberTerm) || !(targetYTerm instanceof NumberTerm) || !(agLocationXTerm instanceof NumberTerm) || !(agLocationYTerm instanceof NumberTerm)) {
-                System.err.println("move_towards_target arguments must be numbers");
-                return false;
-            }
-            
-            int targetX = (int) ((NumberTerm) targetXTerm).solve();
-            int targetY = (int) ((NumberTerm) targetYTerm).solve();
-            int agLocationX = (int) ((NumberTerm) agLocationXTerm).solve();
-            int agLocationY = (int) ((NumberTerm) agLocationYTerm).solve();
-            Location destination = new Location(targetX, targetY);
-            Location agentLocation = new Location(agLocationX, agLocationY);
-
-            // get agent ID from name
-            int agentId = FactoryUtils.getAgIdBasedOnName(agName);
-            if (agentId == -1) {
-                System.err.println("Unknown agent: " + agName);
-                return false;
-            }
+    private boolean executeStatusUpdate(AgentHandle agent, boolean status, int flag) {
+        return executeStatusUpdate(agent, status, flag, null);
+    }
 
-            // execute one step movement using MovementManager
-            boolean moveSuccess = model.getMovementManager().moveTowards(agentId, destination, agentLocation);
+    /**
+     * Handles the actions that toggle a single status flag of a delivery robot,
+     * notifying the given listener when the flag actually changes.
+     * The flag is read and written in one atomic step, so that concurrent updates see each change once.
+     * @param agent the handle of the agent performing the action
+     * @param status the new value of the flag
+     * @param flag the flag, one of the flags of {@link DeliveryRobot}
+     * @param onChange receives the name of the agent and the new value when the flag changes, may be null
+     * @return true if the action was executed successfully, false otherwise
+     */
+    private boolean executeStatusUpdate(AgentHandle agent, boolean status, int flag, BiConsumer<String, Boolean> onChange) {
+        DeliveryRobot robot = getDeliveryRobot(agent);
+        if (robot == null) {
+            eventLog.log(LogCategory.ACTION, LogLevel.WARN, "Unknown robot: {}", agent.getName());
+            return false;
+        }
 
-            if (moveSuccess) {
-                // get new position after move
-                Location newPos = model.getAgPos(agentId);
+        // store previous state for comparison
+        boolean previousState = model.setRobotFlag(agent.getId(), flag, status);
 
-                // update agent with new position
-                updateAgentPosition(agName, newPos);
+        if (previousState != status && onChange != null) {
+            onChange.accept(agent.getName(), status);
+        }
 
-                // simulate battery consumption
-                consumeBattery(agName, 1); // 1% per move
-                return true;
-            } else {
-                System.err.println("Move failed for " + agName + " - path might be blocked");
-                return false;
-            }            
-        } catch (Exception e) {
-            System.err.println("Error executing move_towards_target for " + agName + ": " + e.getMessage());
-            return false;
+        // only update view if state actually changed
+        if (view != null && previousState != status) {
+            view.updateAgent(robot.getLocation(), agent.getId());
         }
+        return true;
     }
 
     /**
-     * Execute update_battery_level action, updating the agent's battery level.
-     * @param agName the name of the agent performing the action
-     * @param action the action structure containing the new battery level
+     * Records a package picked up or delivered.
+     * @param agName the name of the robot
+     * @param carrying true if the robot picked up a package, false if it delivered it
+     */
+    private void recordDelivery(String agName, boolean carrying) {
+        if (carrying) {
+            runSummary.deliveryStarted(agName);
+        } else {
+            runSummary.deliveryCompleted(agName);
+        }
+    }
+
+    /**
+     * Records a robot stopping because of a malfunction, or being repaired.
+     * @param agName the name of the robot
+     * @param malfunctioning true if the robot stopped, false if it was repaired
+     */
+    private void recordMalfunction(String agName, boolean malfunctioning) {
+        if (malfunctioning) {
+            runSummary.malfunctionStarted(agName);
+        } else {
+            runSummary.malfunctionRepaired(agName);
+        }
+    }
+
+    /**
+     * Returns the delivery robot behind an agent handle.
+     * @param agent the handle of the agent
+     * @return the delivery robot, or null if the agent is not a registered delivery robot
+     */
+    private DeliveryRobot getDeliveryRobot(AgentHandle agent) {
+        AbstractAgent resolved = agent.getAgent();
+        return resolved instanceof DeliveryRobot ? (DeliveryRobot) resolved : null;
+    }
+
+    /**
+     * Executes the initialization of a delivery robot,
+     * setting its name, location, and battery level.
+     * @param agent the handle of the agent performing the action
+     * @param args the decoded name, battery level and coordinates of the robot
      * @return true if the action was executed successfully, false otherwise
      */
-    private boolean executeUpdateBatteryLevel(String agName, Structure action) {
-        if (action.getArity() != 1) {
-            System.err.println("update_battery_level expects 1 argument: NewBatteryLevel");
-            return false;
+    private boolean executeInitDeliveryRobot(AgentHandle agent, ActionArgs args) {
+        String name = args.getName(0);
+        int batteryLevel = args.getInt(1);
+        int x = args.getInt(2);
+        int y = args.getInt(3);
+        // register in the model
+        Location loc = new Location(x, y);
+        DeliveryRobot robot = new DeliveryRobot(name, batteryLevel, loc);
+        model.addDeliveryRobot(robot);
+        invalidateAgentHandle(name);
+        addPercept(agent.getName(), ASSyntax.createLiteral("robot_initialized", ASSyntax.createNumber(x), ASSyntax.createNumber(y), ASSyntax.createNumber(batteryLevel)));
+        return true;
+    }
+
+    /**
+     * Executes the initialization of a human agent.
+     * @param agent the handle of the agent performing the action
+     * @param args the decoded name and coordinates of the human
+     * @return true if the action was executed successfully, false otherwise
+     */
+    private boolean executeInitHumanTechnician(AgentHandle agent, ActionArgs args) {
+        String name = args.getName(0);
+        int x = args.getInt(1);
+        int y = args.getInt(2);
+        // register in the model
+        Location loc = new Location(x, y);
+        HumanTechnician human = new HumanTechnician(name, loc);
+        model.addHumanTechnician(human);
+        invalidateAgentHandle(name);
+        addPercept(agent.getName(), ASSyntax.createLiteral("human_initialized", ASSyntax.createNumber(x), ASSyntax.createNumber(y)));
+        model.getMovementManager().updatePos(model.getAgentRegistry().getId(human.getName()), loc);
+        return true;
+    }
+
+    /**
+     * Drops the cached model object of an agent that has just been registered.
+     * @param agentName the name of the registered agent
+     */
+    private void invalidateAgentHandle(String agentName) {
+        AgentHandle handle = agentHandles.get(agentName);
+        if (handle != null) {
+            handle.invalidate();
         }
+    }
+
+    /**
+     * Executes the action of registering a charging station in the environment.
+     * @param agent the handle of the agent performing the action
+     * @param args the decoded charging station coordinates
+     * @return true if the action was executed successfully, false otherwise
+     */
+    private boolean executeRegisterChargingStation(AgentHandle agent, ActionArgs args) {
+        int x = args.getInt(0);
+        int y = args.getInt(1);
+
+        // register in the model
+        Location loc = new Location(x, y);
+        model.addChargingStation(agent.getName(), loc);
+        agent.invalidate();
+
+        // optionally, inform the agent
+        addPercept(agent.getName(), ASSyntax.createLiteral("station_registered", ASSyntax.createNumber(x), ASSyntax.createNumber(y)));
+        return true;
+    }
+
+    /**
+     * Execute move_randomly action, moving in a 
+     * completely random direction without any logic.
+     * @param agent the handle of the agent performing the action
+     * @param args the decoded current location of the agent
+     * @return true if the action was executed successfully, false otherwise
+     */
+    private boolean executeMoveRandomly(AgentHandle agent, ActionArgs args) {
+        Location agentLocation = new Location(args.getInt(0), args.getInt(1));
 
-        Term newBatteryLevelTerm = action.getTerm(0);
-        if (!(newBatteryLevelTerm instanceof NumberTerm)) {
-            System.err.println("update_battery_level argument must be a number");
+        if (agent.getId() == -1) {
+            eventLog.log(LogCategory.ACTION, LogLevel.WARN, "Unknown agent: {}", agent.getName());
             return false;
         }
 
-        int newBatteryLevel;
-        try {
-            newBatteryLevel = (int) ((NumberTerm) newBatteryLevelTerm).solve();
-        } catch (NoValueException e) {
-            e.printStackTrace();
+        // execute one step movement using MovementManager
+        model.getMovementManager().updatePos(agent.getId(), agentLocation);
+
+        // update agent with new position
+        updateAgentPosition(agent, model.getAgPos(agent.getId()));
+        return true;
+    }
+
+    /**
+     * Execute move_towards_target action, moving towards a specified target location.
+     * An agent that has to wait for a free cell stays in place without using battery and the action fails,
+     * so that the agent can tell a wait from a step and try again.
+     * @param agent the handle of the agent performing the action
+     * @param args the decoded target coordinates and agent's current location
+     * @return true if the agent moved, false if it waited or is unknown
+     */
+    private boolean executeMoveTowardsTarget(AgentHandle agent, ActionArgs args) {
+        Location destination = new Location(args.getInt(0), args.getInt(1));
+        Location agentLocation = new Location(args.getInt(2), args.getInt(3));
+
+        if (agent.getId() == -1) {
+            eventLog.log(LogCategory.ACTION, LogLevel.WARN, "Unknown agent: {}", agent.getName());
             return false;
         }
 
+        // execute one step movement using MovementManager
+        boolean moved = model.getMovementManager().moveTowards(agent.getId(), destination, agentLocation);
+
+        // update agent with new position
+        updateAgentPosition(agent, model.getAgPos(agent.getId()));
+        if (moved) {
+            // simulate battery consumption
+            consumeBattery(agent, 1); // 1% per move
+        } else if (eventLog.isEnabled(LogCategory.MOVEMENT, LogLevel.DEBUG)) {
+            eventLog.log(LogCategory.MOVEMENT, LogLevel.DEBUG, "{} waited at {} - path is blocked", agent.getName(), agentLocation);
+        }
+        return moved;
+    }
+
+    /**
+     * Execute update_battery_level action, updating the agent's battery level.
+     * @param agent the handle of the agent performing the action
+     * @param args the decoded new battery level
+     * @return true if the action was executed successfully, false otherwise
+     */
+    private boolean executeUpdateBatteryLevel(AgentHandle agent, ActionArgs args) {
+        int newBatteryLevel = args.getInt(0);
         if (newBatteryLevel < 0 || newBatteryLevel > 100) {
-            System.err.println("Battery level must be between 0 and 100");
+            if (eventLog.isEnabled(LogCategory.ACTION, LogLevel.WARN)) {
+                eventLog.log(LogCategory.ACTION, LogLevel.WARN, "Battery level must be between 0 and 100 but {} sent {}", agent.getName(), newBatteryLevel);
+            }
             return false;
         }
 
-        updateBatteryLevel(agName, newBatteryLevel);
+        updateBatteryLevel(agent, newBatteryLevel);
         return true;
     }
 
     /**
      * Update the agent's position percepts and model state.
-     * This method removes the old position percept and adds a new one based on the provided location.
-     * It also updates the DeliveryRobot's location in the model.
-     * @param agName the name of the agent whose position is being updated
+     * This method replaces the position percept, leaving it untouched if the agent did not move.
+     * It also updates the DeliveryRobot's location in the model and marks the agent for the next frame of the view.
+     * @param agent the handle of the agent whose position is being updated
      * @param newPos the new location of the agent
      */
-    private void updateAgentPosition(String agName, Location newPos) {
-        // Remove old position percept
-        removePerceptsByUnif(agName, Literal.parseLiteral("current_position(_,_)"));
-
-        // Add new position percept
-        addPercept(agName, Literal.parseLiteral("current_position(" + newPos.x + "," + newPos.y + ")"));
+    private void updateAgentPosition(AgentHandle agent, Location newPos) {
+        percepts.update(agent.getName(), currentPosition, newPos.x, newPos.y);
 
-        AbstractAgent agent = model.getAgentById(FactoryUtils.getAgIdBasedOnName(agName));
-        if (agent == null) {
+        AbstractAgent resolved = agent.getAgent();
+        if (resolved == null) {
             return;
         }
 
-        agent.setLocation(newPos);
+        model.setAgentLocation(resolved, newPos);
+        if (view != null) {
+            view.updateAgent(newPos, agent.getId());
+        }
     }
     
     /**
      * Update the battery level of a delivery robot.
-     * This method removes the old battery level percept and adds a new one.
+     * This method replaces the battery level percept, leaving it untouched if the level did not change.
      * It also updates the DeliveryRobot's battery level in the model and view if applicable.
      * @param agName the name of the agent whose battery level is being updated
      * @param newBatteryLevel the new battery level to set
      */
     public void updateBatteryLevel(String agName, int newBatteryLevel) {
-        try {
-            // remove old battery level percept
-            removePerceptsByUnif(agName, Literal.parseLiteral("batteryLevel(_)"));
-            
-            // add new battery level percept
-            addPercept(agName, Literal.parseLiteral("batteryLevel(" + newBatteryLevel + ")"));
-
-            // update the model's battery level
-            int agentId = FactoryUtils.getAgIdBasedOnName(agName);
-            if (agentId == -1) {
-                System.err.println("Unknown agent: " + agName);
-                return;
-            }
-            // update the DeliveryRobot's battery level in the model
-            DeliveryRobot dbot = (DeliveryRobot) model.getAgentById(agentId);
-            dbot.setBattery(newBatteryLevel);
+        updateBatteryLevel(getAgentHandle(agName), newBatteryLevel);
+    }
 
-            // update the view if it exists
-            if (view != null) {
-                view.updateAgent(dbot.getLocation(), agentId);
-            }
-        } catch (Exception e) {
-            System.err.println("Error updating battery level for " + agName + ": " + e.getMessage());
+    /**
+     * Update the battery level of a delivery robot through its cached handle.
+     * @param agent the handle of the agent whose battery level is being updated
+     * @param newBatteryLevel the new battery level to set
+     */
+    private void updateBatteryLevel(AgentHandle agent, int newBatteryLevel) {
+        percepts.update(agent.getName(), batteryLevel, newBatteryLevel);
+
+        if (agent.getId() == -1) {
+            eventLog.log(LogCategory.ACTION, LogLevel.WARN, "Unknown agent: {}", agent.getName());
+            return;
+        }
+        // update the DeliveryRobot's battery level in the model
+        DeliveryRobot dbot = getDeliveryRobot(agent);
+        if (dbot == null) {
+            eventLog.log(LogCategory.ACTION, LogLevel.WARN, "Error updating battery level for {}: robot not registered", agent.getName());
+            return;
         }
+        publishBatteryLevel(agent, dbot, model.setRobotBattery(agent.getId(), newBatteryLevel), newBatteryLevel);
     }
 
     /**
-     * simulates battery consumption
+     * Reports a change of battery level made on the model, recording a depletion and updating the view.
+     * @param agent the handle of the robot
+     * @param dbot the robot
+     * @param previousLevel the battery level before the change
+     * @param newLevel the battery level after the change
      */
-    private void consumeBattery(String agName, int consumption) {
-        try {
-            int currentBattery = getCurrentBatteryLevel(agName);
-            int newBattery = Math.max(0, currentBattery - consumption);
+    private void publishBatteryLevel(AgentHandle agent, DeliveryRobot dbot, int previousLevel, int newLevel) {
+        if (newLevel == 0 && previousLevel > 0) {
+            runSummary.batteryDepleted(agent.getName());
+        }
 
-            updateBatteryLevel(agName, newBattery);
-        } catch (Exception e) {
-            System.err.println("Error consuming battery for " + agName + ": " + e.getMessage());
+        // update the view if it exists
+        if (view != null) {
+            view.updateAgent(dbot.getLocation(), agent.getId());
+        }
+    }
+
+    /**
+     * simulates battery consumption, decreasing the level in one atomic step so that no concurrent update is lost
+     */
+    private void consumeBattery(AgentHandle agent, int consumption) {
+        DeliveryRobot dbot = getDeliveryRobot(agent);
+        if (dbot == null) {
+            eventLog.log(LogCategory.ACTION, LogLevel.WARN, "Error consuming battery for {}: robot not registered", agent.getName());
+            return;
         }
+        int previousBattery = model.consumeRobotBattery(agent.getId(), consumption);
+        int newBattery = Math.max(0, previousBattery - consumption);
+
+        percepts.update(agent.getName(), batteryLevel, newBattery);
+        publishBatteryLevel(agent, dbot, previousBattery, newBattery);
     }
 
     /**
     * get current battery level for agent
     */
     public int getCurrentBatteryLevel(String agName) {
-        return ((DeliveryRobot) model.getAgentById(FactoryUtils.getAgIdBasedOnName(agName))).getBattery();
+        return ((DeliveryRobot) model.getAgentByName(agName)).getBattery();
     }
 
     /**
@@ -700,132 +887,142 @@ public class FactoryEnv extends Environment {
      * with the closest station's name and coordinates.
      * It does not take into account obstacles or other agents, focusing solely on the distance
      * from the agent's current position to the charging stations.
-     * @param agName the name of the agent performing the action
-     * @param action the action structure containing the station list and agent's current location
+     * @param agent the handle of the agent performing the action
+     * @param args the decoded station list and agent's current location
      * @return true if the action was executed successfully, false otherwise
      */
-    private boolean executeComputeClosestChargingStation(String agName, Structure action) {
-        try {
-            // get the parameters from the Jason action
-            ListTerm stationList = (ListTerm) action.getTerm(0);  // StationList
-            NumberTerm robotX = (NumberTerm) action.getTerm(1);   // ThisRobotX
-            NumberTerm robotY = (NumberTerm) action.getTerm(2);   // ThisRobotY
-            
-            int currentX = (int) robotX.solve();
-            int currentY = (int) robotY.solve();
+    private boolean executeComputeClosestChargingStation(AgentHandle agent, ActionArgs args) throws NoValueException {
+        String agName = agent.getName();
+        ListTerm stationList = args.getList(0);
+        int currentX = args.getInt(1);
+        int currentY = args.getInt(2);
+        
+        Term closestStationName = null;
+        int closestStationX = -1;
+        int closestStationY = -1;
+        double minDistance = Double.MAX_VALUE;
+        
+        // iterate through all stations in the list
+        for (Term stationTerm : stationList) {
+            ListTerm station = (ListTerm) stationTerm;
             
-            String closestStationName = null;
-            int closestStationX = -1;
-            int closestStationY = -1;
-            double minDistance = Double.MAX_VALUE;
+            // extract station data: [Station, X, Y]
+            Term stationName = station.get(0);
+            int stationX = (int) ((NumberTerm) station.get(1)).solve();
+            int stationY = (int) ((NumberTerm) station.get(2)).solve();
             
-            // iterate through all stations in the list
-            for (Term stationTerm : stationList) {
-                ListTerm station = (ListTerm) stationTerm;
-                
-                // extract station data: [Station, X, Y]
-                String stationName = station.get(0).toString().replace("\"", ""); // Remove quotes
-                int stationX = (int) ((NumberTerm) station.get(1)).solve();
-                int stationY = (int) ((NumberTerm) station.get(2)).solve();
-                
-                // calculate Euclidean distance
-                double distance = calculateEuclideanDistance(currentX, currentY, stationX, stationY);
-                
-                // check if this is the closest station so far
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    closestStationName = stationName;
-                    closestStationX = stationX;
-                    closestStationY = stationY;
-                }
-            }
+            // calculate Euclidean distance
+            double distance = calculateEuclideanDistance(currentX, currentY, stationX, stationY);
             
-            // add the closest station as a percept for the agent
-            if (closestStationName != null) {
-                // remove any previous closestChargingStation percept
-                removePerceptsByUnif(agName, Literal.parseLiteral("closestChargingStation(_, _, _)"));
-
-                // add the new closest station percept
-                addPercept(agName, Literal.parseLiteral(
-                    "closestChargingStation(\"" + closestStationName + "\", " + 
-                    closestStationX + ", " + closestStationY + ")"
-                ));
+            // check if this is the closest station so far
+            if (distance < minDistance) {
+                minDistance = distance;
+                closestStationName = stationName;
+                closestStationX = stationX;
+                closestStationY = stationY;
             }
-            
+        }
+        
+        // add the closest station as a percept for the agent
+        if (closestStationName != null) {
+            percepts.update(agName, closestChargingStation, asStringTerm(closestStationName), closestStationX, closestStationY);
+        }
+        
+        return true;
+    }
+
+    /**
+     * Execute query_closest_charging_station action, finding the charging station closest to the agent
+     * among the ones registered in the model, without asking the stations for their location.
+     * The closest station is given to the agent as the same percept as compute_closest_charging_station,
+     * which is removed when no station is registered.
+     * @param agent the handle of the agent performing the action
+     * @param args the decoded agent's current location
+     * @return true if the action was executed successfully, false otherwise
+     */
+    private boolean executeQueryClosestChargingStation(AgentHandle agent, ActionArgs args) {
+        String agName = agent.getName();
+        Location current = new Location(args.getInt(0), args.getInt(1));
+        String stationName;
+        Location station;
+        do {
+            stationName = model.getClosestChargingStation(current);
+            station = stationName == null ? null : model.getChargingStationLocation(stationName);
+            // a station removed between the two lookups is skipped by looking again
+        } while (stationName != null && station == null);
+        if (station == null) {
+            percepts.clear(agName, closestChargingStation);
             return true;
-            
-        } catch (Exception e) {
-            System.err.println("Error computing closest charging station for " + agName + ": " + e.getMessage());
-            e.printStackTrace();
-            return false;
         }
+        percepts.update(agName, closestChargingStation, ASSyntax.createString(stationName), station.x, station.y);
+        return true;
     }
 
     /**
      * Execute compute_closest_robot action, evaluating the closest robot
      * based on the agent's current location and a list of available robots.
-     * This method calculates the Euclidean distance to each robot and updates the agent's percepts
-     * with the closest robot's name and coordinates.
-     * It does not take into account obstacles or other agents, focusing solely on the distance
-     * from the agent's current position to the robots.
-     * @param agName the name of the agent performing the action
-     * @param action the action structure containing the robot list and agent's current location
+     * The robots of the list known to the model are looked up in its position index, at their current
+     * position and skipping those that have since started charging, helping or malfunctioning;
+     * only when none of them qualifies are the positions given in the list compared instead.
+     * Distances are Euclidean: they do not take into account obstacles or other agents.
+     * @param agent the handle of the agent performing the action
+     * @param args the decoded robot list and agent's current location
      * @return true if the action was executed successfully, false otherwise
      */
-    private boolean executeComputeClosestRobot(String agName, Structure action) {
-        try {
-            // get the parameters from the Jason action
-            ListTerm robotList = (ListTerm)   action.getTerm(0);  // List of [Name, X, Y]
-            NumberTerm myXTerm = (NumberTerm) action.getTerm(1);  // ThisRobot’s X
-            NumberTerm myYTerm = (NumberTerm) action.getTerm(2);  // ThisRobot’s Y
-
-            int currentX = (int) myXTerm.solve();
-            int currentY = (int) myYTerm.solve();
-
-            String closestRobotName = null;
-            int    closestX         = -1;
-            int    closestY         = -1;
-            double minDistance      = Double.MAX_VALUE;
-
-            // iterate through all robots in the list
-            for (Term robotTerm : robotList) {
-                ListTerm entry = (ListTerm) robotTerm;
-                String    name = entry.get(0).toString().replace("\"", "");
-                int       x    = (int) ((NumberTerm) entry.get(1)).solve();
-                int       y    = (int) ((NumberTerm) entry.get(2)).solve();
-
-                double distance = calculateEuclideanDistance(currentX, currentY, x, y);
-
-                if (distance < minDistance) {
-                    minDistance         = distance;
-                    closestRobotName    = name;
-                    closestX            = x;
-                    closestY            = y;
-                }
-            }
+    private boolean executeComputeClosestRobot(AgentHandle agent, ActionArgs args) throws NoValueException {
+        String agName = agent.getName();
+        ListTerm robotList = args.getList(0);  // List of [Name, X, Y]
+        int currentX = args.getInt(1);
+        int currentY = args.getInt(2);
+
+        Term   closestRobotName = null;
+        int    closestX         = -1;
+        int    closestY         = -1;
+        double minDistance      = Double.MAX_VALUE;
+
+        Set<String> names = new HashSet<>();
+        for (Term robotTerm : robotList) {
+            Term name = ((ListTerm) robotTerm).get(0);
+            names.add(name.isString() ? ((StringTerm) name).getString() : name.toString());
+        }
+        List<DeliveryRobot> closest = model.getClosestAvailableRobots(new Location(currentX, currentY), 1, names);
+        if (!closest.isEmpty()) {
+            DeliveryRobot robot = closest.get(0);
+            Location location = robot.getLocation();
+            percepts.update(agName, closestRobot, ASSyntax.createString(robot.getName()), location.x, location.y);
+            return true;
+        }
+
+        // iterate through all robots in the list
+        for (Term robotTerm : robotList) {
+            ListTerm entry = (ListTerm) robotTerm;
+            Term      name = entry.get(0);
+            int       x    = (int) ((NumberTerm) entry.get(1)).solve();
+            int       y    = (int) ((NumberTerm) entry.get(2)).solve();
+
+            double distance = calculateEuclideanDistance(currentX, currentY, x, y);
 
-            if (closestRobotName != null) {
-                // remove any previous percept
-                removePerceptsByUnif(agName,
-                    Literal.parseLiteral("closestRobot(_, _, _)"));
-                // add the new closest-robot percept
-                addPercept(agName,
-                    Literal.parseLiteral(
-                        "closestRobot(\"" +
-                        closestRobotName + "\", " +
-                        closestX + ", " +
-                        closestY + ")"
-                    )
-                );
+            if (distance < minDistance) {
+                minDistance         = distance;
+                closestRobotName    = name;
+                closestX            = x;
+                closestY            = y;
             }
-            return true;
+        }
 
-        } catch (Exception e) {
-            System.err.println("Error computing closest robot for " + agName + ": " +
-                            e.getMessage());
-            e.printStackTrace();
-            return false;
+        if (closestRobotName != null) {
+            percepts.update(agName, closestRobot, asStringTerm(closestRobotName), closestX, closestY);
         }
+        return true;
+    }
+
+    /**
+     * Returns the name as a string term, as the agents expect in the closest-* percepts.
+     * @param name the name given in the list, either a string or an atom
+     * @return the name as a string term
+     */
+    private static Term asStringTerm(Term name) {
+        return name.isString() ? name : ASSyntax.createString(name.toString());
     }
 
     /**
@@ -857,7 +1054,7 @@ public class FactoryEnv extends Environment {
     public void registerChargingStation(String stationName, int x, int y) {
         Location location = new Location(x, y);
         model.addChargingStation(stationName, location);
-        System.out.println("Registered charging station " + stationName + " at location (" + x + ", " + y + ")");
+        eventLog.log(LogCategory.MODEL, LogLevel.INFO, "Registered charging station {} at location ({}, {})", stationName, x, y);
     }
 
     /**
@@ -865,7 +1062,7 @@ public class FactoryEnv extends Environment {
     */
     public void unregisterChargingStation(String stationName) {
         model.removeChargingStation(stationName);
-        System.out.println("Unregistered charging station " + stationName);
+        eventLog.log(LogCategory.MODEL, LogLevel.INFO, "Unregistered charging station {}", stationName);
     }
 
     /**
@@ -894,4 +1091,24 @@ public class FactoryEnv extends Environment {
     public DeliveryRobot getDeliveryRobotById(int id) {
         return (DeliveryRobot) model.getAgentById(id);
     }
+
+    /**
+     * The latency and the failures of the actions of a functor.
+     */
+    private static final class ActionMetrics {
+        private final LatencyHistogram latency;
+        private final LongAdder failures;
+
+        ActionMetrics(MetricsRegistry metrics, String functor) {
+            this.latency = metrics.histogram("factory_action_seconds", "functor", functor);
+            this.failures = metrics.counter("factory_action_failures", "functor", functor);
+        }
+
+        void record(boolean success, long nanos) {
+            latency.record(nanos);
+            if (!success) {
+                failures.increment();
+            }
+        }
+    }
 }
@@ -3,23 +3,55 @@ package env;
 import env.agent.DeliveryRobot;
 import env.agent.HumanTechnician;
 import env.agent.AbstractAgent;
+import env.agent.AgentRegistry;
+import env.behaviour.DistanceField;
 import env.behaviour.MovementManager;
+import env.grid.CellLayers;
+import env.grid.Occupancy;
+import env.grid.RegionLocks;
+import env.grid.SpatialIndex;
+import env.journal.ModelJournal;
+import env.journal.RecordType;
+import env.log.EventLog;
+import env.metrics.LatencyHistogram;
+import env.metrics.MetricsRegistry;
+import env.log.LogCategory;
+import env.log.LogLevel;
 import jason.environment.grid.GridWorldModel;
 import jason.environment.grid.Location;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
+import java.util.Locale;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * FactoryModel represents the environment model for a factory simulation.
  * It extends GridWorldModel to manage agents, obstacles, and key locations.
  * The model supports dynamic charging stations and delivery robots with observer notifications.
+ * It may be used by several threads at once: each cell holds at most one agent, claimed with a compare-and-set
+ * by {@link #tryMoveAgent(int, Location)}, and the updates of the layout lock the regions of the grid they touch.
  */
 public class FactoryModel extends GridWorldModel {
-    private Map<String, AbstractAgent> agentsMap = new HashMap<>();
-    private List<ModelObserver> observers = new ArrayList<>();
+    private final AgentRegistry agentRegistry = FactoryUtils.createAgentRegistry();
+    private volatile AbstractAgent[] agents = new AbstractAgent[INITIAL_AGENT_CAPACITY];
+    private final List<ModelObserver> observers = new CopyOnWriteArrayList<>();
+    /** Default width and height of the grid, also its minimum since the truck is at (8, 10). */
     public static final int GSize = 13;
+    /** Number of walls drawn at random on each {@link #GSize} x {@link #GSize} block of the floor by default. */
+    public static final int DEFAULT_WALLS = 10;
+    /** Number of agents the model has room for before its storage grows. */
+    public static final int INITIAL_AGENT_CAPACITY = 16;
     public static final int OBSTACLE = 4;
     public static final int TRUCK = 16;
     public static final int DELIVERY = 32;
@@ -29,20 +61,198 @@ public class FactoryModel extends GridWorldModel {
     private final int deliveryLocationId = 1;
     private final int truckId = 11;
     private final MovementManager movementManager = new MovementManager(this);
-    private final Map<String, Location> chargingStationLocations = new HashMap<>();
+    private final Map<String, Location> chargingStationLocations = new ConcurrentHashMap<>();
+    private EventLog eventLog = EventLog.disabled();
+    private volatile ModelJournal journal = ModelJournal.disabled();
+    private volatile FanOut agentUpdatedFanOut;
+    private volatile FanOut agentMovedFanOut;
+    private volatile FanOut cellUpdatedFanOut;
+    private final CellLayers cells;
+    private final Occupancy occupancy;
+    private final RegionLocks regionLocks;
+    // guards the replacement of agPos when it grows, not the writes of its slots
+    private final ReadWriteLock positionsLock = new ReentrantReadWriteLock();
+    private final SpatialIndex stationIndex;
+    private final SpatialIndex agentIndex;
+    private final AtomicLong layoutVersion = new AtomicLong();
+    private final Map<Integer, DistanceField> distanceFields = new ConcurrentHashMap<>();
+    private static FactoryModel current;
+    // negative while the agents draw their malfunctions themselves
+    private volatile double malfunctionProbability = -1;
     
     /**
      * FactoryModel constructor initializes the grid and adds static objects.
      */
     public FactoryModel() {
-        super(FactoryModel.GSize, FactoryModel.GSize, 25);
-        this.addWallsRandomly();
+        this(new Random());
+    }
+
+    /**
+     * FactoryModel constructor initializes the grid and adds static objects,
+     * drawing the walls and the movements from the given source so that a run can be reproduced.
+     * @param random the source of the random choices of the model
+     */
+    public FactoryModel(Random random) {
+        this(GSize, GSize, random);
+    }
+
+    /**
+     * FactoryModel constructor initializes a grid of the given size and adds static objects.
+     * The content of the cells is kept in {@link CellLayers}, so the int grid of
+     * GridWorldModel is only allocated for a single cell and never used.
+     * @param width the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @param random the source of the random choices of the model
+     * @throws IllegalArgumentException if the grid is smaller than {@link #GSize} or has too many cells
+     */
+    public FactoryModel(int width, int height, Random random) {
+        this(width, height, DEFAULT_WALLS, random);
+    }
+
+    /**
+     * FactoryModel constructor initializes a grid of the given size with more or fewer walls than the default one.
+     * @param width the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @param walls the number of walls drawn on each {@link #GSize} x {@link #GSize} block of the floor;
+     *              a wall drawn on a taken cell or next to the truck or the delivery place is dropped
+     * @param random the source of the random choices of the model
+     * @throws IllegalArgumentException if the grid is smaller than {@link #GSize} or has too many cells,
+     *                                  or the number of walls is negative or larger than a block
+     */
+    public FactoryModel(int width, int height, int walls, Random random) {
+        super(1, 1, INITIAL_AGENT_CAPACITY);
+        if (width < GSize || height < GSize) {
+            throw new IllegalArgumentException("Grid must be at least " + GSize + "x" + GSize + " but was " + width + "x" + height);
+        }
+        if (walls < 0 || walls > GSize * GSize) {
+            throw new IllegalArgumentException("Walls must be between 0 and " + GSize * GSize + " per block but were " + walls);
+        }
+        this.cells = new CellLayers(width, height);
+        this.occupancy = new Occupancy(width, height);
+        this.regionLocks = new RegionLocks(width);
+        this.stationIndex = new SpatialIndex(width, height);
+        this.agentIndex = new SpatialIndex(width, height);
+        this.width = width;
+        this.height = height;
+        // the grid's own source of randomness, also used by getFreePos
+        this.random = random;
+        this.movementManager.setSeed(random.nextLong());
+        this.setMetrics(new MetricsRegistry());
+        this.addWallsRandomly(walls);
         
         // Add static objects to the grid
         this.add(TRUCK, truckLocation);
         this.add(DELIVERY, deliveryLocation);
     }
 
+    /**
+     * Creates the model described by the configuration of a run.
+     * {@code grid=<size>} or {@code grid=<width>x<height>} sets the size of the grid,
+     * {@code walls=<n>} the number of walls per {@link #GSize} x {@link #GSize} block
+     * and {@code seed=<number>} makes its layout reproducible.
+     * @param config the configuration of the run
+     * @return the configured model, a {@link #GSize} square grid with {@link #DEFAULT_WALLS} walls by default
+     * @throws IllegalArgumentException if the grid size or the number of walls is not valid
+     */
+    public static FactoryModel fromConfig(FactoryConfig config) {
+        Random random = config.has("seed") ? new Random(config.getLong("seed", 0L)) : new Random();
+        String grid = config.get("grid", String.valueOf(GSize)).trim().toLowerCase(Locale.ROOT);
+        int separator = grid.indexOf('x');
+        try {
+            int width = Integer.parseInt(separator < 0 ? grid : grid.substring(0, separator).trim());
+            int height = separator < 0 ? width : Integer.parseInt(grid.substring(separator + 1).trim());
+            return new FactoryModel(width, height, config.getInt("walls", DEFAULT_WALLS), random);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Grid must be <size> or <width>x<height> but was " + grid, e);
+        }
+    }
+
+    /**
+     * Returns the model of the running environment, used by the internal actions of the agents.
+     * A default model is created if no environment installed one.
+     * @return the current model
+     */
+    public static synchronized FactoryModel current() {
+        if (current == null) {
+            current = new FactoryModel();
+        }
+        return current;
+    }
+
+    /**
+     * Makes a model the one seen by the internal actions of the agents.
+     * @param model the model of the running environment
+     */
+    public static synchronized void install(FactoryModel model) {
+        current = model;
+    }
+
+    /**
+     * Sets the log receiving the changes of this model and of its movement manager.
+     * @param eventLog the event log to use
+     */
+    public void setEventLog(EventLog eventLog) {
+        this.eventLog = eventLog;
+    }
+
+    /**
+     * Returns the log receiving the changes of this model.
+     * @return the event log of the model
+     */
+    public EventLog getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * Sets the journal recording the changes of this model, starting it with the grid, the obstacles,
+     * the charging stations and the agents already there.
+     * @param journal the journal to write to
+     */
+    public void setJournal(ModelJournal journal) {
+        journal.append(RecordType.GRID, -1, width, height, 0, 0);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (cells.hasAny(OBSTACLE, x, y)) {
+                    journal.append(RecordType.OBSTACLE_ADDED, -1, x, y, 0, 0);
+                }
+            }
+        }
+        for (Map.Entry<String, Location> station : chargingStationLocations.entrySet()) {
+            Location location = station.getValue();
+            journal.append(RecordType.STATION_ADDED, station.getKey(), agentRegistry.getId(station.getKey()), location.x, location.y, 0, 0);
+        }
+        AbstractAgent[] current = agents;
+        for (int id = 0; id < current.length; id++) {
+            if (current[id] != null) {
+                journalAgentAdded(journal, id, current[id]);
+                Location position = getAgPos(id);
+                if (position != null && position.x != -1) {
+                    journal.append(RecordType.MOVE, id, position.x, position.y, -1, -1);
+                }
+            }
+        }
+        this.journal = journal;
+    }
+
+    /**
+     * Returns the journal recording the changes of this model.
+     * @return the journal, disabled unless one was set
+     */
+    public ModelJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Sets the registry timing the notification of the observers and of the movements of this model.
+     * @param metrics the metrics registry
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.agentUpdatedFanOut = new FanOut(metrics, "agent_updated");
+        this.agentMovedFanOut = new FanOut(metrics, "agent_moved");
+        this.cellUpdatedFanOut = new FanOut(metrics, "cell_updated");
+        this.movementManager.setMetrics(metrics);
+    }
+
     /**
      * Adds an observer to the model.
      * Observers will be notified of agent updates, movements, and cell updates.
@@ -68,9 +278,16 @@ public class FactoryModel extends GridWorldModel {
      * @param agentId the ID of the agent
      */
     private void notifyAgentUpdated(Location location, int agentId) {
+        if (observers.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int notified = 0;
         for (ModelObserver observer : observers) {
             observer.onAgentUpdated(location, agentId);
+            notified++;
         }
+        agentUpdatedFanOut.record(notified, System.nanoTime() - start);
     }
 
     /**
@@ -81,9 +298,16 @@ public class FactoryModel extends GridWorldModel {
      * @param agentId the ID of the agent
      */
     private void notifyAgentMoved(Location oldLocation, Location newLocation, int agentId) {
+        if (observers.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int notified = 0;
         for (ModelObserver observer : observers) {
             observer.onAgentMoved(oldLocation, newLocation, agentId);
+            notified++;
         }
+        agentMovedFanOut.record(notified, System.nanoTime() - start);
     }
 
     /**
@@ -92,49 +316,302 @@ public class FactoryModel extends GridWorldModel {
      * @param location the location of the updated cell
      */
     private void notifyCellUpdated(Location location) {
+        if (observers.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int notified = 0;
         for (ModelObserver observer : observers) {
             observer.onCellUpdated(location);
+            notified++;
         }
+        cellUpdatedFanOut.record(notified, System.nanoTime() - start);
     }
 
     /**
-     * Checks if a cell is free (not occupied by an obstacle or agent).
-     * @param x the x-coordinate of the cell
-     * @param y the y-coordinate of the cell
-     * @return true if the cell is free, false otherwise
+     * Randomly places obstacles in the grid, away from the key locations.
+     * Larger grids get as many obstacles per cell as a block of {@link #GSize} x {@link #GSize} cells.
+     * @param wallsPerBlock the number of walls drawn on each block
      */
-    private void addWallsRandomly() {
-        // Randomly place obstacles in the grid
-        for (int i = 0; i < 10; i++) {
-            int x = (int) (Math.random() * GSize);
-            int y = (int) (Math.random() * GSize);
+    private void addWallsRandomly(int wallsPerBlock) {
+        long walls = Math.max(wallsPerBlock, (long) wallsPerBlock * width * height / (GSize * GSize));
+        for (long i = 0; i < walls; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
             if (this.isFree(x, y) && !this.isAdjacentToKeyLocation(x, y)) {
                 this.add(OBSTACLE, new Location(x, y));
             }
         }
     }
 
+    @Override
+    public boolean hasObject(int obj, Location l) {
+        return hasObject(obj, l.x, l.y);
+    }
+
+    /**
+     * Checks whether a cell contains an object, the agents being those placed with {@link #setAgPos(int, Location)}.
+     */
+    @Override
+    public boolean hasObject(int obj, int x, int y) {
+        return cells.hasAny(obj, x, y) || ((obj & AGENT) != 0 && occupancy.isOccupied(x, y));
+    }
+
+    @Override
+    public int countObjects(int obj) {
+        int count = cells.count(obj);
+        if ((obj & AGENT) != 0) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (occupancy.isOccupied(x, y) && !cells.hasAny(obj, x, y)) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void set(int value, int x, int y) {
+        int previous;
+        regionLocks.lock(x, y);
+        try {
+            previous = cells.get(x, y);
+            cells.set(value, x, y);
+        } finally {
+            regionLocks.unlock(x, y);
+        }
+        layoutVersion.incrementAndGet();
+        obstacleChanged(previous, value, x, y);
+    }
+
+    /**
+     * Adds a rectangle of obstacles, locking the regions it covers so that no other layout update interleaves.
+     */
+    @Override
+    public void addWall(int x1, int y1, int x2, int y2) {
+        regionLocks.lock(x1, y1, x2, y2);
+        try {
+            super.addWall(x1, y1, x2, y2);
+        } finally {
+            regionLocks.unlock(x1, y1, x2, y2);
+        }
+    }
+
+    @Override
+    public void add(int value, Location l) {
+        add(value, l.x, l.y);
+    }
+
+    @Override
+    public void add(int value, int x, int y) {
+        int previous;
+        regionLocks.lock(x, y);
+        try {
+            previous = cells.get(x, y);
+            cells.add(value, x, y);
+        } finally {
+            regionLocks.unlock(x, y);
+        }
+        layoutChanged(value & ~previous);
+        obstacleChanged(previous, previous | value, x, y);
+    }
+
+    @Override
+    public void remove(int value, Location l) {
+        remove(value, l.x, l.y);
+    }
+
+    @Override
+    public void remove(int value, int x, int y) {
+        int previous;
+        regionLocks.lock(x, y);
+        try {
+            previous = cells.get(x, y);
+            cells.remove(value, x, y);
+        } finally {
+            regionLocks.unlock(x, y);
+        }
+        layoutChanged(value & previous);
+        obstacleChanged(previous, previous & ~value, x, y);
+    }
+
+    /**
+     * Journals a change of the obstacle bit of a cell and repairs the distance fields around it.
+     * Nothing happens when the bit did not change, e.g. when an obstacle is added where one already is.
+     */
+    private void obstacleChanged(int previous, int current, int x, int y) {
+        boolean wasObstacle = (previous & OBSTACLE) != 0;
+        boolean isObstacle = (current & OBSTACLE) != 0;
+        if (wasObstacle == isObstacle) {
+            return;
+        }
+        journal.append(isObstacle ? RecordType.OBSTACLE_ADDED : RecordType.OBSTACLE_REMOVED, -1, x, y, 0, 0);
+        for (DistanceField field : distanceFields.values()) {
+            if (isObstacle) {
+                field.obstacleAdded(x, y);
+            } else {
+                field.obstacleRemoved(x, y);
+            }
+        }
+    }
+
+    /**
+     * Places an obstacle on a cell, notifying the observers.
+     * @param location the cell of the obstacle
+     */
+    public void addObstacle(Location location) {
+        add(OBSTACLE, location);
+        notifyCellUpdated(location);
+    }
+
+    /**
+     * Removes the obstacle of a cell, notifying the observers.
+     * @param location the cell of the obstacle
+     */
+    public void removeObstacle(Location location) {
+        remove(OBSTACLE, location);
+        notifyCellUpdated(location);
+    }
+
+    /**
+     * Moves to the next layout version if the obstacles or the charging stations changed.
+     * @param value the objects added to or removed from a cell
+     */
+    private void layoutChanged(int value) {
+        if ((value & (OBSTACLE | CHARGING_STATION)) != 0) {
+            layoutVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the version of the layout, which changes whenever an obstacle or a charging station
+     * is added or removed, so that the paths planned on an older layout can be recognised.
+     * @return the current layout version
+     */
+    public long getLayoutVersion() {
+        return layoutVersion.get();
+    }
+
+    @Override
+    public boolean isFree(Location l) {
+        return isFree(l.x, l.y);
+    }
+
+    @Override
+    public boolean isFree(int x, int y) {
+        return cells.contains(x, y) && !cells.hasAny(OBSTACLE | AGENT, x, y) && !occupancy.isOccupied(x, y);
+    }
+
+    @Override
+    public boolean isFree(int obj, Location l) {
+        return isFree(obj, l.x, l.y);
+    }
+
+    @Override
+    public boolean isFree(int obj, int x, int y) {
+        return cells.contains(x, y) && !hasObject(obj, x, y);
+    }
+
+    @Override
+    public boolean isFreeOfObstacle(Location l) {
+        return isFree(OBSTACLE, l.x, l.y);
+    }
+
+    @Override
+    public boolean isFreeOfObstacle(int x, int y) {
+        return isFree(OBSTACLE, x, y);
+    }
+
+    /**
+     * Returns the distance field leading to a static target: the truck, the delivery place or a charging station.
+     * The field is flooded on first use and then kept up to date as obstacles change.
+     * @param target the location of the target
+     * @return the distance field of the target, or null if no static target is there
+     */
+    public DistanceField getDistanceField(Location target) {
+        if (!inGrid(target) || !isStaticTarget(target)) {
+            return null;
+        }
+        return distanceFields.computeIfAbsent(target.y * width + target.x, cell -> new DistanceField(this, target));
+    }
+
+    /**
+     * Checks whether the truck, the delivery place or a charging station is at a location.
+     * @param location the location to check
+     * @return true if the location is a static target
+     */
+    private boolean isStaticTarget(Location location) {
+        return truckLocation.equals(location) || deliveryLocation.equals(location) || hasChargingStationAt(location);
+    }
+
+    /**
+     * Returns the layers holding the content of the cells.
+     * @return the cell layers of the grid
+     */
+    public CellLayers getCells() {
+        return cells;
+    }
+
+    /**
+     * Returns the cells claimed by the agents.
+     * @return the occupancy of the grid
+     */
+    public Occupancy getOccupancy() {
+        return occupancy;
+    }
+
     /**
      * Adds a charging station to the model.
      * @param stationName the name of the charging station
      * @param location the location of the charging station
+     * @throws NullPointerException if the name is null
      */
     public void addChargingStation(String stationName, Location location) {
-        chargingStationLocations.put(stationName, location);
-        this.add(CHARGING_STATION, location);
+        Objects.requireNonNull(stationName, "stationName");
+        int id = registerAgent(stationName);
+        regionLocks.lock(location.x, location.y);
+        try {
+            chargingStationLocations.put(stationName, location);
+            stationIndex.put(stationName, location);
+            this.add(CHARGING_STATION, location);
+        } finally {
+            regionLocks.unlock(location.x, location.y);
+        }
+        journal.append(RecordType.STATION_ADDED, stationName, id, location.x, location.y, 0, 0);
+        eventLog.log(LogCategory.MODEL, LogLevel.INFO, "Charging station {} added at {}", stationName, location);
         notifyCellUpdated(location);
     }
     
     /**
      * Removes a charging station from the model.
+     * The cell keeps its charging station object, and its distance field, while another station stands on it.
      * @param stationName the name of the charging station to remove
      */
     public void removeChargingStation(String stationName) {
-        Location location = chargingStationLocations.remove(stationName);
-        if (location != null) {
-            this.remove(CHARGING_STATION, location);
-            notifyCellUpdated(location);
+        Location location = stationName != null ? chargingStationLocations.get(stationName) : null;
+        if (location == null) {
+            return;
         }
+        regionLocks.lock(location.x, location.y);
+        try {
+            if (!chargingStationLocations.remove(stationName, location)) {
+                return;
+            }
+            stationIndex.remove(stationName);
+            if (stationIndex.nameAt(location.x, location.y, null) == null) {
+                this.remove(CHARGING_STATION, location);
+                if (!isStaticTarget(location)) {
+                    distanceFields.remove(location.y * width + location.x);
+                }
+            }
+        } finally {
+            regionLocks.unlock(location.x, location.y);
+        }
+        journal.append(RecordType.STATION_REMOVED, agentRegistry.getId(stationName), location.x, location.y, 0, 0);
+        eventLog.log(LogCategory.MODEL, LogLevel.INFO, "Charging station {} removed from {}", stationName, location);
+        notifyCellUpdated(location);
     }
     
     /**
@@ -145,13 +622,31 @@ public class FactoryModel extends GridWorldModel {
         return new HashMap<>(chargingStationLocations);
     }
     
+    /**
+     * Retrieves the location of a charging station from the station index, without copying the stations.
+     * @param stationName the name of the charging station
+     * @return the location of the station, or null if there is no station of this name
+     */
+    public Location getChargingStationLocation(String stationName) {
+        return stationIndex.get(stationName);
+    }
+
+    /**
+     * Finds the charging station nearest to a location, as the crow flies.
+     * @param from the location to measure from
+     * @return the name of the nearest charging station, or null if there is none
+     */
+    public String getClosestChargingStation(Location from) {
+        return stationIndex.nearest(from.x, from.y);
+    }
+
     /**
      * Checks if a specific location has a charging station.
      * @param location the location to check
      * @return true if there is a charging station at the specified location, false otherwise
      */
     public boolean hasChargingStationAt(Location location) {
-        return chargingStationLocations.containsValue(location);
+        return !stationIndex.namesAt(location.x, location.y).isEmpty();
     }
 
     /**
@@ -184,20 +679,228 @@ public class FactoryModel extends GridWorldModel {
      * @param robot the DeliveryRobot to add
      */
     public void addDeliveryRobot(DeliveryRobot robot) {
-        agentsMap.put(robot.getName(), robot);
+        int id = putAgent(robot);
+        indexAddedAgent(id, robot);
+        journalAgentAdded(journal, id, robot);
+        eventLog.log(LogCategory.MODEL, LogLevel.INFO, "Delivery robot {} added at {}", robot.getName(), robot.getLocation());
         // Notify observers of new robot
-        notifyAgentUpdated(robot.getLocation(), FactoryUtils.getAgIdBasedOnName(robot.getName()));
+        notifyAgentUpdated(robot.getLocation(), id);
     }
 
     /**
      * Adds a new human technician to the model.
-     * The robot is added to the agentsMap and observers are notified of its initial location.
+     * The human is registered and observers are notified of its initial location.
      * @param human the HumanTechnician to add
      */
     public void addHumanTechnician(HumanTechnician human) {
-        agentsMap.put(human.getName(), human);
+        int id = putAgent(human);
+        indexAddedAgent(id, human);
+        journalAgentAdded(journal, id, human);
+        eventLog.log(LogCategory.MODEL, LogLevel.INFO, "Human technician {} added at {}", human.getName(), human.getLocation());
         // Notify observers of new robot
-        notifyAgentUpdated(human.getLocation(), FactoryUtils.getAgIdBasedOnName(human.getName()));
+        notifyAgentUpdated(human.getLocation(), id);
+    }
+
+    /**
+     * Indexes an agent just added at its grid position, or at its own location until it is placed on the grid.
+     */
+    private void indexAddedAgent(int id, AbstractAgent agent) {
+        Location placed = getAgPos(id);
+        agentIndex.put(agent.getName(), placed != null ? placed : agent.getLocation());
+    }
+
+    /**
+     * Records an agent added to the model, with its name, location and, for a robot, its battery and flags.
+     */
+    private static void journalAgentAdded(ModelJournal journal, int id, AbstractAgent agent) {
+        Location location = agent.getLocation();
+        if (agent instanceof DeliveryRobot) {
+            DeliveryRobot robot = (DeliveryRobot) agent;
+            journal.append(RecordType.ROBOT_ADDED, agent.getName(), id, location.x, location.y, robot.getBattery(), robot.getFlags());
+        } else {
+            journal.append(RecordType.HUMAN_ADDED, agent.getName(), id, location.x, location.y, 0, 0);
+        }
+    }
+
+    /**
+     * Registers an agent name, giving it the next free id and making room for it in the model.
+     * The agents of the default factory keep the ids of {@link FactoryUtils}.
+     * @param name the name of the agent
+     * @return the id of the agent
+     */
+    public synchronized int registerAgent(String name) {
+        int id = agentRegistry.register(name);
+        ensureAgentCapacity(id);
+        return id;
+    }
+
+    /**
+     * Registers an agent and stores it under its id.
+     * @param agent the agent to store
+     * @return the id of the agent
+     */
+    private synchronized int putAgent(AbstractAgent agent) {
+        int id = registerAgent(agent.getName());
+        agents[id] = agent;
+        return id;
+    }
+
+    /**
+     * Grows the storage of the agents and of their grid positions so that it holds the given id.
+     * @param id the id that must fit
+     */
+    private synchronized void ensureAgentCapacity(int id) {
+        if (id < agPos.length && id < agents.length) {
+            return;
+        }
+        positionsLock.writeLock().lock();
+        try {
+            int capacity = Math.max(id + 1, agPos.length * 2);
+            Location[] positions = Arrays.copyOf(agPos, capacity);
+            for (int i = agPos.length; i < capacity; i++) {
+                positions[i] = new Location(-1, -1);
+            }
+            agPos = positions;
+            agents = Arrays.copyOf(agents, capacity);
+        } finally {
+            positionsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the position of an agent, growing the storage of the positions if needed.
+     * The agent claims its new cell if it is free; it is placed there even if another agent holds the cell,
+     * which is for initial placements and teleports, movements going through {@link #tryMoveAgent(int, Location)}.
+     * The position index follows the agent, see {@link #getAgentsAt(Location)}.
+     * @param ag the id of the agent
+     * @param l the new position of the agent
+     */
+    @Override
+    public void setAgPos(int ag, Location l) {
+        occupancy.claim(l.x, l.y, ag);
+        placeAgent(ag, l);
+    }
+
+    /**
+     * Moves an agent to a cell if no other agent holds it, claiming the cell with a single compare-and-set,
+     * so that of several agents stepping onto the same cell at the same time exactly one moves.
+     * @param ag the id of the agent
+     * @param l the cell to move to
+     * @return true if the agent now stands on the cell, false if the cell is outside the grid,
+     *         blocked by an obstacle or held by another agent
+     */
+    public boolean tryMoveAgent(int ag, Location l) {
+        if (!inGrid(l) || cells.hasAny(OBSTACLE, l.x, l.y) || !occupancy.claim(l.x, l.y, ag)) {
+            return false;
+        }
+        placeAgent(ag, l);
+        return true;
+    }
+
+    /**
+     * Records the new position of an agent, then releases its previous cell,
+     * handing it over to another agent still standing there.
+     * This is the only place a move updates the agent index.
+     */
+    private void placeAgent(int ag, Location l) {
+        if (ag >= agPos.length) {
+            ensureAgentCapacity(ag);
+        }
+        Location previous;
+        positionsLock.readLock().lock();
+        try {
+            previous = agPos[ag];
+            agPos[ag] = l;
+        } finally {
+            positionsLock.readLock().unlock();
+        }
+        String name = agentRegistry.getName(ag);
+        if (name != null) {
+            agentIndex.put(name, l);
+        }
+        if (previous == null || previous.x != l.x || previous.y != l.y) {
+            journal.append(RecordType.MOVE, ag, l.x, l.y, previous != null ? previous.x : -1, previous != null ? previous.y : -1);
+            releaseCell(ag, previous);
+        }
+    }
+
+    /**
+     * Releases the cell an agent left, handing it over to another agent still standing there.
+     * @param ag the id of the agent
+     * @param cell the cell it left, null or (-1, -1) if it had none
+     */
+    private void releaseCell(int ag, Location cell) {
+        if (cell != null && cell.x != -1 && occupancy.release(cell.x, cell.y, ag)) {
+            // the first agent left on the cell takes it over, unless another agent claimed it meanwhile
+            String other = agentIndex.nameAt(cell.x, cell.y, agentRegistry.getName(ag));
+            if (other != null) {
+                occupancy.claim(cell.x, cell.y, agentRegistry.getId(other));
+            }
+        }
+    }
+
+    /**
+     * Removes an agent from the model, releasing its cell, e.g. when a replay goes back to before it was added.
+     * Its name keeps its id, so that adding it again gives it the same one.
+     * @param name the name of the agent
+     * @return true if the agent was in the model
+     */
+    public boolean removeAgent(String name) {
+        int id = agentRegistry.getId(name);
+        AbstractAgent agent;
+        Location previous;
+        synchronized (this) {
+            agent = getAgentById(id);
+            if (agent == null) {
+                return false;
+            }
+            positionsLock.readLock().lock();
+            try {
+                previous = agPos[id];
+                agPos[id] = new Location(-1, -1);
+                agents[id] = null;
+            } finally {
+                positionsLock.readLock().unlock();
+            }
+        }
+        agentIndex.remove(name);
+        releaseCell(id, previous);
+        journal.append(RecordType.AGENT_REMOVED, id, agent.getLocation().x, agent.getLocation().y, 0, 0);
+        eventLog.log(LogCategory.MODEL, LogLevel.INFO, "Agent {} removed from {}", name, agent.getLocation());
+        notifyAgentUpdated(agent.getLocation(), id);
+        return true;
+    }
+
+    /**
+     * Returns the agent holding a cell.
+     * @return the id of the agent, or -1 if no agent holds the cell
+     */
+    @Override
+    public int getAgAtPos(int x, int y) {
+        return occupancy.occupant(x, y);
+    }
+
+    @Override
+    public int getAgAtPos(Location l) {
+        return getAgAtPos(l.x, l.y);
+    }
+
+    /**
+     * Sets the location of an agent object. The position index follows the grid position of the agent,
+     * set by {@link #setAgPos(int, Location)} and {@link #tryMoveAgent(int, Location)}, not this location.
+     * @param agent the agent that moved
+     * @param location the new location of the agent
+     */
+    public void setAgentLocation(AbstractAgent agent, Location location) {
+        agent.setLocation(location);
+    }
+
+    /**
+     * Returns the registry giving the id of each agent of this model.
+     * @return the agent registry
+     */
+    public AgentRegistry getAgentRegistry() {
+        return agentRegistry;
     }
 
     /**
@@ -205,10 +908,11 @@ public class FactoryModel extends GridWorldModel {
      * This method is called when the robot moves to a new location.
      */
     public void updateDeliveryRobotLocation(String robotName, Location oldLocation, Location newLocation) {
-        AbstractAgent robot = agentsMap.get(robotName);
+        int id = agentRegistry.getId(robotName);
+        AbstractAgent robot = getAgentById(id);
         if (robot != null) {
-            robot.setLocation(newLocation);
-            notifyAgentMoved(oldLocation, newLocation, FactoryUtils.getAgIdBasedOnName(robotName));
+            setAgentLocation(robot, newLocation);
+            notifyAgentMoved(oldLocation, newLocation, id);
         }
     }
 
@@ -218,10 +922,77 @@ public class FactoryModel extends GridWorldModel {
      * @param robotName the name of the DeliveryRobot to update
      */
     public void updateDeliveryRobotState(String robotName) {
-        AbstractAgent robot = agentsMap.get(robotName);
+        int id = agentRegistry.getId(robotName);
+        AbstractAgent robot = getAgentById(id);
         if (robot != null) {
-            notifyAgentUpdated(robot.getLocation(), FactoryUtils.getAgIdBasedOnName(robotName));
+            notifyAgentUpdated(robot.getLocation(), id);
+        }
+    }
+
+    /**
+     * Sets or clears a status flag of a delivery robot in one atomic step, recording the change in the journal,
+     * a change of {@link DeliveryRobot#CARRYING_PACKAGE} as a package picked up or dropped.
+     * @param agentId the id of the robot
+     * @param flag the flag, one of the flags of {@link DeliveryRobot}
+     * @param value true to set the flag, false to clear it
+     * @return the previous value of the flag
+     * @throws IllegalArgumentException if the agent is not a delivery robot of this model
+     */
+    public boolean setRobotFlag(int agentId, int flag, boolean value) {
+        DeliveryRobot robot = getDeliveryRobotById(agentId);
+        boolean previous = robot.getAndSetFlag(flag, value);
+        if (previous != value) {
+            Location location = robot.getLocation();
+            if (flag == DeliveryRobot.CARRYING_PACKAGE) {
+                journal.append(value ? RecordType.PACKAGE_PICKED_UP : RecordType.PACKAGE_DROPPED, agentId, location.x, location.y, 0, 0);
+            } else {
+                journal.append(RecordType.FLAG, agentId, location.x, location.y, value ? 1 : 0, flag);
+            }
         }
+        return previous;
+    }
+
+    /**
+     * Sets the battery level of a delivery robot, recording the change in the journal.
+     * @param agentId the id of the robot
+     * @param level the new battery level
+     * @return the previous battery level
+     * @throws IllegalArgumentException if the agent is not a delivery robot of this model
+     */
+    public int setRobotBattery(int agentId, int level) {
+        DeliveryRobot robot = getDeliveryRobotById(agentId);
+        int previous = robot.getAndSetBattery(level);
+        journalBattery(agentId, robot, previous, level);
+        return previous;
+    }
+
+    /**
+     * Decreases the battery level of a delivery robot in one atomic step, never below zero, recording the change in the journal.
+     * @param agentId the id of the robot
+     * @param amount the amount to decrease the battery by
+     * @return the previous battery level
+     * @throws IllegalArgumentException if the agent is not a delivery robot of this model
+     */
+    public int consumeRobotBattery(int agentId, int amount) {
+        DeliveryRobot robot = getDeliveryRobotById(agentId);
+        int previous = robot.getAndDecreaseBattery(amount);
+        journalBattery(agentId, robot, previous, Math.max(0, previous - amount));
+        return previous;
+    }
+
+    private void journalBattery(int agentId, DeliveryRobot robot, int previous, int level) {
+        if (previous != level) {
+            Location location = robot.getLocation();
+            journal.append(RecordType.BATTERY, agentId, location.x, location.y, level, previous);
+        }
+    }
+
+    private DeliveryRobot getDeliveryRobotById(int agentId) {
+        AbstractAgent agent = getAgentById(agentId);
+        if (!(agent instanceof DeliveryRobot)) {
+            throw new IllegalArgumentException("No delivery robot has the id " + agentId);
+        }
+        return (DeliveryRobot) agent;
     }
 
     /**
@@ -256,6 +1027,27 @@ public class FactoryModel extends GridWorldModel {
         return deliveryLocationId;
     }
     
+    /**
+     * Sets the probability that a malfunction check of a moving robot finds a malfunction,
+     * replacing the draw the robots compare with their own threshold (see {@code utils.rand_malfunction}).
+     * @param probability the probability of a malfunction at each check, or a negative value to leave it to the agents
+     * @throws IllegalArgumentException if the probability is greater than 1
+     */
+    public void setMalfunctionProbability(double probability) {
+        if (probability > 1) {
+            throw new IllegalArgumentException("Malfunction probability must be at most 1 but was " + probability);
+        }
+        this.malfunctionProbability = probability;
+    }
+
+    /**
+     * Returns the probability that a malfunction check of a moving robot finds a malfunction.
+     * @return the probability, negative if the agents draw their malfunctions themselves
+     */
+    public double getMalfunctionProbability() {
+        return malfunctionProbability;
+    }
+
     /**
      * Returns the movement manager that contains the logic for 
      * movements the delivery robots managed by this model.
@@ -271,7 +1063,31 @@ public class FactoryModel extends GridWorldModel {
      * @return the HumanTechnician with the specified ID, or null if not found
      */
     public AbstractAgent getAgentById(int agentId) {
-        return agentsMap.get(FactoryUtils.getAgNameBasedOnId(agentId));
+        AbstractAgent[] current = agents;
+        return agentId >= 0 && agentId < current.length ? current[agentId] : null;
+    }
+
+    /**
+     * Retrieves an agent by its name.
+     * @param name the name of the agent
+     * @return the agent with the specified name, or null if it has not been added
+     */
+    public AbstractAgent getAgentByName(String name) {
+        return getAgentById(agentRegistry.getId(name));
+    }
+
+    /**
+     * Retrieves every delivery robot of the model, in id order.
+     * @return the delivery robots
+     */
+    public List<DeliveryRobot> getDeliveryRobots() {
+        List<DeliveryRobot> robots = new ArrayList<>();
+        for (AbstractAgent agent : agents) {
+            if (agent instanceof DeliveryRobot) {
+                robots.add((DeliveryRobot) agent);
+            }
+        }
+        return robots;
     }
 
     /**
@@ -280,11 +1096,99 @@ public class FactoryModel extends GridWorldModel {
      * @return the DeliveryRobot at the specified location, or null if not found
      */
     public AbstractAgent getDeliveryRobotByLocation(Location location) {
-        for (AbstractAgent robot : agentsMap.values()) {
-            if (robot.getLocation().equals(location) && robot instanceof DeliveryRobot) {
-                return robot;
+        AbstractAgent found = null;
+        int foundId = Integer.MAX_VALUE;
+        for (AbstractAgent agent : getAgentsAt(location)) {
+            int id = agentRegistry.getId(agent.getName());
+            if (agent instanceof DeliveryRobot && id < foundId) {
+                found = agent;
+                foundId = id;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Retrieves the agents standing on a cell, looked up in the position index.
+     * @param location the cell to look at
+     * @return the agents on the cell, sorted by name, empty if there is none
+     */
+    public List<AbstractAgent> getAgentsAt(Location location) {
+        List<AbstractAgent> found = new ArrayList<>(1);
+        for (String name : agentIndex.namesAt(location.x, location.y)) {
+            AbstractAgent agent = getAgentByName(name);
+            if (agent != null) {
+                found.add(agent);
             }
         }
-        return null;
+        return found;
+    }
+
+    /**
+     * Retrieves the agents standing in a rectangle of cells, looked up in the position index.
+     * @param x the x-coordinate of the left column of the rectangle
+     * @param y the y-coordinate of the top row of the rectangle
+     * @param width the number of columns of the rectangle
+     * @param height the number of rows of the rectangle
+     * @return the agents in the rectangle, empty if there is none
+     */
+    public List<AbstractAgent> getAgentsIn(int x, int y, int width, int height) {
+        List<AbstractAgent> found = new ArrayList<>();
+        for (String name : agentIndex.namesIn(x, y, width, height)) {
+            AbstractAgent agent = getAgentByName(name);
+            if (agent != null) {
+                found.add(agent);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the delivery robots nearest to a location, as the crow flies,
+     * among those available to help (see {@link DeliveryRobot#isAvailableToHelp()}).
+     * @param from the location to measure from
+     * @param k the number of robots to find
+     * @return at most k robots, nearest first
+     */
+    public List<DeliveryRobot> getClosestAvailableRobots(Location from, int k) {
+        return getClosestAvailableRobots(from, k, null);
+    }
+
+    /**
+     * Finds the delivery robots nearest to a location among some candidates available to help.
+     * @param from the location to measure from
+     * @param k the number of robots to find
+     * @param candidates the names of the robots to consider, or null to consider every robot
+     * @return at most k robots, nearest first
+     */
+    public List<DeliveryRobot> getClosestAvailableRobots(Location from, int k, Set<String> candidates) {
+        List<DeliveryRobot> robots = new ArrayList<>(Math.max(0, k));
+        for (String name : agentIndex.nearest(from.x, from.y, k, name -> (candidates == null || candidates.contains(name)) && isAvailableRobot(name))) {
+            robots.add((DeliveryRobot) getAgentByName(name));
+        }
+        return robots;
+    }
+
+    private boolean isAvailableRobot(String name) {
+        AbstractAgent agent = getAgentByName(name);
+        return agent instanceof DeliveryRobot && ((DeliveryRobot) agent).isAvailableToHelp();
+    }
+
+    /**
+     * The series of the registry receiving the notifications of a kind of change, looked up once.
+     */
+    private static final class FanOut {
+        private final LongAdder notifications;
+        private final LatencyHistogram latency;
+
+        FanOut(MetricsRegistry metrics, String event) {
+            this.notifications = metrics.counter("factory_observer_notifications", "event", event);
+            this.latency = metrics.histogram("factory_observer_fanout_seconds", "event", event);
+        }
+
+        void record(int notified, long nanos) {
+            notifications.add(notified);
+            latency.record(nanos);
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,50 +1,44 @@
 package env;
 
+import env.agent.AgentRegistry;
+
 public class FactoryUtils {
     /**
-     * Retrieves a delivery robot by its name.
-     * @param robotName the name of the delivery robot
-     * @return the DeliveryRobot with the specified name, or null if not found
+     * Names of the agents of the default factory.mas2j, in the order of their ids.
+     * Every model registers them first, so that they keep these ids; other agents get the following ones.
+     */
+    private static final String[] DEFAULT_AGENT_NAMES = {
+        "d_bot_1", "d_bot_2", "d_bot_3", "d_bot_4", "d_bot_5",
+        "ch_st_1", "ch_st_2", "ch_st_3",
+        "truck_1", "deliv_A", "humn_1"
+    };
+    private static final AgentRegistry DEFAULT_AGENTS = new AgentRegistry(DEFAULT_AGENT_NAMES);
+
+    /**
+     * Retrieves the id of an agent of the default factory.
+     * Agents registered dynamically are resolved through {@link FactoryModel#getAgentRegistry()}.
+     * @param agName the name of the agent
+     * @return the id of the agent, or -1 if the name is not one of the default agents
      */
     public static int getAgIdBasedOnName(String agName) {
-        if (agName == null) {
-            return -1; // return -1 for null names
-        }
-        return switch (agName) {
-            case "d_bot_1" -> 0;
-            case "d_bot_2" -> 1;
-            case "d_bot_3" -> 2;
-            case "d_bot_4" -> 3;
-            case "d_bot_5" -> 4;
-            case "ch_st_1" -> 5;
-            case "ch_st_2" -> 6;
-            case "ch_st_3" -> 7;
-            case "truck_1" -> 8;
-            case "deliv_A" -> 9;
-            case "humn_1" -> 10;
-            default -> -1;
-        };
+        return DEFAULT_AGENTS.getId(agName);
     }
 
     /**
-     * Retrieves the name of an agent based on its ID.
+     * Retrieves the name of an agent of the default factory based on its ID.
      * @param agentId the ID of the agent
      * @return the name of the agent, or "unknown" if the ID is not recognized
      */
     public static String getAgNameBasedOnId(int agentId) {
-        return switch (agentId) {
-            case 0 -> "d_bot_1";
-            case 1 -> "d_bot_2";
-            case 2 -> "d_bot_3";
-            case 3 -> "d_bot_4";
-            case 4 -> "d_bot_5";
-            case 5 -> "ch_st_1";
-            case 6 -> "ch_st_2";
-            case 7 -> "ch_st_3";
-            case 8 -> "truck_1";
-            case 9 -> "deliv_A";
-            case 10 -> "humn_1";
-            default -> "unknown";
-        };
+        String name = DEFAULT_AGENTS.getName(agentId);
+        return name != null ? name : "unknown";
+    }
+
+    /**
+     * Creates the registry of a new model, with the default agents already registered.
+     * @return a registry holding the default agents
+     */
+    public static AgentRegistry createAgentRegistry() {
+        return new AgentRegistry(DEFAULT_AGENT_NAMES);
     }
 }
@@ -1,33 +1,78 @@
 package env;
 
+import env.agent.AbstractAgent;
 import env.agent.DeliveryRobot;
+import env.agent.HumanTechnician;
+import env.view.FleetTableModel;
+import env.view.RenderScheduler;
+import env.view.StaticLayerCache;
 import jason.environment.grid.Location;
 import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * FactoryView represents the graphical user interface for the factory simulation.
  * It displays the grid, robot information, and system status.
+ * Model events only mark what they change in a {@link RenderScheduler}; a frame timer then repaints the marked
+ * regions and labels, at most {@code fps} times per second, however many events arrived in between.
+ * The grid is shown in a scrollable viewport, zoomed with the mouse wheel while holding Ctrl or with Ctrl and +/-;
+ * only the cells and agents within the visible part are painted, and when zoomed out the agents are plain cells.
  */
 public class FactoryView extends JFrame implements ModelObserver {
-    private static final int CELL_SIZE = 40;
+    private static final int DEFAULT_CELL_SIZE = 40;
+    private static final int MIN_CELL_SIZE = 1;
+    private static final int MAX_CELL_SIZE = 80;
+    // below this side of a cell, agents are plain cells and the grid has no lines nor labels
+    private static final int DETAIL_CELL_SIZE = 12;
+    private static final double ZOOM_STEP = 1.25;
+    private static final int MAX_VIEWPORT_SIZE = 800;
     private static final Color BACKGROUND_COLOR = Color.white;
     private static final Color GRID_COLOR = Color.gray.brighter();
     private static final Color OBSTACLE_COLOR = Color.gray;
     private static final Color TRUCK_COLOR = Color.green.darker();
     private static final Color DELIVERY_COLOR = Color.red.darker();
     private static final Color CHARGING_STATION_COLOR = Color.yellow.darker();
+    private static final Color HUMAN_COLOR = new Color(102, 51, 0);
+    private static final Color BATTERY_SHARING_COLOR = new Color(139, 0, 139);
+    private static final Color CHARGING_COLOR = new Color(184, 134, 11);
+    private static final Color MALFUNCTIONING_COLOR = new Color(139, 0, 0);
+    private static final Color SEEKING_CHARGING_COLOR = Color.ORANGE;
+    private static final Color HELPING_COLOR = Color.MAGENTA;
+    private static final Color CARRYING_COLOR = Color.cyan.darker();
+    private static final Color GOING_TO_TRUCK_COLOR = new Color(0, 139, 139);
+    private static final Font ROBOT_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 10);
+    private static final Font HUMAN_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 14);
+    private static final Font CELL_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 16);
+    private static final Font INFO_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 10);
     private final FactoryModel model;
     private FactoryEnv environment;
     private GridPanel gridPanel;
     private JPanel infoPanel;
     private JLabel statusLabel;
-    private Map<String, JLabel> robotInfoLabels;
-    private Timer refreshTimer;
+    private final FleetTableModel fleet = new FleetTableModel();
+    private TableRowSorter<FleetTableModel> fleetSorter;
+    private JLabel fleetCounters;
+    private Map<String, JLabel> humanInfoLabels;
+    private JPanel humanInfoPanel;
+    private Timer frameTimer;
+    private final RenderScheduler scheduler;
+    // where each agent was last drawn, read and written on the event dispatch thread only
+    private final Map<Integer, Location> drawnAt = new HashMap<>();
+    private final StaticLayerCache staticLayer;
+    private JScrollPane scrollPane;
+    // side of a cell in pixels and the fonts scaled to it, changed on the event dispatch thread only
+    private int cellSize;
+    private Font robotFont = ROBOT_FONT;
+    private Font humanFont = HUMAN_FONT;
+    private Font cellFont = CELL_FONT;
     
     /**
      * Constructor for FactoryView.
@@ -36,14 +81,41 @@ public class FactoryView extends JFrame implements ModelObserver {
      * @param model The FactoryModel instance to observe.
      */
     public FactoryView(FactoryModel model) {
+        this(model, new RenderScheduler(model.getWidth(), model.getHeight(), RenderScheduler.DEFAULT_FPS));
+    }
+
+    /**
+     * Constructor for FactoryView rendering the frames of a scheduler.
+     * Initializes the GUI components and sets up the model observer.
+     *
+     * @param model     The FactoryModel instance to observe.
+     * @param scheduler The scheduler collecting the changes to render.
+     */
+    public FactoryView(FactoryModel model, RenderScheduler scheduler) {
         this.model = model;
-        this.robotInfoLabels = new HashMap<>();
+        this.scheduler = scheduler;
+        // the whole grid fits in the viewport when the view opens, unless its cells would be less than a pixel
+        int initialCellSize = Math.max(MIN_CELL_SIZE,
+            Math.min(DEFAULT_CELL_SIZE, MAX_VIEWPORT_SIZE / Math.max(model.getWidth(), model.getHeight())));
+        this.staticLayer = new StaticLayerCache(model.getWidth(), model.getHeight(), initialCellSize,
+            (g2d, x, y, width, height, size) -> gridPanel.renderStaticTile(g2d, x, y, width, height));
+        applyCellSize(initialCellSize);
+        this.humanInfoLabels = new HashMap<>();
         
         // Register as observer
         model.addObserver(this);
         
         initializeGUI();
-        setupRefreshTimer();
+        setupFrameTimer();
+    }
+
+    /**
+     * Returns the scheduler collecting the changes to render.
+     *
+     * @return the render scheduler of this view
+     */
+    public RenderScheduler getScheduler() {
+        return scheduler;
     }
     
     /**
@@ -64,18 +136,22 @@ public class FactoryView extends JFrame implements ModelObserver {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
         
-        // Create main grid panel
+        // Create main grid panel, in a scrollable viewport
         gridPanel = new GridPanel();
-        gridPanel.setPreferredSize(new Dimension(
-            FactoryModel.GSize * CELL_SIZE, 
-            FactoryModel.GSize * CELL_SIZE
+        gridPanel.setPreferredSize(gridSize());
+        scrollPane = new JScrollPane(gridPanel);
+        Dimension gridSize = gridSize();
+        scrollPane.getViewport().setPreferredSize(new Dimension(
+            Math.min(gridSize.width, MAX_VIEWPORT_SIZE),
+            Math.min(gridSize.height, MAX_VIEWPORT_SIZE)
         ));
+        setupZoom();
         
         // Create info panel
         createInfoPanel();
         
         // Add components
-        add(gridPanel, BorderLayout.CENTER);
+        add(scrollPane, BorderLayout.CENTER);
         add(infoPanel, BorderLayout.EAST);
         
         pack();
@@ -83,10 +159,114 @@ public class FactoryView extends JFrame implements ModelObserver {
         setVisible(true);
     }
     
+    /**
+     * Returns the size of the whole grid at the current zoom, one more pixel for the closing grid lines.
+     *
+     * @return the size of the grid panel in pixels
+     */
+    private Dimension gridSize() {
+        return new Dimension(model.getWidth() * cellSize + 1, model.getHeight() * cellSize + 1);
+    }
+
+    /**
+     * Sets up the zoom: the mouse wheel zooms around the pointer while Ctrl is held and scrolls otherwise,
+     * and Ctrl with + or - zooms around the center of the viewport.
+     */
+    private void setupZoom() {
+        gridPanel.addMouseWheelListener(e -> {
+            if (e.isControlDown()) {
+                zoom(e.getWheelRotation() < 0, SwingUtilities.convertPoint(gridPanel, e.getPoint(), scrollPane.getViewport()));
+            } else {
+                // a listener on the panel keeps the wheel events from the scroll pane, so hand them over
+                scrollPane.dispatchEvent(SwingUtilities.convertMouseEvent(gridPanel, e, scrollPane));
+            }
+        });
+        InputMap keys = scrollPane.getInputMap(JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
+        ActionMap actions = scrollPane.getActionMap();
+        for (String key : new String[] {"ctrl EQUALS", "ctrl PLUS", "ctrl ADD"}) {
+            keys.put(KeyStroke.getKeyStroke(key), "zoomIn");
+        }
+        for (String key : new String[] {"ctrl MINUS", "ctrl SUBTRACT"}) {
+            keys.put(KeyStroke.getKeyStroke(key), "zoomOut");
+        }
+        actions.put("zoomIn", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                zoom(true, viewportCenter());
+            }
+        });
+        actions.put("zoomOut", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                zoom(false, viewportCenter());
+            }
+        });
+        scrollPane.setFocusable(true);
+        updateScrollIncrements();
+    }
+
+    private Point viewportCenter() {
+        Dimension extent = scrollPane.getViewport().getExtentSize();
+        return new Point(extent.width / 2, extent.height / 2);
+    }
+
+    /**
+     * Zooms in or out by one step, keeping the cell under a point of the viewport in place.
+     *
+     * @param in     true to zoom in, false to zoom out.
+     * @param anchor the point of the viewport that stays over the same cell.
+     */
+    private void zoom(boolean in, Point anchor) {
+        int size = in
+            ? Math.max(cellSize + 1, (int) Math.round(cellSize * ZOOM_STEP))
+            : Math.min(cellSize - 1, (int) Math.round(cellSize / ZOOM_STEP));
+        size = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, size));
+        if (size == cellSize) {
+            return;
+        }
+        JViewport viewport = scrollPane.getViewport();
+        Point position = viewport.getViewPosition();
+        double anchorX = (position.x + anchor.x) / (double) cellSize;
+        double anchorY = (position.y + anchor.y) / (double) cellSize;
+        applyCellSize(size);
+        Dimension gridSize = gridSize();
+        gridPanel.setPreferredSize(gridSize);
+        viewport.setViewSize(gridSize);
+        Dimension extent = viewport.getExtentSize();
+        int x = (int) Math.round(anchorX * size) - anchor.x;
+        int y = (int) Math.round(anchorY * size) - anchor.y;
+        viewport.setViewPosition(new Point(
+            Math.max(0, Math.min(x, gridSize.width - extent.width)),
+            Math.max(0, Math.min(y, gridSize.height - extent.height))
+        ));
+        updateScrollIncrements();
+        gridPanel.revalidate();
+        gridPanel.repaint();
+    }
+
+    /**
+     * Changes the side of the cells, scaling the fonts drawn on the grid and dropping the cached static tiles.
+     *
+     * @param size the new side of a cell, in pixels.
+     */
+    private void applyCellSize(int size) {
+        cellSize = size;
+        staticLayer.setCellSize(size);
+        float scale = size / (float) DEFAULT_CELL_SIZE;
+        robotFont = ROBOT_FONT.deriveFont(ROBOT_FONT.getSize2D() * scale);
+        humanFont = HUMAN_FONT.deriveFont(HUMAN_FONT.getSize2D() * scale);
+        cellFont = CELL_FONT.deriveFont(CELL_FONT.getSize2D() * scale);
+    }
+
+    private void updateScrollIncrements() {
+        scrollPane.getHorizontalScrollBar().setUnitIncrement(Math.max(1, cellSize));
+        scrollPane.getVerticalScrollBar().setUnitIncrement(Math.max(1, cellSize));
+    }
+
     /**
      * Creates the information panel that displays system status and robot information.
-     * This panel includes a legend for colors used in the grid and status labels for robots and humans.
-     * It also initializes labels for each robot and human agent, which will be updated periodically.
+     * This panel includes a legend for colors used in the grid, a sortable and filterable table of the robots
+     * with counters of the fleet, and status labels for the humans, all of them updated as the agents change.
      */
     private void createInfoPanel() {
         infoPanel = new JPanel();
@@ -109,25 +289,84 @@ public class FactoryView extends JFrame implements ModelObserver {
         infoPanel.add(robotSectionLabel);
         infoPanel.add(Box.createVerticalStrut(5));
         
-        // initialize robot info labels
-        for (int i = 0; i < 5; i++) {
-            String robotName = "d_bot_" + (i + 1);
-            JLabel robotLabel = new JLabel(robotName + ": Not initialized");
-            robotLabel.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 10));
-            robotInfoLabels.put(robotName, robotLabel);
-            infoPanel.add(robotLabel);
-        }
+        fleetCounters = new JLabel();
+        fleetCounters.setFont(INFO_FONT);
+        infoPanel.add(fleetCounters);
+        infoPanel.add(createFleetFilters());
+        infoPanel.add(createFleetTable());
+        infoPanel.add(Box.createVerticalStrut(10));
         
-        // human information section
+        // human information section, labels are added as the humans register
         JLabel humanSectionLabel = new JLabel("Human Status:");
         humanSectionLabel.setFont(humanSectionLabel.getFont().deriveFont(Font.BOLD));
         infoPanel.add(humanSectionLabel);
         infoPanel.add(Box.createVerticalStrut(5));
         
-        JLabel humanLabel = new JLabel("humn_1: Not initialized");
-        humanLabel.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 10));
-        robotInfoLabels.put("humn_1", humanLabel);
-        infoPanel.add(humanLabel);
+        humanInfoPanel = new JPanel();
+        humanInfoPanel.setLayout(new BoxLayout(humanInfoPanel, BoxLayout.Y_AXIS));
+        humanInfoPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        infoPanel.add(humanInfoPanel);
+    }
+
+    /**
+     * Creates the table of the robots, one row each, sortable by any column.
+     * The table only renders the rows within its viewport, and each row is refreshed when its robot changes.
+     *
+     * @return the scroll pane showing the table
+     */
+    private JScrollPane createFleetTable() {
+        JTable table = new JTable(fleet);
+        table.setFont(INFO_FONT);
+        table.setRowHeight(table.getFontMetrics(INFO_FONT).getHeight() + 2);
+        table.setFillsViewportHeight(true);
+        fleetSorter = new TableRowSorter<>(fleet);
+        // keeps the order and the filter right as rows change, moving only the changed rows
+        fleetSorter.setSortsOnUpdates(true);
+        table.setRowSorter(fleetSorter);
+        table.getColumnModel().getColumn(FleetTableModel.NAME_COLUMN).setPreferredWidth(70);
+        table.getColumnModel().getColumn(FleetTableModel.X_COLUMN).setPreferredWidth(30);
+        table.getColumnModel().getColumn(FleetTableModel.Y_COLUMN).setPreferredWidth(30);
+        table.getColumnModel().getColumn(FleetTableModel.BATTERY_COLUMN).setPreferredWidth(45);
+        table.getColumnModel().getColumn(FleetTableModel.STATUS_COLUMN).setPreferredWidth(75);
+        // the status is colored as the robot on the grid
+        table.getColumnModel().getColumn(FleetTableModel.STATUS_COLUMN).setCellRenderer(new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                           boolean hasFocus, int row, int column) {
+                Component cell = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                if (!isSelected) {
+                    cell.setForeground(statusColor(fleet.getFlags(table.convertRowIndexToModel(row))));
+                }
+                return cell;
+            }
+        });
+        JScrollPane pane = new JScrollPane(table);
+        pane.setAlignmentX(Component.LEFT_ALIGNMENT);
+        pane.setPreferredSize(new Dimension(240, 240));
+        return pane;
+    }
+
+    /**
+     * Creates the filters of the robot table: when some are checked, only the robots having one of their statuses are shown.
+     *
+     * @return the panel of the filters
+     */
+    private JPanel createFleetFilters() {
+        JPanel filters = new JPanel(new FlowLayout(FlowLayout.LEFT, 2, 0));
+        filters.setAlignmentX(Component.LEFT_ALIGNMENT);
+        JCheckBox malfunctioning = new JCheckBox("Malf");
+        JCheckBox charging = new JCheckBox("Charging");
+        JCheckBox carrying = new JCheckBox("Carrying");
+        Runnable apply = () -> fleetSorter.setRowFilter(FleetTableModel.withAnyFlag(
+            (malfunctioning.isSelected() ? DeliveryRobot.MALFUNCTIONING : 0)
+                | (charging.isSelected() ? DeliveryRobot.CHARGING : 0)
+                | (carrying.isSelected() ? DeliveryRobot.CARRYING_PACKAGE : 0)));
+        for (JCheckBox box : new JCheckBox[] {malfunctioning, charging, carrying}) {
+            box.setFont(INFO_FONT);
+            box.addActionListener(e -> apply.run());
+            filters.add(box);
+        }
+        return filters;
     }
     
     /**
@@ -143,7 +382,7 @@ public class FactoryView extends JFrame implements ModelObserver {
         addLegendItem("■ Truck", TRUCK_COLOR);
         addLegendItem("■ Delivery", DELIVERY_COLOR);
         addLegendItem("■ Charging Station", CHARGING_STATION_COLOR);
-        addLegendItem("■ Human", new Color(102, 51, 0));
+        addLegendItem("■ Human", HUMAN_COLOR);
         
         // robot status colors
         infoPanel.add(Box.createVerticalStrut(5));
@@ -151,13 +390,13 @@ public class FactoryView extends JFrame implements ModelObserver {
         robotStatusLabel.setFont(robotStatusLabel.getFont().deriveFont(Font.BOLD, 9));
         infoPanel.add(robotStatusLabel);
         
-        addLegendItem("■ Battery Sharing", new Color(139, 0, 139));
-        addLegendItem("■ Charging", new Color(184, 134, 11));
-        addLegendItem("■ Malfunctioning", new Color(139, 0, 0));
-        addLegendItem("■ Seeking Charging", Color.ORANGE);
-        addLegendItem("■ Helping Robot", Color.MAGENTA);
-        addLegendItem("■ Carrying Package", Color.cyan.darker());
-        addLegendItem("■ Going to Truck", new Color(0, 139, 139));
+        addLegendItem("■ Battery Sharing", BATTERY_SHARING_COLOR);
+        addLegendItem("■ Charging", CHARGING_COLOR);
+        addLegendItem("■ Malfunctioning", MALFUNCTIONING_COLOR);
+        addLegendItem("■ Seeking Charging", SEEKING_CHARGING_COLOR);
+        addLegendItem("■ Helping Robot", HELPING_COLOR);
+        addLegendItem("■ Carrying Package", CARRYING_COLOR);
+        addLegendItem("■ Going to Truck", GOING_TO_TRUCK_COLOR);
         
         infoPanel.add(Box.createVerticalStrut(10));
     }
@@ -172,109 +411,212 @@ public class FactoryView extends JFrame implements ModelObserver {
     private void addLegendItem(String text, Color color) {
         JLabel item = new JLabel(text);
         item.setForeground(color);
-        item.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 10));
+        item.setFont(INFO_FONT);
         infoPanel.add(item);
     }
     
     /**
-     * Sets up a timer to refresh the robot information periodically.
-     * This method creates a Timer that updates the robot information every 100 milliseconds.
+     * Sets up the timer rendering the frames.
+     * This method creates a Timer that renders the changes marked since the previous frame, at the frame rate of the scheduler.
+     * The timer coalesces its events, so a slow frame delays the next one instead of queueing more.
      */
-    private void setupRefreshTimer() {
-        refreshTimer = new Timer(100, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                updateRobotInfo();
+    private void setupFrameTimer() {
+        frameTimer = new Timer(scheduler.getFrameMillis(), e -> renderFrame());
+        frameTimer.setCoalesce(true);
+        frameTimer.start();
+    }
+
+    /**
+     * Renders the changes marked since the previous frame, if any.
+     * The cells where the marked agents were last drawn and where they are now are repainted along with the marked cells,
+     * and only the table rows and labels of the marked agents are updated. A frame covering more than half of the grid repaints all of it.
+     */
+    private void renderFrame() {
+        RenderScheduler.Frame frame = scheduler.takeFrame();
+        if (frame == null) {
+            return;
+        }
+        if (frame.isFull()) {
+            updateRobotInfo();
+            for (DeliveryRobot robot : model.getDeliveryRobots()) {
+                drawnAt.put(model.getAgentRegistry().getId(robot.getName()), robot.getLocation());
             }
-        });
-        refreshTimer.start();
+            gridPanel.repaint();
+            return;
+        }
+        BitSet agents = frame.getAgents();
+        boolean fleetChanged = false;
+        for (int agentId = agents.nextSetBit(0); agentId >= 0; agentId = agents.nextSetBit(agentId + 1)) {
+            Location drawn = drawnAt.get(agentId);
+            if (drawn != null) {
+                frame.addCell(drawn.x, drawn.y);
+            }
+            Location current = agentLocation(agentId);
+            if (current != null) {
+                frame.addCell(current.x, current.y);
+                drawnAt.put(agentId, current);
+            }
+            fleetChanged |= updateAgentInfo(model.getAgentRegistry().getName(agentId));
+        }
+        if (fleetChanged) {
+            updateFleetCounters();
+        }
+        // regions out of the viewport are not painted at all
+        Rectangle visible = gridPanel.getVisibleRect();
+        List<Rectangle> regions = new ArrayList<>();
+        long cells = 0;
+        for (Rectangle region : frame.getRegions()) {
+            // one more pixel for the grid lines closing the region
+            Rectangle pixels = new Rectangle(region.x * cellSize, region.y * cellSize,
+                region.width * cellSize + 1, region.height * cellSize + 1).intersection(visible);
+            if (!pixels.isEmpty()) {
+                regions.add(pixels);
+                cells += (long) pixels.width * pixels.height;
+            }
+        }
+        if (cells * 2 > (long) visible.width * visible.height) {
+            gridPanel.repaint();
+            return;
+        }
+        for (Rectangle region : regions) {
+            gridPanel.paintImmediately(region);
+        }
+    }
+
+    /**
+     * Returns where an agent is drawn: the location of a delivery robot, or the grid position of any other agent.
+     *
+     * @param agentId The ID of the agent.
+     * @return The location of the agent, or null if it is not on the grid.
+     */
+    private Location agentLocation(int agentId) {
+        AbstractAgent agent = model.getAgentById(agentId);
+        return agent instanceof DeliveryRobot ? agent.getLocation() : model.getAgPos(agentId);
+    }
+
+    /**
+     * Checks whether the cells are large enough to draw the agents, the grid lines and the labels in detail.
+     *
+     * @return false if zoomed out so far that the agents are drawn as plain cells
+     */
+    private boolean isDetailed() {
+        return cellSize >= DETAIL_CELL_SIZE;
     }
     
     /**
-     * Updates the robot information labels based on the current state of the model.
-     * This method retrieves the status of each robot and human agent, formats it, and updates the corresponding label.
-     * It also applies color coding based on the status of each robot.
+     * Updates the robot table and the human labels from the current state of the model, and the fleet counters.
      */
     private void updateRobotInfo() {
-        for (Map.Entry<String, JLabel> entry : robotInfoLabels.entrySet()) {
-            String agentName = entry.getKey();
-            JLabel label = entry.getValue();
-            
-            if (agentName.equals("humn_1")) {
-                // handle human agent
-                int agentId = FactoryUtils.getAgIdBasedOnName(agentName);
-                Location humanLoc = model.getAgPos(agentId);
-                
-                if (humanLoc != null) {
-                    String info = String.format("%s: Pos(%d,%d)", 
-                        agentName, humanLoc.x, humanLoc.y);
-                    label.setText(info);
-                    label.setForeground(new Color(102, 51, 0)); // Brown color
-                } else {
-                    label.setText(agentName + ": Not initialized");
-                    label.setForeground(Color.GRAY);
-                }
-            } else {
-                // handle robot agents
-                int agentId = FactoryUtils.getAgIdBasedOnName(agentName);
-                DeliveryRobot robot = (DeliveryRobot) model.getAgentById(agentId);
-
-                if (robot != null) {
-                    String info = String.format("%s: Pos(%d,%d) %s%s%s%s%s%s%s", 
-                        agentName,
-                        robot.getLocation().x, robot.getLocation().y,
-                        robot.isBatterySharingActive() ? "BSHARE " : "",
-                        robot.isMalfunctioning() ? "MALF " : "",
-                        robot.isCharging() ? "CHG " : "",
-                        robot.isSeekingChargingStation() ? "SEEK " : "",
-                        robot.isHelpingRobot() ? "HELP " : "",
-                        robot.isCarryingPackage() ? "PKG " : "",
-                        "(" + robot.getBattery() + "%)"
-                    );
-                    label.setText(info);
-                    
-                    // color code based on status (matching robot colors)
-                    if (robot.isBatterySharingActive()) {
-                        label.setForeground(new Color(139, 0, 139));
-                    } else if (robot.isCharging()) {
-                        label.setForeground(new Color(184, 134, 11));
-                    } else if (robot.isMalfunctioning()) {
-                        label.setForeground(new Color(139, 0, 0));
-                    } else if (robot.isSeekingChargingStation()) {
-                        label.setForeground(Color.ORANGE);
-                    } else if (robot.isHelpingRobot()) {
-                        label.setForeground(Color.MAGENTA);
-                    } else if (robot.isCarryingPackage()) {
-                        label.setForeground(Color.cyan.darker());
-                    } else {
-                        label.setForeground(new Color(0, 139, 139));
-                    }
-                } else {
-                    label.setText(agentName + ": Not initialized");
-                    label.setForeground(Color.GRAY);
-                }
+        for (DeliveryRobot robot : model.getDeliveryRobots()) {
+            fleet.update(robot);
+        }
+        for (AbstractAgent agent : model.getAgentsIn(0, 0, model.getWidth(), model.getHeight())) {
+            if (agent instanceof HumanTechnician) {
+                updateAgentInfo(agent.getName());
             }
         }
+        updateFleetCounters();
+    }
+
+    /**
+     * Updates the fleet counters: the number of robots, of those malfunctioning, charging and carrying a package,
+     * and their mean battery level.
+     */
+    private void updateFleetCounters() {
+        fleetCounters.setText(String.format("%d robots, %d malf, %d chg, %d pkg, avg %.0f%%",
+            fleet.getRowCount(),
+            fleet.getFlagCount(DeliveryRobot.MALFUNCTIONING),
+            fleet.getFlagCount(DeliveryRobot.CHARGING),
+            fleet.getFlagCount(DeliveryRobot.CARRYING_PACKAGE),
+            fleet.getAverageBattery()));
+    }
+
+    /**
+     * Updates the row of a robot or the label of a human from its current state.
+     * Other agents, such as the charging stations, are ignored.
+     *
+     * @param agentName The name of the agent.
+     * @return true if the row of a robot was added or changed.
+     */
+    private boolean updateAgentInfo(String agentName) {
+        if (agentName == null) {
+            return false;
+        }
+        AbstractAgent agent = model.getAgentByName(agentName);
+        if (agent instanceof DeliveryRobot) {
+            return fleet.update((DeliveryRobot) agent);
+        }
+        if (!(agent instanceof HumanTechnician)) {
+            return false;
+        }
+        JLabel label = humanInfoLabels.get(agentName);
+        if (label == null) {
+            label = new JLabel();
+            label.setFont(INFO_FONT);
+            humanInfoLabels.put(agentName, label);
+            humanInfoPanel.add(label);
+            humanInfoPanel.revalidate();
+        }
+        Location humanLoc = model.getAgPos(model.getAgentRegistry().getId(agentName));
+        if (humanLoc != null) {
+            label.setText(String.format("%s: Pos(%d,%d)", agentName, humanLoc.x, humanLoc.y));
+            label.setForeground(HUMAN_COLOR);
+        } else {
+            label.setText(agentName + ": Not initialized");
+            label.setForeground(Color.GRAY);
+        }
+        return false;
+    }
+
+    /**
+     * Gets the color of a robot status, as drawn on the grid and in the robot table.
+     * When several flags are set, the color of the most important one is used.
+     *
+     * @param flags The status flags of the robot, as in {@link DeliveryRobot#getFlags()}.
+     * @return The Color to use for the robot.
+     */
+    private static Color statusColor(int flags) {
+        // Priority order for status colors (highest priority first)
+        if ((flags & DeliveryRobot.BATTERY_SHARING) != 0) {
+            return BATTERY_SHARING_COLOR;
+        }
+        if ((flags & DeliveryRobot.CHARGING) != 0) {
+            return CHARGING_COLOR;
+        }
+        if ((flags & DeliveryRobot.MALFUNCTIONING) != 0) {
+            return MALFUNCTIONING_COLOR;
+        }
+        if ((flags & DeliveryRobot.SEEKING_CHARGING_STATION) != 0) {
+            return SEEKING_CHARGING_COLOR;
+        }
+        if ((flags & DeliveryRobot.HELPING_ROBOT) != 0) {
+            return HELPING_COLOR;
+        }
+        if ((flags & DeliveryRobot.CARRYING_PACKAGE) != 0) {
+            return CARRYING_COLOR;
+        }
+        // Default case
+        return GOING_TO_TRUCK_COLOR;
     }
     
     /**
      * Updates the agent's position on the grid.
-     * This method is called when an agent's location is updated, triggering a repaint of the grid panel
-     * and an update of the robot information.
+     * This method is called when an agent's location or state is updated, marking its cell and its label
+     * to be refreshed by the next frame.
      * @param location The new location of the agent.
      * @param agentId  The ID of the agent being updated.
      */
     public void updateAgent(Location location, int agentId) {
-        SwingUtilities.invokeLater(() -> {
-            gridPanel.repaint();
-            updateRobotInfo();
-        });
+        if (location != null) {
+            scheduler.markCell(location.x, location.y);
+        }
+        scheduler.markAgent(agentId);
     }
     
     /**
      * Updates the agent's position on the grid.
-     * This method is called when an agent's location is updated, triggering a repaint of the grid panel
-     * and an update of the robot information.
+     * This method is called when an agent's location is updated, marking its cell and its label
+     * to be refreshed by the next frame.
      *
      * @param location The new location of the agent.
      * @param agentId  The ID of the agent being updated.
@@ -286,8 +628,8 @@ public class FactoryView extends JFrame implements ModelObserver {
     
     /**
      * Updates GUI when an agent moves from one location to another.
-     * This method is invoked when an agent's location changes, triggering a repaint of the grid panel
-     * and an update of the robot information.
+     * This method is invoked when an agent's location changes, marking both cells and the label of the agent
+     * to be refreshed by the next frame.
      *
      * @param oldLocation The previous location of the agent.
      * @param newLocation The new location of the agent.
@@ -295,23 +637,23 @@ public class FactoryView extends JFrame implements ModelObserver {
      */
     @Override
     public void onAgentMoved(Location oldLocation, Location newLocation, int agentId) {
-        SwingUtilities.invokeLater(() -> {
-            gridPanel.repaint();
-            updateRobotInfo();
-        });
+        if (oldLocation != null) {
+            scheduler.markCell(oldLocation.x, oldLocation.y);
+        }
+        updateAgent(newLocation, agentId);
     }
     
     /**
      * Updates GUI when a cell in the grid is updated.
-     * This method is invoked when a cell's state changes, triggering a repaint of the grid panel.
+     * This method is invoked when a cell's state changes, dropping the cached static tile of the cell
+     * and marking the cell to be repainted by the next frame.
      *
      * @param location The location of the cell that was updated.
      */
     @Override
     public void onCellUpdated(Location location) {
-        SwingUtilities.invokeLater(() -> {
-            gridPanel.repaint();
-        });
+        staticLayer.invalidate(location.x, location.y);
+        scheduler.markCell(location.x, location.y);
     }
     
     /**
@@ -326,7 +668,8 @@ public class FactoryView extends JFrame implements ModelObserver {
 
         /**
          * Paints the grid panel.
-         * This method is called whenever the panel needs to be redrawn.
+         * This method is called whenever the panel needs to be redrawn, and only draws the cells
+         * within the clip, which is a few regions of the grid when a frame repaints what changed.
          *
          * @param g The Graphics object used for drawing.
          */
@@ -335,213 +678,245 @@ public class FactoryView extends JFrame implements ModelObserver {
             super.paintComponent(g);
             Graphics2D g2d = (Graphics2D) g;
             g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            Rectangle cells = clippedCells(g2d);
             
             // Clear background
             g2d.setColor(BACKGROUND_COLOR);
             g2d.fillRect(0, 0, getWidth(), getHeight());
             
-            // Draw grid
-            drawGrid(g2d);
-            
-            // Draw static elements
-            drawStaticElements(g2d);
-            
-            // Draw charging stations
-            drawChargingStations(g2d);
+            // Copy the grid, obstacles, truck, delivery place and charging stations from the cached tiles
+            staticLayer.draw(g2d, cells);
             
             // Draw robots
-            drawAgOnGUI(g2d);
+            drawAgOnGUI(g2d, cells);
         }
 
         /**
-         * Draws the grid lines on the panel.
+         * Renders the static content of a block of cells into a tile of the static layer.
+         * The graphics are translated so that the cells are drawn at their place on the grid.
+         *
+         * @param g2d      The Graphics2D object of the tile.
+         * @param x        The x-coordinate of the first cell.
+         * @param y        The y-coordinate of the first cell.
+         * @param width    The number of columns of cells.
+         * @param height   The number of rows of cells.
+         */
+        private void renderStaticTile(Graphics2D g2d, int x, int y, int width, int height) {
+            g2d.setColor(BACKGROUND_COLOR);
+            g2d.fillRect(0, 0, width * cellSize + 1, height * cellSize + 1);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.translate(-x * cellSize, -y * cellSize);
+            Rectangle cells = new Rectangle(x, y, width, height);
+            drawGrid(g2d, cells);
+            drawStaticElements(g2d, cells);
+        }
+
+        /**
+         * Returns the cells of the grid within the clip of the graphics.
          *
          * @param g2d The Graphics2D object used for drawing.
+         * @return The cells to draw, as a rectangle in cells.
+         */
+        private Rectangle clippedCells(Graphics2D g2d) {
+            Rectangle clip = g2d.getClipBounds();
+            if (clip == null) {
+                return new Rectangle(0, 0, model.getWidth(), model.getHeight());
+            }
+            int fromX = Math.max(0, clip.x / cellSize);
+            int fromY = Math.max(0, clip.y / cellSize);
+            int toX = Math.min(model.getWidth(), (clip.x + clip.width) / cellSize + 1);
+            int toY = Math.min(model.getHeight(), (clip.y + clip.height) / cellSize + 1);
+            return new Rectangle(fromX, fromY, Math.max(0, toX - fromX), Math.max(0, toY - fromY));
+        }
+
+        /**
+         * Draws the grid lines of some cells on the panel, unless zoomed out so far that they would hide the cells.
+         *
+         * @param g2d   The Graphics2D object used for drawing.
+         * @param cells The cells to draw.
          */
-        private void drawGrid(Graphics2D g2d) {
+        private void drawGrid(Graphics2D g2d, Rectangle cells) {
+            if (!isDetailed()) {
+                return;
+            }
             g2d.setColor(GRID_COLOR);
             g2d.setStroke(new BasicStroke(1));
+            int top = cells.y * cellSize;
+            int bottom = (cells.y + cells.height) * cellSize;
+            int left = cells.x * cellSize;
+            int right = (cells.x + cells.width) * cellSize;
             
             // Vertical lines
-            for (int x = 0; x <= FactoryModel.GSize; x++) {
-                int xPos = x * CELL_SIZE;
-                g2d.drawLine(xPos, 0, xPos, FactoryModel.GSize * CELL_SIZE);
+            for (int x = cells.x; x <= cells.x + cells.width; x++) {
+                int xPos = x * cellSize;
+                g2d.drawLine(xPos, top, xPos, bottom);
             }
             
             // Horizontal lines
-            for (int y = 0; y <= FactoryModel.GSize; y++) {
-                int yPos = y * CELL_SIZE;
-                g2d.drawLine(0, yPos, FactoryModel.GSize * CELL_SIZE, yPos);
+            for (int y = cells.y; y <= cells.y + cells.height; y++) {
+                int yPos = y * cellSize;
+                g2d.drawLine(left, yPos, right, yPos);
             }
         }
         
         /**
-         * Draws an element in a cell.
-        */
-        private void drawStaticElements(Graphics2D g2d) {
-            // Draw obstacles
-            g2d.setColor(OBSTACLE_COLOR);
-            for (int x = 0; x < FactoryModel.GSize; x++) {
-                for (int y = 0; y < FactoryModel.GSize; y++) {
+         * Draws the obstacles and charging stations of some cells, and the truck and the delivery location if among them.
+         *
+         * @param g2d   The Graphics2D object used for drawing.
+         * @param cells The cells to draw.
+         */
+        private void drawStaticElements(Graphics2D g2d, Rectangle cells) {
+            // Draw obstacles and charging stations
+            for (int x = cells.x; x < cells.x + cells.width; x++) {
+                for (int y = cells.y; y < cells.y + cells.height; y++) {
                     if (model.hasObject(FactoryModel.OBSTACLE, x, y)) {
+                        g2d.setColor(OBSTACLE_COLOR);
+                        fillCell(g2d, x, y);
+                    } else if (model.hasObject(FactoryModel.CHARGING_STATION, x, y)) {
+                        g2d.setColor(CHARGING_STATION_COLOR);
                         fillCell(g2d, x, y);
+                        drawCenteredString(g2d, "C", x, y, Color.BLACK);
                     }
                 }
             }
             
             // Draw truck
-            g2d.setColor(TRUCK_COLOR);
             Location truckLoc = model.getTruckLocation();
-            fillCell(g2d, truckLoc.x, truckLoc.y);
-            drawCenteredString(g2d, "T", truckLoc.x, truckLoc.y, Color.WHITE);
+            if (cells.contains(truckLoc.x, truckLoc.y)) {
+                g2d.setColor(TRUCK_COLOR);
+                fillCell(g2d, truckLoc.x, truckLoc.y);
+                drawCenteredString(g2d, "T", truckLoc.x, truckLoc.y, Color.WHITE);
+            }
             
             // Draw delivery location
-            g2d.setColor(DELIVERY_COLOR);
             Location deliveryLoc = model.getDeliveryLocation();
-            fillCell(g2d, deliveryLoc.x, deliveryLoc.y);
-            drawCenteredString(g2d, "D", deliveryLoc.x, deliveryLoc.y, Color.WHITE);
+            if (cells.contains(deliveryLoc.x, deliveryLoc.y)) {
+                g2d.setColor(DELIVERY_COLOR);
+                fillCell(g2d, deliveryLoc.x, deliveryLoc.y);
+                drawCenteredString(g2d, "D", deliveryLoc.x, deliveryLoc.y, Color.WHITE);
+            }
         }
         
         /**
-         * Draws the charging stations on the grid.
-         * This method iterates through the charging station locations and draws them on the grid.
+         * Draws the delivery robots and human agents on the grid.
+         * Only the agents within the cells to draw are looked up, through the spatial index of the model,
+         * and the humans are drawn over the robots. When zoomed out, agents are plain cells without labels.
          *
-         * @param g2d The Graphics2D object used for drawing.
+         * @param g2d   The Graphics2D object used for drawing.
+         * @param cells The cells to draw.
          */
-        private void drawChargingStations(Graphics2D g2d) {
-            g2d.setColor(CHARGING_STATION_COLOR);
-            Map<String, Location> stations = model.getChargingStationLocations();
-            
-            for (Map.Entry<String, Location> entry : stations.entrySet()) {
-                Location loc = entry.getValue();
-                fillCell(g2d, loc.x, loc.y);
-                drawCenteredString(g2d, "C", loc.x, loc.y, Color.BLACK);
+        private void drawAgOnGUI(Graphics2D g2d, Rectangle cells) {
+            List<AbstractAgent> humans = new ArrayList<>();
+            for (AbstractAgent agent : model.getAgentsIn(cells.x, cells.y, cells.width, cells.height)) {
+                if (agent instanceof DeliveryRobot) {
+                    drawRobot(g2d, (DeliveryRobot) agent);
+                } else if (agent instanceof HumanTechnician) {
+                    humans.add(agent);
+                }
+            }
+            for (AbstractAgent human : humans) {
+                drawHuman(g2d, human);
             }
         }
-        
+
         /**
-         * Draws the delivery robots and human agent on the grid.
-         * This method iterates through the delivery robots and draws them based on their status.
-         * It also draws the human agent if present.
+         * Draws a delivery robot as a circle showing its number and battery level, colored by its status.
          *
-         * @param g2d The Graphics2D object used for drawing.
+         * @param g2d   The Graphics2D object used for drawing.
+         * @param robot The robot to draw.
          */
-        private void drawAgOnGUI(Graphics2D g2d) {
-            // Draw delivery robots
-            for (int i = 0; i < 5; i++) {
-                String robotName = "d_bot_" + (i + 1);
-                int agentId = FactoryUtils.getAgIdBasedOnName(robotName);
-                DeliveryRobot robot = (DeliveryRobot) model.getAgentById(agentId);
-
-                if (robot != null) {
-                    Location loc = robot.getLocation();
-                    Color robotColor = getRobotColorByStatus(robot);
-                    
-                    // Draw robot circle
-                    g2d.setColor(robotColor);
-                    int centerX = loc.x * CELL_SIZE + CELL_SIZE / 2;
-                    int centerY = loc.y * CELL_SIZE + CELL_SIZE / 2;
-                    int robotSize = CELL_SIZE - 8;
-                    
-                    g2d.fillOval(centerX - robotSize/2, centerY - robotSize/2, robotSize, robotSize);
-                    
-                    // Draw robot ID and battery level
-                    g2d.setColor(Color.WHITE);
-                    g2d.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 10));
-                    FontMetrics fm = g2d.getFontMetrics();
-                    String displayText = "R" + (i + 1) + " " + robot.getBattery();
-                    int textX = centerX - fm.stringWidth(displayText) / 2;
-                    int textY = centerY + fm.getAscent() / 2;
-                    g2d.drawString(displayText, textX, textY);
-                }
+        private void drawRobot(Graphics2D g2d, DeliveryRobot robot) {
+            Location loc = robot.getLocation();
+            g2d.setColor(statusColor(robot.getFlags()));
+            if (!isDetailed()) {
+                g2d.fillRect(loc.x * cellSize, loc.y * cellSize, cellSize, cellSize);
+                return;
             }
-            
-            // draw human agent
-            drawHuman(g2d);
+
+            // Draw robot circle
+            int centerX = loc.x * cellSize + cellSize / 2;
+            int centerY = loc.y * cellSize + cellSize / 2;
+            int robotSize = cellSize - cellSize / 5;
+
+            g2d.fillOval(centerX - robotSize/2, centerY - robotSize/2, robotSize, robotSize);
+
+            // Draw robot ID and battery level
+            g2d.setColor(Color.WHITE);
+            g2d.setFont(robotFont);
+            FontMetrics fm = g2d.getFontMetrics();
+            String displayText = "R" + robotNumber(robot.getName(), model.getAgentRegistry().getId(robot.getName()))
+                + " " + robot.getBattery();
+            int textX = centerX - fm.stringWidth(displayText) / 2;
+            int textY = centerY + fm.getAscent() / 2;
+            g2d.drawString(displayText, textX, textY);
         }
         
         /**
-         * Draws the human agent on the grid.
-         * This method retrieves the human agent's location and draws it as a square with a label "H".
+         * Returns the number shown on a robot: the number ending its name, as in {@code d_bot_3},
+         * or its agent id if its name does not end with a number.
          *
-         * @param g2d The Graphics2D object used for drawing.
+         * @param robotName The name of the robot.
+         * @param agentId   The id of the robot.
+         * @return The number shown on the robot.
          */
-        private void drawHuman(Graphics2D g2d) {
-            int humanId = FactoryUtils.getAgIdBasedOnName("humn_1");
-            if (humanId != -1) {
-                // Try to get human location from the model
-                Location humanLoc = model.getAgPos(humanId);
-                if (humanLoc != null) {
-                    g2d.setColor(new Color(102, 51, 0)); // Brown color for human
-                    int centerX = humanLoc.x * CELL_SIZE + CELL_SIZE / 2;
-                    int centerY = humanLoc.y * CELL_SIZE + CELL_SIZE / 2;
-                    int humanSize = CELL_SIZE;
-                    
-                    // Draw human as a square to distinguish from robots
-                    g2d.fillRect(centerX - humanSize/2, centerY - humanSize/2, humanSize, humanSize);
-
-                    // Draw "H" for human
-                    g2d.setColor(Color.WHITE);
-                    g2d.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 14));
-                    FontMetrics fm = g2d.getFontMetrics();
-                    String text = "H";
-                    int textX = centerX - fm.stringWidth(text) / 2;
-                    int textY = centerY + fm.getAscent() / 2;
-                    g2d.drawString(text, textX, textY);
-                }
+        private String robotNumber(String robotName, int agentId) {
+            int start = robotName.length();
+            while (start > 0 && Character.isDigit(robotName.charAt(start - 1))) {
+                start--;
             }
+            return start < robotName.length() ? robotName.substring(start) : String.valueOf(agentId);
         }
-        
+
         /**
-         * Gets the color for a robot based on its status.
-         * This method determines the color to use for a robot based on its current status,
-         * such as whether it is charging, malfunctioning, or carrying a package.
+         * Draws a human agent on the grid, as a square with a label "H".
          *
-         * @param robot The DeliveryRobot instance whose status is being checked.
-         * @return The Color to use for the robot.
+         * @param g2d   The Graphics2D object used for drawing.
+         * @param human The human to draw.
          */
-        private Color getRobotColorByStatus(DeliveryRobot robot) {
-            // Priority order for status colors (highest priority first)
-            if (robot.isBatterySharingActive()) {
-                return new Color(139, 0, 139); // Dark magenta
-            }
-            if (robot.isCharging()) {
-                return new Color(184, 134, 11); // Dark yellow
-            }
-            if (robot.isMalfunctioning()) {
-                return new Color(139, 0, 0); // Dark red
-            }
-            if (robot.isSeekingChargingStation()) {
-                return Color.ORANGE;
-            }
-            if (robot.isHelpingRobot()) {
-                return Color.MAGENTA;
+        private void drawHuman(Graphics2D g2d, AbstractAgent human) {
+            Location humanLoc = model.getAgPos(model.getAgentRegistry().getId(human.getName()));
+            if (humanLoc == null) {
+                return;
             }
-            if (robot.isCarryingPackage()) {
-                return Color.cyan.darker();
+            g2d.setColor(HUMAN_COLOR);
+            // Draw human as a square to distinguish from robots
+            g2d.fillRect(humanLoc.x * cellSize, humanLoc.y * cellSize, cellSize, cellSize);
+            if (!isDetailed()) {
+                return;
             }
-            // Default case
-            return new Color(0, 139, 139); // Dark cyan
+
+            // Draw "H" for human
+            g2d.setColor(Color.WHITE);
+            g2d.setFont(humanFont);
+            FontMetrics fm = g2d.getFontMetrics();
+            String text = "H";
+            int textX = humanLoc.x * cellSize + (cellSize - fm.stringWidth(text)) / 2;
+            int textY = humanLoc.y * cellSize + (cellSize + fm.getAscent()) / 2;
+            g2d.drawString(text, textX, textY);
         }
         
         /**
          * Fills a cell with a rectangle.
          * This method draws a filled rectangle in the specified cell coordinates,
-         * leaving a small margin for better visibility.
+         * leaving a small margin for better visibility unless the cells are too small for one.
          *
          * @param g2d The Graphics2D object used for drawing.
          * @param x   The x-coordinate of the cell.
          * @param y   The y-coordinate of the cell.
          */
         private void fillCell(Graphics2D g2d, int x, int y) {
-            g2d.fillRect(x * CELL_SIZE + 1, y * CELL_SIZE + 1, 
-                        CELL_SIZE - 2, CELL_SIZE - 2);
+            if (isDetailed()) {
+                g2d.fillRect(x * cellSize + 1, y * cellSize + 1, 
+                            cellSize - 2, cellSize - 2);
+            } else {
+                g2d.fillRect(x * cellSize, y * cellSize, cellSize, cellSize);
+            }
         }
         
         /**
          * Draws a centered string in a cell.
          * This method draws a string in the center of the specified cell,
-         * using the specified color for the text.
+         * using the specified color for the text. Nothing is drawn when the cells are too small to read it.
          *
          * @param g2d       The Graphics2D object used for drawing.
          * @param text      The text to draw.
@@ -550,13 +925,16 @@ public class FactoryView extends JFrame implements ModelObserver {
          * @param textColor The color of the text.
          */
         private void drawCenteredString(Graphics2D g2d, String text, int cellX, int cellY, Color textColor) {
+            if (!isDetailed()) {
+                return;
+            }
             Color originalColor = g2d.getColor(); // Save original color
             g2d.setColor(textColor);
-            g2d.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 16));
+            g2d.setFont(cellFont);
             FontMetrics fm = g2d.getFontMetrics();
             
-            int x = cellX * CELL_SIZE + (CELL_SIZE - fm.stringWidth(text)) / 2;
-            int y = cellY * CELL_SIZE + (CELL_SIZE + fm.getAscent()) / 2;
+            int x = cellX * cellSize + (cellSize - fm.stringWidth(text)) / 2;
+            int y = cellY * cellSize + (cellSize + fm.getAscent()) / 2;
             
             g2d.drawString(text, x, y);
             g2d.setColor(originalColor); // Restore original color
@@ -578,13 +956,13 @@ public class FactoryView extends JFrame implements ModelObserver {
     
     /**
      * Disposes of the FactoryView resources.
-     * This method stops the refresh timer and removes the observer from the model.
+     * This method stops the frame timer and removes the observer from the model.
      * It is called when the view is no longer needed, such as when the application exits.
      */
     @Override
     public void dispose() {
-        if (refreshTimer != null) {
-            refreshTimer.stop();
+        if (frameTimer != null) {
+            frameTimer.stop();
         }
         model.removeObserver(this);
         super.dispose();
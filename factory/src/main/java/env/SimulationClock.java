@@ -0,0 +1,129 @@
+package env;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The virtual clock of a simulation run.
+ * Simulated time flows {@code speedup} times faster than wall-clock time, and the waits of the agents
+ * are shortened by the same factor, so that long scenarios can be played in minutes.
+ * With a speedup of 1 the clock is the wall clock and nothing changes.
+ */
+public final class SimulationClock {
+    /** Speedup used by the as-fast-as-possible setting; it still keeps the waits of the agents in order. */
+    public static final double MAX_SPEEDUP = 1000.0;
+
+    private static volatile SimulationClock current = new SimulationClock(1.0);
+
+    private final double speedup;
+    private final long startNanos;
+    private final long startEpochMillis;
+    private final AtomicLong skippedMillis = new AtomicLong();
+
+    /**
+     * Constructs a SimulationClock starting now.
+     * @param speedup how many simulated milliseconds elapse per wall-clock millisecond
+     * @throws IllegalArgumentException if the speedup is not a positive finite number
+     */
+    public SimulationClock(double speedup) {
+        if (!(speedup > 0) || Double.isInfinite(speedup)) {
+            throw new IllegalArgumentException("Speedup must be a positive number but was " + speedup);
+        }
+        this.speedup = speedup;
+        this.startNanos = System.nanoTime();
+        this.startEpochMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Creates the clock described by the {@code speedup} option of the configuration:
+     * a factor such as {@code speedup=20}, or {@code speedup=max} to run as fast as possible.
+     * @param config the configuration of the run
+     * @return the configured clock, running in real time by default
+     * @throws IllegalArgumentException if the speedup is not valid
+     */
+    public static SimulationClock fromConfig(FactoryConfig config) {
+        String value = config.get("speedup", "1").trim().toLowerCase(Locale.ROOT);
+        if (value.equals("max")) {
+            return new SimulationClock(MAX_SPEEDUP);
+        }
+        try {
+            return new SimulationClock(Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Speedup must be a number or max but was " + value, e);
+        }
+    }
+
+    /**
+     * Returns the clock of the running environment, used by the internal actions of the agents.
+     * @return the current clock
+     */
+    public static SimulationClock current() {
+        return current;
+    }
+
+    /**
+     * Makes a clock the one seen by the internal actions of the agents.
+     * @param clock the clock of the running environment
+     */
+    public static void install(SimulationClock clock) {
+        current = clock;
+    }
+
+    public double getSpeedup() {
+        return speedup;
+    }
+
+    /**
+     * Checks whether the clock follows the wall clock.
+     * @return true if the speedup is 1
+     */
+    public boolean isRealTime() {
+        return speedup == 1.0;
+    }
+
+    /**
+     * Returns the simulated time elapsed since the clock started.
+     * @return the simulated milliseconds since the start of the run
+     */
+    public long currentTimeMillis() {
+        return skippedMillis.get() + (long) ((System.nanoTime() - startNanos) * speedup / 1_000_000.0);
+    }
+
+    /**
+     * Returns the simulated date and time, starting from the wall-clock time at which the clock started.
+     * @return the simulated time in milliseconds since the epoch
+     */
+    public long epochMillis() {
+        return startEpochMillis + currentTimeMillis();
+    }
+
+    /**
+     * Converts a simulated duration to the wall-clock duration to wait for.
+     * Positive durations are never shortened below one millisecond, so that waiting agents still yield.
+     * @param simulatedMillis the simulated duration
+     * @return the wall-clock duration in milliseconds
+     */
+    public long toRealMillis(long simulatedMillis) {
+        if (isRealTime() || simulatedMillis <= 0) {
+            return Math.max(0, simulatedMillis);
+        }
+        return Math.max(1, Math.round(simulatedMillis / speedup));
+    }
+
+    /**
+     * Moves the simulated time forward without waiting, e.g. to skip an idle period of a scenario.
+     * @param simulatedMillis the simulated duration to skip
+     * @throws IllegalArgumentException if the duration is negative
+     */
+    public void advance(long simulatedMillis) {
+        if (simulatedMillis < 0) {
+            throw new IllegalArgumentException("Cannot move the clock backwards by " + simulatedMillis + " ms");
+        }
+        skippedMillis.addAndGet(simulatedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationClock[speedup=" + speedup + ", now=" + currentTimeMillis() + "ms]";
+    }
+}
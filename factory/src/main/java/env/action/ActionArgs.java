@@ -0,0 +1,78 @@
+package env.action;
+
+import jason.asSyntax.ListTerm;
+
+/**
+ * ActionArgs holds the already-decoded arguments of an action.
+ * Instances are reused by the {@link ActionRegistry} for every dispatch on the same thread,
+ * so handlers must not keep a reference to them after returning.
+ */
+public final class ActionArgs {
+    /** Maximum number of arguments an action may declare. */
+    public static final int MAX_ARITY = 8;
+
+    private final int[] ints = new int[MAX_ARITY];
+    private final boolean[] bools = new boolean[MAX_ARITY];
+    private final Object[] refs = new Object[MAX_ARITY];
+
+    /**
+     * Returns the integer argument at the given position.
+     *
+     * @param index the argument position
+     * @return the decoded integer value
+     */
+    public int getInt(int index) {
+        return ints[index];
+    }
+
+    /**
+     * Returns the status argument at the given position.
+     *
+     * @param index the argument position
+     * @return true if the argument was the atom {@code true}
+     */
+    public boolean getBool(int index) {
+        return bools[index];
+    }
+
+    /**
+     * Returns the name argument at the given position.
+     *
+     * @param index the argument position
+     * @return the decoded name
+     */
+    public String getName(int index) {
+        return (String) refs[index];
+    }
+
+    /**
+     * Returns the list argument at the given position.
+     *
+     * @param index the argument position
+     * @return the list term
+     */
+    public ListTerm getList(int index) {
+        return (ListTerm) refs[index];
+    }
+
+    void setInt(int index, int value) {
+        ints[index] = value;
+    }
+
+    void setBool(int index, boolean value) {
+        bools[index] = value;
+    }
+
+    void setRef(int index, Object value) {
+        refs[index] = value;
+    }
+
+    /**
+     * Drops the references held from the previous dispatch.
+     */
+    void clear() {
+        for (int i = 0; i < MAX_ARITY; i++) {
+            refs[i] = null;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package env.action;
+
+/**
+ * ActionHandler executes a single environment action whose arguments
+ * have already been validated and decoded by the {@link ActionRegistry}.
+ */
+@FunctionalInterface
+public interface ActionHandler {
+    /**
+     * Executes the action.
+     *
+     * @param agent the cached handle of the agent performing the action
+     * @param args  the decoded arguments
+     * @return true if the action was executed successfully, false otherwise
+     * @throws Exception if an error occurs during execution
+     */
+    boolean execute(AgentHandle agent, ActionArgs args) throws Exception;
+}
@@ -0,0 +1,164 @@
+package env.action;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import env.log.EventLog;
+import env.log.LogCategory;
+import env.log.LogLevel;
+import jason.asSyntax.Structure;
+import jason.asSyntax.Term;
+
+/**
+ * ActionRegistry maps action functors and arities to typed handlers.
+ * It is filled once when the environment is initialised; dispatching an action then
+ * costs a single map lookup, an arity check and one decode per argument,
+ * without parsing, string switching or allocation.
+ */
+public class ActionRegistry {
+    private final Map<String, ActionSpec[]> specsByFunctor = new HashMap<>();
+    private final ThreadLocal<ActionArgs> argsHolder = ThreadLocal.withInitial(ActionArgs::new);
+    private final EventLog eventLog;
+
+    /**
+     * Constructs an empty ActionRegistry.
+     *
+     * @param eventLog the log receiving invalid and failed actions
+     */
+    public ActionRegistry(EventLog eventLog) {
+        this.eventLog = eventLog;
+    }
+
+    /**
+     * Registers a handler for the action with the given functor and argument types.
+     *
+     * @param functor  the functor of the action
+     * @param usage    a human readable description of the arguments, used in error messages
+     * @param handler  the handler executing the action
+     * @param argTypes the expected type of each argument
+     */
+    public void register(String functor, String usage, ActionHandler handler, ArgType... argTypes) {
+        if (argTypes.length > ActionArgs.MAX_ARITY) {
+            throw new IllegalArgumentException(functor + " declares more than " + ActionArgs.MAX_ARITY + " arguments");
+        }
+        ActionSpec[] byArity = specsByFunctor.get(functor);
+        if (byArity == null || byArity.length <= argTypes.length) {
+            ActionSpec[] grown = new ActionSpec[argTypes.length + 1];
+            if (byArity != null) {
+                System.arraycopy(byArity, 0, grown, 0, byArity.length);
+            }
+            byArity = grown;
+            specsByFunctor.put(functor, byArity);
+        }
+        byArity[argTypes.length] = new ActionSpec(functor, usage, handler, argTypes.clone());
+    }
+
+    /**
+     * Checks whether a handler is registered for the given functor.
+     *
+     * @param functor the functor to look up
+     * @return true if at least one arity is registered for the functor
+     */
+    public boolean isRegistered(String functor) {
+        return specsByFunctor.containsKey(functor);
+    }
+
+    /**
+     * Decodes the arguments of the action and runs the matching handler.
+     *
+     * @param agent  the handle of the agent performing the action
+     * @param action the action to execute
+     * @return true if the action was executed successfully, false otherwise
+     */
+    public boolean dispatch(AgentHandle agent, Structure action) {
+        String functor = action.getFunctor();
+        ActionSpec[] byArity = specsByFunctor.get(functor);
+        if (byArity == null) {
+            eventLog.log(LogCategory.ACTION, LogLevel.WARN, "Unknown action: {}", action);
+            return false;
+        }
+
+        int arity = action.getArity();
+        ActionSpec spec = arity < byArity.length ? byArity[arity] : null;
+        if (spec == null) {
+            if (eventLog.isEnabled(LogCategory.ACTION, LogLevel.WARN)) {
+                eventLog.log(LogCategory.ACTION, LogLevel.WARN, "{} expects arguments: {} but got {}", functor, expectedUsages(byArity), arity);
+            }
+            return false;
+        }
+
+        ActionArgs args = argsHolder.get();
+        try {
+            for (int i = 0; i < arity; i++) {
+                Term term = action.getTerm(i);
+                if (!spec.argTypes[i].decode(term, args, i)) {
+                    if (eventLog.isEnabled(LogCategory.ACTION, LogLevel.WARN)) {
+                        eventLog.log(LogCategory.ACTION, LogLevel.WARN, "{} arguments must be: {} but argument {} is {}",
+                            functor, spec.describeTypes(), i, term.getClass().getSimpleName());
+                    }
+                    return false;
+                }
+            }
+            return spec.handler.execute(agent, args);
+        } catch (Exception e) {
+            eventLog.log(LogCategory.ACTION, LogLevel.ERROR, "Error executing {} for {}: {}", functor, agent.getName(), e.getMessage(), e);
+            return false;
+        } finally {
+            args.clear();
+        }
+    }
+
+    /**
+     * Lists the usages of every registered arity of a functor.
+     *
+     * @param byArity the specs registered for the functor
+     * @return the usages separated by " or "
+     */
+    private String expectedUsages(ActionSpec[] byArity) {
+        StringBuilder sb = new StringBuilder();
+        for (ActionSpec spec : byArity) {
+            if (spec != null) {
+                if (sb.length() > 0) {
+                    sb.append(" or ");
+                }
+                sb.append('(').append(spec.usage).append(')');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * ActionSpec binds a handler to the functor and argument types it accepts.
+     */
+    private static final class ActionSpec {
+        private final String functor;
+        private final String usage;
+        private final ActionHandler handler;
+        private final ArgType[] argTypes;
+
+        private ActionSpec(String functor, String usage, ActionHandler handler, ArgType[] argTypes) {
+            this.functor = functor;
+            this.usage = usage;
+            this.handler = handler;
+            this.argTypes = argTypes;
+        }
+
+        /**
+         * Describes the expected argument types, e.g. "Name (Atom), X (Number)".
+         *
+         * @return the description of the expected arguments
+         */
+        private String describeTypes() {
+            String[] names = usage.split(",\\s*");
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < argTypes.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(i < names.length ? names[i] : functor + "#" + i)
+                  .append(" (").append(argTypes[i].getDisplayName()).append(')');
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package env.action;
+
+import env.FactoryModel;
+import env.agent.AbstractAgent;
+
+/**
+ * AgentHandle caches everything the environment needs to know about an agent
+ * performing actions: its name, its id in the model and its model object.
+ * A handle is created the first time an agent acts and is reused afterwards,
+ * so name to id resolution only happens once per agent, and again when it registers.
+ */
+public final class AgentHandle {
+    private final String name;
+    private volatile int id;
+    private final FactoryModel model;
+    private volatile AbstractAgent agent;
+
+    /**
+     * Constructs an AgentHandle.
+     *
+     * @param name  the name of the agent
+     * @param id    the id of the agent in the model, or -1 if unknown
+     * @param model the model the agent lives in
+     */
+    public AgentHandle(String name, int id, FactoryModel model) {
+        this.name = name;
+        this.id = id;
+        this.model = model;
+    }
+
+    /**
+     * Returns the name of the agent.
+     *
+     * @return the agent name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the id of the agent.
+     *
+     * @return the agent id, or -1 if the agent is unknown
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the model object of the agent, resolving it on first use.
+     * The lookup is retried until the agent has been registered in the model.
+     *
+     * @return the agent, or null if it has not been registered yet
+     */
+    public AbstractAgent getAgent() {
+        AbstractAgent cached = agent;
+        if (cached == null && id != -1) {
+            cached = model.getAgentById(id);
+            agent = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Forgets the cached model object, forcing the next {@link #getAgent()} to resolve it again,
+     * and resolves the id again, since an unknown agent gets its id when it registers.
+     * This is called when the agent is (re-)registered in the model.
+     */
+    public void invalidate() {
+        if (name != null) {
+            id = model.getAgentRegistry().getId(name);
+        }
+        agent = null;
+    }
+}
@@ -0,0 +1,85 @@
+package env.action;
+
+import jason.NoValueException;
+import jason.asSyntax.Atom;
+import jason.asSyntax.ListTerm;
+import jason.asSyntax.NumberTerm;
+import jason.asSyntax.Term;
+
+/**
+ * ArgType describes the expected type of a single action argument and knows
+ * how to decode a Jason term of that type into an {@link ActionArgs} slot.
+ */
+public enum ArgType {
+    /** A numeric term, decoded to an int. */
+    INT("Number") {
+        @Override
+        boolean decode(Term term, ActionArgs args, int index) throws NoValueException {
+            if (!(term instanceof NumberTerm)) {
+                return false;
+            }
+            args.setInt(index, (int) ((NumberTerm) term).solve());
+            return true;
+        }
+    },
+    /** An atom such as an agent name, decoded to its string form. */
+    NAME("Atom") {
+        @Override
+        boolean decode(Term term, ActionArgs args, int index) {
+            if (!(term instanceof Atom)) {
+                return false;
+            }
+            args.setRef(index, term.toString());
+            return true;
+        }
+    },
+    /** A status atom, decoded to true only when the atom is {@code true}. */
+    BOOL("Atom") {
+        @Override
+        boolean decode(Term term, ActionArgs args, int index) {
+            if (!(term instanceof Atom)) {
+                return false;
+            }
+            Atom atom = (Atom) term;
+            args.setBool(index, atom.getArity() == 0 && "true".equals(atom.getFunctor()));
+            return true;
+        }
+    },
+    /** A list term, passed through untouched. */
+    LIST("List") {
+        @Override
+        boolean decode(Term term, ActionArgs args, int index) {
+            if (!(term instanceof ListTerm)) {
+                return false;
+            }
+            args.setRef(index, term);
+            return true;
+        }
+    };
+
+    private final String displayName;
+
+    ArgType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Decodes the given term into the slot at the given index.
+     *
+     * @param term  the term to decode
+     * @param args  the argument holder to write into
+     * @param index the argument position
+     * @return true if the term has the expected type, false otherwise
+     * @throws NoValueException if a numeric term cannot be evaluated
+     */
+    abstract boolean decode(Term term, ActionArgs args, int index) throws NoValueException;
+
+    /**
+     * Returns the name used for this type in error messages.
+     *
+     * @return the display name of the type
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+}
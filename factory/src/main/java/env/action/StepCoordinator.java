@@ -0,0 +1,256 @@
+package env.action;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+import env.log.EventLog;
+import env.log.LogCategory;
+import env.log.LogLevel;
+import jason.asSyntax.Structure;
+
+/**
+ * Runs the environment in lockstep: the actions the agents send during a tick are collected,
+ * executed together in a deterministic order at the end of the tick, and only then reported back.
+ * Actions are executed by agent id, then in arrival order, so that each move sees the moves of
+ * the agents before it and two agents never race for the same cell.
+ * What the agents perceive of the step is published once all of its actions have run,
+ * before any outcome is reported, so that no agent sees a step half done.
+ */
+public class StepCoordinator {
+    private static final Comparator<PendingAction> EXECUTION_ORDER =
+        Comparator.<PendingAction>comparingInt(pending -> pending.order).thenComparingLong(pending -> pending.sequence);
+
+    private static volatile StepCoordinator current;
+
+    private final ToIntFunction<String> agentOrder;
+    private final BiPredicate<String, Structure> executor;
+    private final Runnable publisher;
+    private final ActionCompletion completion;
+    private final EventLog eventLog;
+    private final List<PendingAction> pending = new ArrayList<>();
+    private final List<PendingAction> batch = new ArrayList<>();
+    private boolean[] outcomes = new boolean[16];
+    private ScheduledExecutorService ticker;
+    private long nextSequence;
+    private volatile long step;
+    private volatile long executedActions;
+    private volatile long startNanos;
+
+    /**
+     * Receives the outcome of an action once its whole step has been executed.
+     */
+    @FunctionalInterface
+    public interface ActionCompletion {
+        /**
+         * Reports the outcome of an action to its agent.
+         * @param agName the name of the agent
+         * @param action the executed action
+         * @param success whether the action succeeded
+         * @param infraData the data given by the infrastructure with the action
+         */
+        void actionExecuted(String agName, Structure action, boolean success, Object infraData);
+    }
+
+    /**
+     * Constructs a StepCoordinator.
+     * @param agentOrder gives the position of an agent in the execution order, usually its id
+     * @param executor executes an action, returning whether it succeeded
+     * @param completion receives the outcome of the actions at the end of each step
+     * @param eventLog the log receiving the step statistics
+     */
+    public StepCoordinator(ToIntFunction<String> agentOrder, BiPredicate<String, Structure> executor,
+                           ActionCompletion completion, EventLog eventLog) {
+        this(agentOrder, executor, () -> { }, completion, eventLog);
+    }
+
+    /**
+     * Constructs a StepCoordinator publishing the effects of each step before reporting its outcomes.
+     * @param agentOrder gives the position of an agent in the execution order, usually its id
+     * @param executor executes an action, returning whether it succeeded
+     * @param publisher publishes the percepts changed by the actions of a step, once they have all run
+     * @param completion receives the outcome of the actions at the end of each step
+     * @param eventLog the log receiving the step statistics
+     */
+    public StepCoordinator(ToIntFunction<String> agentOrder, BiPredicate<String, Structure> executor,
+                           Runnable publisher, ActionCompletion completion, EventLog eventLog) {
+        this.agentOrder = agentOrder;
+        this.executor = executor;
+        this.publisher = publisher;
+        this.completion = completion;
+        this.eventLog = eventLog;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the coordinator whose ticks are running, so that the agents can tell the environment runs in lockstep.
+     * @return the running coordinator, or null if there is none
+     */
+    public static StepCoordinator current() {
+        return current;
+    }
+
+    /**
+     * Queues an action for the next step.
+     * @param agName the name of the agent
+     * @param action the action to execute
+     * @param infraData the data to give back with the outcome
+     */
+    public void submit(String agName, Structure action, Object infraData) {
+        int order = agentOrder.applyAsInt(agName);
+        synchronized (pending) {
+            pending.add(new PendingAction(agName, action, infraData, order < 0 ? Integer.MAX_VALUE : order, nextSequence++));
+        }
+    }
+
+    /**
+     * Starts running one step every period.
+     * @param periodMillis the wall-clock duration of a tick
+     */
+    public synchronized void start(long periodMillis) {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "factory-step");
+            thread.setDaemon(true);
+            return thread;
+        });
+        startNanos = System.nanoTime();
+        current = this;
+        ticker.scheduleAtFixedRate(this::runStepSafely, periodMillis, Math.max(1, periodMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the ticks; the actions still queued are reported as failed so that no agent stays suspended.
+     */
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+        if (current == this) {
+            current = null;
+        }
+        synchronized (pending) {
+            batch.addAll(pending);
+            pending.clear();
+        }
+        for (PendingAction action : batch) {
+            completion.actionExecuted(action.agName, action.action, false, action.infraData);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Executes every action queued since the previous step, publishes their percepts, then reports all of their outcomes.
+     * If an action, the publication or a report throws, every action not reported yet is reported as failed,
+     * the step still ends and the exception is rethrown.
+     * @return the number of actions executed
+     */
+    public synchronized int runStep() {
+        long stepStart = System.nanoTime();
+        synchronized (pending) {
+            batch.addAll(pending);
+            pending.clear();
+        }
+        batch.sort(EXECUTION_ORDER);
+
+        if (outcomes.length < batch.size()) {
+            outcomes = new boolean[Math.max(batch.size(), outcomes.length * 2)];
+        }
+        int executed = 0;
+        int reported = 0;
+        try {
+            for (; executed < batch.size(); executed++) {
+                PendingAction action = batch.get(executed);
+                outcomes[executed] = executor.test(action.agName, action.action);
+            }
+            publisher.run();
+            while (reported < batch.size()) {
+                PendingAction action = batch.get(reported);
+                boolean success = outcomes[reported];
+                // counted before the call, so that an action whose report throws is not reported twice
+                reported++;
+                completion.actionExecuted(action.agName, action.action, success, action.infraData);
+            }
+        } finally {
+            // a step cut short fails the actions it did not report, so that no agent stays suspended,
+            // and forgets them, so that none is executed again by the next step
+            for (int i = reported; i < batch.size(); i++) {
+                PendingAction action = batch.get(i);
+                try {
+                    completion.actionExecuted(action.agName, action.action, false, action.infraData);
+                } catch (RuntimeException e) {
+                    eventLog.log(LogCategory.ACTION, LogLevel.ERROR, "Cannot report the failed action {} of {}", action.action, action.agName, e);
+                }
+            }
+            batch.clear();
+            step++;
+            executedActions += executed;
+        }
+        if (eventLog.isEnabled(LogCategory.ACTION, LogLevel.DEBUG)) {
+            eventLog.log(LogCategory.ACTION, LogLevel.DEBUG, "step {} executed {} actions in {} us",
+                step, executed, (System.nanoTime() - stepStart) / 1000);
+        }
+        return executed;
+    }
+
+    private void runStepSafely() {
+        try {
+            runStep();
+        } catch (RuntimeException e) {
+            // an exception would cancel the ticks; the actions of the step were already failed
+            eventLog.log(LogCategory.ACTION, LogLevel.ERROR, "step {} failed", step, e);
+        }
+    }
+
+    /**
+     * Returns the number of steps run so far.
+     * @return the current step
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * Returns the number of actions executed by all the steps.
+     * @return the number of executed actions
+     */
+    public long getExecutedActions() {
+        return executedActions;
+    }
+
+    /**
+     * Returns the average number of steps run per wall-clock second since the ticks started.
+     * @return the step throughput
+     */
+    public double getStepsPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? step / seconds : 0;
+    }
+
+    /**
+     * An action waiting for the end of its step.
+     */
+    private static final class PendingAction {
+        private final String agName;
+        private final Structure action;
+        private final Object infraData;
+        private final int order;
+        private final long sequence;
+
+        private PendingAction(String agName, Structure action, Object infraData, int order, long sequence) {
+            this.agName = agName;
+            this.action = action;
+            this.infraData = infraData;
+            this.order = order;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package env.agent;
+
+import java.util.Arrays;
+
+/**
+ * AgentRegistry assigns dense integer ids to agent names, in registration order.
+ * Names are interned in an open-addressing table backed by arrays, so that resolving
+ * a name does not allocate. Lookups never lock: registration publishes a new table.
+ */
+public final class AgentRegistry {
+    private static final int INITIAL_TABLE_SIZE = 32;
+
+    private volatile Table table = new Table(INITIAL_TABLE_SIZE, new String[INITIAL_TABLE_SIZE / 2], 0);
+
+    /**
+     * Constructs an AgentRegistry, registering the given names first so that they keep their ids.
+     *
+     * @param predefinedNames the names to register, in id order
+     */
+    public AgentRegistry(String... predefinedNames) {
+        for (String name : predefinedNames) {
+            register(name);
+        }
+    }
+
+    /**
+     * Registers an agent name, assigning it the next free id.
+     *
+     * @param name the name of the agent
+     * @return the id of the agent, the existing one if the name is already registered
+     * @throws IllegalArgumentException if the name is null
+     */
+    public synchronized int register(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Agent name cannot be null");
+        }
+        Table current = table;
+        int existing = current.find(name);
+        if (existing != -1) {
+            return existing;
+        }
+        int id = current.size;
+        String[] names = current.names.length > id ? current.names.clone() : Arrays.copyOf(current.names, current.names.length * 2);
+        names[id] = name;
+        int tableSize = current.keys.length;
+        if ((id + 1) * 2 > tableSize) {
+            tableSize *= 2;
+        }
+        table = new Table(tableSize, names, id + 1);
+        return id;
+    }
+
+    /**
+     * Returns the id of an agent.
+     *
+     * @param name the name of the agent
+     * @return the id of the agent, or -1 if the name is null or not registered
+     */
+    public int getId(String name) {
+        return name == null ? -1 : table.find(name);
+    }
+
+    /**
+     * Returns the name of an agent.
+     *
+     * @param id the id of the agent
+     * @return the name of the agent, or null if no agent has this id
+     */
+    public String getName(int id) {
+        Table current = table;
+        return id >= 0 && id < current.size ? current.names[id] : null;
+    }
+
+    /**
+     * Returns the number of registered agents, which is also the next id to be assigned.
+     *
+     * @return the number of registered agents
+     */
+    public int size() {
+        return table.size;
+    }
+
+    /**
+     * An immutable snapshot of the registry.
+     */
+    private static final class Table {
+        private final String[] keys;
+        private final int[] ids;
+        private final String[] names;
+        private final int size;
+        private final int mask;
+
+        private Table(int tableSize, String[] names, int size) {
+            this.keys = new String[tableSize];
+            this.ids = new int[tableSize];
+            this.names = names;
+            this.size = size;
+            this.mask = tableSize - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = spread(names[id].hashCode()) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = names[id];
+                ids[slot] = id;
+            }
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        private int find(String name) {
+            int slot = spread(name.hashCode()) & mask;
+            String key;
+            while ((key = keys[slot]) != null) {
+                if (key.equals(name)) {
+                    return ids[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+}
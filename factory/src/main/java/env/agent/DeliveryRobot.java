@@ -1,19 +1,29 @@
 package env.agent;
 
 import jason.environment.grid.Location;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a delivery robot in the factory environment.
+ * The battery and the status flags are updated atomically, since the agents act from several threads.
  */
 public class DeliveryRobot extends AbstractAgent {
-    private int battery;
-    private Location location;
-    private boolean isCarryingPackage;
-    private boolean isMalfunctioning = false;
-    private boolean isCharging = false;
-    private boolean isSeekingChargingStation = false;
-    private boolean isBatterySharingActive = false;
-    private boolean isHelpingRobot = false;
+    /** Flag of a robot carrying a package. */
+    public static final int CARRYING_PACKAGE = 1;
+    /** Flag of a malfunctioning robot. */
+    public static final int MALFUNCTIONING = 1 << 1;
+    /** Flag of a charging robot. */
+    public static final int CHARGING = 1 << 2;
+    /** Flag of a robot seeking a charging station. */
+    public static final int SEEKING_CHARGING_STATION = 1 << 3;
+    /** Flag of a robot sharing its battery. */
+    public static final int BATTERY_SHARING = 1 << 4;
+    /** Flag of a robot about to help another robot. */
+    public static final int HELPING_ROBOT = 1 << 5;
+
+    private final AtomicInteger battery;
+    private final AtomicInteger flags = new AtomicInteger();
+    private volatile Location location;
 
     /**
      * Constructs a DeliveryRobot with the specified name, battery level, and location.
@@ -24,8 +34,7 @@ public class DeliveryRobot extends AbstractAgent {
      */
     public DeliveryRobot(String name, int battery, Location location) {
         super(name, location);
-        this.battery = battery;
-        this.isCarryingPackage = false; // default value
+        this.battery = new AtomicInteger(battery);
         this.location = location;
     }
 
@@ -33,7 +42,17 @@ public class DeliveryRobot extends AbstractAgent {
      * Sets the battery level of the robot.
      */
     public void setBattery(int battery) {
-        this.battery = battery;
+        this.battery.set(battery);
+    }
+
+    /**
+     * Sets the battery level of the robot, returning the level it replaces.
+     *
+     * @param battery the new battery level
+     * @return the previous battery level
+     */
+    public int getAndSetBattery(int battery) {
+        return this.battery.getAndSet(battery);
     }
 
     /**
@@ -61,10 +80,18 @@ public class DeliveryRobot extends AbstractAgent {
      * @param amount the amount to decrease the battery by
      */
     public void decreaseBattery(int amount) {
-        this.battery -= amount;
-        if (this.battery < 0) {
-            this.battery = 0; // ensure battery does not go below zero
-        }
+        getAndDecreaseBattery(amount);
+    }
+
+    /**
+     * Decreases the battery level of the robot, returning the level before the decrease.
+     *
+     * @param amount the amount to decrease the battery by
+     * @return the previous battery level
+     */
+    public int getAndDecreaseBattery(int amount) {
+        // ensure battery does not go below zero
+        return this.battery.getAndUpdate(level -> Math.max(0, level - amount));
     }
 
     /**
@@ -73,10 +100,8 @@ public class DeliveryRobot extends AbstractAgent {
      * @param amount the amount to increase the battery by
      */
     public void increaseBattery(int amount) {
-        this.battery += amount;
-        if (this.battery > 100) {
-            this.battery = 100; // ensure battery does not exceed 100
-        }
+        // ensure battery does not exceed 100
+        this.battery.updateAndGet(level -> Math.min(100, level + amount));
     }
 
     /**
@@ -85,7 +110,7 @@ public class DeliveryRobot extends AbstractAgent {
      * @return true if the robot is carrying a package, false otherwise
      */
     public void setCarryingPackage(boolean isCarryingPackage) {
-        this.isCarryingPackage = isCarryingPackage;
+        getAndSetFlag(CARRYING_PACKAGE, isCarryingPackage);
     }
 
     /**
@@ -94,7 +119,7 @@ public class DeliveryRobot extends AbstractAgent {
      * @return true if the robot is carrying a package, false otherwise
      */
     public boolean isCarryingPackage() {
-        return isCarryingPackage;
+        return hasFlag(CARRYING_PACKAGE);
     }
 
     /**
@@ -103,7 +128,7 @@ public class DeliveryRobot extends AbstractAgent {
      * @return true if the robot is malfunctioning, false otherwise
      */
     public boolean isMalfunctioning() {
-        return isMalfunctioning;
+        return hasFlag(MALFUNCTIONING);
     }
 
     /**
@@ -112,7 +137,7 @@ public class DeliveryRobot extends AbstractAgent {
      * @param isMalfunctioning true if the robot is malfunctioning, false otherwise
      */
     public void setMalfunctioning(boolean isMalfunctioning) {
-        this.isMalfunctioning = isMalfunctioning;
+        getAndSetFlag(MALFUNCTIONING, isMalfunctioning);
     }
 
     /**
@@ -121,7 +146,7 @@ public class DeliveryRobot extends AbstractAgent {
      * @return true if the robot is seeking a charging station, false otherwise
      */
     public void setSeekingChargingStation(boolean isSeekingChargingStation) {
-        this.isSeekingChargingStation = isSeekingChargingStation;
+        getAndSetFlag(SEEKING_CHARGING_STATION, isSeekingChargingStation);
     }
 
     /**
@@ -130,7 +155,7 @@ public class DeliveryRobot extends AbstractAgent {
      * @return true if the robot is seeking a charging station, false otherwise
      */
     public boolean isSeekingChargingStation() {
-        return isSeekingChargingStation;
+        return hasFlag(SEEKING_CHARGING_STATION);
     }
 
     /**
@@ -139,7 +164,7 @@ public class DeliveryRobot extends AbstractAgent {
      * @param isCharging true if the robot is charging, false otherwise
      */
     public void setCharging(boolean isCharging) {
-        this.isCharging = isCharging;
+        getAndSetFlag(CHARGING, isCharging);
     }
 
     /**
@@ -148,7 +173,7 @@ public class DeliveryRobot extends AbstractAgent {
      * @return true if the robot is charging, false otherwise
      */
     public boolean isCharging() {
-        return isCharging;
+        return hasFlag(CHARGING);
     }
 
     /**
@@ -157,7 +182,7 @@ public class DeliveryRobot extends AbstractAgent {
      * @param isBatterySharingActive true if battery sharing is active, false otherwise
      */
     public boolean isBatterySharingActive() {
-        return isBatterySharingActive;
+        return hasFlag(BATTERY_SHARING);
     }
 
     /**
@@ -166,7 +191,7 @@ public class DeliveryRobot extends AbstractAgent {
      * @param isBatterySharingActive true if battery sharing is active, false otherwise
      */
     public void setBatterySharingActive(boolean isBatterySharingActive) {
-        this.isBatterySharingActive = isBatterySharingActive;
+        getAndSetFlag(BATTERY_SHARING, isBatterySharingActive);
     }
 
     /**
@@ -175,7 +200,7 @@ public class DeliveryRobot extends AbstractAgent {
      * @return the battery level
      */
     public int getBattery() {
-        return battery;
+        return battery.get();
     }
 
     /**
@@ -193,7 +218,7 @@ public class DeliveryRobot extends AbstractAgent {
      * @param aboutToHelp true if the robot is about to help, false otherwise
      */
     public void setHelpingRobot(boolean aboutToHelp) {
-        this.isHelpingRobot = aboutToHelp;
+        getAndSetFlag(HELPING_ROBOT, aboutToHelp);
     }
 
     /**
@@ -202,6 +227,48 @@ public class DeliveryRobot extends AbstractAgent {
      * @return true if the robot is helping, false otherwise
      */
     public boolean isHelpingRobot() {
-        return isHelpingRobot;
+        return hasFlag(HELPING_ROBOT);
+    }
+
+    /**
+     * Returns whether the robot can be asked to help another robot,
+     * that is when it is neither malfunctioning, charging nor already helping.
+     *
+     * @return true if the robot is available to help, false otherwise
+     */
+    public boolean isAvailableToHelp() {
+        return (flags.get() & (MALFUNCTIONING | CHARGING | HELPING_ROBOT)) == 0;
+    }
+
+    /**
+     * Returns whether a status flag of the robot is set.
+     *
+     * @param flag one of the flags of this class
+     * @return true if the flag is set, false otherwise
+     */
+    public boolean hasFlag(int flag) {
+        return (flags.get() & flag) != 0;
+    }
+
+    /**
+     * Returns all the status flags of the robot, read at once.
+     *
+     * @return the flags of this class that are set, or-ed together
+     */
+    public int getFlags() {
+        return flags.get();
+    }
+
+    /**
+     * Sets or clears a status flag of the robot in one atomic step, returning its previous value,
+     * so that of two concurrent updates exactly one sees the flag change.
+     *
+     * @param flag one of the flags of this class
+     * @param value true to set the flag, false to clear it
+     * @return the previous value of the flag
+     */
+    public boolean getAndSetFlag(int flag, boolean value) {
+        int previous = flags.getAndUpdate(current -> value ? current | flag : current & ~flag);
+        return (previous & flag) != 0;
     }
 }
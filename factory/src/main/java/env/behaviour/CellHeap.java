@@ -0,0 +1,74 @@
+package env.behaviour;
+
+import java.util.Arrays;
+
+/**
+ * CellHeap is a binary min-heap of grid cells ordered by an integer priority, then by cell index.
+ * Each entry is packed in a single long, so that pushing and popping allocate nothing once the heap has grown.
+ */
+final class CellHeap {
+    private long[] entries = new long[64];
+    private int size;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds a cell.
+     * @param priority the non-negative priority of the cell, lower first
+     * @param cell     the index of the cell
+     */
+    void push(int priority, int cell) {
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+        }
+        long entry = ((long) priority << 32) | cell;
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (entries[parent] <= entry) {
+                break;
+            }
+            entries[i] = entries[parent];
+            i = parent;
+        }
+        entries[i] = entry;
+    }
+
+    /**
+     * Removes the entry with the lowest priority.
+     * @return the packed entry, see {@link #priority(long)} and {@link #cell(long)}
+     */
+    long pop() {
+        long top = entries[0];
+        long last = entries[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && entries[child + 1] < entries[child]) {
+                child++;
+            }
+            if (last <= entries[child]) {
+                break;
+            }
+            entries[i] = entries[child];
+            i = child;
+        }
+        entries[i] = last;
+        return top;
+    }
+
+    static int priority(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    static int cell(long entry) {
+        return (int) entry;
+    }
+}
@@ -0,0 +1,201 @@
+package env.behaviour;
+
+import env.FactoryModel;
+import jason.environment.grid.Location;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CooperativePlanner moves robots along paths planned in space and time, so that they make way for each other
+ * instead of bumping into each other and side-stepping at random.
+ * Each robot searches the next {@code window} ticks with A* over (cell, tick) pairs, where waiting in place is
+ * also a step, around the obstacles and the cells reserved by the robots that planned before it.
+ * It then reserves the cells of its path in the {@link ReservationTable}, holding its last cell until the end of
+ * the window or, once at its goal, until it moves again, and takes the first step.
+ * Agents standing on a cell they have not reserved, e.g. not moving cooperatively, block it for the whole window.
+ * A robot that plans earlier keeps the cells it claimed, and two robots never swap cells head on;
+ * the search breaks ties by cell index, so the same moves in the same order always give the same paths.
+ * A tick ends when a robot that already moved during it moves again, which in lockstep is once per step.
+ */
+public class CooperativePlanner {
+    /** Number of ticks planned ahead by default. */
+    public static final int DEFAULT_WINDOW = 8;
+    // the last direction is waiting in place
+    private static final int[] DX = {0, 1, 0, -1, 0};
+    private static final int[] DY = {-1, 0, 1, 0, 0};
+
+    private final FactoryModel model;
+    private final int window;
+    private final ReservationTable reservations;
+    private final BitSet movedThisTick = new BitSet();
+    private final CellHeap open = new CellHeap();
+    // parent of each (tick, cell) node reached by the current search, keyed by node index
+    private final Map<Integer, Integer> parents = new HashMap<>();
+    private long tick = 1;
+
+    /**
+     * Creates a planner for a model, planning {@link #DEFAULT_WINDOW} ticks ahead.
+     * @param model the model whose grid is searched
+     */
+    public CooperativePlanner(FactoryModel model) {
+        this(model, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Creates a planner for a model.
+     * @param model  the model whose grid is searched
+     * @param window the number of ticks planned ahead
+     * @throws IllegalArgumentException if the window is not positive
+     */
+    public CooperativePlanner(FactoryModel model, int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Planning window must be positive but was " + window);
+        }
+        this.model = model;
+        this.window = window;
+        // the tick before the current one is kept for the swap checks of the first step
+        this.reservations = new ReservationTable(window + 2);
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public synchronized long getTick() {
+        return tick;
+    }
+
+    public ReservationTable getReservations() {
+        return reservations;
+    }
+
+    /**
+     * Plans the path of a robot for the coming ticks, reserves it and returns its first step.
+     * @param agentId the ID of the robot
+     * @param from    the current location of the robot
+     * @param goal    the location the robot heads to
+     * @return the cell to occupy this tick, the current one if the robot has to wait,
+     *         or null if the goal cannot be reached at all
+     */
+    public synchronized Location nextStep(int agentId, Location from, Location goal) {
+        startMove(agentId);
+        int width = model.getWidth();
+        int cells = width * model.getHeight();
+        DistanceField field = model.getDistanceField(goal);
+        if (!model.inGrid(from) || !model.inGrid(goal) || (long) cells * (window + 1) > Integer.MAX_VALUE
+                || heuristic(field, from.x, from.y, goal) == DistanceField.UNREACHABLE) {
+            reservations.release(agentId);
+            return null;
+        }
+        int start = from.y * width + from.x;
+        int[] path = search(agentId, start, goal, field, width, cells);
+        int goalCell = goal.y * width + goal.x;
+        reservations.reserve(agentId, tick, path, path[path.length - 1] == goalCell);
+        return new Location(path[0] % width, path[0] / width);
+    }
+
+    /**
+     * Drops the reservations of a robot, e.g. when it moves by other means.
+     * @param agentId the ID of the robot
+     */
+    public void release(int agentId) {
+        reservations.release(agentId);
+    }
+
+    /**
+     * Drops every reservation, e.g. when the robots stop moving cooperatively.
+     */
+    public synchronized void clear() {
+        reservations.clear();
+        movedThisTick.clear();
+    }
+
+    /**
+     * Starts a new tick if the robot already moved during the current one.
+     */
+    private void startMove(int agentId) {
+        if (movedThisTick.get(agentId)) {
+            tick++;
+            movedThisTick.clear();
+        }
+        movedThisTick.set(agentId);
+    }
+
+    /**
+     * Runs A* over (cell, tick) pairs, node {@code k * cells + cell} being the cell k ticks after the current position.
+     * Every step, waiting included, takes one tick, so the cost of a node is its tick and the first time
+     * a node is reached is the cheapest. The search ends at the goal or at the end of the window.
+     * @return the cells of the path for each tick of the window, from the current tick on
+     */
+    private int[] search(int agentId, int start, Location goal, DistanceField field, int width, int cells) {
+        int height = cells / width;
+        int goalCell = goal.y * width + goal.x;
+        open.clear();
+        parents.clear();
+        parents.put(start, -1);
+        open.push(heuristic(field, start % width, start / width, goal), start);
+        int reached = -1;
+        while (!open.isEmpty()) {
+            int node = CellHeap.cell(open.pop());
+            int k = node / cells;
+            int cell = node % cells;
+            if (cell == goalCell || k == window) {
+                reached = node;
+                break;
+            }
+            // node k is occupied at tick - 1 + k, its successors at tick + k
+            long at = tick + k;
+            int x = cell % width;
+            int y = cell / width;
+            for (int direction = 0; direction < DX.length; direction++) {
+                int nx = x + DX[direction];
+                int ny = y + DY[direction];
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height || model.hasObject(FactoryModel.OBSTACLE, nx, ny)) {
+                    continue;
+                }
+                int next = ny * width + nx;
+                int child = (k + 1) * cells + next;
+                if (parents.containsKey(child) || !reservations.isFree(next, at, agentId)) {
+                    continue;
+                }
+                if (next != cell && ((k == 0 ? !model.isFree(nx, ny) : isParked(next, nx, ny))
+                        || reservations.isSwap(cell, next, at, agentId))) {
+                    continue;
+                }
+                int h = heuristic(field, nx, ny, goal);
+                if (h == DistanceField.UNREACHABLE) {
+                    continue;
+                }
+                parents.put(child, node);
+                open.push(k + 1 + h, child);
+            }
+        }
+        int[] path = new int[window];
+        int length = reached == -1 ? 0 : reached / cells;
+        for (int node = reached; length > 0 && node / cells > 0; node = parents.get(node)) {
+            path[node / cells - 1] = node % cells;
+        }
+        // hold the last cell, or the current one if boxed in or already at the goal, for the rest of the window
+        Arrays.fill(path, length, window, length == 0 ? start : path[length - 1]);
+        return path;
+    }
+
+    /**
+     * Checks whether a cell is occupied by an agent that has no reservation around the current tick,
+     * and so will not leave it.
+     */
+    private boolean isParked(int cell, int x, int y) {
+        return model.hasObject(FactoryModel.AGENT, x, y)
+            && reservations.holder(cell, tick - 1) == -1 && reservations.holder(cell, tick) == -1;
+    }
+
+    /**
+     * Returns the length of the shortest path to the goal if the goal has a distance field,
+     * and the Manhattan distance otherwise.
+     */
+    private static int heuristic(DistanceField field, int x, int y, Location goal) {
+        return field != null ? field.distance(x, y) : Math.abs(x - goal.x) + Math.abs(y - goal.y);
+    }
+}
@@ -0,0 +1,244 @@
+package env.behaviour;
+
+import env.FactoryModel;
+import jason.environment.grid.Location;
+import java.util.Arrays;
+
+/**
+ * DistanceField holds the length of the shortest path from every cell of the grid to a fixed target,
+ * flooded once with a breadth-first search around the obstacles.
+ * An agent heading to the target steps to a neighbour one cell closer, with no planning at all.
+ * When an obstacle is added or removed only the distances it changes are repaired.
+ */
+public class DistanceField {
+    /** Distance of the cells from which the target cannot be reached, and of the obstacles. */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {-1, 0, 1, 0};
+
+    private final FactoryModel model;
+    private final Location target;
+    private final int width;
+    private final int height;
+    private final int[] distances;
+
+    /**
+     * Creates the distance field of a target, flooding the whole grid.
+     * @param model  the model whose grid is flooded
+     * @param target the cell the distances lead to
+     */
+    public DistanceField(FactoryModel model, Location target) {
+        this.model = model;
+        this.target = new Location(target.x, target.y);
+        this.width = model.getWidth();
+        this.height = model.getHeight();
+        this.distances = new int[width * height];
+        rebuild();
+    }
+
+    public Location getTarget() {
+        return new Location(target.x, target.y);
+    }
+
+    /**
+     * Returns the length of the shortest path from a cell to the target.
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @return the distance to the target, or {@link #UNREACHABLE}
+     */
+    public synchronized int distance(int x, int y) {
+        return inGrid(x, y) ? distances[y * width + x] : UNREACHABLE;
+    }
+
+    /**
+     * Returns a free neighbour one cell closer to the target, taken in the order up, right, down, left.
+     * @param from the cell to step from
+     * @return the cell to step to, the cell itself if it is the target,
+     *         or null if the target cannot be reached or every closer neighbour is occupied
+     */
+    public synchronized Location nextStep(Location from) {
+        if (from.x == target.x && from.y == target.y) {
+            return from;
+        }
+        int distance = distance(from.x, from.y);
+        if (distance == UNREACHABLE) {
+            return null;
+        }
+        for (int direction = 0; direction < DX.length; direction++) {
+            int nx = from.x + DX[direction];
+            int ny = from.y + DY[direction];
+            if (distance(nx, ny) == distance - 1 && model.isFree(nx, ny)) {
+                return new Location(nx, ny);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Floods the whole grid again.
+     */
+    public synchronized void rebuild() {
+        Arrays.fill(distances, UNREACHABLE);
+        if (!inGrid(target.x, target.y) || isObstacle(target.y * width + target.x)) {
+            return;
+        }
+        int[] queue = new int[distances.length];
+        int head = 0;
+        int tail = 0;
+        int start = target.y * width + target.x;
+        distances[start] = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cell = queue[head++];
+            int next = distances[cell] + 1;
+            for (int direction = 0; direction < DX.length; direction++) {
+                int neighbour = neighbour(cell, direction);
+                if (neighbour >= 0 && distances[neighbour] == UNREACHABLE && !isObstacle(neighbour)) {
+                    distances[neighbour] = next;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    /**
+     * Repairs the distances after an obstacle was added to a cell.
+     * The cells whose shortest path went through it lose their distance,
+     * then get it back from the neighbours that kept theirs.
+     * @param x the x-coordinate of the new obstacle
+     * @param y the y-coordinate of the new obstacle
+     */
+    public synchronized void obstacleAdded(int x, int y) {
+        if (!inGrid(x, y)) {
+            return;
+        }
+        int blocked = y * width + x;
+        int previous = distances[blocked];
+        if (previous == UNREACHABLE) {
+            return;
+        }
+        distances[blocked] = UNREACHABLE;
+
+        // invalidate the cells left without a neighbour one cell closer to the target
+        int[] lost = new int[16];
+        int lostCount = 0;
+        CellHeap candidates = new CellHeap();
+        pushNeighboursAt(candidates, blocked, previous + 1);
+        while (!candidates.isEmpty()) {
+            long entry = candidates.pop();
+            int cell = CellHeap.cell(entry);
+            int distance = CellHeap.priority(entry);
+            if (distances[cell] != distance || hasCloserNeighbour(cell, distance)) {
+                continue;
+            }
+            distances[cell] = UNREACHABLE;
+            if (lostCount == lost.length) {
+                lost = Arrays.copyOf(lost, lostCount * 2);
+            }
+            lost[lostCount++] = cell;
+            pushNeighboursAt(candidates, cell, distance + 1);
+        }
+
+        // flood the invalidated cells again from the cells around them
+        CellHeap repairs = new CellHeap();
+        for (int i = 0; i < lostCount; i++) {
+            int cell = lost[i];
+            int best = UNREACHABLE;
+            for (int direction = 0; direction < DX.length; direction++) {
+                int neighbour = neighbour(cell, direction);
+                if (neighbour >= 0 && distances[neighbour] != UNREACHABLE) {
+                    best = Math.min(best, distances[neighbour] + 1);
+                }
+            }
+            if (best != UNREACHABLE) {
+                repairs.push(best, cell);
+            }
+        }
+        flood(repairs);
+    }
+
+    /**
+     * Repairs the distances after an obstacle was removed from a cell,
+     * shortening the paths that can now go through it.
+     * @param x the x-coordinate of the removed obstacle
+     * @param y the y-coordinate of the removed obstacle
+     */
+    public synchronized void obstacleRemoved(int x, int y) {
+        if (!inGrid(x, y)) {
+            return;
+        }
+        int freed = y * width + x;
+        if (isObstacle(freed)) {
+            return;
+        }
+        int best = freed == target.y * width + target.x ? 0 : UNREACHABLE;
+        for (int direction = 0; direction < DX.length && best != 0; direction++) {
+            int neighbour = neighbour(freed, direction);
+            if (neighbour >= 0 && distances[neighbour] != UNREACHABLE) {
+                best = Math.min(best, distances[neighbour] + 1);
+            }
+        }
+        if (best != UNREACHABLE) {
+            CellHeap repairs = new CellHeap();
+            repairs.push(best, freed);
+            flood(repairs);
+        }
+    }
+
+    /**
+     * Lowers the distances from the given cells outwards, in order of distance.
+     */
+    private void flood(CellHeap repairs) {
+        while (!repairs.isEmpty()) {
+            long entry = repairs.pop();
+            int cell = CellHeap.cell(entry);
+            int distance = CellHeap.priority(entry);
+            if (distance >= distances[cell]) {
+                continue;
+            }
+            distances[cell] = distance;
+            for (int direction = 0; direction < DX.length; direction++) {
+                int neighbour = neighbour(cell, direction);
+                if (neighbour >= 0 && distance + 1 < distances[neighbour] && !isObstacle(neighbour)) {
+                    repairs.push(distance + 1, neighbour);
+                }
+            }
+        }
+    }
+
+    private boolean hasCloserNeighbour(int cell, int distance) {
+        for (int direction = 0; direction < DX.length; direction++) {
+            int neighbour = neighbour(cell, direction);
+            if (neighbour >= 0 && distances[neighbour] == distance - 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void pushNeighboursAt(CellHeap candidates, int cell, int distance) {
+        for (int direction = 0; direction < DX.length; direction++) {
+            int neighbour = neighbour(cell, direction);
+            if (neighbour >= 0 && distances[neighbour] == distance) {
+                candidates.push(distance, neighbour);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the neighbour of a cell in a direction, or -1 outside the grid.
+     */
+    private int neighbour(int cell, int direction) {
+        int x = cell % width + DX[direction];
+        int y = cell / width + DY[direction];
+        return inGrid(x, y) ? y * width + x : -1;
+    }
+
+    private boolean inGrid(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    private boolean isObstacle(int cell) {
+        return model.hasObject(FactoryModel.OBSTACLE, cell % width, cell / width);
+    }
+}
@@ -1,7 +1,18 @@
 package env.behaviour;
 
 import env.FactoryModel;
+import env.jfr.MovementEvent;
+import env.log.EventLog;
+import env.log.LogCategory;
+import env.log.LogLevel;
+import env.metrics.LatencyHistogram;
+import env.metrics.MetricsRegistry;
 import jason.environment.grid.Location;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * MovementManager handles the movement logic for agents in the factory environment.
@@ -11,6 +22,13 @@ import jason.environment.grid.Location;
 public class MovementManager {
     private FactoryModel model;
     private java.util.Random random = new java.util.Random();
+    private final PathPlanner pathPlanner;
+    private final CooperativePlanner cooperativePlanner;
+    private final Map<Integer, Route> routes = new ConcurrentHashMap<>();
+    private volatile MovementMode mode = MovementMode.GREEDY;
+    private final AtomicLong movedSteps = new AtomicLong();
+    private final AtomicLong waitedSteps = new AtomicLong();
+    private volatile StepMetrics stepMetrics = new StepMetrics(new MetricsRegistry());
 
     /**
      *  Constructs a MovementManager with the specified FactoryModel.
@@ -20,31 +38,145 @@ public class MovementManager {
      */
     public MovementManager(FactoryModel model) {
         this.model = model;
+        this.pathPlanner = new PathPlanner(model);
+        this.cooperativePlanner = new CooperativePlanner(model);
     }
 
     /**
-     * Updates the position of an agent to a its location
+     * Sets how the agents find their way towards their targets.
+     *
+     * @param mode the movement mode
+     */
+    public void setMode(MovementMode mode) {
+        this.mode = mode;
+        this.routes.clear();
+        this.cooperativePlanner.clear();
+    }
+
+    public MovementMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the planner of the shortest paths followed in {@link MovementMode#SHORTEST_PATH} mode.
+     *
+     * @return the path planner
+     */
+    public PathPlanner getPathPlanner() {
+        return pathPlanner;
+    }
+
+    /**
+     * Returns the planner of the reserved paths followed in {@link MovementMode#COOPERATIVE} mode.
+     *
+     * @return the cooperative planner
+     */
+    public CooperativePlanner getCooperativePlanner() {
+        return cooperativePlanner;
+    }
+
+    /**
+     * Returns the number of steps towards a target that moved the agent, or found it at its destination.
+     *
+     * @return the number of moves
+     */
+    public long getMovedSteps() {
+        return movedSteps.get();
+    }
+
+    /**
+     * Returns the number of steps towards a target where the agent had to wait in place.
+     *
+     * @return the number of waits
+     */
+    public long getWaitedSteps() {
+        return waitedSteps.get();
+    }
+
+    /**
+     * Sets the registry counting the outcome of each step towards a target and timing the steps.
+     *
+     * @param metrics the metrics registry
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.stepMetrics = new StepMetrics(metrics);
+    }
+
+    /**
+     * Reseeds the random choices of the movements, so that a run can be reproduced.
+     *
+     * @param seed the seed of the random choices
+     */
+    public void setSeed(long seed) {
+        this.random = new java.util.Random(seed);
+    }
+
+    /**
+     * Updates the position of an agent to a its location, even if another agent holds it
      */
     public boolean updatePos(int agentId, Location agentLocation) {
-        Location randomMove = new Location(agentLocation.x, agentLocation.y);
-        if (this.model.isFree(randomMove.x, randomMove.y)) {
-            return tryMove(agentId, randomMove);
-        } else {
-            return tryMove(agentId, agentLocation); // If the move is blocked, stay in place
-        }
+        cooperativePlanner.release(agentId);
+        this.model.setAgPos(agentId, agentLocation);
+        return true;
     }
 
     /**
      * Moves an agent towards a specified destination while considering the agent's current location.
-     * The movement is prioritized vertically or horizontally based on the relative distances to the destination.
-     * If the preferred direction is blocked, it attempts random movements in the other direction.
+     * In {@link MovementMode#SHORTEST_PATH} mode the agent takes the next step of a shortest path,
+     * read from the distance field of the destination if it is the truck, the delivery place or a charging station,
+     * and falls back to the greedy step when the path is blocked by another agent or the destination cannot be reached.
+     * In {@link MovementMode#COOPERATIVE} mode the agent takes the first step of the path it reserved for the coming
+     * ticks, waiting in place when the robots that planned before it hold the way, see {@link CooperativePlanner}.
+     * The greedy movement is prioritized vertically or horizontally based on the relative distances to the destination.
+     * If the preferred direction is blocked, it tries a sidestep to either side in the other direction.
+     * A step only happens if the agent claims the cell, so an agent losing a cell to another one waits in place.
      *
      * @param agentId the ID of the agent to move
      * @param destination the target location to move towards
      * @param agentLocation the current location of the agent
-     * @return true if the move was successful, false otherwise
+     * @return true if the agent moved or already is at the destination, false if it had to wait in place
      */
     public boolean moveTowards(int agentId, Location destination, Location agentLocation) {
+        StepMetrics metrics = this.stepMetrics;
+        MovementMode mode = this.mode;
+        MovementEvent event = new MovementEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Step step = stepTowards(agentId, destination, agentLocation, mode, event);
+        boolean moved = step != Step.BLOCKED;
+        if (!moved) {
+            stayInPlace(agentId, agentLocation);
+        }
+        (moved ? movedSteps : waitedSteps).incrementAndGet();
+        metrics.record(step, System.nanoTime() - start);
+        event.complete(agentId, mode.name(), step.name(), !moved);
+        return moved;
+    }
+
+    /**
+     * Takes the step of {@link #moveTowards(int, Location, Location)} in the given mode,
+     * counting the cells tried in the event of the step.
+     */
+    private Step stepTowards(int agentId, Location destination, Location agentLocation, MovementMode mode, MovementEvent event) {
+        if (mode == MovementMode.SHORTEST_PATH) {
+            DistanceField field = this.model.getDistanceField(destination);
+            event.attempt();
+            if (field != null ? followField(agentId, field, agentLocation) : followPath(agentId, destination, agentLocation)) {
+                return Step.DIRECT;
+            }
+            event.fallBack();
+        } else if (mode == MovementMode.COOPERATIVE) {
+            Location step = cooperativePlanner.nextStep(agentId, agentLocation, destination);
+            if (step != null) {
+                if (step.equals(agentLocation) && !step.equals(destination)) {
+                    logBlocked(agentId, agentLocation);
+                    return Step.BLOCKED;
+                }
+                event.attempt();
+                return take(agentId, step, Step.DIRECT);
+            }
+            event.fallBack();
+        }
         final Location originalAgentPos = new Location(agentLocation.x, agentLocation.y); // Store original position
         
         boolean prioritizeVertical = shouldPrioritizeVertical(destination, agentLocation);
@@ -55,62 +187,111 @@ public class MovementManager {
         
         if (prioritizeVertical) {
             Location verticalMove = computeVerticalMove(destination, agentLocation, moveTowardsTarget);
+            event.attempt();
             if (this.model.isFree(verticalMove.x, verticalMove.y)) {
-                return tryMove(agentId, verticalMove);
+                return take(agentId, verticalMove, Step.DIRECT);
             }
+            logBlocked(agentId, verticalMove);
             
-            // if vertical movement is blocked, try random horizontal movements
-            int attempts = 0;
-            int maxAttempts = this.model.getWidth(); // prevent infinite loop
-            while (attempts < maxAttempts) {
-                Location horizontalMove = computeRandomHorizontalMove(originalAgentPos, random);
-                
-                // if this horizontal position is free, move there
+            // if vertical movement is blocked, try a horizontal sidestep to either side, in random order
+            boolean rightFirst = random.nextBoolean();
+            for (int attempt = 1; attempt <= 2; attempt++) {
+                Location horizontalMove = computeHorizontalSidestep(originalAgentPos, rightFirst == (attempt == 1));
+                event.attempt();
                 if (this.model.isFree(horizontalMove.x, horizontalMove.y)) {
-                    return tryMove(agentId, horizontalMove);
+                    logSidestep(agentId, horizontalMove, attempt);
+                    return take(agentId, horizontalMove, Step.SIDESTEP);
                 }
-                attempts++;
             }
+            logNoFreeCell(agentId, originalAgentPos, 2);
         } else {
             // prioritize horizontal movement
             Location horizontalMove = computeHorizontalMove(destination, agentLocation, moveTowardsTarget);
+            event.attempt();
 
             // if horizontal movement is possible, do it
             if (this.model.isFree(horizontalMove.x, horizontalMove.y)) {
-                return tryMove(agentId, horizontalMove);
+                return take(agentId, horizontalMove, Step.DIRECT);
             }
+            logBlocked(agentId, horizontalMove);
 
-            // if horizontal movement is blocked, try random vertical movements
-            int attempts = 0;
-            int maxAttempts = this.model.getHeight(); // prevent infinite loop
-            while (attempts < maxAttempts) {
-                Location verticalMove = computeRandomVerticalMove(originalAgentPos, random);
-
-                // if this vertical position is free, move there
+            // if horizontal movement is blocked, try a vertical sidestep to either side, in random order
+            boolean downFirst = random.nextBoolean();
+            for (int attempt = 1; attempt <= 2; attempt++) {
+                Location verticalMove = computeVerticalSidestep(originalAgentPos, downFirst == (attempt == 1));
+                event.attempt();
                 if (this.model.isFree(verticalMove.x, verticalMove.y)) {
-                    return tryMove(agentId, verticalMove);
+                    logSidestep(agentId, verticalMove, attempt);
+                    return take(agentId, verticalMove, Step.SIDESTEP);
                 }
-                attempts++;
             }
+            logNoFreeCell(agentId, originalAgentPos, 2);
         }
         
-        return true;
+        return Step.BLOCKED;
     }
 
     /**
-     * Moves an agent away from a specified destination while considering the agent's current location.
-     * The movement is prioritized vertically or horizontally based on the relative distances to the destination.
-     * If the preferred direction is blocked, it attempts random movements in the other direction.
+     * Moves an agent to the free neighbour one cell closer to the target of a distance field.
      *
      * @param agentId the ID of the agent to move
-     * @param destination the target location to move away from
+     * @param field the distance field of the destination
      * @param agentLocation the current location of the agent
-     * @return true if the move was successful, false otherwise
+     * @return true if the agent moved or already is at the destination, false if the greedy step must be used
      */
-    private Location computeRandomVerticalMove(final Location originalAgentPos, java.util.Random random) {
+    private boolean followField(int agentId, DistanceField field, Location agentLocation) {
+        Location step = field.nextStep(agentLocation);
+        if (step == null) {
+            logBlocked(agentId, agentLocation);
+            return false;
+        }
+        return tryMove(agentId, step);
+    }
+
+    /**
+     * Moves an agent one step along its route to a destination, planning the route
+     * when the agent has none, has a different destination, has left it or the layout changed.
+     *
+     * @param agentId the ID of the agent to move
+     * @param destination the target location to move towards
+     * @param agentLocation the current location of the agent
+     * @return true if the agent moved or already is at the destination, false if the greedy step must be used
+     */
+    private boolean followPath(int agentId, Location destination, Location agentLocation) {
+        int here = pathPlanner.index(agentLocation);
+        int goal = pathPlanner.index(destination);
+        long version = this.model.getLayoutVersion();
+        Route route = routes.get(agentId);
+        if (route == null || !route.leadsTo(goal, version) || !route.isAt(here)) {
+            int[] path = pathPlanner.getPath(agentLocation, destination);
+            if (path == null) {
+                routes.remove(agentId);
+                return false;
+            }
+            route = new Route(here, goal, version, path);
+            routes.put(agentId, route);
+        }
+        if (route.isComplete()) {
+            return tryMove(agentId, agentLocation);
+        }
+        Location step = pathPlanner.toLocation(route.nextCell());
+        if (!tryMove(agentId, step)) {
+            return false;
+        }
+        route.advance();
+        return true;
+    }
+
+    /**
+     * Computes a vertical sidestep for an agent, one cell up or down from its current position.
+     *
+     * @param originalAgentPos the original position of the agent
+     * @param down true to step down, false to step up
+     * @return a new Location representing the vertical move
+     */
+    private Location computeVerticalSidestep(final Location originalAgentPos, boolean down) {
         Location verticalMove = new Location(originalAgentPos.x, originalAgentPos.y);
-        // randomly choose up or down
-        if (random.nextBoolean()) {
+        if (down) {
             verticalMove.y++;
         } else {
             verticalMove.y--;
@@ -152,17 +333,15 @@ public class MovementManager {
     }
 
     /**
-     * Computes a random horizontal movement for an agent.
-     * This method randomly chooses to move the agent left or right from its current position.
+     * Computes a horizontal sidestep for an agent, one cell left or right from its current position.
      *
      * @param originalAgentPos the original position of the agent
-     * @param random a Random instance to generate random numbers
+     * @param right true to step right, false to step left
      * @return a new Location representing the horizontal move
      */
-    private Location computeRandomHorizontalMove(final Location originalAgentPos, java.util.Random random) {
+    private Location computeHorizontalSidestep(final Location originalAgentPos, boolean right) {
         Location horizontalMove = new Location(originalAgentPos.x, originalAgentPos.y);
-        // randomly choose left or right
-        if (random.nextBoolean()) {
+        if (right) {
             horizontalMove.x = (horizontalMove.x + 1) % this.model.getWidth();
         } else {
             horizontalMove.x = (horizontalMove.x - 1 + this.model.getWidth()) % this.model.getWidth();
@@ -172,15 +351,41 @@ public class MovementManager {
 
     /**
      * Attempts to move an agent to a new location.
-     * This method updates the agent's position in the model and can be extended to update the view if necessary.
+     * The agent claims the cell in the model, see {@link FactoryModel#tryMoveAgent(int, Location)},
+     * so a cell found free just before may have been taken by another agent in between.
      *
      * @param agentId the ID of the agent to move
      * @param move the new location to move the agent to
      * @return true if the move was successful, false otherwise
      */
     private boolean tryMove(int agentId, Location move) {
-        this.model.setAgPos(agentId, move);
-        return true;
+        if (this.model.tryMoveAgent(agentId, move)) {
+            return true;
+        }
+        logBlocked(agentId, move);
+        return false;
+    }
+
+    /**
+     * Attempts a move of the given kind.
+     *
+     * @param agentId the ID of the agent to move
+     * @param move the new location to move the agent to
+     * @param kind the kind of the move
+     * @return the kind of the move if it was successful, {@link Step#BLOCKED} otherwise
+     */
+    private Step take(int agentId, Location move, Step kind) {
+        return tryMove(agentId, move) ? kind : Step.BLOCKED;
+    }
+
+    /**
+     * Keeps an agent where it is for this step, recording the position in the model.
+     *
+     * @param agentId the ID of the agent
+     * @param agentLocation the current location of the agent
+     */
+    private void stayInPlace(int agentId, Location agentLocation) {
+        this.model.setAgPos(agentId, agentLocation);
     }
 
     /**
@@ -230,4 +435,115 @@ public class MovementManager {
         boolean prioritizeVertical = verticalDistance >= horizontalDistance;
         return prioritizeVertical;
     }
+
+    /**
+     * The path an agent follows, with the position of the agent along it.
+     */
+    private static final class Route {
+        private final int start;
+        private final int goal;
+        private final long version;
+        private final int[] path;
+        private int next;
+
+        Route(int start, int goal, long version, int[] path) {
+            this.start = start;
+            this.goal = goal;
+            this.version = version;
+            this.path = path;
+        }
+
+        boolean leadsTo(int goal, long version) {
+            return this.goal == goal && this.version == version;
+        }
+
+        boolean isAt(int cell) {
+            return cell == (next == 0 ? start : path[next - 1]);
+        }
+
+        boolean isComplete() {
+            return next == path.length;
+        }
+
+        int nextCell() {
+            return path[next];
+        }
+
+        void advance() {
+            next++;
+        }
+    }
+
+    /**
+     * Records that the preferred step of an agent is blocked.
+     *
+     * @param agentId the ID of the agent
+     * @param preferredMove the blocked cell
+     */
+    private void logBlocked(int agentId, Location preferredMove) {
+        EventLog log = this.model.getEventLog();
+        if (log.isEnabled(LogCategory.MOVEMENT, LogLevel.DEBUG)) {
+            log.log(LogCategory.MOVEMENT, LogLevel.DEBUG, "agent {} blocked at {}, trying a sidestep", agentId, preferredMove);
+        }
+    }
+
+    /**
+     * Records that an agent side-stepped an obstacle.
+     *
+     * @param agentId the ID of the agent
+     * @param move the cell the agent moved to
+     * @param attempts the number of sidesteps tried
+     */
+    private void logSidestep(int agentId, Location move, int attempts) {
+        EventLog log = this.model.getEventLog();
+        if (log.isEnabled(LogCategory.MOVEMENT, LogLevel.DEBUG)) {
+            log.log(LogCategory.MOVEMENT, LogLevel.DEBUG, "agent {} sidestepped to {} after {} attempts", agentId, move, attempts);
+        }
+    }
+
+    /**
+     * Records that an agent found no free cell and stayed in place.
+     *
+     * @param agentId the ID of the agent
+     * @param position the position the agent stayed at
+     * @param attempts the number of sidesteps tried
+     */
+    private void logNoFreeCell(int agentId, Location position, int attempts) {
+        EventLog log = this.model.getEventLog();
+        if (log.isEnabled(LogCategory.MOVEMENT, LogLevel.WARN)) {
+            log.log(LogCategory.MOVEMENT, LogLevel.WARN, "agent {} found no free cell around {} after {} attempts", agentId, position, attempts);
+        }
+    }
+
+    /**
+     * The outcome of a step towards a target.
+     */
+    private enum Step {
+        /** The agent moved along its way, or already is at its destination. */
+        DIRECT,
+        /** The agent went around a blocked cell. */
+        SIDESTEP,
+        /** The agent waited in place. */
+        BLOCKED
+    }
+
+    /**
+     * The series of the registry receiving the steps, looked up once.
+     */
+    private static final class StepMetrics {
+        private final LongAdder[] outcomes = new LongAdder[Step.values().length];
+        private final LatencyHistogram latency;
+
+        StepMetrics(MetricsRegistry metrics) {
+            for (Step step : Step.values()) {
+                outcomes[step.ordinal()] = metrics.counter("factory_moves", "outcome", step.name().toLowerCase(Locale.ROOT));
+            }
+            this.latency = metrics.histogram("factory_move_seconds");
+        }
+
+        void record(Step step, long nanos) {
+            outcomes[step.ordinal()].increment();
+            latency.record(nanos);
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package env.behaviour;
+
+import env.FactoryConfig;
+import java.util.Locale;
+
+/**
+ * How the agents find their way towards a target.
+ */
+public enum MovementMode {
+    /** One step along the axis with the larger distance, side-stepping at random when blocked. */
+    GREEDY,
+    /** Follows a shortest path around the obstacles, planned with A*. */
+    SHORTEST_PATH,
+    /** Follows a path reserved in space and time, waiting for the robots that reserved the way first. */
+    COOPERATIVE;
+
+    /**
+     * Reads the mode from the {@code movement=<greedy|astar|cooperative>} option of a run.
+     * @param config the configuration of the run
+     * @return the configured mode, greedy by default
+     * @throws IllegalArgumentException if the mode is not known
+     */
+    public static MovementMode fromConfig(FactoryConfig config) {
+        String value = config.get("movement", "greedy").trim().toLowerCase(Locale.ROOT);
+        switch (value) {
+            case "greedy":
+                return GREEDY;
+            case "astar":
+            case "shortest":
+                return SHORTEST_PATH;
+            case "cooperative":
+            case "reservation":
+                return COOPERATIVE;
+            default:
+                throw new IllegalArgumentException("Movement must be greedy, astar or cooperative but was " + value);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package env.behaviour;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PathCache keeps the most recently used paths, keyed by their start, their goal and
+ * the layout version they were planned on, and forgets the least recently used one when full.
+ * Paths planned on an older layout are never returned and age out of the cache.
+ */
+final class PathCache {
+    private final int capacity;
+    private final Map<Key, int[]> paths;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates an empty cache.
+     * @param capacity the maximum number of paths kept
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    PathCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Path cache capacity must be positive but was " + capacity);
+        }
+        this.capacity = capacity;
+        this.paths = new LinkedHashMap<Key, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+                return size() > PathCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached path, counting the lookup as a hit or a miss.
+     * @param start   the cell the path starts from
+     * @param goal    the cell the path leads to
+     * @param version the current layout version
+     * @return the cached path, or null if it is not cached
+     */
+    synchronized int[] get(int start, int goal, long version) {
+        int[] path = paths.get(new Key(start, goal, version));
+        if (path == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return path;
+    }
+
+    /**
+     * Caches a path.
+     * @param start   the cell the path starts from
+     * @param goal    the cell the path leads to
+     * @param version the layout version the path was planned on
+     * @param path    the cells of the path
+     */
+    synchronized void put(int start, int goal, long version, int[] path) {
+        paths.put(new Key(start, goal, version), path);
+    }
+
+    synchronized int size() {
+        return paths.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The start, goal and layout version of a cached path.
+     */
+    private static final class Key {
+        private final int start;
+        private final int goal;
+        private final long version;
+
+        Key(int start, int goal, long version) {
+            this.start = start;
+            this.goal = goal;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return start == other.start && goal == other.goal && version == other.version;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * start + goal) * 31 + Long.hashCode(version);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package env.behaviour;
+
+import env.FactoryModel;
+import jason.environment.grid.Location;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PathPlanner finds shortest paths on the grid of a factory model with A*.
+ * Agents move one cell up, down, left or right, so the Manhattan distance is used as heuristic.
+ * Only obstacles block a path: agents move, and are handled when the path is followed.
+ * Paths are cached per start, goal and layout version of the model, see {@link FactoryModel#getLayoutVersion()}.
+ * A path is given as the indices ({@code y * width + x}) of its cells, from the one after the start to the goal.
+ */
+public class PathPlanner {
+    /** Number of paths cached by default. */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+    private static final int[] NO_PATH = new int[0];
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {-1, 0, 1, 0};
+
+    private final FactoryModel model;
+    private final PathCache cache;
+    // search state, reused across searches and valid for the cells stamped with the current generation
+    private int[] stamps;
+    private int[] costs;
+    private byte[] directions;
+    private final CellHeap open = new CellHeap();
+    private int generation;
+
+    /**
+     * Creates a planner for a model, caching {@link #DEFAULT_CACHE_SIZE} paths.
+     * @param model the model whose grid is searched
+     */
+    public PathPlanner(FactoryModel model) {
+        this(model, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a planner for a model.
+     * @param model     the model whose grid is searched
+     * @param cacheSize the number of paths to cache
+     * @throws IllegalArgumentException if the cache size is not positive
+     */
+    public PathPlanner(FactoryModel model, int cacheSize) {
+        this.model = model;
+        this.cache = new PathCache(cacheSize);
+    }
+
+    /**
+     * Returns a shortest path between two cells, planning it only if it is not cached for the current layout.
+     * @param start the cell to start from
+     * @param goal  the cell to reach
+     * @return the cells of the path, empty if the start is the goal, or null if the goal cannot be reached
+     */
+    public int[] getPath(Location start, Location goal) {
+        if (!model.inGrid(start) || !model.inGrid(goal)) {
+            return null;
+        }
+        int from = index(start);
+        int to = index(goal);
+        long version = model.getLayoutVersion();
+        int[] path = cache.get(from, to, version);
+        if (path == null) {
+            path = search(from, to);
+            cache.put(from, to, version, path == null ? NO_PATH : path);
+        } else if (path == NO_PATH) {
+            return null;
+        }
+        return path;
+    }
+
+    /**
+     * Returns a shortest path between two cells as locations.
+     * @param start the cell to start from
+     * @param goal  the cell to reach
+     * @return the locations of the path, empty if the start is the goal or the goal cannot be reached
+     */
+    public List<Location> findPath(Location start, Location goal) {
+        int[] path = getPath(start, goal);
+        List<Location> locations = new ArrayList<>(path == null ? 0 : path.length);
+        if (path != null) {
+            for (int cell : path) {
+                locations.add(toLocation(cell));
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Returns the location of a cell of a path.
+     * @param cell the index of the cell
+     * @return the location of the cell
+     */
+    public Location toLocation(int cell) {
+        return new Location(cell % model.getWidth(), cell / model.getWidth());
+    }
+
+    /**
+     * Returns the index a location has in a path.
+     * @param location the location of the cell
+     * @return the index of the cell
+     */
+    public int index(Location location) {
+        return location.y * model.getWidth() + location.x;
+    }
+
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+
+    /**
+     * Runs A* from a cell to another.
+     * @param start the index of the start cell
+     * @param goal  the index of the goal cell
+     * @return the cells of the path, or null if the goal cannot be reached
+     */
+    private synchronized int[] search(int start, int goal) {
+        if (start == goal) {
+            return NO_PATH.clone();
+        }
+        int width = model.getWidth();
+        int height = model.getHeight();
+        if (model.hasObject(FactoryModel.OBSTACLE, goal % width, goal / width)) {
+            return null;
+        }
+        int opened = nextGeneration(width * height);
+        int closed = opened + 1;
+        int goalX = goal % width;
+        int goalY = goal / width;
+
+        open.clear();
+        stamps[start] = opened;
+        costs[start] = 0;
+        open.push(heuristic(start % width, start / width, goalX, goalY), start);
+        while (!open.isEmpty()) {
+            int cell = CellHeap.cell(open.pop());
+            if (stamps[cell] == closed) {
+                continue;
+            }
+            if (cell == goal) {
+                return reconstruct(start, goal, width);
+            }
+            stamps[cell] = closed;
+            int x = cell % width;
+            int y = cell / width;
+            int cost = costs[cell] + 1;
+            for (int direction = 0; direction < DX.length; direction++) {
+                int nx = x + DX[direction];
+                int ny = y + DY[direction];
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                    continue;
+                }
+                int next = ny * width + nx;
+                if (stamps[next] == closed || (stamps[next] == opened && costs[next] <= cost)
+                        || model.hasObject(FactoryModel.OBSTACLE, nx, ny)) {
+                    continue;
+                }
+                stamps[next] = opened;
+                costs[next] = cost;
+                directions[next] = (byte) direction;
+                open.push(cost + heuristic(nx, ny, goalX, goalY), next);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Walks back from the goal to the start along the directions recorded by the search.
+     */
+    private int[] reconstruct(int start, int goal, int width) {
+        int[] path = new int[costs[goal]];
+        int cell = goal;
+        for (int i = path.length - 1; i >= 0; i--) {
+            path[i] = cell;
+            int direction = directions[cell];
+            cell -= DY[direction] * width + DX[direction];
+        }
+        return path;
+    }
+
+    private static int heuristic(int x, int y, int goalX, int goalY) {
+        return Math.abs(x - goalX) + Math.abs(y - goalY);
+    }
+
+    /**
+     * Starts a new search, allocating the search state on first use
+     * and clearing the stamps only when the generations run out.
+     * @param cells the number of cells of the grid
+     * @return the stamp of the open cells of the new search
+     */
+    private int nextGeneration(int cells) {
+        if (stamps == null || stamps.length != cells) {
+            stamps = new int[cells];
+            costs = new int[cells];
+            directions = new byte[cells];
+            generation = 0;
+        }
+        if (generation > Integer.MAX_VALUE - 2) {
+            Arrays.fill(stamps, 0);
+            generation = 0;
+        }
+        generation += 2;
+        return generation;
+    }
+}
@@ -0,0 +1,188 @@
+package env.behaviour;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ReservationTable records which agent will occupy which cell at which tick, for the next few ticks.
+ * Cells are given by index ({@code y * width + x}). The ticks are kept in a ring of per-tick tables,
+ * so that the reservations of a tick are dropped when the ring comes back to it, without any sweep.
+ * An agent that stops at its target may park there: it then holds its last cell for every later tick, until released.
+ */
+public final class ReservationTable {
+    private final Map<Integer, Integer>[] slots;
+    private final long[] slotTicks;
+    private final Map<Integer, Claim> claims = new HashMap<>();
+    private final Map<Integer, Claim> parked = new HashMap<>();
+
+    /**
+     * Creates an empty table.
+     * @param ticks the number of consecutive ticks the table holds at once
+     * @throws IllegalArgumentException if the number of ticks is not positive
+     */
+    @SuppressWarnings("unchecked")
+    public ReservationTable(int ticks) {
+        if (ticks <= 0) {
+            throw new IllegalArgumentException("Reservation table must hold at least one tick but was " + ticks);
+        }
+        this.slots = new Map[ticks];
+        this.slotTicks = new long[ticks];
+        for (int i = 0; i < ticks; i++) {
+            slots[i] = new HashMap<>();
+        }
+        Arrays.fill(slotTicks, Long.MIN_VALUE);
+    }
+
+    /**
+     * Returns the agent holding a cell at a tick.
+     * @param cell the index of the cell
+     * @param tick the tick
+     * @return the id of the agent, or -1 if the cell is not reserved at that tick
+     */
+    public synchronized int holder(int cell, long tick) {
+        int slot = slot(tick);
+        Integer agentId = slotTicks[slot] == tick ? slots[slot].get(cell) : null;
+        if (agentId != null) {
+            return agentId;
+        }
+        Claim claim = parked.get(cell);
+        return claim != null && tick >= claim.firstTick + claim.cells.length ? claim.agentId : -1;
+    }
+
+    /**
+     * Checks whether an agent may occupy a cell at a tick.
+     * @param cell    the index of the cell
+     * @param tick    the tick
+     * @param agentId the id of the agent
+     * @return true if the cell is not reserved at that tick, or reserved by the agent itself
+     */
+    public synchronized boolean isFree(int cell, long tick, int agentId) {
+        int holder = holder(cell, tick);
+        return holder == -1 || holder == agentId;
+    }
+
+    /**
+     * Checks whether a step would swap cells head on with another agent,
+     * that is whether the agent holding the target cell just before the step moves to the cell left.
+     * @param from    the index of the cell left
+     * @param to      the index of the cell entered
+     * @param tick    the tick at which the cell is entered
+     * @param agentId the id of the agent stepping
+     * @return true if another agent makes the opposite step at the same tick
+     */
+    public synchronized boolean isSwap(int from, int to, long tick, int agentId) {
+        int other = holder(to, tick - 1);
+        return other != -1 && other != agentId && holder(from, tick) == other;
+    }
+
+    /**
+     * Replaces the reservations of an agent with the cells it occupies from a tick on, one cell per tick.
+     * The cells are reserved in order up to the first one already held by another agent or beyond the table.
+     * @param agentId   the id of the agent
+     * @param firstTick the tick at which the agent occupies the first cell
+     * @param cells     the indices of the cells
+     * @return the number of cells reserved
+     */
+    public synchronized int reserve(int agentId, long firstTick, int[] cells) {
+        return reserve(agentId, firstTick, cells, false);
+    }
+
+    /**
+     * Replaces the reservations of an agent, like {@link #reserve(int, long, int[])},
+     * then parks it on its last cell if every cell was reserved and no other agent is parked there.
+     * @param agentId   the id of the agent
+     * @param firstTick the tick at which the agent occupies the first cell
+     * @param cells     the indices of the cells
+     * @param park      whether the agent holds its last cell after the reserved ticks
+     * @return the number of cells reserved
+     */
+    public synchronized int reserve(int agentId, long firstTick, int[] cells, boolean park) {
+        release(agentId);
+        int reserved = 0;
+        while (reserved < cells.length && reserved < slots.length) {
+            long tick = firstTick + reserved;
+            int slot = slot(tick);
+            if (slotTicks[slot] > tick) {
+                break;
+            }
+            if (slotTicks[slot] != tick) {
+                slots[slot].clear();
+                slotTicks[slot] = tick;
+            }
+            Integer holder = slots[slot].putIfAbsent(cells[reserved], agentId);
+            if (holder != null && holder != agentId) {
+                break;
+            }
+            reserved++;
+        }
+        if (reserved > 0) {
+            Claim claim = new Claim(agentId, firstTick, Arrays.copyOf(cells, reserved));
+            claims.put(agentId, claim);
+            if (park && reserved == cells.length) {
+                parked.putIfAbsent(cells[reserved - 1], claim);
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * Drops every reservation of an agent.
+     * @param agentId the id of the agent
+     */
+    public synchronized void release(int agentId) {
+        Claim claim = claims.remove(agentId);
+        if (claim == null) {
+            return;
+        }
+        parked.remove(claim.cells[claim.cells.length - 1], claim);
+        for (int i = 0; i < claim.cells.length; i++) {
+            long tick = claim.firstTick + i;
+            int slot = slot(tick);
+            if (slotTicks[slot] == tick) {
+                slots[slot].remove(claim.cells[i], agentId);
+            }
+        }
+    }
+
+    /**
+     * Drops every reservation.
+     */
+    public synchronized void clear() {
+        for (Map<Integer, Integer> slot : slots) {
+            slot.clear();
+        }
+        Arrays.fill(slotTicks, Long.MIN_VALUE);
+        claims.clear();
+        parked.clear();
+    }
+
+    /**
+     * Returns the number of reservations held for a tick.
+     * @param tick the tick
+     * @return the number of reserved cells
+     */
+    public synchronized int size(long tick) {
+        int slot = slot(tick);
+        return slotTicks[slot] == tick ? slots[slot].size() : 0;
+    }
+
+    private int slot(long tick) {
+        return (int) Math.floorMod(tick, (long) slots.length);
+    }
+
+    /**
+     * The cells an agent reserved, from a tick on.
+     */
+    private static final class Claim {
+        private final int agentId;
+        private final long firstTick;
+        private final int[] cells;
+
+        Claim(int agentId, long firstTick, int[] cells) {
+            this.agentId = agentId;
+            this.firstTick = firstTick;
+            this.cells = cells;
+        }
+    }
+}
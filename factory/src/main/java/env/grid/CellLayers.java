@@ -0,0 +1,204 @@
+package env.grid;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * CellLayers stores what each cell of a grid contains as one bitset per kind of object.
+ * Objects are the single-bit values used by the grid model (e.g. AGENT, OBSTACLE, TRUCK),
+ * so that a value may combine several of them and a query reads one word per layer.
+ * Cells are packed row by row, 64 per word, and a layer is only allocated when its
+ * object is first added: a 2000x2000 grid takes about 500 KB per layer instead of 16 MB of ints.
+ * Adding and removing objects are lock-free: each layer word is updated with a compare-and-set, so that
+ * objects added at the same time to cells sharing a word are all kept. Replacing the content of a cell
+ * touches several layers and is not atomic as a whole; callers serialise it per region of the grid.
+ */
+public final class CellLayers {
+    private final int width;
+    private final int height;
+    private final int words;
+    private final AtomicReferenceArray<AtomicLongArray> layers = new AtomicReferenceArray<>(Integer.SIZE);
+
+    /**
+     * Creates empty layers for a grid.
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @throws IllegalArgumentException if a dimension is not positive or the grid has too many cells
+     */
+    public CellLayers(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive but were " + width + "x" + height);
+        }
+        long cells = (long) width * height;
+        if (cells > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid of " + width + "x" + height + " has too many cells");
+        }
+        this.width = width;
+        this.height = height;
+        this.words = (int) ((cells + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Checks whether a cell lies in the grid.
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @return true if the cell is in the grid
+     */
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * Checks whether a cell contains any of the given objects.
+     * @param value the objects to look for, combined with {@code |}
+     * @param x     the x-coordinate of the cell
+     * @param y     the y-coordinate of the cell
+     * @return true if the cell is in the grid and contains one of the objects
+     */
+    public boolean hasAny(int value, int x, int y) {
+        if (!contains(x, y)) {
+            return false;
+        }
+        int index = index(x, y);
+        int word = index >>> 6;
+        long mask = 1L << index;
+        for (int bits = value; bits != 0; bits &= bits - 1) {
+            AtomicLongArray layer = layers.get(Integer.numberOfTrailingZeros(bits));
+            if (layer != null && (layer.get(word) & mask) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns every object a cell contains.
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @return the objects of the cell combined with {@code |}, 0 for an empty cell or a cell outside the grid
+     */
+    public int get(int x, int y) {
+        return contains(x, y) ? valueAt(index(x, y)) : 0;
+    }
+
+    /**
+     * Adds objects to a cell.
+     * @param value the objects to add, combined with {@code |}
+     * @param x     the x-coordinate of the cell
+     * @param y     the y-coordinate of the cell
+     * @throws IndexOutOfBoundsException if the cell is outside the grid
+     */
+    public void add(int value, int x, int y) {
+        int index = checkedIndex(x, y);
+        long mask = 1L << index;
+        for (int bits = value; bits != 0; bits &= bits - 1) {
+            layer(Integer.numberOfTrailingZeros(bits)).getAndAccumulate(index >>> 6, mask, (word, bit) -> word | bit);
+        }
+    }
+
+    /**
+     * Removes objects from a cell.
+     * @param value the objects to remove, combined with {@code |}
+     * @param x     the x-coordinate of the cell
+     * @param y     the y-coordinate of the cell
+     * @throws IndexOutOfBoundsException if the cell is outside the grid
+     */
+    public void remove(int value, int x, int y) {
+        int index = checkedIndex(x, y);
+        long mask = 1L << index;
+        for (int bits = value; bits != 0; bits &= bits - 1) {
+            AtomicLongArray layer = layers.get(Integer.numberOfTrailingZeros(bits));
+            if (layer != null) {
+                layer.getAndAccumulate(index >>> 6, mask, (word, bit) -> word & ~bit);
+            }
+        }
+    }
+
+    /**
+     * Replaces the content of a cell.
+     * The objects are removed then added layer by layer, so a concurrent reader may see the cell in between.
+     * @param value the objects the cell contains from now on, combined with {@code |}
+     * @param x     the x-coordinate of the cell
+     * @param y     the y-coordinate of the cell
+     * @throws IndexOutOfBoundsException if the cell is outside the grid
+     */
+    public void set(int value, int x, int y) {
+        remove(valueAt(checkedIndex(x, y)) & ~value, x, y);
+        add(value, x, y);
+    }
+
+    /**
+     * Counts the cells containing an object.
+     * @param value the object to count, or several objects to count the cells containing any of them
+     * @return the number of cells
+     */
+    public int count(int value) {
+        int count = 0;
+        for (int word = 0; word < words; word++) {
+            long any = 0;
+            for (int bits = value; bits != 0; bits &= bits - 1) {
+                AtomicLongArray layer = layers.get(Integer.numberOfTrailingZeros(bits));
+                if (layer != null) {
+                    any |= layer.get(word);
+                }
+            }
+            count += Long.bitCount(any);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes held by the allocated layers.
+     * @return the size of the layers in bytes
+     */
+    public long sizeInBytes() {
+        long size = 0;
+        for (int bit = 0; bit < layers.length(); bit++) {
+            AtomicLongArray layer = layers.get(bit);
+            if (layer != null) {
+                size += (long) layer.length() * Long.BYTES;
+            }
+        }
+        return size;
+    }
+
+    private int valueAt(int index) {
+        int value = 0;
+        for (int bit = 0; bit < layers.length(); bit++) {
+            AtomicLongArray layer = layers.get(bit);
+            if (layer != null && (layer.get(index >>> 6) & (1L << index)) != 0) {
+                value |= 1 << bit;
+            }
+        }
+        return value;
+    }
+
+    private AtomicLongArray layer(int bit) {
+        AtomicLongArray layer = layers.get(bit);
+        if (layer == null) {
+            // of two threads allocating the same layer, the one that loses takes the winner's
+            layers.compareAndSet(bit, null, new AtomicLongArray(words));
+            layer = layers.get(bit);
+        }
+        return layer;
+    }
+
+    private int index(int x, int y) {
+        return y * width + x;
+    }
+
+    private int checkedIndex(int x, int y) {
+        if (!contains(x, y)) {
+            throw new IndexOutOfBoundsException("Cell (" + x + ", " + y + ") is outside the " + width + "x" + height + " grid");
+        }
+        return index(x, y);
+    }
+}
@@ -0,0 +1,95 @@
+package env.grid;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Occupancy records which agent stands on each cell of a grid, one agent per cell.
+ * A cell is claimed with a single compare-and-set, so that of two agents stepping onto the same free cell
+ * at the same time exactly one succeeds, without any lock. Cells are indexed row by row ({@code y * width + x}).
+ */
+public final class Occupancy {
+    private final int width;
+    private final int height;
+    // id of the occupant plus one, 0 for a free cell
+    private final AtomicIntegerArray occupants;
+
+    /**
+     * Creates the occupancy of an empty grid.
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @throws IllegalArgumentException if a dimension is not positive or the grid has too many cells
+     */
+    public Occupancy(int width, int height) {
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid of " + width + "x" + height + " cells is not valid");
+        }
+        this.width = width;
+        this.height = height;
+        this.occupants = new AtomicIntegerArray(width * height);
+    }
+
+    /**
+     * Claims a cell for an agent.
+     * @param x       the x-coordinate of the cell
+     * @param y       the y-coordinate of the cell
+     * @param agentId the id of the agent
+     * @return true if the cell was free or already held by the agent, false if another agent holds it
+     *         or the cell is outside the grid
+     */
+    public boolean claim(int x, int y, int agentId) {
+        if (!contains(x, y)) {
+            return false;
+        }
+        int index = y * width + x;
+        return occupants.compareAndSet(index, 0, agentId + 1) || occupants.get(index) == agentId + 1;
+    }
+
+    /**
+     * Releases a cell held by an agent.
+     * @param x       the x-coordinate of the cell
+     * @param y       the y-coordinate of the cell
+     * @param agentId the id of the agent
+     * @return true if the agent held the cell, false if the cell was free or held by another agent
+     */
+    public boolean release(int x, int y, int agentId) {
+        return contains(x, y) && occupants.compareAndSet(y * width + x, agentId + 1, 0);
+    }
+
+    /**
+     * Returns the agent standing on a cell.
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @return the id of the agent, or -1 if the cell is free or outside the grid
+     */
+    public int occupant(int x, int y) {
+        return contains(x, y) ? occupants.get(y * width + x) - 1 : -1;
+    }
+
+    /**
+     * Checks whether an agent stands on a cell.
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @return true if the cell is in the grid and held by an agent
+     */
+    public boolean isOccupied(int x, int y) {
+        return contains(x, y) && occupants.get(y * width + x) != 0;
+    }
+
+    /**
+     * Counts the occupied cells.
+     * @return the number of cells held by an agent
+     */
+    public int count() {
+        int count = 0;
+        for (int i = 0; i < occupants.length(); i++) {
+            if (occupants.get(i) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+}
@@ -0,0 +1,124 @@
+package env.grid;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * RegionLocks serialises the updates that span several cells of a grid, such as placing a wall or a charging station,
+ * without one lock for the whole grid. The grid is cut into square regions, and each region maps to one of a fixed
+ * set of lock stripes; an update locks the stripes of the regions it touches, always in stripe order, so that
+ * updates of distant regions run in parallel and two updates never wait for each other in a cycle.
+ */
+public final class RegionLocks {
+    /** Side of the regions used by default, in cells. */
+    public static final int DEFAULT_REGION_SIZE = 16;
+    /** Number of lock stripes used by default. */
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final int regionSize;
+    private final int columns;
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Creates the locks of a grid with regions of {@link #DEFAULT_REGION_SIZE} cells and {@link #DEFAULT_STRIPES} stripes.
+     * @param width the number of columns of the grid
+     */
+    public RegionLocks(int width) {
+        this(width, DEFAULT_REGION_SIZE, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates the locks of a grid.
+     * @param width      the number of columns of the grid
+     * @param regionSize the side of the regions, in cells
+     * @param stripes    the number of locks shared by the regions
+     * @throws IllegalArgumentException if a parameter is not positive
+     */
+    public RegionLocks(int width, int regionSize, int stripes) {
+        if (width <= 0 || regionSize <= 0 || stripes <= 0) {
+            throw new IllegalArgumentException("Locks of a grid of width " + width + " with regions of " + regionSize
+                + " and " + stripes + " stripes are not valid");
+        }
+        this.regionSize = regionSize;
+        this.columns = (width + regionSize - 1) / regionSize;
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the stripes of the regions covering a rectangle of cells, waiting for them if needed.
+     * Each call must be paired with {@link #unlock(int, int, int, int)} on the same rectangle, in a finally block.
+     * @param x1 the x-coordinate of a corner of the rectangle
+     * @param y1 the y-coordinate of that corner
+     * @param x2 the x-coordinate of the opposite corner
+     * @param y2 the y-coordinate of the opposite corner
+     */
+    public void lock(int x1, int y1, int x2, int y2) {
+        BitSet held = stripesOf(x1, y1, x2, y2);
+        for (int stripe = held.nextSetBit(0); stripe >= 0; stripe = held.nextSetBit(stripe + 1)) {
+            stripes[stripe].lock();
+        }
+    }
+
+    /**
+     * Unlocks the stripes locked by {@link #lock(int, int, int, int)} for the same rectangle.
+     * @param x1 the x-coordinate of a corner of the rectangle
+     * @param y1 the y-coordinate of that corner
+     * @param x2 the x-coordinate of the opposite corner
+     * @param y2 the y-coordinate of the opposite corner
+     */
+    public void unlock(int x1, int y1, int x2, int y2) {
+        BitSet held = stripesOf(x1, y1, x2, y2);
+        for (int stripe = held.length() - 1; stripe >= 0; stripe = held.previousSetBit(stripe - 1)) {
+            stripes[stripe].unlock();
+        }
+    }
+
+    /**
+     * Locks the stripe of the region of a single cell.
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     */
+    public void lock(int x, int y) {
+        lock(x, y, x, y);
+    }
+
+    /**
+     * Unlocks the stripe locked by {@link #lock(int, int)} for the same cell.
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     */
+    public void unlock(int x, int y) {
+        unlock(x, y, x, y);
+    }
+
+    /**
+     * Checks whether the current thread holds the stripe of the region of a cell.
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @return true if the stripe is held by the current thread
+     */
+    public boolean isHeldByCurrentThread(int x, int y) {
+        return stripes[stripeOf(Math.max(0, x) / regionSize, Math.max(0, y) / regionSize)].isHeldByCurrentThread();
+    }
+
+    private BitSet stripesOf(int x1, int y1, int x2, int y2) {
+        int fromColumn = Math.max(0, Math.min(x1, x2)) / regionSize;
+        int toColumn = Math.max(0, Math.max(x1, x2)) / regionSize;
+        int fromRow = Math.max(0, Math.min(y1, y2)) / regionSize;
+        int toRow = Math.max(0, Math.max(y1, y2)) / regionSize;
+        BitSet held = new BitSet(stripes.length);
+        for (int row = fromRow; row <= toRow && held.cardinality() < stripes.length; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                held.set(stripeOf(column, row));
+            }
+        }
+        return held;
+    }
+
+    private int stripeOf(int column, int row) {
+        return Math.floorMod(row * columns + column, stripes.length);
+    }
+}
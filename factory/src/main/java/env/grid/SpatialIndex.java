@@ -0,0 +1,377 @@
+package env.grid;
+
+import jason.environment.grid.Location;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * SpatialIndex keeps named points of a grid in square buckets, so that the point nearest to a cell
+ * is found by looking at the buckets around it, ring by ring, instead of at every point.
+ * Distances are Euclidean, and ties go to the name that comes first.
+ * The points lying on a given cell are found from the bucket of the cell alone.
+ * <p>
+ * Each bucket is locked on its own, like the regions of {@link RegionLocks}, so that points of distant
+ * buckets move in parallel; a point moving between two buckets locks both, in bucket order.
+ * A point is created once per name and moved in place afterwards, so moving a point does not allocate.
+ */
+public final class SpatialIndex {
+    /** Side of the buckets used by default, in cells. */
+    public static final int DEFAULT_BUCKET_SIZE = 16;
+
+    private final int bucketSize;
+    private final int columns;
+    private final int rows;
+    private final Bucket[] buckets;
+    private final ConcurrentHashMap<String, Point> points = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty index with buckets of {@link #DEFAULT_BUCKET_SIZE} cells.
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     */
+    public SpatialIndex(int width, int height) {
+        this(width, height, DEFAULT_BUCKET_SIZE);
+    }
+
+    /**
+     * Creates an empty index.
+     * @param width      the number of columns of the grid
+     * @param height     the number of rows of the grid
+     * @param bucketSize the side of the buckets, in cells
+     * @throws IllegalArgumentException if a dimension or the bucket size is not positive
+     */
+    public SpatialIndex(int width, int height, int bucketSize) {
+        if (width <= 0 || height <= 0 || bucketSize <= 0) {
+            throw new IllegalArgumentException("Index of " + width + "x" + height + " cells with buckets of " + bucketSize + " is not valid");
+        }
+        this.bucketSize = bucketSize;
+        this.columns = (width + bucketSize - 1) / bucketSize;
+        this.rows = (height + bucketSize - 1) / bucketSize;
+        this.buckets = new Bucket[columns * rows];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * Adds a point, or moves it if the name is already indexed.
+     * @param name     the name of the point
+     * @param location the cell of the point, clamped to the grid
+     */
+    public void put(String name, Location location) {
+        int x = location.x;
+        int y = location.y;
+        int to = bucketOf(x, y);
+        while (true) {
+            Point point = points.get(name);
+            if (point == null) {
+                point = points.computeIfAbsent(name, Point::new);
+            }
+            // moves of one point are serialized on the point, so that its bucket does not change under it
+            synchronized (point) {
+                if (point.removed) {
+                    // removed meanwhile: index the name again with a new point
+                    continue;
+                }
+                int from = point.bucket;
+                if (from == to) {
+                    synchronized (buckets[to]) {
+                        point.x = x;
+                        point.y = y;
+                    }
+                } else if (from < 0) {
+                    synchronized (buckets[to]) {
+                        point.x = x;
+                        point.y = y;
+                        point.bucket = to;
+                        buckets[to].add(point);
+                    }
+                } else {
+                    Bucket first = buckets[Math.min(from, to)];
+                    Bucket second = buckets[Math.max(from, to)];
+                    synchronized (first) {
+                        synchronized (second) {
+                            buckets[from].remove(point);
+                            point.x = x;
+                            point.y = y;
+                            point.bucket = to;
+                            buckets[to].add(point);
+                        }
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes a point.
+     * @param name the name of the point
+     * @return true if the point was indexed
+     */
+    public boolean remove(String name) {
+        Point point = points.remove(name);
+        if (point == null) {
+            return false;
+        }
+        synchronized (point) {
+            point.removed = true;
+            if (point.bucket >= 0) {
+                synchronized (buckets[point.bucket]) {
+                    buckets[point.bucket].remove(point);
+                }
+                point.bucket = -1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the location of a point.
+     * @param name the name of the point
+     * @return the location of the point, or null if it is not indexed
+     */
+    public Location get(String name) {
+        Point point = points.get(name);
+        if (point == null) {
+            return null;
+        }
+        synchronized (point) {
+            return point.removed || point.bucket < 0 ? null : new Location(point.x, point.y);
+        }
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    /**
+     * Returns the names of the points lying on a cell, reading only the bucket of the cell.
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @return the names of the points on the cell, sorted, empty if there is none
+     */
+    public List<String> namesAt(int x, int y) {
+        List<String> names = new ArrayList<>(1);
+        Bucket bucket = buckets[bucketOf(x, y)];
+        synchronized (bucket) {
+            for (int i = 0; i < bucket.size; i++) {
+                Point point = bucket.points[i];
+                if (point.x == x && point.y == y) {
+                    names.add(point.name);
+                }
+            }
+        }
+        names.sort(null);
+        return names;
+    }
+
+    /**
+     * Returns the first name, in the order of {@link #namesAt(int, int)}, of the points lying on a cell
+     * but for one of them, without allocating.
+     * @param x        the x-coordinate of the cell
+     * @param y        the y-coordinate of the cell
+     * @param excluded the name of the point to skip, or null to skip none
+     * @return the first other name on the cell, or null if there is none
+     */
+    public String nameAt(int x, int y, String excluded) {
+        String first = null;
+        Bucket bucket = buckets[bucketOf(x, y)];
+        synchronized (bucket) {
+            for (int i = 0; i < bucket.size; i++) {
+                Point point = bucket.points[i];
+                if (point.x == x && point.y == y && !point.name.equals(excluded)
+                        && (first == null || point.name.compareTo(first) < 0)) {
+                    first = point.name;
+                }
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Returns the names of the points lying in a rectangle of cells, reading only the buckets it overlaps.
+     * The buckets are read one after the other, so a point moving meanwhile may be missed.
+     * @param x      the x-coordinate of the left column of the rectangle
+     * @param y      the y-coordinate of the top row of the rectangle
+     * @param width  the number of columns of the rectangle
+     * @param height the number of rows of the rectangle
+     * @return the names of the points in the rectangle, bucket by bucket, empty if there is none
+     */
+    public List<String> namesIn(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return new ArrayList<>(0);
+        }
+        // a point moving to a bucket not read yet would otherwise be listed twice
+        Set<String> names = new LinkedHashSet<>();
+        long right = (long) x + width;
+        long bottom = (long) y + height;
+        int fromColumn = clamp(x / bucketSize, columns);
+        int toColumn = clamp((int) Math.min(Integer.MAX_VALUE, right - 1) / bucketSize, columns);
+        int fromRow = clamp(y / bucketSize, rows);
+        int toRow = clamp((int) Math.min(Integer.MAX_VALUE, bottom - 1) / bucketSize, rows);
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                Bucket bucket = buckets[row * columns + column];
+                synchronized (bucket) {
+                    for (int i = 0; i < bucket.size; i++) {
+                        Point point = bucket.points[i];
+                        if (point.x >= x && point.x < right && point.y >= y && point.y < bottom) {
+                            names.add(point.name);
+                        }
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Finds the point nearest to a cell.
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @return the name of the nearest point, or null if the index is empty
+     */
+    public String nearest(int x, int y) {
+        List<String> nearest = nearest(x, y, 1, null);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    /**
+     * Finds the points nearest to a cell among those accepted by a filter.
+     * The buckets are visited ring by ring around the cell, and the search stops
+     * as soon as no point of the next rings can be closer than the k-th point found.
+     * @param x      the x-coordinate of the cell
+     * @param y      the y-coordinate of the cell
+     * @param k      the number of points to find
+     * @param filter the names of the points to consider, or null to consider every point
+     * @return the names of at most k points, nearest first
+     */
+    public List<String> nearest(int x, int y, int k, Predicate<String> filter) {
+        if (k <= 0 || points.isEmpty()) {
+            return new ArrayList<>(0);
+        }
+        // copies of the points, whose cells cannot change while they are sorted
+        List<Point> found = new ArrayList<>();
+        Comparator<Point> byDistance = Comparator.<Point>comparingLong(point -> squaredDistance(point, x, y))
+                .thenComparing(point -> point.name);
+        int column = clamp(x / bucketSize, columns);
+        int row = clamp(y / bucketSize, rows);
+        int maxRing = Math.max(Math.max(column, columns - 1 - column), Math.max(row, rows - 1 - row));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            int before = found.size();
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                // inner rows of the ring only have their two end buckets
+                int step = (r == row - ring || r == row + ring) ? 1 : Math.max(1, 2 * ring);
+                for (int c = column - ring; c <= column + ring; c += step) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    Bucket bucket = buckets[r * columns + c];
+                    synchronized (bucket) {
+                        for (int i = 0; i < bucket.size; i++) {
+                            Point point = bucket.points[i];
+                            found.add(new Point(point.name, point.x, point.y));
+                        }
+                    }
+                }
+            }
+            // the filter runs outside of the bucket locks
+            if (filter != null) {
+                for (int i = found.size() - 1; i >= before; i--) {
+                    if (!filter.test(found.get(i).name)) {
+                        found.remove(i);
+                    }
+                }
+            }
+            // every point of the next rings is more than ring * bucketSize cells away
+            if (found.size() >= k) {
+                found.sort(byDistance);
+                long reach = (long) ring * bucketSize;
+                if (squaredDistance(found.get(k - 1), x, y) <= reach * reach) {
+                    break;
+                }
+            }
+        }
+        found.sort(byDistance);
+        List<String> names = new ArrayList<>(Math.min(k, found.size()));
+        for (int i = 0; i < found.size() && i < k; i++) {
+            String name = found.get(i).name;
+            // a point moving between two rings may have been copied twice
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private int bucketOf(int x, int y) {
+        return clamp(y / bucketSize, rows) * columns + clamp(x / bucketSize, columns);
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    private static long squaredDistance(Point point, int x, int y) {
+        long dx = point.x - x;
+        long dy = point.y - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * A named point of the index, moved in place.
+     * Its cell is written under the lock of its bucket, and its bucket under the lock of the point.
+     */
+    private static final class Point {
+        private final String name;
+        private int x;
+        private int y;
+        private int bucket = -1;
+        private boolean removed;
+
+        Point(String name) {
+            this.name = name;
+        }
+
+        Point(String name, int x, int y) {
+            this.name = name;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * The points of a bucket, in no particular order, guarded by the bucket itself.
+     */
+    private static final class Bucket {
+        private Point[] points = new Point[2];
+        private int size;
+
+        void add(Point point) {
+            if (size == points.length) {
+                points = Arrays.copyOf(points, size * 2);
+            }
+            points[size++] = point;
+        }
+
+        void remove(Point point) {
+            for (int i = 0; i < size; i++) {
+                if (points[i] == point) {
+                    points[i] = points[--size];
+                    points[size] = null;
+                    return;
+                }
+            }
+        }
+    }
+}
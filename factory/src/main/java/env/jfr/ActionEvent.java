@@ -0,0 +1,45 @@
+package env.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of an action executed by the environment for an agent, lasting from the decoding
+ * of its arguments to the update of the model and of the percepts.
+ */
+@Name("env.Action")
+@Label("Environment Action")
+@Description("An action executed by the environment for an agent")
+@Category({"Factory", "Environment"})
+@Enabled(false)
+@StackTrace(false)
+public final class ActionEvent extends Event {
+    @Label("Agent")
+    String agent;
+
+    @Label("Functor")
+    String functor;
+
+    @Label("Success")
+    boolean success;
+
+    /**
+     * Ends the event and records it, if it is enabled and lasted longer than its threshold.
+     * @param agent the name of the agent
+     * @param functor the functor of the action
+     * @param success whether the action succeeded
+     */
+    public void complete(String agent, String functor, boolean success) {
+        if (shouldCommit()) {
+            this.agent = agent;
+            this.functor = functor;
+            this.success = success;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package env.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a step of an agent towards its target, with the cells it tried
+ * and whether a path-following mode fell back to the greedy step.
+ */
+@Name("env.Movement")
+@Label("Movement Decision")
+@Description("A step of an agent towards its target")
+@Category({"Factory", "Movement"})
+@Enabled(false)
+@StackTrace(false)
+public final class MovementEvent extends Event {
+    @Label("Agent Id")
+    int agentId;
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Outcome")
+    @Description("DIRECT, SIDESTEP or BLOCKED")
+    String outcome;
+
+    @Label("Attempts")
+    @Description("The number of cells the agent tried to move to")
+    int attempts;
+
+    @Label("Blocked")
+    boolean blocked;
+
+    @Label("Fallback")
+    @Description("Whether the step of the mode failed and the greedy step was tried instead")
+    boolean fallback;
+
+    /**
+     * Counts a cell the agent tried to move to.
+     */
+    public void attempt() {
+        attempts++;
+    }
+
+    /**
+     * Records that the step of the mode failed and the greedy step is tried instead.
+     */
+    public void fallBack() {
+        fallback = true;
+    }
+
+    /**
+     * Ends the event and records it, if it is enabled and lasted longer than its threshold.
+     * @param agentId the ID of the agent
+     * @param mode the movement mode
+     * @param outcome the outcome of the step
+     * @param blocked whether the agent waited in place
+     */
+    public void complete(int agentId, String mode, String outcome, boolean blocked) {
+        if (shouldCommit()) {
+            this.agentId = agentId;
+            this.mode = mode;
+            this.outcome = outcome;
+            this.blocked = blocked;
+            commit();
+        }
+    }
+}
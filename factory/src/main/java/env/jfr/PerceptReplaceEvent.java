@@ -0,0 +1,46 @@
+package env.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of the replacement of a single-valued percept of an agent,
+ * removing its previous literal and adding the new one.
+ */
+@Name("env.PerceptReplace")
+@Label("Percept Replace")
+@Description("The replacement of a single-valued percept of an agent")
+@Category({"Factory", "Environment"})
+@Enabled(false)
+@StackTrace(false)
+public final class PerceptReplaceEvent extends Event {
+    @Label("Agent")
+    String agent;
+
+    @Label("Percept")
+    String percept;
+
+    @Label("Replaced")
+    @Description("Whether a previous value of the percept was removed")
+    boolean replaced;
+
+    /**
+     * Ends the event and records it, if it is enabled and lasted longer than its threshold.
+     * @param agent the name of the agent
+     * @param percept the functor of the percept
+     * @param replaced whether a previous value of the percept was removed
+     */
+    public void complete(String agent, String percept, boolean replaced) {
+        if (shouldCommit()) {
+            this.agent = agent;
+            this.percept = percept;
+            this.replaced = replaced;
+            commit();
+        }
+    }
+}
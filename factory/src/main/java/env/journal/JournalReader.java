@@ -0,0 +1,231 @@
+package env.journal;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * JournalReader reads the records of a {@link ModelJournal} in the order they were appended, segment after segment.
+ * <p>
+ * {@link #next()} moves to the next change of the model, whose fields are then read with the accessors:
+ * the header records are checked and skipped, and the {@link RecordType#NAME} records are gathered into
+ * the {@link #name()} of the record that follows them. Reading does not allocate, but for the names.
+ */
+public final class JournalReader implements AutoCloseable {
+    private final List<Path> segments;
+    private MappedByteBuffer buffer;
+    private int segment = -1;
+    private int record = -1;
+    private long time;
+    private RecordType type;
+    private int agent;
+    private int x;
+    private int y;
+    private int value;
+    private int detail;
+    private byte[] nameBytes = new byte[ModelJournal.NAME_CHUNK_BYTES];
+    private int nameLength;
+    private String name;
+
+    /**
+     * Constructs a JournalReader positioned before the first record of the journal written to a directory.
+     * @param directory the directory of the segments
+     * @throws IOException if the directory cannot be listed or holds no segment
+     */
+    public JournalReader(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            this.segments = files
+                .filter(file -> {
+                    String fileName = file.getFileName().toString();
+                    return fileName.startsWith(ModelJournal.SEGMENT_PREFIX) && fileName.endsWith(ModelJournal.SEGMENT_SUFFIX);
+                })
+                .sorted()
+                .toList();
+        }
+        if (segments.isEmpty()) {
+            throw new IOException("No journal segment in " + directory);
+        }
+    }
+
+    /**
+     * Returns the number of segments of the journal.
+     * @return the number of segment files
+     */
+    public int getSegments() {
+        return segments.size();
+    }
+
+    /**
+     * Moves to the next change of the model.
+     * @return true if there is one, false at the end of the journal
+     * @throws IOException if a segment cannot be read or is not a journal segment
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            if (buffer == null || (record + 1) * ModelJournal.RECORD_BYTES >= buffer.limit()) {
+                if (segment + 1 >= segments.size()) {
+                    return false;
+                }
+                open(segment + 1);
+                continue;
+            }
+            record++;
+            int start = record * ModelJournal.RECORD_BYTES;
+            RecordType read = RecordType.of(buffer.get(start + ModelJournal.TYPE));
+            switch (read) {
+                case END:
+                    // the rest of the segment was never written
+                    record = buffer.limit() / ModelJournal.RECORD_BYTES;
+                    break;
+                case HEADER:
+                    checkHeader(start);
+                    break;
+                case NAME:
+                    int length = buffer.get(start + ModelJournal.LENGTH);
+                    if (nameLength + length > nameBytes.length) {
+                        nameBytes = Arrays.copyOf(nameBytes, Math.max(nameBytes.length * 2, nameLength + length));
+                    }
+                    buffer.get(start + ModelJournal.X, nameBytes, nameLength, length);
+                    nameLength += length;
+                    break;
+                default:
+                    load(start, read);
+                    return true;
+            }
+        }
+    }
+
+    private void load(int start, RecordType read) {
+        type = read;
+        time = buffer.getLong(start + ModelJournal.TIME);
+        agent = buffer.getInt(start + ModelJournal.AGENT);
+        x = buffer.getInt(start + ModelJournal.X);
+        y = buffer.getInt(start + ModelJournal.Y);
+        value = buffer.getInt(start + ModelJournal.VALUE);
+        detail = buffer.getInt(start + ModelJournal.DETAIL);
+        name = nameLength > 0 ? new String(nameBytes, 0, nameLength, StandardCharsets.UTF_8) : null;
+        nameLength = 0;
+    }
+
+    private void checkHeader(int start) throws IOException {
+        if (buffer.getInt(start + ModelJournal.VALUE) != ModelJournal.MAGIC) {
+            throw new IOException(segments.get(segment) + " is not a journal segment");
+        }
+        int version = buffer.getInt(start + ModelJournal.DETAIL);
+        if (version != ModelJournal.VERSION) {
+            throw new IOException(segments.get(segment) + " has version " + version + " but version " + ModelJournal.VERSION + " is read");
+        }
+    }
+
+    /**
+     * Maps a segment, positioned before its first record.
+     */
+    private void open(int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(segments.get(index), StandardOpenOption.READ)) {
+            long size = channel.size() - channel.size() % ModelJournal.RECORD_BYTES;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        segment = index;
+        record = -1;
+    }
+
+    /**
+     * Returns the position after the current record, to come back to with {@link #seek(long)}.
+     * @return the segment index in the high int and the record index in the low int
+     */
+    public long position() {
+        return (long) Math.max(segment, 0) << 32 | (record + 1);
+    }
+
+    /**
+     * Moves to a position returned by {@link #position()}, so that {@link #next()} reads the record that followed it.
+     * @param position the position to move to
+     * @throws IOException if the segment cannot be read
+     */
+    public void seek(long position) throws IOException {
+        int index = (int) (position >>> 32);
+        if (index != segment) {
+            open(index);
+        }
+        record = (int) position - 1;
+        nameLength = 0;
+    }
+
+    /**
+     * Returns the kind of the current record.
+     * @return the record type
+     */
+    public RecordType type() {
+        return type;
+    }
+
+    /**
+     * Returns the simulated time of the current record.
+     * @return the simulated milliseconds since the start of the run
+     */
+    public long time() {
+        return time;
+    }
+
+    /**
+     * Returns the agent of the current record.
+     * @return the id of the agent, -1 if none
+     */
+    public int agent() {
+        return agent;
+    }
+
+    /**
+     * Returns the x-coordinate of the cell of the current record.
+     * @return the x-coordinate
+     */
+    public int x() {
+        return x;
+    }
+
+    /**
+     * Returns the y-coordinate of the cell of the current record.
+     * @return the y-coordinate
+     */
+    public int y() {
+        return y;
+    }
+
+    /**
+     * Returns the value of the current record, see {@link RecordType}.
+     * @return the value
+     */
+    public int value() {
+        return value;
+    }
+
+    /**
+     * Returns the detail of the current record, see {@link RecordType}.
+     * @return the detail
+     */
+    public int detail() {
+        return detail;
+    }
+
+    /**
+     * Returns the name of the agent of the current record, written before the records adding an agent or a station.
+     * @return the name, or null if the record carries none
+     */
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+        buffer = null;
+    }
+}
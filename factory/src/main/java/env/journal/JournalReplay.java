@@ -0,0 +1,519 @@
+package env.journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+
+import env.FactoryConfig;
+import env.FactoryModel;
+import env.FactoryView;
+import env.agent.AbstractAgent;
+import env.agent.DeliveryRobot;
+import env.agent.HumanTechnician;
+import env.metrics.MetricsExporter;
+import env.metrics.MetricsRegistry;
+import jason.environment.grid.Location;
+
+/**
+ * JournalReplay plays a {@link ModelJournal} back through a {@link FactoryModel}, without any agent:
+ * the observers of the model, such as the {@link FactoryView}, and its metrics see the run as it was recorded.
+ * <p>
+ * Records are applied as fast as possible, or paced at a playback rate of simulated milliseconds per
+ * wall-clock millisecond. While playing, the replay keeps a keyframe of the whole model every
+ * {@code keyframeInterval} simulated milliseconds, so that {@link #seek(long)} goes back or forward to any time
+ * by restoring the nearest keyframe before it and applying the few records that follow.
+ * Times are the simulated milliseconds since the start of the recorded run.
+ */
+public final class JournalReplay implements AutoCloseable {
+    /** Playback rate applying the records as fast as possible. */
+    public static final double FULL_SPEED = Double.POSITIVE_INFINITY;
+    /** Default simulated time between two keyframes, in milliseconds. */
+    public static final long DEFAULT_KEYFRAME_INTERVAL = 60_000L;
+    private static final byte ABSENT = 0;
+    private static final byte ROBOT = 1;
+    private static final byte HUMAN = 2;
+
+    private final JournalReader reader;
+    private final FactoryModel model;
+    private final long keyframeInterval;
+    private final List<Keyframe> keyframes = new ArrayList<>();
+    // the name and model id of each agent id of the journal
+    private String[] names = new String[FactoryModel.INITIAL_AGENT_CAPACITY];
+    private int[] ids = new int[FactoryModel.INITIAL_AGENT_CAPACITY];
+    private double rate = FULL_SPEED;
+    private long time;
+    private long applied;
+    private boolean pending;
+    private boolean ended;
+    private boolean obstaclesChanged = true;
+
+    /**
+     * Constructs a JournalReplay of the journal written to a directory, with a keyframe every simulated minute.
+     * @param directory the directory of the segments
+     * @throws IOException if the journal cannot be read
+     */
+    public JournalReplay(Path directory) throws IOException {
+        this(directory, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Constructs a JournalReplay of the journal written to a directory, positioned at the start of the run
+     * on a model of the recorded grid, without obstacles, charging stations nor agents yet.
+     * @param directory the directory of the segments
+     * @param keyframeInterval the simulated milliseconds between two keyframes
+     * @throws IllegalArgumentException if the interval is not positive
+     * @throws IOException if the journal cannot be read or does not start with the grid
+     */
+    public JournalReplay(Path directory, long keyframeInterval) throws IOException {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("Keyframe interval must be positive but was " + keyframeInterval);
+        }
+        this.keyframeInterval = keyframeInterval;
+        this.reader = new JournalReader(directory);
+        if (!reader.next() || reader.type() != RecordType.GRID) {
+            reader.close();
+            throw new IOException("Journal " + directory + " does not start with the grid");
+        }
+        this.model = new FactoryModel(reader.x(), reader.y(), 0, new Random(0));
+        this.time = reader.time();
+        Arrays.fill(ids, -1);
+        keyframes.add(capture());
+    }
+
+    /**
+     * Returns the model the journal is played through, to which observers can be added.
+     * @return the replayed model
+     */
+    public FactoryModel getModel() {
+        return model;
+    }
+
+    /**
+     * Sets the playback rate of {@link #playUntil(long)}.
+     * @param rate the simulated milliseconds played per wall-clock millisecond, or {@link #FULL_SPEED}
+     * @throws IllegalArgumentException if the rate is not positive
+     */
+    public void setRate(double rate) {
+        if (!(rate > 0)) {
+            throw new IllegalArgumentException("Playback rate must be positive but was " + rate);
+        }
+        this.rate = rate;
+    }
+
+    /**
+     * Returns the playback rate.
+     * @return the simulated milliseconds played per wall-clock millisecond, {@link #FULL_SPEED} by default
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Returns the simulated time the model is at.
+     * @return the time of the last record applied, or of the start of the run
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the number of records applied to the model, counting again those applied after going back.
+     * @return the number of applied records
+     */
+    public long getApplied() {
+        return applied;
+    }
+
+    /**
+     * Returns the number of keyframes kept so far.
+     * @return the number of keyframes
+     */
+    public int getKeyframes() {
+        return keyframes.size();
+    }
+
+    /**
+     * Checks whether every record of the journal has been applied.
+     * @return true at the end of the journal
+     */
+    public boolean isEnded() {
+        return ended && !pending;
+    }
+
+    /**
+     * Plays the rest of the journal at the playback rate.
+     * @return the number of records applied
+     * @throws IOException if the journal cannot be read
+     * @throws InterruptedException if the thread is interrupted while pacing the playback
+     */
+    public long play() throws IOException, InterruptedException {
+        return playUntil(Long.MAX_VALUE);
+    }
+
+    /**
+     * Plays the records up to a time at the playback rate.
+     * @param until the simulated time to stop at, the records of that time included
+     * @return the number of records applied
+     * @throws IOException if the journal cannot be read
+     * @throws InterruptedException if the thread is interrupted while pacing the playback
+     */
+    public long playUntil(long until) throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        long startTime = time;
+        long count = 0;
+        while (load() && reader.time() <= until) {
+            if (rate != FULL_SPEED) {
+                long waitNanos = startNanos + (long) ((reader.time() - startTime) * 1_000_000.0 / rate) - System.nanoTime();
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+            }
+            apply();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Brings the model to its state at a time, at full speed: from the nearest keyframe before it
+     * if the time is in the past or a keyframe is closer, then applying the records up to it.
+     * @param target the simulated time to go to
+     * @throws IOException if the journal cannot be read
+     */
+    public void seek(long target) throws IOException {
+        Keyframe keyframe = keyframes.get(0);
+        for (Keyframe candidate : keyframes) {
+            if (candidate.time > target) {
+                break;
+            }
+            keyframe = candidate;
+        }
+        if (target < time || keyframe.time > time) {
+            restore(keyframe);
+        }
+        while (load() && reader.time() <= target) {
+            apply();
+        }
+    }
+
+    /**
+     * Applies the next record of the journal, at once.
+     * @return false at the end of the journal
+     * @throws IOException if the journal cannot be read
+     */
+    public boolean step() throws IOException {
+        if (!load()) {
+            return false;
+        }
+        apply();
+        return true;
+    }
+
+    /**
+     * Reads the next record unless the last one read is still to be applied.
+     * @return true if a record is waiting to be applied
+     */
+    private boolean load() throws IOException {
+        if (!pending && !ended) {
+            pending = reader.next();
+            ended = !pending;
+        }
+        return pending;
+    }
+
+    /**
+     * Applies the record read to the model, then keeps a keyframe if the last one is old enough.
+     */
+    private void apply() {
+        pending = false;
+        time = reader.time();
+        int agent = reader.agent();
+        if (reader.name() != null) {
+            bind(agent, reader.name());
+        }
+        switch (reader.type()) {
+            case OBSTACLE_ADDED:
+                model.addObstacle(new Location(reader.x(), reader.y()));
+                obstaclesChanged = true;
+                break;
+            case OBSTACLE_REMOVED:
+                model.removeObstacle(new Location(reader.x(), reader.y()));
+                obstaclesChanged = true;
+                break;
+            case ROBOT_ADDED:
+                addAgent(agent, ROBOT, reader.x(), reader.y(), reader.value(), reader.detail());
+                break;
+            case HUMAN_ADDED:
+                addAgent(agent, HUMAN, reader.x(), reader.y(), 0, 0);
+                break;
+            case AGENT_REMOVED:
+                model.removeAgent(names[agent]);
+                break;
+            case MOVE:
+                move(agent, reader.x(), reader.y(), reader.x(), reader.y());
+                break;
+            case FLAG:
+                setFlag(agent, reader.detail(), reader.value() != 0);
+                break;
+            case PACKAGE_PICKED_UP:
+                setFlag(agent, DeliveryRobot.CARRYING_PACKAGE, true);
+                break;
+            case PACKAGE_DROPPED:
+                setFlag(agent, DeliveryRobot.CARRYING_PACKAGE, false);
+                break;
+            case BATTERY:
+                model.setRobotBattery(ids[agent], reader.value());
+                model.updateDeliveryRobotState(names[agent]);
+                break;
+            case STATION_ADDED:
+                model.addChargingStation(names[agent], new Location(reader.x(), reader.y()));
+                break;
+            case STATION_REMOVED:
+                model.removeChargingStation(names[agent]);
+                break;
+            default:
+                // the grid is only read when the replay starts
+                break;
+        }
+        applied++;
+        if (time - keyframes.get(keyframes.size() - 1).time >= keyframeInterval) {
+            keyframes.add(capture());
+        }
+    }
+
+    /**
+     * Gives the model id of a name to an agent id of the journal.
+     */
+    private void bind(int agent, String name) {
+        if (agent >= names.length) {
+            int previous = names.length;
+            int capacity = Math.max(agent + 1, previous * 2);
+            names = Arrays.copyOf(names, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            Arrays.fill(ids, previous, capacity, -1);
+        }
+        names[agent] = name;
+        ids[agent] = model.registerAgent(name);
+    }
+
+    private void addAgent(int agent, byte kind, int x, int y, int battery, int flags) {
+        Location location = new Location(x, y);
+        if (kind == ROBOT) {
+            DeliveryRobot robot = new DeliveryRobot(names[agent], battery, location);
+            for (int flag = flags; flag != 0; flag &= flag - 1) {
+                robot.getAndSetFlag(Integer.lowestOneBit(flag), true);
+            }
+            model.addDeliveryRobot(robot);
+        } else {
+            model.addHumanTechnician(new HumanTechnician(names[agent], location));
+        }
+    }
+
+    /**
+     * Places an agent on a cell of the grid and moves the agent object to a location, notifying the observers.
+     */
+    private void move(int agent, int gridX, int gridY, int x, int y) {
+        int id = ids[agent];
+        AbstractAgent moved = model.getAgentById(id);
+        if (gridX != -1) {
+            model.setAgPos(id, new Location(gridX, gridY));
+        }
+        if (moved != null) {
+            Location from = moved.getLocation();
+            model.updateDeliveryRobotLocation(names[agent], new Location(from.x, from.y), new Location(x, y));
+        }
+    }
+
+    private void setFlag(int agent, int flag, boolean value) {
+        model.setRobotFlag(ids[agent], flag, value);
+        model.updateDeliveryRobotState(names[agent]);
+    }
+
+    /**
+     * Copies the state of the model, positioned after the record last applied.
+     */
+    private Keyframe capture() {
+        Keyframe keyframe = new Keyframe(time, reader.position(), names.length);
+        for (int agent = 0; agent < names.length; agent++) {
+            AbstractAgent found = names[agent] != null ? model.getAgentById(ids[agent]) : null;
+            if (found == null) {
+                continue;
+            }
+            Location position = model.getAgPos(ids[agent]);
+            keyframe.kinds[agent] = found instanceof DeliveryRobot ? ROBOT : HUMAN;
+            keyframe.gridX[agent] = position != null ? position.x : -1;
+            keyframe.gridY[agent] = position != null ? position.y : -1;
+            keyframe.x[agent] = found.getLocation().x;
+            keyframe.y[agent] = found.getLocation().y;
+            if (found instanceof DeliveryRobot) {
+                keyframe.battery[agent] = ((DeliveryRobot) found).getBattery();
+                keyframe.flags[agent] = ((DeliveryRobot) found).getFlags();
+            }
+        }
+        keyframe.stations = model.getChargingStationLocations();
+        if (obstaclesChanged || keyframes.isEmpty()) {
+            keyframe.obstacles = new boolean[model.getWidth() * model.getHeight()];
+            for (int y = 0; y < model.getHeight(); y++) {
+                for (int x = 0; x < model.getWidth(); x++) {
+                    keyframe.obstacles[y * model.getWidth() + x] = model.getCells().hasAny(FactoryModel.OBSTACLE, x, y);
+                }
+            }
+            obstaclesChanged = false;
+        } else {
+            // unchanged since the previous keyframe, whose copy is shared
+            keyframe.obstacles = keyframes.get(keyframes.size() - 1).obstacles;
+        }
+        return keyframe;
+    }
+
+    /**
+     * Brings the model back to a keyframe, notifying the observers of what changes, and reads on from it.
+     */
+    private void restore(Keyframe keyframe) throws IOException {
+        int width = model.getWidth();
+        for (int y = 0; y < model.getHeight(); y++) {
+            for (int x = 0; x < width; x++) {
+                boolean obstacle = model.getCells().hasAny(FactoryModel.OBSTACLE, x, y);
+                if (obstacle != keyframe.obstacles[y * width + x]) {
+                    if (obstacle) {
+                        model.removeObstacle(new Location(x, y));
+                    } else {
+                        model.addObstacle(new Location(x, y));
+                    }
+                }
+            }
+        }
+        obstaclesChanged = true;
+
+        for (Map.Entry<String, Location> station : model.getChargingStationLocations().entrySet()) {
+            if (!station.getValue().equals(keyframe.stations.get(station.getKey()))) {
+                model.removeChargingStation(station.getKey());
+            }
+        }
+        Map<String, Location> stations = model.getChargingStationLocations();
+        for (Map.Entry<String, Location> station : keyframe.stations.entrySet()) {
+            if (!stations.containsKey(station.getKey())) {
+                model.addChargingStation(station.getKey(), station.getValue());
+            }
+        }
+
+        for (int agent = 0; agent < names.length; agent++) {
+            if (names[agent] == null) {
+                continue;
+            }
+            byte kind = agent < keyframe.kinds.length ? keyframe.kinds[agent] : ABSENT;
+            AbstractAgent current = model.getAgentById(ids[agent]);
+            // an agent not yet placed on the grid at the keyframe is added again to clear its cell
+            if (current != null && (kind == ABSENT || keyframe.gridX[agent] == -1 && model.getAgPos(ids[agent]) != null)) {
+                model.removeAgent(names[agent]);
+                current = null;
+            }
+            if (kind == ABSENT) {
+                continue;
+            }
+            if (current == null) {
+                addAgent(agent, kind, keyframe.x[agent], keyframe.y[agent], keyframe.battery[agent], keyframe.flags[agent]);
+            } else if (kind == ROBOT) {
+                DeliveryRobot robot = (DeliveryRobot) current;
+                model.setRobotBattery(ids[agent], keyframe.battery[agent]);
+                for (int flag = robot.getFlags() ^ keyframe.flags[agent]; flag != 0; flag &= flag - 1) {
+                    int changed = Integer.lowestOneBit(flag);
+                    model.setRobotFlag(ids[agent], changed, (keyframe.flags[agent] & changed) != 0);
+                }
+                model.updateDeliveryRobotState(names[agent]);
+            }
+            move(agent, keyframe.gridX[agent], keyframe.gridY[agent], keyframe.x[agent], keyframe.y[agent]);
+        }
+
+        reader.seek(keyframe.position);
+        time = keyframe.time;
+        pending = false;
+        ended = false;
+    }
+
+    @Override
+    public void close() {
+        reader.close();
+    }
+
+    /**
+     * Replays a journal, with the options {@code journal=<directory>}, {@code rate=<factor|max>} (default max),
+     * {@code from=<ms>} and {@code until=<ms>} to replay a part of the run, {@code gui} to show the factory view
+     * and {@code metrics.port=<port>} to serve the metrics of the model, then prints what was replayed.
+     * @param args the options of the replay
+     * @throws Exception if the journal cannot be replayed
+     */
+    public static void main(String[] args) throws Exception {
+        FactoryConfig config = FactoryConfig.parse(args);
+        if (!config.has("journal")) {
+            System.err.println("Usage: JournalReplay journal=<directory> [rate=<factor|max>] [from=<ms>] [until=<ms>] [gui] [metrics.port=<port>]");
+            System.exit(2);
+        }
+        try (JournalReplay replay = new JournalReplay(Paths.get(config.get("journal", "")))) {
+            MetricsRegistry metrics = new MetricsRegistry();
+            MetricsRegistry.install(metrics);
+            replay.getModel().setMetrics(metrics);
+            MetricsExporter exporter = MetricsExporter.fromConfig(config, metrics);
+            try {
+                exporter.registerMBean();
+            } catch (JMException e) {
+                System.err.println("Cannot register the metrics MBean: " + e.getMessage());
+            }
+            exporter.startHttp();
+            if (config.hasFlag("gui")) {
+                new FactoryView(replay.getModel());
+            }
+
+            String rate = config.get("rate", "max").trim().toLowerCase(Locale.ROOT);
+            if (config.has("from")) {
+                replay.seek(config.getLong("from", 0L));
+            }
+            replay.setRate(rate.equals("max") ? FULL_SPEED : Double.parseDouble(rate));
+            long start = replay.getTime();
+            long startNanos = System.nanoTime();
+            long records = replay.playUntil(config.getLong("until", Long.MAX_VALUE));
+            long wallMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            System.out.printf(Locale.ROOT, "Replayed %d records, %.1f simulated seconds in %d ms%n",
+                records, (replay.getTime() - start) / 1000.0, wallMillis);
+            exporter.close();
+        }
+    }
+
+    /**
+     * The state of the model at a time: the agents by journal id, the charging stations and the obstacles,
+     * and the position of the reader after the record of that time.
+     */
+    private static final class Keyframe {
+        final long time;
+        final long position;
+        final byte[] kinds;
+        final int[] gridX;
+        final int[] gridY;
+        final int[] x;
+        final int[] y;
+        final int[] battery;
+        final int[] flags;
+        Map<String, Location> stations;
+        boolean[] obstacles;
+
+        Keyframe(long time, long position, int agents) {
+            this.time = time;
+            this.position = position;
+            this.kinds = new byte[agents];
+            this.gridX = new int[agents];
+            this.gridY = new int[agents];
+            this.x = new int[agents];
+            this.y = new int[agents];
+            this.battery = new int[agents];
+            this.flags = new int[agents];
+        }
+    }
+}
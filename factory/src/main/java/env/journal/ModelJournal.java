@@ -0,0 +1,429 @@
+package env.journal;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import env.FactoryConfig;
+import env.SimulationClock;
+
+/**
+ * ModelJournal is the append-only binary journal of the changes of a {@link env.FactoryModel}.
+ * <p>
+ * Each change is a record of {@link #RECORD_BYTES} bytes, stamped with the simulated time, written straight
+ * into a memory-mapped segment file: appending a record does not allocate and does not call the operating system.
+ * When a segment is full the journal rolls over to the next one, named {@code segment-<index>.journal},
+ * each segment starting with a {@link RecordType#HEADER} record. What was appended survives a crash of the process,
+ * the space of a segment not yet written reading as {@link RecordType#END}.
+ * <p>
+ * Appends do not lock: each one reserves the space of its records with an atomic add on the write offset of the
+ * current segment, so that concurrent appends write side by side, in the order of their reservations.
+ * The append whose reservation crosses the end of the segment rolls over to the next one,
+ * the appends reserving after it waiting for the new segment.
+ * <p>
+ * Record layout, little-endian: the simulated time in milliseconds (long), the {@link RecordType} code (byte),
+ * the length of a name chunk (byte), two unused bytes, then five ints: the agent id, the x and y of a cell and
+ * a value and a detail, see {@link RecordType}. The type is written last, so that a record torn by a crash reads as the end.
+ */
+public final class ModelJournal implements AutoCloseable {
+    /** Size of a record in bytes. */
+    public static final int RECORD_BYTES = 32;
+    /** Bytes of a name carried by each {@link RecordType#NAME} record. */
+    public static final int NAME_CHUNK_BYTES = 16;
+    /** Value of the header records, "FJRN". */
+    public static final int MAGIC = 0x4E524A46;
+    /** Version of the record layout. */
+    public static final int VERSION = 1;
+    /** Default size of a segment, in megabytes. */
+    public static final int DEFAULT_SEGMENT_MB = 64;
+    static final int TIME = 0;
+    static final int TYPE = 8;
+    static final int LENGTH = 9;
+    static final int AGENT = 12;
+    static final int X = 16;
+    static final int Y = 20;
+    static final int VALUE = 24;
+    static final int DETAIL = 28;
+    static final String SEGMENT_PREFIX = "segment-";
+    static final String SEGMENT_SUFFIX = ".journal";
+    private static final ModelJournal DISABLED = new ModelJournal();
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final SimulationClock clock;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    /** The segment appended to, null once the journal is closed or failed. */
+    private final AtomicReference<Segment> current = new AtomicReference<>();
+    private volatile int segments;
+    private volatile IOException failure;
+
+    /**
+     * Constructs the disabled journal.
+     */
+    private ModelJournal() {
+        this.directory = null;
+        this.segmentBytes = 0;
+        this.clock = null;
+    }
+
+    /**
+     * Constructs a ModelJournal writing its segments to a directory, which must not hold a journal already.
+     * @param directory the directory of the segments, created if needed
+     * @param segmentBytes the size of a segment, rounded down to a whole number of records
+     * @param clock the clock stamping the records
+     * @throws IllegalArgumentException if a segment cannot hold two records or is larger than 2 GB
+     * @throws IOException if the first segment cannot be created
+     */
+    public ModelJournal(Path directory, long segmentBytes, SimulationClock clock) throws IOException {
+        if (segmentBytes < 2 * RECORD_BYTES || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal segments must be between " + 2 * RECORD_BYTES + " bytes and 2 GB but were " + segmentBytes + " bytes");
+        }
+        this.directory = directory;
+        this.segmentBytes = (int) (segmentBytes - segmentBytes % RECORD_BYTES);
+        this.clock = clock;
+        Files.createDirectories(directory);
+        current.set(open(0));
+    }
+
+    /**
+     * Returns a journal that records nothing.
+     * @return the disabled journal
+     */
+    public static ModelJournal disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Creates the journal described by the configuration: {@code journal=<directory>} writes the segments to the directory
+     * and {@code journal.segment=<MB>} sets their size (default {@value #DEFAULT_SEGMENT_MB}).
+     * @param config the configuration of the run
+     * @param clock the clock stamping the records
+     * @return the configured journal, disabled if no directory is given
+     * @throws IllegalArgumentException if the segment size is not valid
+     * @throws IOException if the first segment cannot be created, for instance because the directory already holds a journal
+     */
+    public static ModelJournal fromConfig(FactoryConfig config, SimulationClock clock) throws IOException {
+        if (!config.has("journal")) {
+            return disabled();
+        }
+        int megabytes = config.getInt("journal.segment", DEFAULT_SEGMENT_MB);
+        if (megabytes <= 0 || megabytes > 2047) {
+            throw new IllegalArgumentException("Journal segments must be between 1 and 2047 MB but were " + megabytes + " MB");
+        }
+        return new ModelJournal(Paths.get(config.get("journal", "")), (long) megabytes << 20, clock);
+    }
+
+    /**
+     * Checks whether the journal records the changes.
+     * @return false for the disabled journal
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Returns the directory of the segments.
+     * @return the directory, or null for the disabled journal
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Appends a record stamped with the current simulated time.
+     * Once the journal is closed, or after it failed to roll over, records are dropped and counted.
+     * @param type the kind of the record
+     * @param agent the id of the agent, -1 if none
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @param value the value of the record
+     * @param detail the detail of the record
+     */
+    public void append(RecordType type, int agent, int x, int y, int value, int detail) {
+        if (directory == null) {
+            return;
+        }
+        appendRecords(type, null, agent, x, y, value, detail);
+    }
+
+    /**
+     * Appends a record of an agent preceded by the {@link RecordType#NAME} records of its name, none interleaving.
+     * @param type the kind of the record
+     * @param name the name of the agent
+     * @param agent the id of the agent
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @param value the value of the record
+     * @param detail the detail of the record
+     */
+    public void append(RecordType type, String name, int agent, int x, int y, int value, int detail) {
+        if (directory == null) {
+            return;
+        }
+        appendRecords(type, name.getBytes(StandardCharsets.UTF_8), agent, x, y, value, detail);
+    }
+
+    /**
+     * Reserves the space of the name records and of the record in the current segment and writes them,
+     * rolling over if the reservation crosses the end of the segment.
+     */
+    private void appendRecords(RecordType type, byte[] name, int agent, int x, int y, int value, int detail) {
+        int count = chunks(name) + 1;
+        int bytes = count * RECORD_BYTES;
+        while (true) {
+            Segment segment = current.get();
+            if (segment == null) {
+                dropped.add(count);
+                return;
+            }
+            long start = segment.next.getAndAdd(bytes);
+            if (start + bytes <= segmentBytes) {
+                write(segment, (int) start, 0, count, type, name, agent, x, y, value, detail);
+                return;
+            }
+            if (start <= segmentBytes) {
+                rollOver(segment, (int) start, count, type, name, agent, x, y, value, detail);
+                return;
+            }
+            // another append is rolling over
+            while (current.get() == segment) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Writes the end of a segment and moves to the next one: the records of the reservation that fit go at the end
+     * of the segment, which is closed once the appends reserved before are written, and the others in the next
+     * segments, which the other appends only see once they are written.
+     */
+    private void rollOver(Segment segment, int start, int count, RecordType type, byte[] name, int agent, int x, int y, int value, int detail) {
+        int written = (segmentBytes - start) / RECORD_BYTES;
+        write(segment, start, 0, written, type, name, agent, x, y, value, detail);
+        segment.await(segmentBytes);
+        Segment next = null;
+        try {
+            segment.close(segmentBytes);
+            int capacity = segmentBytes / RECORD_BYTES - 1;
+            next = open(segment.index + 1);
+            while (count - written > capacity) {
+                write(next, RECORD_BYTES, written, capacity, type, name, agent, x, y, value, detail);
+                written += capacity;
+                next.close(segmentBytes);
+                next = open(next.index + 1);
+            }
+            int rest = count - written;
+            next.next.set(RECORD_BYTES + rest * RECORD_BYTES);
+            write(next, RECORD_BYTES, written, rest, type, name, agent, x, y, value, detail);
+            written = count;
+            if (!current.compareAndSet(segment, next)) {
+                // closed meanwhile: keep what was written
+                next.close(next.written.get());
+            }
+        } catch (IOException e) {
+            failure = e;
+            dropped.add(count - written);
+            current.compareAndSet(segment, null);
+            if (next != null) {
+                next.closeQuietly();
+            }
+        } finally {
+            segment.retired = true;
+        }
+    }
+
+    /**
+     * Writes records of an append from a position of a segment, in the space reserved for them.
+     * @param from the index of the first record, the name records coming before the record itself
+     * @param count the number of records to write
+     */
+    private void write(Segment segment, int start, int from, int count, RecordType type, byte[] name, int agent, int x, int y, int value, int detail) {
+        MappedByteBuffer buffer = segment.buffer;
+        int chunks = chunks(name);
+        for (int i = from; i < from + count; i++, start += RECORD_BYTES) {
+            if (i < chunks) {
+                int offset = i * NAME_CHUNK_BYTES;
+                int length = Math.min(NAME_CHUNK_BYTES, name.length - offset);
+                stamp(buffer, start, length, agent);
+                buffer.put(start + X, name, offset, length);
+                buffer.put(start + TYPE, (byte) RecordType.NAME.ordinal());
+            } else {
+                put(buffer, start, type, agent, x, y, value, detail);
+            }
+        }
+        records.add(count);
+        segment.written.addAndGet(count * RECORD_BYTES);
+    }
+
+    private static int chunks(byte[] name) {
+        return name == null ? 0 : (name.length + NAME_CHUNK_BYTES - 1) / NAME_CHUNK_BYTES;
+    }
+
+    /**
+     * Writes a record at an offset of a segment, the type last, which makes it readable.
+     */
+    private void put(MappedByteBuffer buffer, int start, RecordType type, int agent, int x, int y, int value, int detail) {
+        stamp(buffer, start, 0, agent);
+        buffer.putInt(start + X, x);
+        buffer.putInt(start + Y, y);
+        buffer.putInt(start + VALUE, value);
+        buffer.putInt(start + DETAIL, detail);
+        buffer.put(start + TYPE, (byte) type.ordinal());
+    }
+
+    /**
+     * Writes the time, the name length and the agent of a record at an offset of a segment.
+     */
+    private void stamp(MappedByteBuffer buffer, int start, int length, int agent) {
+        buffer.putLong(start + TIME, clock.currentTimeMillis());
+        buffer.put(start + LENGTH, (byte) length);
+        buffer.putInt(start + AGENT, agent);
+    }
+
+    /**
+     * Creates and maps a segment, starting with its header.
+     * @param index the index of the segment
+     * @return the segment, the next record going after the header
+     * @throws IOException if the segment cannot be created
+     */
+    private Segment open(int index) throws IOException {
+        Path file = directory.resolve(segmentName(index));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        Segment segment = new Segment(index, channel, buffer);
+        segments = index + 1;
+        put(buffer, 0, RecordType.HEADER, index, RECORD_BYTES, 0, MAGIC, VERSION);
+        records.increment();
+        segment.next.set(RECORD_BYTES);
+        segment.written.set(RECORD_BYTES);
+        return segment;
+    }
+
+    /**
+     * Returns the name of the file of a segment, which sorts in segment order.
+     * @param index the index of the segment
+     * @return the file name
+     */
+    static String segmentName(int index) {
+        return String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Returns the number of records appended, headers and names included.
+     * @return the number of records written
+     */
+    public long getRecords() {
+        return records.sum();
+    }
+
+    /**
+     * Returns the number of segments written so far.
+     * @return the number of segments
+     */
+    public int getSegments() {
+        return segments;
+    }
+
+    /**
+     * Returns the number of records dropped because the journal was closed or could not roll over.
+     * @return the number of dropped records
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the error that stopped the journal.
+     * @return the error raised when rolling over to a new segment, or null if the journal did not fail
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Flushes the current segment to disk, trimmed to its records, and stops recording.
+     * @throws IOException if the segment cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        Segment segment = current.getAndSet(null);
+        if (segment == null) {
+            return;
+        }
+        // reserving the rest of the segment keeps the appends still coming out of it
+        long end = segment.next.getAndAdd(segmentBytes);
+        if (end > segmentBytes) {
+            // an append is rolling over and closes the segment
+            while (!segment.retired) {
+                Thread.yield();
+            }
+            return;
+        }
+        segment.await((int) end);
+        segment.close((int) end);
+    }
+
+    /**
+     * A mapped segment file, with the offset of its next record and the number of bytes of records written so far.
+     */
+    private static final class Segment {
+        final int index;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        /** Offset of the next reservation, beyond the end of the segment once it is full. */
+        final AtomicLong next = new AtomicLong();
+        final AtomicInteger written = new AtomicInteger();
+        /** Set once an append rolled over from the segment. */
+        volatile boolean retired;
+
+        Segment(int index, FileChannel channel, MappedByteBuffer buffer) {
+            this.index = index;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Waits for the appends that reserved space before an offset to be written.
+         */
+        void await(int end) {
+            while (written.get() < end) {
+                Thread.onSpinWait();
+            }
+        }
+
+        /**
+         * Flushes the segment to disk and trims it to its records.
+         */
+        void close(int end) throws IOException {
+            try {
+                buffer.force();
+                channel.truncate(end);
+            } finally {
+                channel.close();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // the journal already failed
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package env.journal;
+
+/**
+ * The kinds of record of a {@link ModelJournal}. The code of a kind, written in each record, is its ordinal,
+ * so new kinds are only ever added at the end.
+ * <p>
+ * Every record holds the simulated time, an agent id, a cell and two values, whose meaning depends on the kind.
+ */
+public enum RecordType {
+    /** Unwritten space: the end of a segment. */
+    END,
+    /** First record of a segment: agent is the segment index, x the record size, value {@link ModelJournal#MAGIC} and detail {@link ModelJournal#VERSION}. */
+    HEADER,
+    /** Up to {@link ModelJournal#NAME_CHUNK_BYTES} UTF-8 bytes of the name of the agent of the next record. */
+    NAME,
+    /** Size of the grid: x is its width and y its height. */
+    GRID,
+    /** An obstacle placed on the cell. */
+    OBSTACLE_ADDED,
+    /** An obstacle removed from the cell. */
+    OBSTACLE_REMOVED,
+    /** A delivery robot added on the cell: value is its battery level and detail its flags. */
+    ROBOT_ADDED,
+    /** A human technician added on the cell. */
+    HUMAN_ADDED,
+    /** An agent now standing on the cell: value and detail are the x and y of its previous cell, -1 if it had none. */
+    MOVE,
+    /** A status flag of a robot standing on the cell changed: value is 1 if it is now set and 0 otherwise, detail the flag. */
+    FLAG,
+    /** A robot standing on the cell picked up a package. */
+    PACKAGE_PICKED_UP,
+    /** A robot standing on the cell dropped its package. */
+    PACKAGE_DROPPED,
+    /** The battery of a robot standing on the cell changed: value is the new level and detail the previous one. */
+    BATTERY,
+    /** A charging station added on the cell. */
+    STATION_ADDED,
+    /** A charging station removed from the cell. */
+    STATION_REMOVED,
+    /** An agent standing on the cell removed from the model. */
+    AGENT_REMOVED;
+
+    private static final RecordType[] CODES = values();
+
+    /**
+     * Returns the kind written with a code.
+     * @param code the code read from a record
+     * @return the kind of the record
+     * @throws IllegalArgumentException if no kind has this code
+     */
+    public static RecordType of(int code) {
+        if (code < 0 || code >= CODES.length) {
+            throw new IllegalArgumentException("Unknown journal record type " + code);
+        }
+        return CODES[code];
+    }
+}
@@ -0,0 +1,472 @@
+package env.log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import env.FactoryConfig;
+
+/**
+ * EventLog is the structured, asynchronous log of the factory environment.
+ * <p>
+ * Agent threads only copy a message template and its arguments into a slot of a bounded
+ * ring buffer; a single background thread formats the events and writes them to a file
+ * (or to the console). Only immutable arguments (strings, boxed primitives, enums and throwables)
+ * are kept by reference: any other argument, such as a {@code Location} or a {@code Structure},
+ * may change before the writer gets to it, so it is turned into a string by the calling thread. Each {@link LogCategory} has its own {@link LogLevel}: when an event
+ * is filtered out the call returns after one array read, without building any string.
+ * When the buffer is full new events are dropped and counted instead of blocking the agents.
+ * <p>
+ * Templates use {@code {}} as placeholder for the next argument. A {@link Throwable} passed
+ * after the last placeholder is written with its stack trace.
+ */
+public final class EventLog implements AutoCloseable {
+    /** Default number of slots of the ring buffer. */
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final long IDLE_PARK_NANOS = 50_000_000L;
+    private static final EventLog DISABLED = new EventLog(new EnumMap<>(LogCategory.class), LogLevel.OFF, null, 2, false);
+    private static EventLog console;
+
+    private volatile int[] thresholds;
+    private final Slot[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final int mask;
+    private final Writer out;
+    private final boolean closeOutput;
+    private long head;
+    private volatile long writtenUpTo;
+    private volatile Thread writerThread;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs an EventLog.
+     *
+     * @param levels       the level of each category
+     * @param defaultLevel the level of the categories missing from {@code levels}
+     * @param out          the destination of the events, or null to discard them
+     * @param capacity     the number of slots of the ring buffer, rounded up to a power of two
+     * @param closeOutput  whether {@code out} must be closed with the log
+     */
+    public EventLog(Map<LogCategory, LogLevel> levels, LogLevel defaultLevel, Writer out, int capacity, boolean closeOutput) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.out = out;
+        this.closeOutput = closeOutput;
+
+        int[] initial = new int[LogCategory.values().length];
+        for (LogCategory category : LogCategory.values()) {
+            initial[category.ordinal()] = (out == null ? LogLevel.OFF : levels.getOrDefault(category, defaultLevel)).ordinal();
+        }
+        this.thresholds = initial;
+    }
+
+    /**
+     * Returns a log that records nothing.
+     *
+     * @return the disabled log
+     */
+    public static EventLog disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Returns the shared log that writes warnings and errors of every category to the console.
+     * It is used when no log option is configured, so that problems are still reported.
+     *
+     * @return the shared console log
+     */
+    public static synchronized EventLog console() {
+        if (console == null) {
+            Writer stderr = new BufferedWriter(new OutputStreamWriter(System.err, StandardCharsets.UTF_8));
+            console = new EventLog(new EnumMap<>(LogCategory.class), LogLevel.WARN, stderr, DEFAULT_CAPACITY, false);
+        }
+        return console;
+    }
+
+    /**
+     * Creates the log described by the configuration:
+     * <ul>
+     *   <li>{@code log} - the file to write to, {@code stderr} for the console or {@code off};</li>
+     *   <li>{@code log.level} - the level of every category (default INFO when writing to a file);</li>
+     *   <li>{@code log.level.<CATEGORY>} - the level of a single category;</li>
+     *   <li>{@code log.capacity} - the number of slots of the ring buffer.</li>
+     * </ul>
+     *
+     * @param config the configuration of the run
+     * @return the configured log
+     * @throws IOException if the log file cannot be opened
+     */
+    public static EventLog fromConfig(FactoryConfig config) throws IOException {
+        Map<String, String> categoryLevels = config.withPrefix("log.level.");
+        if (!config.has("log") && !config.has("log.level") && categoryLevels.isEmpty()) {
+            return console();
+        }
+
+        String target = config.get("log", "stderr");
+        if (target.equalsIgnoreCase("off")) {
+            return disabled();
+        }
+
+        LogLevel defaultLevel = parseLevel(config.get("log.level", "INFO"));
+        Map<LogCategory, LogLevel> levels = new EnumMap<>(LogCategory.class);
+        for (Map.Entry<String, String> entry : categoryLevels.entrySet()) {
+            levels.put(LogCategory.valueOf(entry.getKey().toUpperCase(Locale.ROOT)), parseLevel(entry.getValue()));
+        }
+
+        int capacity = config.getInt("log.capacity", DEFAULT_CAPACITY);
+        if (target.equalsIgnoreCase("stderr")) {
+            Writer stderr = new BufferedWriter(new OutputStreamWriter(System.err, StandardCharsets.UTF_8));
+            return new EventLog(levels, defaultLevel, stderr, capacity, false);
+        }
+        Path path = Paths.get(target);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        return new EventLog(levels, defaultLevel, Files.newBufferedWriter(path, StandardCharsets.UTF_8), capacity, true);
+    }
+
+    private static LogLevel parseLevel(String value) {
+        return LogLevel.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Checks whether events of the given category and level are recorded.
+     *
+     * @param category the category of the event
+     * @param level    the level of the event
+     * @return true if the event would be recorded
+     */
+    public boolean isEnabled(LogCategory category, LogLevel level) {
+        return level != LogLevel.OFF && level.ordinal() <= thresholds[category.ordinal()];
+    }
+
+    /**
+     * Changes the level of a category at runtime.
+     *
+     * @param category the category to change
+     * @param level    the new level
+     */
+    public synchronized void setLevel(LogCategory category, LogLevel level) {
+        if (out == null) {
+            return;
+        }
+        int[] updated = thresholds.clone();
+        updated[category.ordinal()] = level.ordinal();
+        thresholds = updated;
+    }
+
+    /**
+     * Returns the number of events dropped because the ring buffer was full.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Records an event without arguments.
+     *
+     * @param category the category of the event
+     * @param level    the level of the event
+     * @param template the message
+     */
+    public void log(LogCategory category, LogLevel level, String template) {
+        if (isEnabled(category, level)) {
+            publish(category, level, template, null, null, null, null);
+        }
+    }
+
+    /**
+     * Records an event with 1 argument. The message is only formatted by the writer thread.
+     *
+     * @param category the category of the event
+     * @param level    the level of the event
+     * @param template the message, with a {} placeholder per argument
+     */
+    public void log(LogCategory category, LogLevel level, String template, Object a0) {
+        if (isEnabled(category, level)) {
+            publish(category, level, template, a0, null, null, null);
+        }
+    }
+
+    /**
+     * Records an event with 2 arguments. The message is only formatted by the writer thread.
+     *
+     * @param category the category of the event
+     * @param level    the level of the event
+     * @param template the message, with a {} placeholder per argument
+     */
+    public void log(LogCategory category, LogLevel level, String template, Object a0, Object a1) {
+        if (isEnabled(category, level)) {
+            publish(category, level, template, a0, a1, null, null);
+        }
+    }
+
+    /**
+     * Records an event with 3 arguments. The message is only formatted by the writer thread.
+     *
+     * @param category the category of the event
+     * @param level    the level of the event
+     * @param template the message, with a {} placeholder per argument
+     */
+    public void log(LogCategory category, LogLevel level, String template, Object a0, Object a1, Object a2) {
+        if (isEnabled(category, level)) {
+            publish(category, level, template, a0, a1, a2, null);
+        }
+    }
+
+    /**
+     * Records an event with 4 arguments. The message is only formatted by the writer thread.
+     *
+     * @param category the category of the event
+     * @param level    the level of the event
+     * @param template the message, with a {} placeholder per argument
+     */
+    public void log(LogCategory category, LogLevel level, String template, Object a0, Object a1, Object a2, Object a3) {
+        if (isEnabled(category, level)) {
+            publish(category, level, template, a0, a1, a2, a3);
+        }
+    }
+
+    /**
+     * Claims a slot of the ring buffer and copies the event into it.
+     * Producers never block: if the writer has fallen a whole buffer behind, the event is dropped.
+     */
+    private void publish(LogCategory category, LogLevel level, String template, Object a0, Object a1, Object a2, Object a3) {
+        long position = tail.get();
+        int index;
+        while (true) {
+            index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                dropped.increment();
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+
+        Slot slot = slots[index];
+        slot.timestamp = System.currentTimeMillis();
+        slot.category = category;
+        slot.level = level;
+        slot.template = template;
+        slot.a0 = snapshot(a0);
+        slot.a1 = snapshot(a1);
+        slot.a2 = snapshot(a2);
+        slot.a3 = snapshot(a3);
+        sequences.set(index, position + 1);
+
+        Thread writer = writerThread;
+        if (writer == null) {
+            startWriter();
+        } else if (position - head > (mask >> 1)) {
+            // wake the writer early when the buffer is filling up
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Returns an argument the writer thread can format later: the argument itself if it is immutable,
+     * its string form otherwise, so that a later change of a mutable argument is not logged torn or stale.
+     */
+    private static Object snapshot(Object argument) {
+        if (argument == null || argument instanceof String || argument instanceof Number || argument instanceof Boolean
+                || argument instanceof Character || argument instanceof Enum || argument instanceof Throwable) {
+            return argument;
+        }
+        return String.valueOf(argument);
+    }
+
+    /**
+     * Starts the background writer on the first recorded event.
+     */
+    private synchronized void startWriter() {
+        if (writerThread == null && running) {
+            Thread thread = new Thread(this::runWriter, "factory-event-log");
+            thread.setDaemon(true);
+            writerThread = thread;
+            thread.start();
+        }
+    }
+
+    private void runWriter() {
+        StringBuilder line = new StringBuilder(256);
+        while (running) {
+            if (drain(line) == 0) {
+                flushQuietly();
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        drain(line);
+        flushQuietly();
+    }
+
+    /**
+     * Formats and writes every published event.
+     *
+     * @param line the buffer used to format each event
+     * @return the number of events written
+     */
+    private int drain(StringBuilder line) {
+        int written = 0;
+        while (true) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                writtenUpTo = head;
+                return written;
+            }
+            Slot slot = slots[index];
+            line.setLength(0);
+            format(slot, line);
+            slot.clear();
+            sequences.set(index, head + mask + 1);
+            head++;
+            written++;
+            try {
+                out.write(line.toString());
+            } catch (IOException e) {
+                dropped.increment();
+            }
+        }
+    }
+
+    private static void format(Slot slot, StringBuilder line) {
+        line.append(Instant.ofEpochMilli(slot.timestamp)).append(' ')
+            .append(slot.level).append(' ')
+            .append(slot.category).append(' ');
+
+        Object[] args = {slot.a0, slot.a1, slot.a2, slot.a3};
+        int next = 0;
+        String template = slot.template;
+        int from = 0;
+        int placeholder;
+        while ((placeholder = template.indexOf("{}", from)) >= 0) {
+            line.append(template, from, placeholder).append(next < args.length ? args[next++] : "{}");
+            from = placeholder + 2;
+        }
+        line.append(template, from, template.length());
+
+        for (int i = next; i < args.length; i++) {
+            if (args[i] instanceof Throwable) {
+                StringWriter trace = new StringWriter();
+                ((Throwable) args[i]).printStackTrace(new PrintWriter(trace));
+                line.append(System.lineSeparator()).append(trace.toString().stripTrailing());
+            }
+        }
+        line.append(System.lineSeparator());
+    }
+
+    private void flushQuietly() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            // nothing sensible left to report to
+        }
+    }
+
+    /**
+     * Stops the writer after it has written every pending event, and closes the output file.
+     * The shared console log keeps running, since other environments may still use it,
+     * but the events recorded so far are written out and flushed before returning.
+     */
+    @Override
+    public synchronized void close() {
+        if (out == null) {
+            return;
+        }
+        if (this == console) {
+            awaitWritten(tail.get());
+            flushQuietly();
+            return;
+        }
+        running = false;
+        Thread writer = writerThread;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            drain(new StringBuilder());
+            flushQuietly();
+        }
+        try {
+            if (getDroppedCount() > 0) {
+                out.write("event log dropped " + getDroppedCount() + " events because the buffer was full" + System.lineSeparator());
+            }
+            if (closeOutput) {
+                out.close();
+            } else {
+                out.flush();
+            }
+        } catch (IOException e) {
+            // nothing sensible left to report to
+        }
+    }
+
+    /**
+     * Waits, for a few seconds at most, until the writer has written the events recorded before a position.
+     */
+    private void awaitWritten(long position) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        Thread writer = writerThread;
+        while (writer != null && writer.isAlive() && writtenUpTo < position && System.nanoTime() < deadline) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(1_000_000L);
+        }
+    }
+
+    /**
+     * A preallocated ring buffer entry.
+     */
+    private static final class Slot {
+        private long timestamp;
+        private LogCategory category;
+        private LogLevel level;
+        private String template;
+        private Object a0;
+        private Object a1;
+        private Object a2;
+        private Object a3;
+
+        private void clear() {
+            template = null;
+            a0 = null;
+            a1 = null;
+            a2 = null;
+            a3 = null;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package env.log;
+
+/**
+ * Area of the simulation an environment event comes from.
+ * Each category has its own level, so e.g. movement can be traced without
+ * recording every action.
+ */
+public enum LogCategory {
+    /** Actions executed by agents in the environment. */
+    ACTION,
+    /** Movement decisions taken by the movement manager. */
+    MOVEMENT,
+    /** Changes to the factory model (agents, stations, obstacles). */
+    MODEL,
+    /** Percepts published to the agents. */
+    PERCEPT,
+    /** Lifecycle of the environment itself. */
+    SYSTEM
+}
@@ -0,0 +1,13 @@
+package env.log;
+
+/**
+ * Severity of an environment event, from the most to the least important.
+ * A category configured at a given level records that level and every more important one.
+ */
+public enum LogLevel {
+    OFF,
+    ERROR,
+    WARN,
+    INFO,
+    DEBUG
+}
@@ -0,0 +1,110 @@
+package env.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The series of a {@link MetricsRegistry} aggregating the reasoning of all the agents of a type,
+ * such as {@code delivery_robot} or {@code charging_station}: the duration of their reasoning cycles,
+ * the sum of their mailbox depths, intentions and events as gauges, and the messages they send
+ * by performative and content, broadcasts apart.
+ */
+public final class AgentTypeMetrics {
+    private final MetricsRegistry registry;
+    private final String type;
+    private final LatencyHistogram cycleTime;
+    private final LongAdder agents;
+    private final LongAdder mailbox;
+    private final LongAdder runningIntentions;
+    private final LongAdder pendingIntentions;
+    private final LongAdder events;
+    private final Map<String, LongAdder> messages = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs the AgentTypeMetrics of a type of agent.
+     * @param registry the registry receiving the metrics
+     * @param type the type of the agents
+     */
+    public AgentTypeMetrics(MetricsRegistry registry, String type) {
+        this.registry = registry;
+        this.type = type;
+        this.cycleTime = registry.histogram("factory_reasoning_cycle_seconds", "type", type);
+        this.agents = registry.gauge("factory_agents", "type", type);
+        this.mailbox = registry.gauge("factory_agent_mailbox_depth", "type", type);
+        this.runningIntentions = registry.gauge("factory_agent_intentions", "type", type, "state", "running");
+        this.pendingIntentions = registry.gauge("factory_agent_intentions", "type", type, "state", "pending");
+        this.events = registry.gauge("factory_agent_events", "type", type);
+    }
+
+    /**
+     * Returns the type of an agent: the name of its AgentSpeak source without the extension,
+     * or its name without the trailing number if the source is unknown.
+     * @param aslSource the AgentSpeak source of the agent, possibly null
+     * @param agName the name of the agent
+     * @return the type of the agent
+     */
+    public static String typeOf(String aslSource, String agName) {
+        if (aslSource != null && !aslSource.isBlank()) {
+            String file = aslSource.substring(Math.max(aslSource.lastIndexOf('/'), aslSource.lastIndexOf('\\')) + 1);
+            int extension = file.lastIndexOf('.');
+            return extension > 0 ? file.substring(0, extension) : file;
+        }
+        String name = agName == null ? "unknown" : agName.replaceAll("_?[0-9]+$", "");
+        return name.isEmpty() ? "unknown" : name;
+    }
+
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Records an agent of this type starting or stopping.
+     * @param delta 1 when an agent starts, -1 when it stops
+     */
+    public void agents(int delta) {
+        agents.add(delta);
+    }
+
+    /**
+     * Records the duration of a reasoning cycle.
+     * @param nanos the duration in nanoseconds
+     */
+    public void cycle(long nanos) {
+        cycleTime.record(nanos);
+    }
+
+    /**
+     * Adds the changes of the queues of an agent since its previous report.
+     * @param mailboxDelta the change of the number of messages waiting in its mailbox
+     * @param runningDelta the change of the number of its intentions ready to run
+     * @param pendingDelta the change of the number of its intentions suspended, e.g. waiting for a reply or an action
+     * @param eventsDelta the change of the number of its events waiting to be handled
+     */
+    public void queues(int mailboxDelta, int runningDelta, int pendingDelta, int eventsDelta) {
+        mailbox.add(mailboxDelta);
+        runningIntentions.add(runningDelta);
+        pendingIntentions.add(pendingDelta);
+        events.add(eventsDelta);
+    }
+
+    /**
+     * Records a message sent by an agent of this type.
+     * @param performative the performative of the message, such as {@code tell} or {@code askOne}
+     * @param content the functor of the content of the message
+     * @param broadcast whether the message was broadcast to every agent
+     */
+    public void sent(String performative, String content, boolean broadcast) {
+        String key = (broadcast ? "b" : "s") + '/' + performative + '/' + content;
+        LongAdder counter = messages.get(key);
+        if (counter == null) {
+            counter = messages.computeIfAbsent(key, k -> registry.counter(broadcast ? "factory_agent_broadcasts" : "factory_agent_messages",
+                "type", type, "performative", String.valueOf(performative), "content", content));
+        }
+        counter.increment();
+    }
+}
@@ -0,0 +1,27 @@
+package env.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import jason.architecture.AgArch;
+
+/**
+ * Agent architecture counting the reasoning cycles of the agents that use it, reported by the run summary.
+ * It is selected for an agent in the {@code .mas2j} with {@code agentArchClass env.metrics.CycleCountingArch}.
+ */
+public class CycleCountingArch extends AgArch {
+    private static final LongAdder CYCLES = new LongAdder();
+
+    @Override
+    public void reasoningCycleStarting() {
+        CYCLES.increment();
+        super.reasoningCycleStarting();
+    }
+
+    /**
+     * Returns the number of reasoning cycles started so far by all the agents using this architecture.
+     * @return the number of reasoning cycles
+     */
+    public static long getCycles() {
+        return CYCLES.sum();
+    }
+}
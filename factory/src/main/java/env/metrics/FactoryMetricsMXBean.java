@@ -0,0 +1,58 @@
+package env.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of the hot-path metrics of a running simulation, registered as
+ * {@value MetricsExporter#OBJECT_NAME} on the platform MBean server.
+ * Latencies are given in microseconds, by series of the {@link MetricsRegistry}.
+ */
+public interface FactoryMetricsMXBean {
+
+    /**
+     * Returns the current value of every counter.
+     * @return the value of each counter by series
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Returns the current value of every gauge.
+     * @return the value of each gauge by series
+     */
+    Map<String, Long> getGauges();
+
+    /**
+     * Returns the number of durations recorded by every latency histogram.
+     * @return the number of durations by series
+     */
+    Map<String, Long> getLatencyCounts();
+
+    /**
+     * Returns the median of every latency histogram.
+     * @return the median in microseconds by series
+     */
+    Map<String, Double> getLatencyP50Micros();
+
+    /**
+     * Returns the 99th percentile of every latency histogram.
+     * @return the 99th percentile in microseconds by series
+     */
+    Map<String, Double> getLatencyP99Micros();
+
+    /**
+     * Returns the longest duration of every latency histogram.
+     * @return the longest duration in microseconds by series
+     */
+    Map<String, Double> getLatencyMaxMicros();
+
+    /**
+     * Returns every series in the OpenMetrics text format, as served by the HTTP endpoint.
+     * @return the metrics as text
+     */
+    String getOpenMetrics();
+
+    /**
+     * Sets every counter and histogram back to zero; gauges keep their value.
+     */
+    void reset();
+}
@@ -0,0 +1,192 @@
+package env.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import env.FactoryConfig;
+
+/**
+ * Publishes a {@link MetricsRegistry} as a JMX MBean and, if asked to, as an OpenMetrics text endpoint
+ * served over HTTP on the loopback interface only, at {@value #PATH}.
+ */
+public class MetricsExporter implements FactoryMetricsMXBean, AutoCloseable {
+    /** The name of the MBean of the metrics. */
+    public static final String OBJECT_NAME = "env.metrics:type=FactoryMetrics";
+    /** The path of the HTTP endpoint. */
+    public static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private final MetricsRegistry registry;
+    private final int port;
+    private ObjectName registeredName;
+    private HttpServer server;
+
+    /**
+     * Constructs a MetricsExporter.
+     * @param registry the metrics to publish
+     * @param port the loopback port of the HTTP endpoint, 0 for any free port, or a negative value for no endpoint
+     */
+    public MetricsExporter(MetricsRegistry registry, int port) {
+        this.registry = registry;
+        this.port = port;
+    }
+
+    /**
+     * Creates the exporter described by the configuration: {@code metrics.port=<port>} serves the metrics over HTTP
+     * on that port of the loopback interface, 0 picking a free one; without it, they are only published over JMX.
+     * @param config the configuration of the run
+     * @param registry the metrics to publish
+     * @return the metrics exporter
+     * @throws IllegalArgumentException if the port is not valid
+     */
+    public static MetricsExporter fromConfig(FactoryConfig config, MetricsRegistry registry) {
+        if (!config.has("metrics.port")) {
+            return new MetricsExporter(registry, -1);
+        }
+        int port = config.getInt("metrics.port", -1);
+        if (port < 0 || port > 65_535) {
+            throw new IllegalArgumentException("Metrics port must be between 0 and 65535 but was " + port);
+        }
+        return new MetricsExporter(registry, port);
+    }
+
+    /**
+     * Registers the MBean, replacing the one of a previous run of the same JVM.
+     * @throws JMException if the MBean cannot be registered
+     */
+    public synchronized void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+        registeredName = name;
+    }
+
+    /**
+     * Starts the HTTP endpoint, if a port was given.
+     * @return the port the endpoint listens on, or -1 if there is no endpoint
+     * @throws IOException if the port cannot be bound
+     */
+    public synchronized int startHttp() throws IOException {
+        if (port < 0) {
+            return -1;
+        }
+        if (server == null) {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext(PATH, this::serve);
+            server.start();
+        }
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the HTTP endpoint and unregisters the MBean, if this exporter registered it.
+     */
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (registeredName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            } catch (JMException e) {
+                // already replaced by the exporter of another run
+            }
+            registeredName = null;
+        }
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        // an MXBean cannot map a sorted map with its own comparator
+        return new LinkedHashMap<>(registry.counters());
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        return new LinkedHashMap<>(registry.gauges());
+    }
+
+    @Override
+    public Map<String, Long> getLatencyCounts() {
+        return latencies(LatencyHistogram::count);
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP50Micros() {
+        return micros(histogram -> histogram.percentile(50));
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP99Micros() {
+        return micros(histogram -> histogram.percentile(99));
+    }
+
+    @Override
+    public Map<String, Double> getLatencyMaxMicros() {
+        return micros(LatencyHistogram::max);
+    }
+
+    @Override
+    public String getOpenMetrics() {
+        StringBuilder text = new StringBuilder();
+        try {
+            registry.writeOpenMetrics(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void reset() {
+        registry.reset();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = getOpenMetrics().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private Map<String, Long> latencies(ToLongFunction<LatencyHistogram> figure) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        registry.histograms().forEach((series, histogram) -> values.put(series, figure.applyAsLong(histogram)));
+        return values;
+    }
+
+    private Map<String, Double> micros(ToDoubleFunction<LatencyHistogram> nanos) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        registry.histograms().forEach((series, histogram) -> values.put(series, nanos.applyAsDouble(histogram) / 1000.0));
+        return values;
+    }
+}
@@ -0,0 +1,186 @@
+package env.metrics;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters, gauges and latency histograms of the hot paths of a simulation, named as OpenMetrics series:
+ * a family name followed by optional labels, e.g. {@code factory_action_seconds{functor="move_randomly"}}.
+ * Looking a series up creates it, so callers on a hot path look their series up once and keep them.
+ */
+public final class MetricsRegistry {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    // the series of a family next to each other, even when another family name extends it
+    private static final Comparator<String> BY_FAMILY = Comparator.comparing(MetricsRegistry::familyOf).thenComparing(Comparator.naturalOrder());
+
+    private static volatile MetricsRegistry current = new MetricsRegistry();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the registry of the running environment, used by the agent architectures.
+     * @return the current registry
+     */
+    public static MetricsRegistry current() {
+        return current;
+    }
+
+    /**
+     * Makes a registry the one fed by the agent architectures.
+     * @param registry the registry of the running environment
+     */
+    public static void install(MetricsRegistry registry) {
+        current = registry;
+    }
+
+    /**
+     * Returns the counter of a series, creating it if needed.
+     * @param family the name of the family of the counter, without the {@code _total} suffix
+     * @param labels the names and values of the labels, in pairs
+     * @return the counter
+     * @throws IllegalArgumentException if a label has no value
+     */
+    public LongAdder counter(String family, String... labels) {
+        return counters.computeIfAbsent(series(family, labels), name -> new LongAdder());
+    }
+
+    /**
+     * Returns the gauge of a series, creating it if needed: a value that goes up and down,
+     * such as the sum of the queue lengths of several agents, each adding the changes of its own.
+     * @param family the name of the family of the gauge
+     * @param labels the names and values of the labels, in pairs
+     * @return the gauge
+     * @throws IllegalArgumentException if a label has no value
+     */
+    public LongAdder gauge(String family, String... labels) {
+        return gauges.computeIfAbsent(series(family, labels), name -> new LongAdder());
+    }
+
+    /**
+     * Returns the latency histogram of a series, creating it if needed.
+     * @param family the name of the family of the histogram, by convention ending with {@code _seconds}
+     * @param labels the names and values of the labels, in pairs
+     * @return the histogram, recording nanoseconds
+     * @throws IllegalArgumentException if a label has no value
+     */
+    public LatencyHistogram histogram(String family, String... labels) {
+        return histograms.computeIfAbsent(series(family, labels), name -> new LatencyHistogram());
+    }
+
+    /**
+     * Returns the current value of every counter.
+     * @return the value of each counter by series, sorted by family and series
+     */
+    public Map<String, Long> counters() {
+        Map<String, Long> values = new TreeMap<>(BY_FAMILY);
+        counters.forEach((series, counter) -> values.put(series, counter.sum()));
+        return values;
+    }
+
+    /**
+     * Returns the current value of every gauge.
+     * @return the value of each gauge by series, sorted by family and series
+     */
+    public Map<String, Long> gauges() {
+        Map<String, Long> values = new TreeMap<>(BY_FAMILY);
+        gauges.forEach((series, gauge) -> values.put(series, gauge.sum()));
+        return values;
+    }
+
+    /**
+     * Returns every latency histogram.
+     * @return the histograms by series, sorted by family and series
+     */
+    public Map<String, LatencyHistogram> histograms() {
+        Map<String, LatencyHistogram> sorted = new TreeMap<>(BY_FAMILY);
+        sorted.putAll(histograms);
+        return sorted;
+    }
+
+    /**
+     * Sets every counter and histogram back to zero, keeping the series; gauges keep their value.
+     */
+    public void reset() {
+        counters.values().forEach(LongAdder::reset);
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * Writes every series in the OpenMetrics text format: the counters as counters, the gauges as gauges,
+     * and the histograms as summaries in seconds with their main quantiles.
+     * @param out the destination
+     * @throws IOException if the metrics cannot be written
+     */
+    public void writeOpenMetrics(Appendable out) throws IOException {
+        String previous = null;
+        for (Map.Entry<String, Long> counter : counters().entrySet()) {
+            String family = familyOf(counter.getKey());
+            if (!family.equals(previous)) {
+                out.append("# TYPE ").append(family).append(" counter\n");
+                previous = family;
+            }
+            out.append(family).append("_total").append(labelsOf(counter.getKey())).append(' ')
+                .append(Long.toString(counter.getValue())).append('\n');
+        }
+        for (Map.Entry<String, Long> gauge : gauges().entrySet()) {
+            String family = familyOf(gauge.getKey());
+            if (!family.equals(previous)) {
+                out.append("# TYPE ").append(family).append(" gauge\n");
+                previous = family;
+            }
+            out.append(gauge.getKey()).append(' ').append(Long.toString(gauge.getValue())).append('\n');
+        }
+        for (Map.Entry<String, LatencyHistogram> histogram : histograms().entrySet()) {
+            String family = familyOf(histogram.getKey());
+            String labels = labelsOf(histogram.getKey());
+            LatencyHistogram latencies = histogram.getValue();
+            if (!family.equals(previous)) {
+                out.append("# TYPE ").append(family).append(" summary\n").append("# UNIT ").append(family).append(" seconds\n");
+                previous = family;
+            }
+            for (double quantile : QUANTILES) {
+                String quantileLabel = "quantile=\"" + quantile + "\"";
+                out.append(family).append(labels.isEmpty() ? "{" + quantileLabel + "}" : labels.substring(0, labels.length() - 1) + "," + quantileLabel + "}")
+                    .append(' ').append(seconds(latencies.percentile(quantile * 100))).append('\n');
+            }
+            out.append(family).append("_sum").append(labels).append(' ').append(seconds(latencies.sum())).append('\n');
+            out.append(family).append("_count").append(labels).append(' ').append(Long.toString(latencies.count())).append('\n');
+        }
+        out.append("# EOF\n");
+    }
+
+    private static String series(String family, String... labels) {
+        if (labels.length == 0) {
+            return family;
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Label " + labels[labels.length - 1] + " of " + family + " has no value");
+        }
+        StringBuilder series = new StringBuilder(family).append('{');
+        for (int i = 0; i < labels.length; i += 2) {
+            series.append(i > 0 ? "," : "").append(labels[i]).append("=\"")
+                .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+        }
+        return series.append('}').toString();
+    }
+
+    private static String familyOf(String series) {
+        int brace = series.indexOf('{');
+        return brace < 0 ? series : series.substring(0, brace);
+    }
+
+    private static String labelsOf(String series) {
+        int brace = series.indexOf('{');
+        return brace < 0 ? "" : series.substring(brace);
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
@@ -0,0 +1,103 @@
+package env.metrics;
+
+import jason.asSemantics.Circumstance;
+import jason.asSemantics.Message;
+import jason.asSemantics.TransitionSystem;
+import jason.asSyntax.Literal;
+
+/**
+ * Agent architecture measuring the reasoning of the agents that use it, aggregated by agent type
+ * in the metrics of the running environment (see {@link AgentTypeMetrics}): the duration of each reasoning cycle,
+ * the depth of the mailbox, the running and pending intentions and the events at the end of each cycle,
+ * and the messages sent and broadcast by performative and content. It also counts the cycles as
+ * {@link CycleCountingArch} does. It is selected for an agent in the {@code .mas2j} with
+ * {@code agentArchClass env.metrics.ReasoningMetricsArch}.
+ */
+public class ReasoningMetricsArch extends CycleCountingArch {
+    private AgentTypeMetrics metrics;
+    private String type;
+    private long cycleStart;
+    private int mailbox;
+    private int running;
+    private int pending;
+    private int events;
+
+    @Override
+    public void init() throws Exception {
+        super.init();
+        TransitionSystem ts = getTS();
+        type = AgentTypeMetrics.typeOf(ts != null && ts.getAg() != null ? ts.getAg().getASLSrc() : null, getAgName());
+        metrics();
+    }
+
+    @Override
+    public void reasoningCycleStarting() {
+        cycleStart = System.nanoTime();
+        super.reasoningCycleStarting();
+    }
+
+    @Override
+    public void reasoningCycleFinished() {
+        super.reasoningCycleFinished();
+        AgentTypeMetrics typeMetrics = metrics();
+        typeMetrics.cycle(System.nanoTime() - cycleStart);
+        Circumstance c = getTS() != null ? getTS().getC() : null;
+        if (c != null) {
+            report(typeMetrics, c.getMailBox().size(), c.getNbRunningIntentions(), c.getPendingIntentions().size(), c.getEvents().size());
+        }
+    }
+
+    @Override
+    public void sendMsg(Message m) throws Exception {
+        metrics().sent(m.getIlForce(), contentOf(m), false);
+        super.sendMsg(m);
+    }
+
+    @Override
+    public void broadcast(Message m) throws Exception {
+        metrics().sent(m.getIlForce(), contentOf(m), true);
+        super.broadcast(m);
+    }
+
+    @Override
+    public void stop() {
+        synchronized (this) {
+            if (metrics != null) {
+                report(metrics, 0, 0, 0, 0);
+                metrics.agents(-1);
+                metrics = null;
+            }
+        }
+        super.stop();
+    }
+
+    /**
+     * Returns the metrics of the type of this agent in the current registry, moving the contribution
+     * of this agent to the registry of a new environment if it changed.
+     */
+    private synchronized AgentTypeMetrics metrics() {
+        MetricsRegistry registry = MetricsRegistry.current();
+        if (metrics == null || metrics.getRegistry() != registry) {
+            if (metrics != null) {
+                report(metrics, 0, 0, 0, 0);
+                metrics.agents(-1);
+            }
+            metrics = new AgentTypeMetrics(registry, type != null ? type : AgentTypeMetrics.typeOf(null, getAgName()));
+            metrics.agents(1);
+        }
+        return metrics;
+    }
+
+    private synchronized void report(AgentTypeMetrics typeMetrics, int mailbox, int running, int pending, int events) {
+        typeMetrics.queues(mailbox - this.mailbox, running - this.running, pending - this.pending, events - this.events);
+        this.mailbox = mailbox;
+        this.running = running;
+        this.pending = pending;
+        this.events = events;
+    }
+
+    private static String contentOf(Message m) {
+        Object content = m.getPropCont();
+        return content instanceof Literal ? ((Literal) content).getFunctor() : "other";
+    }
+}
@@ -0,0 +1,150 @@
+package env.metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import env.FactoryConfig;
+import env.log.EventLog;
+import env.log.LogCategory;
+import env.log.LogLevel;
+
+/**
+ * Ends a headless run once its simulated duration has elapsed or enough packages have been
+ * delivered, writing the run summary before stopping the simulation.
+ */
+public class RunController {
+    private static final long CHECK_PERIOD_MILLIS = 100;
+
+    private final RunSummary summary;
+    private final long durationMillis;
+    private final int packageTarget;
+    private final Path output;
+    private final Runnable onFinish;
+    private final EventLog eventLog;
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private ScheduledExecutorService watcher;
+
+    /**
+     * Constructs a RunController.
+     * @param summary the summary of the run
+     * @param durationMillis the simulated duration of the run, or 0 for no limit
+     * @param packageTarget the number of packages to deliver, or 0 for no target
+     * @param output the file receiving the summary
+     * @param onFinish stops the simulation once the summary is written
+     * @param eventLog the log receiving the outcome of the run
+     */
+    public RunController(RunSummary summary, long durationMillis, int packageTarget, Path output, Runnable onFinish, EventLog eventLog) {
+        this.summary = summary;
+        this.durationMillis = durationMillis;
+        this.packageTarget = packageTarget;
+        this.output = output;
+        this.onFinish = onFinish;
+        this.eventLog = eventLog;
+    }
+
+    /**
+     * Creates the controller described by the configuration:
+     * {@code duration} in simulated seconds, {@code packages} to deliver,
+     * and {@code summary} naming the JSON or CSV file to write (default {@code build/run-summary.json}).
+     * @param config the configuration of the run
+     * @param summary the summary of the run
+     * @param onFinish stops the simulation once the summary is written
+     * @param eventLog the log receiving the outcome of the run
+     * @return the run controller
+     * @throws IllegalArgumentException if the duration or the package target is negative
+     */
+    public static RunController fromConfig(FactoryConfig config, RunSummary summary, Runnable onFinish, EventLog eventLog) {
+        double durationSeconds = config.getDouble("duration", 0);
+        int packages = config.getInt("packages", 0);
+        if (durationSeconds < 0 || packages < 0) {
+            throw new IllegalArgumentException("Run duration and package target cannot be negative");
+        }
+        Path output = Path.of(config.get("summary", "build/run-summary.json"));
+        return new RunController(summary, (long) (durationSeconds * 1000), packages, output, onFinish, eventLog);
+    }
+
+    /**
+     * Starts watching the duration of the run.
+     */
+    public synchronized void start() {
+        if (watcher != null || finished.get()) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "factory-run");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(this::checkTargets, CHECK_PERIOD_MILLIS, CHECK_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        eventLog.log(LogCategory.SYSTEM, LogLevel.INFO, "Headless run until {} simulated ms or {} packages",
+            durationMillis > 0 ? durationMillis : "no limit", packageTarget > 0 ? packageTarget : "no target");
+    }
+
+    /**
+     * Ends the run if one of its targets is reached.
+     */
+    public void checkTargets() {
+        if (finished.get()) {
+            return;
+        }
+        boolean durationReached = durationMillis > 0 && summary.getSimulatedMillis() >= durationMillis;
+        boolean packagesReached = packageTarget > 0 && summary.getDeliveredPackages() >= packageTarget;
+        if (durationReached || packagesReached) {
+            finish();
+        }
+    }
+
+    /**
+     * Writes the summary and stops the simulation; only the first call has an effect.
+     */
+    public void finish() {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (this) {
+            if (watcher != null) {
+                watcher.shutdown();
+            }
+        }
+        writeSummary();
+        onFinish.run();
+    }
+
+    /**
+     * Writes the summary without stopping the simulation, e.g. when it is stopped from outside;
+     * only the first call to this method or to {@link #finish()} has an effect.
+     */
+    public void close() {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (this) {
+            if (watcher != null) {
+                watcher.shutdown();
+            }
+        }
+        writeSummary();
+    }
+
+    public boolean isFinished() {
+        return finished.get();
+    }
+
+    public Path getOutput() {
+        return output;
+    }
+
+    private void writeSummary() {
+        try {
+            summary.write(output);
+            eventLog.log(LogCategory.SYSTEM, LogLevel.INFO, "Run summary written to {}: {} packages delivered",
+                output.toAbsolutePath(), summary.getDeliveredPackages());
+        } catch (IOException e) {
+            eventLog.log(LogCategory.SYSTEM, LogLevel.ERROR, "Cannot write the run summary to {}", output, e);
+        }
+    }
+}
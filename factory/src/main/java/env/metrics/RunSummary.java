@@ -0,0 +1,222 @@
+package env.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import env.SimulationClock;
+
+/**
+ * Collects the figures of a simulation run: deliveries and their latency, battery depletions,
+ * malfunction repair times, action and reasoning throughput and heap use. Durations are measured on the simulation clock;
+ * reasoning cycles are those of the agents running with {@link CycleCountingArch}.
+ */
+public class RunSummary {
+    private final SimulationClock clock;
+    private final long startSimulated;
+    private final long startNanos;
+    private final long startCycles;
+    private final LongAdder actions = new LongAdder();
+    private final LongAdder batteryDepletions = new LongAdder();
+    private final LongAdder malfunctions = new LongAdder();
+    private final Map<String, Long> deliveryStarts = new ConcurrentHashMap<>();
+    private final Map<String, Long> malfunctionStarts = new ConcurrentHashMap<>();
+    private final Samples deliveryLatencies = new Samples();
+    private final Samples repairTimes = new Samples();
+
+    /**
+     * Constructs a RunSummary starting now.
+     * @param clock the clock measuring the run
+     */
+    public RunSummary(SimulationClock clock) {
+        this.clock = clock;
+        this.startSimulated = clock.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.startCycles = CycleCountingArch.getCycles();
+    }
+
+    /**
+     * Records an action executed by an agent.
+     */
+    public void actionExecuted() {
+        actions.increment();
+    }
+
+    /**
+     * Records that a robot picked up a package.
+     * @param agName the name of the robot
+     */
+    public void deliveryStarted(String agName) {
+        deliveryStarts.put(agName, clock.currentTimeMillis());
+    }
+
+    /**
+     * Records that a robot dropped its package at the delivery location.
+     * @param agName the name of the robot
+     */
+    public void deliveryCompleted(String agName) {
+        Long start = deliveryStarts.remove(agName);
+        if (start != null) {
+            deliveryLatencies.add(clock.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Records that the battery of a robot ran out.
+     * @param agName the name of the robot
+     */
+    public void batteryDepleted(String agName) {
+        batteryDepletions.increment();
+    }
+
+    /**
+     * Records that a robot stopped because of a malfunction.
+     * @param agName the name of the robot
+     */
+    public void malfunctionStarted(String agName) {
+        malfunctions.increment();
+        malfunctionStarts.put(agName, clock.currentTimeMillis());
+    }
+
+    /**
+     * Records that a malfunctioning robot was repaired.
+     * @param agName the name of the robot
+     */
+    public void malfunctionRepaired(String agName) {
+        Long start = malfunctionStarts.remove(agName);
+        if (start != null) {
+            repairTimes.add(clock.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Returns the number of packages delivered so far.
+     * @return the number of delivered packages
+     */
+    public int getDeliveredPackages() {
+        return deliveryLatencies.count();
+    }
+
+    /**
+     * Returns the simulated time elapsed since the run started.
+     * @return the simulated duration of the run in milliseconds
+     */
+    public long getSimulatedMillis() {
+        return clock.currentTimeMillis() - startSimulated;
+    }
+
+    /**
+     * Returns the figures of the run, in the order they are written.
+     * @return the name and value of each figure
+     */
+    public Map<String, Object> toMap() {
+        long wallMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        long simulatedMillis = getSimulatedMillis();
+        long actionCount = actions.sum();
+        long cycles = CycleCountingArch.getCycles() - startCycles;
+
+        Map<String, Object> figures = new LinkedHashMap<>();
+        figures.put("speedup", clock.getSpeedup());
+        figures.put("wall_time_ms", wallMillis);
+        figures.put("simulated_time_ms", simulatedMillis);
+        figures.put("packages_delivered", deliveryLatencies.count());
+        figures.put("packages_in_transit", deliveryStarts.size());
+        figures.put("packages_per_simulated_hour", simulatedMillis > 0 ? deliveryLatencies.count() * 3_600_000.0 / simulatedMillis : 0.0);
+        figures.put("delivery_latency_mean_ms", deliveryLatencies.mean());
+        figures.put("delivery_latency_p99_ms", deliveryLatencies.percentile(99));
+        figures.put("battery_depletions", batteryDepletions.sum());
+        figures.put("malfunctions", malfunctions.sum());
+        figures.put("repairs", repairTimes.count());
+        figures.put("repair_time_mean_ms", repairTimes.mean());
+        figures.put("repair_time_p99_ms", repairTimes.percentile(99));
+        figures.put("actions", actionCount);
+        figures.put("actions_per_second", wallMillis > 0 ? actionCount * 1000.0 / wallMillis : 0.0);
+        figures.put("actions_per_simulated_second", simulatedMillis > 0 ? actionCount * 1000.0 / simulatedMillis : 0.0);
+        figures.put("reasoning_cycles", cycles);
+        figures.put("reasoning_cycles_per_second", wallMillis > 0 ? cycles * 1000.0 / wallMillis : 0.0);
+        figures.put("heap_used_bytes", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        figures.put("heap_peak_bytes", heapPeak());
+        return figures;
+    }
+
+    /**
+     * Returns the highest heap use seen by the JVM, summed over the heap memory pools.
+     * @return the peak heap use in bytes
+     */
+    private static long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Writes the summary to a file, as CSV if its name ends with {@code .csv} and as JSON otherwise.
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+                writeCsv(out);
+            } else {
+                writeJson(out);
+            }
+        }
+    }
+
+    /**
+     * Writes the summary as a single JSON object.
+     * @param out the destination
+     * @throws IOException if the summary cannot be written
+     */
+    public void writeJson(Writer out) throws IOException {
+        StringBuilder json = new StringBuilder("{\n");
+        for (Map.Entry<String, Object> figure : toMap().entrySet()) {
+            if (json.length() > 2) {
+                json.append(",\n");
+            }
+            json.append("  \"").append(figure.getKey()).append("\": ").append(format(figure.getValue()));
+        }
+        out.write(json.append("\n}\n").toString());
+    }
+
+    /**
+     * Writes the summary as a CSV header line followed by a line of values.
+     * @param out the destination
+     * @throws IOException if the summary cannot be written
+     */
+    public void writeCsv(Writer out) throws IOException {
+        Map<String, Object> figures = toMap();
+        StringBuilder csv = new StringBuilder(String.join(",", figures.keySet())).append('\n');
+        boolean first = true;
+        for (Object value : figures.values()) {
+            if (!first) {
+                csv.append(',');
+            }
+            csv.append(format(value));
+            first = false;
+        }
+        out.write(csv.append('\n').toString());
+    }
+
+    private static String format(Object value) {
+        return value instanceof Double ? String.format(Locale.ROOT, "%.3f", (Double) value) : String.valueOf(value);
+    }
+}
@@ -0,0 +1,64 @@
+package env.metrics;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of duration samples, used to report their mean and percentiles.
+ */
+public final class Samples {
+    private long[] values = new long[64];
+    private int size;
+
+    /**
+     * Adds a sample.
+     * @param value the sample to add
+     */
+    public synchronized void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Returns the number of samples.
+     * @return the number of samples
+     */
+    public synchronized int count() {
+        return size;
+    }
+
+    /**
+     * Returns the mean of the samples.
+     * @return the mean, or 0 if there are no samples
+     */
+    public synchronized double mean() {
+        if (size == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += values[i];
+        }
+        return sum / size;
+    }
+
+    /**
+     * Returns a percentile of the samples, using the nearest-rank method.
+     * @param percentile the percentile, between 0 and 100
+     * @return the sample at the percentile, or 0 if there are no samples
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public synchronized long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100 but was " + percentile);
+        }
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * size);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,132 @@
+package env.metrics;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Compares the JSON run summaries of the benchmark scenarios with those of a baseline.
+ * Every figure present in both is printed with its relative change, and a scenario regresses
+ * when one of its throughput figures drops by more than the tolerance.
+ */
+public final class ScenarioComparison {
+    /** The figures where a drop is a regression. */
+    public static final List<String> THROUGHPUT = List.of("packages_per_simulated_hour", "actions_per_second", "reasoning_cycles_per_second");
+
+    private static final Pattern FIGURE = Pattern.compile("\"([^\"]+)\"\\s*:\\s*(-?[0-9.]+(?:[eE][-+]?[0-9]+)?)");
+
+    private ScenarioComparison() {
+    }
+
+    /**
+     * Compares the summaries of two directories: {@code <baseline dir> <current dir> [tolerance]},
+     * the tolerance being a fraction (default 0.1). Exits with status 1 if a scenario regressed.
+     * @param args the command line arguments
+     * @throws IOException if a summary cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ScenarioComparison <baseline dir> <current dir> [tolerance]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+        List<String> regressions = compareDirectories(Path.of(args[0]), Path.of(args[1]), tolerance, System.out);
+        if (!regressions.isEmpty()) {
+            System.err.println("Throughput regressions beyond " + Math.round(tolerance * 100) + "%: " + String.join(", ", regressions));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares every summary of the current directory with the summary of the same name in the baseline directory,
+     * skipping the scenarios without a baseline.
+     * @param baselineDir the directory of the baseline summaries
+     * @param currentDir the directory of the summaries to check
+     * @param tolerance the accepted relative drop of a throughput figure
+     * @param out where the comparison is printed
+     * @return the regressed figures, as {@code scenario.figure}
+     * @throws IOException if a summary cannot be read
+     */
+    public static List<String> compareDirectories(Path baselineDir, Path currentDir, double tolerance, PrintStream out) throws IOException {
+        List<String> regressions = new ArrayList<>();
+        List<Path> summaries;
+        try (Stream<Path> files = Files.list(currentDir)) {
+            summaries = files.filter(file -> file.getFileName().toString().endsWith(".json")).sorted().toList();
+        }
+        for (Path current : summaries) {
+            String fileName = current.getFileName().toString();
+            String scenario = fileName.substring(0, fileName.length() - ".json".length());
+            Path baseline = baselineDir.resolve(fileName);
+            if (!Files.exists(baseline)) {
+                out.println(scenario + ": no baseline");
+                continue;
+            }
+            out.println(scenario + ":");
+            for (String figure : compare(read(baseline), read(current), tolerance, out)) {
+                regressions.add(scenario + "." + figure);
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Prints the change of every figure present in both summaries.
+     * @param baseline the figures of the baseline
+     * @param current the figures to check
+     * @param tolerance the accepted relative drop of a throughput figure
+     * @param out where the comparison is printed
+     * @return the throughput figures that dropped by more than the tolerance
+     */
+    public static List<String> compare(Map<String, Double> baseline, Map<String, Double> current, double tolerance, PrintStream out) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Double> figure : current.entrySet()) {
+            Double before = baseline.get(figure.getKey());
+            if (before == null) {
+                continue;
+            }
+            double after = figure.getValue();
+            double change = before != 0 ? (after - before) / Math.abs(before) : 0;
+            boolean regressed = THROUGHPUT.contains(figure.getKey()) && change < -tolerance;
+            if (regressed) {
+                regressions.add(figure.getKey());
+            }
+            out.println(String.format(Locale.ROOT, "  %-30s %15.3f %15.3f %+8.1f%%%s",
+                figure.getKey(), before, after, change * 100, regressed ? "  REGRESSION" : ""));
+        }
+        return regressions;
+    }
+
+    /**
+     * Reads the numeric figures of a summary written as JSON by {@link RunSummary#writeJson}.
+     * @param summary the file of the summary
+     * @return the name and value of each figure, in the order of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static Map<String, Double> read(Path summary) throws IOException {
+        return parse(Files.readString(summary, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses the numeric figures of a summary written as JSON by {@link RunSummary#writeJson}.
+     * @param json the summary
+     * @return the name and value of each figure, in the order of the summary
+     */
+    public static Map<String, Double> parse(String json) {
+        Map<String, Double> figures = new LinkedHashMap<>();
+        Matcher matcher = FIGURE.matcher(json);
+        while (matcher.find()) {
+            figures.put(matcher.group(1), Double.parseDouble(matcher.group(2)));
+        }
+        return figures;
+    }
+}
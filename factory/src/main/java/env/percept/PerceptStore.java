@@ -0,0 +1,301 @@
+package env.percept;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import env.jfr.PerceptReplaceEvent;
+import env.metrics.LatencyHistogram;
+import env.metrics.MetricsRegistry;
+import jason.asSyntax.Literal;
+import jason.asSyntax.Term;
+import jason.environment.Environment;
+
+/**
+ * Keeps the current value of the single-valued percepts of each agent, indexed by template.
+ * An update removes exactly the previous literal and adds the new one, so no unification scan
+ * of the agent's percepts is needed, and it does nothing when the value did not change,
+ * so the agent is not woken up for nothing.
+ * <p>
+ * While the store is deferred, as in lockstep, the updates only change the store, and {@link #publish()}
+ * then replaces the percepts of the agents all at once, with one replacement per changed percept.
+ */
+public final class PerceptStore {
+    private final Environment environment;
+    private final List<PerceptTemplate> templates = new ArrayList<>();
+    private final ConcurrentHashMap<String, Entry[]> entries = new ConcurrentHashMap<>();
+    private final List<Entry> pending = new ArrayList<>();
+    private final List<Entry> publishing = new ArrayList<>();
+    private volatile boolean deferred;
+    private final LongAdder updates;
+    private final LongAdder unchanged;
+    private final LatencyHistogram replaceLatency;
+
+    /**
+     * Constructs a PerceptStore.
+     * @param environment the environment whose percepts are updated
+     */
+    public PerceptStore(Environment environment) {
+        this(environment, new MetricsRegistry());
+    }
+
+    /**
+     * Constructs a PerceptStore counting its updates and timing the replacement of the percepts in a registry.
+     * @param environment the environment whose percepts are updated
+     * @param metrics the metrics registry
+     */
+    public PerceptStore(Environment environment, MetricsRegistry metrics) {
+        this.environment = environment;
+        this.updates = metrics.counter("factory_percept_updates", "result", "changed");
+        this.unchanged = metrics.counter("factory_percept_updates", "result", "unchanged");
+        this.replaceLatency = metrics.histogram("factory_percept_replace_seconds");
+    }
+
+    /**
+     * Defines a single-valued percept; every template must be defined before the first update.
+     * @param functor the functor of the percept
+     * @param arity the number of terms of the percept
+     * @return the template of the percept
+     * @throws IllegalStateException if an update already happened
+     */
+    public synchronized PerceptTemplate define(String functor, int arity) {
+        if (!entries.isEmpty()) {
+            throw new IllegalStateException("Percept " + functor + "/" + arity + " defined after the first update");
+        }
+        PerceptTemplate template = new PerceptTemplate(functor, arity, templates.size());
+        templates.add(template);
+        return template;
+    }
+
+    /**
+     * Sets a percept with a single numeric term.
+     * @param agName the name of the agent
+     * @param template the template of the percept
+     * @param v0 the value of the term
+     * @return true if the percept changed
+     */
+    public boolean update(String agName, PerceptTemplate template, int v0) {
+        Entry entry = entry(agName, template);
+        synchronized (entry) {
+            if (entry.current != null && entry.v0 == v0) {
+                unchanged.increment();
+                return false;
+            }
+            entry.v0 = v0;
+            return replace(entry, template.create(v0));
+        }
+    }
+
+    /**
+     * Sets a percept with two numeric terms.
+     * @param agName the name of the agent
+     * @param template the template of the percept
+     * @param v0 the value of the first term
+     * @param v1 the value of the second term
+     * @return true if the percept changed
+     */
+    public boolean update(String agName, PerceptTemplate template, int v0, int v1) {
+        Entry entry = entry(agName, template);
+        synchronized (entry) {
+            if (entry.current != null && entry.v0 == v0 && entry.v1 == v1) {
+                unchanged.increment();
+                return false;
+            }
+            entry.v0 = v0;
+            entry.v1 = v1;
+            return replace(entry, template.create(v0, v1));
+        }
+    }
+
+    /**
+     * Sets a percept with a term followed by two numeric terms.
+     * @param agName the name of the agent
+     * @param template the template of the percept
+     * @param t0 the first term
+     * @param v1 the value of the second term
+     * @param v2 the value of the third term
+     * @return true if the percept changed
+     */
+    public boolean update(String agName, PerceptTemplate template, Term t0, int v1, int v2) {
+        Entry entry = entry(agName, template);
+        synchronized (entry) {
+            if (entry.current != null && entry.v1 == v1 && entry.v2 == v2 && t0.equals(entry.t0)) {
+                unchanged.increment();
+                return false;
+            }
+            entry.t0 = t0;
+            entry.v1 = v1;
+            entry.v2 = v2;
+            return replace(entry, template.create(t0, v1, v2));
+        }
+    }
+
+    /**
+     * Removes a percept, so that the agent no longer perceives any value of it.
+     * @param agName the name of the agent
+     * @param template the template of the percept
+     * @return true if the percept was set
+     */
+    public boolean clear(String agName, PerceptTemplate template) {
+        Entry entry = entry(agName, template);
+        synchronized (entry) {
+            if (entry.current == null) {
+                return false;
+            }
+            entry.current = null;
+            entry.t0 = null;
+            updates.increment();
+            change(entry);
+            return true;
+        }
+    }
+
+    /**
+     * Defers the updates until {@link #publish()}, or publishes the deferred ones and stops deferring.
+     * @param deferred true to defer the updates, false to apply them right away
+     */
+    public void setDeferred(boolean deferred) {
+        this.deferred = deferred;
+        if (!deferred) {
+            publish();
+        }
+    }
+
+    /**
+     * Replaces the percepts changed since the previous call, giving each agent the last value of each percept.
+     */
+    public synchronized void publish() {
+        synchronized (pending) {
+            publishing.addAll(pending);
+            pending.clear();
+        }
+        for (Entry entry : publishing) {
+            synchronized (entry) {
+                entry.pending = false;
+                apply(entry);
+            }
+        }
+        publishing.clear();
+    }
+
+    /**
+     * Returns the current literal of a percept, even if it is not published yet.
+     * @param agName the name of the agent
+     * @param template the template of the percept
+     * @return the current literal, or null if the percept was never set
+     */
+    public Literal get(String agName, PerceptTemplate template) {
+        Entry[] agentEntries = entries.get(agName);
+        if (agentEntries == null) {
+            return null;
+        }
+        Entry entry = agentEntries[template.getIndex()];
+        synchronized (entry) {
+            return entry.current;
+        }
+    }
+
+    /**
+     * Returns the number of updates that changed a percept.
+     * @return the number of changes
+     */
+    public long getUpdateCount() {
+        return updates.sum();
+    }
+
+    /**
+     * Returns the number of updates skipped because the value did not change.
+     * @return the number of skipped updates
+     */
+    public long getUnchangedCount() {
+        return unchanged.sum();
+    }
+
+    private boolean replace(Entry entry, Literal percept) {
+        entry.current = percept;
+        updates.increment();
+        change(entry);
+        return true;
+    }
+
+    /**
+     * Applies the change of an entry to the environment, or queues it for the next {@link #publish()}.
+     * Called with the lock of the entry held.
+     */
+    private void change(Entry entry) {
+        if (!deferred) {
+            apply(entry);
+        } else if (!entry.pending) {
+            entry.pending = true;
+            synchronized (pending) {
+                pending.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Replaces the published literal of an entry with its current one.
+     * Called with the lock of the entry held.
+     */
+    private void apply(Entry entry) {
+        Literal percept = entry.current;
+        Literal published = entry.published;
+        if (percept == published) {
+            return;
+        }
+        entry.published = percept;
+        if (percept == null) {
+            environment.removePercept(entry.agName, published);
+            return;
+        }
+        PerceptReplaceEvent event = new PerceptReplaceEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean replaced = published != null;
+        if (replaced) {
+            environment.removePercept(entry.agName, published);
+        }
+        environment.addPercept(entry.agName, percept);
+        replaceLatency.record(System.nanoTime() - start);
+        event.complete(entry.agName, percept.getFunctor(), replaced);
+    }
+
+    private Entry entry(String agName, PerceptTemplate template) {
+        Entry[] agentEntries = entries.get(agName);
+        if (agentEntries == null) {
+            agentEntries = newEntries(agName);
+            Entry[] existing = entries.putIfAbsent(agName, agentEntries);
+            if (existing != null) {
+                agentEntries = existing;
+            }
+        }
+        return agentEntries[template.getIndex()];
+    }
+
+    private synchronized Entry[] newEntries(String agName) {
+        Entry[] agentEntries = new Entry[templates.size()];
+        for (int i = 0; i < agentEntries.length; i++) {
+            agentEntries[i] = new Entry(agName);
+        }
+        return agentEntries;
+    }
+
+    /**
+     * The current value of a percept of an agent, and the literal the agent perceives.
+     */
+    private static final class Entry {
+        private final String agName;
+        private Literal current;
+        private Literal published;
+        private boolean pending;
+        private Term t0;
+        private int v0;
+        private int v1;
+        private int v2;
+
+        private Entry(String agName) {
+            this.agName = agName;
+        }
+    }
+}
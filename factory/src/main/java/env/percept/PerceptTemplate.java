@@ -0,0 +1,93 @@
+package env.percept;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+import jason.asSyntax.NumberTerm;
+import jason.asSyntax.Term;
+
+/**
+ * Describes a single-valued percept, such as {@code current_position(X, Y)}, and builds its
+ * literals directly from the values instead of parsing them from a string.
+ */
+public final class PerceptTemplate {
+    private static final int CACHED_NUMBERS = 256;
+    private static final NumberTerm[] NUMBERS = new NumberTerm[CACHED_NUMBERS];
+
+    static {
+        for (int i = 0; i < CACHED_NUMBERS; i++) {
+            NUMBERS[i] = ASSyntax.createNumber(i);
+        }
+    }
+
+    private final String functor;
+    private final int arity;
+    private final int index;
+
+    /**
+     * Constructs a PerceptTemplate; templates are created through {@link PerceptStore#define}.
+     * @param functor the functor of the percept
+     * @param arity the number of terms of the percept
+     * @param index the slot of the percept in its store
+     */
+    PerceptTemplate(String functor, int arity, int index) {
+        this.functor = functor;
+        this.arity = arity;
+        this.index = index;
+    }
+
+    /**
+     * Returns a number term for the given value, shared for the small values of the grid and battery.
+     * @param value the value of the term
+     * @return the number term
+     */
+    public static NumberTerm number(int value) {
+        return value >= 0 && value < CACHED_NUMBERS ? NUMBERS[value] : ASSyntax.createNumber(value);
+    }
+
+    /**
+     * Builds the percept with a single numeric term.
+     * @param v0 the value of the term
+     * @return the new percept
+     */
+    public Literal create(int v0) {
+        return ASSyntax.createLiteral(functor, number(v0));
+    }
+
+    /**
+     * Builds the percept with two numeric terms.
+     * @param v0 the value of the first term
+     * @param v1 the value of the second term
+     * @return the new percept
+     */
+    public Literal create(int v0, int v1) {
+        return ASSyntax.createLiteral(functor, number(v0), number(v1));
+    }
+
+    /**
+     * Builds the percept with a term followed by two numeric terms.
+     * @param t0 the first term
+     * @param v1 the value of the second term
+     * @param v2 the value of the third term
+     * @return the new percept
+     */
+    public Literal create(Term t0, int v1, int v2) {
+        return ASSyntax.createLiteral(functor, t0, number(v1), number(v2));
+    }
+
+    public String getFunctor() {
+        return functor;
+    }
+
+    public int getArity() {
+        return arity;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return functor + "/" + arity;
+    }
+}
@@ -0,0 +1,208 @@
+package env.view;
+
+import env.agent.DeliveryRobot;
+import jason.environment.grid.Location;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.RowFilter;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * FleetTableModel holds one row per delivery robot for the fleet table of the view: name, position, battery and status.
+ * Rows are fed incrementally, one robot at a time as its events arrive, and only a row whose values changed is reported
+ * to the table, so that a table showing a few rows of thousands of robots repaints just those it shows. The model also
+ * keeps the number of robots having each status flag and their total battery, updated with each row rather than
+ * counted again. Like every Swing table model, it is read and updated on the event dispatch thread only.
+ */
+public final class FleetTableModel extends AbstractTableModel {
+    /** Column of the robot names. */
+    public static final int NAME_COLUMN = 0;
+    /** Column of the x-coordinates. */
+    public static final int X_COLUMN = 1;
+    /** Column of the y-coordinates. */
+    public static final int Y_COLUMN = 2;
+    /** Column of the battery levels. */
+    public static final int BATTERY_COLUMN = 3;
+    /** Column of the status flags, shown as short words. */
+    public static final int STATUS_COLUMN = 4;
+
+    private static final String[] COLUMN_NAMES = {"Robot", "X", "Y", "Battery", "Status"};
+    // flags in the order their words are shown, with the words of the former robot labels
+    private static final int[] FLAGS = {DeliveryRobot.BATTERY_SHARING, DeliveryRobot.MALFUNCTIONING, DeliveryRobot.CHARGING,
+        DeliveryRobot.SEEKING_CHARGING_STATION, DeliveryRobot.HELPING_ROBOT, DeliveryRobot.CARRYING_PACKAGE};
+    private static final String[] FLAG_WORDS = {"BSHARE", "MALF", "CHG", "SEEK", "HELP", "PKG"};
+
+    private static final class Row {
+        private final String name;
+        private int x;
+        private int y;
+        private int battery;
+        private int flags;
+
+        private Row(String name) {
+            this.name = name;
+        }
+    }
+
+    private final List<Row> rows = new ArrayList<>();
+    private final Map<String, Integer> rowOf = new HashMap<>();
+    private final int[] flagCounts = new int[Integer.SIZE];
+    private long totalBattery;
+
+    /**
+     * Updates the row of a robot from its current state, adding the row the first time the robot is seen.
+     * @param robot the robot
+     * @return true if a row was added or changed, false if the row already showed this state
+     */
+    public boolean update(DeliveryRobot robot) {
+        Location location = robot.getLocation();
+        return update(robot.getName(), location.x, location.y, robot.getBattery(), robot.getFlags());
+    }
+
+    /**
+     * Updates the row of a robot, adding it if there is none for this name.
+     * @param name    the name of the robot
+     * @param x       the x-coordinate of the robot
+     * @param y       the y-coordinate of the robot
+     * @param battery the battery level of the robot
+     * @param flags   the status flags of the robot, as in {@link DeliveryRobot#getFlags()}
+     * @return true if a row was added or changed, false if the row already showed these values
+     */
+    public boolean update(String name, int x, int y, int battery, int flags) {
+        Integer index = rowOf.get(name);
+        boolean added = index == null;
+        Row row;
+        if (added) {
+            row = new Row(name);
+            index = rows.size();
+            rows.add(row);
+            rowOf.put(name, index);
+        } else {
+            row = rows.get(index);
+            if (row.x == x && row.y == y && row.battery == battery && row.flags == flags) {
+                return false;
+            }
+            count(row, -1);
+        }
+        row.x = x;
+        row.y = y;
+        row.battery = battery;
+        row.flags = flags;
+        count(row, 1);
+        if (added) {
+            fireTableRowsInserted(index, index);
+        } else {
+            fireTableRowsUpdated(index, index);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of robots having a status flag set.
+     * @param flag one of the flags of {@link DeliveryRobot}
+     * @return the number of rows with this flag
+     */
+    public int getFlagCount(int flag) {
+        return flagCounts[Integer.numberOfTrailingZeros(flag)];
+    }
+
+    /**
+     * Returns the mean battery level of the robots.
+     * @return the mean battery level, 0 if there is no robot
+     */
+    public double getAverageBattery() {
+        return rows.isEmpty() ? 0 : (double) totalBattery / rows.size();
+    }
+
+    /**
+     * Returns the status flags shown by a row.
+     * @param rowIndex the index of the row in the model
+     * @return the flags of the robot of this row
+     */
+    public int getFlags(int rowIndex) {
+        return rows.get(rowIndex).flags;
+    }
+
+    /**
+     * Returns a filter keeping the rows of the robots having at least one of some flags.
+     * @param flags the flags of {@link DeliveryRobot} to look for, or-ed together
+     * @return the filter, or null to keep every row if no flag is given
+     */
+    public static RowFilter<FleetTableModel, Integer> withAnyFlag(int flags) {
+        if (flags == 0) {
+            return null;
+        }
+        return new RowFilter<>() {
+            @Override
+            public boolean include(Entry<? extends FleetTableModel, ? extends Integer> entry) {
+                return (entry.getModel().getFlags(entry.getIdentifier()) & flags) != 0;
+            }
+        };
+    }
+
+    /**
+     * Returns the words shown for some status flags, as in the former robot labels.
+     * @param flags the flags of {@link DeliveryRobot}, or-ed together
+     * @return the words of the flags that are set, separated by spaces
+     */
+    public static String statusText(int flags) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < FLAGS.length; i++) {
+            if ((flags & FLAGS[i]) != 0) {
+                if (text.length() > 0) {
+                    text.append(' ');
+                }
+                text.append(FLAG_WORDS[i]);
+            }
+        }
+        return text.toString();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == NAME_COLUMN || column == STATUS_COLUMN ? String.class : Integer.class;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int column) {
+        Row row = rows.get(rowIndex);
+        switch (column) {
+            case NAME_COLUMN:
+                return row.name;
+            case X_COLUMN:
+                return row.x;
+            case Y_COLUMN:
+                return row.y;
+            case BATTERY_COLUMN:
+                return row.battery;
+            case STATUS_COLUMN:
+                return statusText(row.flags);
+            default:
+                throw new IndexOutOfBoundsException("No column " + column);
+        }
+    }
+
+    private void count(Row row, int sign) {
+        totalBattery += sign * row.battery;
+        for (int flags = row.flags; flags != 0; flags &= flags - 1) {
+            flagCounts[Integer.numberOfTrailingZeros(flags)] += sign;
+        }
+    }
+}
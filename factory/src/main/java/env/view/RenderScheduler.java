@@ -0,0 +1,237 @@
+package env.view;
+
+import env.FactoryConfig;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * RenderScheduler collects what changed on the grid between two frames of the view, so that a burst of model events
+ * costs one repaint per frame instead of one per event. Events only mark the cells and the agents they touch, from
+ * any thread; the view takes the marks once per frame, at most {@code fps} times per second, and repaints just the
+ * marked regions and the labels of the marked agents. Cells are marked by square tiles, which bounds the number of
+ * regions a frame repaints however many cells changed.
+ */
+public final class RenderScheduler {
+    /** Frames per second used by default. */
+    public static final int DEFAULT_FPS = 30;
+    /** Highest frame rate accepted. */
+    public static final int MAX_FPS = 240;
+    /** Side of the tiles used by default, in cells. */
+    public static final int DEFAULT_TILE_SIZE = 4;
+
+    private final int width;
+    private final int height;
+    private final int fps;
+    private final int tileSize;
+    private final int columns;
+    private BitSet tiles;
+    private BitSet agents = new BitSet();
+    private boolean full;
+    private long marks;
+    private long frames;
+
+    /**
+     * Creates a scheduler for a grid, with tiles of {@link #DEFAULT_TILE_SIZE} cells.
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @param fps    the highest number of frames per second
+     * @throws IllegalArgumentException if a dimension is not positive or the frame rate is not between 1 and {@link #MAX_FPS}
+     */
+    public RenderScheduler(int width, int height, int fps) {
+        this(width, height, fps, DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Creates a scheduler for a grid.
+     * @param width    the number of columns of the grid
+     * @param height   the number of rows of the grid
+     * @param fps      the highest number of frames per second
+     * @param tileSize the side of the tiles, in cells
+     * @throws IllegalArgumentException if a dimension or the tile size is not positive,
+     *                                  or the frame rate is not between 1 and {@link #MAX_FPS}
+     */
+    public RenderScheduler(int width, int height, int fps, int tileSize) {
+        if (width <= 0 || height <= 0 || tileSize <= 0) {
+            throw new IllegalArgumentException("Grid of " + width + "x" + height + " with tiles of " + tileSize + " is not valid");
+        }
+        if (fps < 1 || fps > MAX_FPS) {
+            throw new IllegalArgumentException("Frame rate must be between 1 and " + MAX_FPS + " but was " + fps);
+        }
+        this.width = width;
+        this.height = height;
+        this.fps = fps;
+        this.tileSize = tileSize;
+        this.columns = (width + tileSize - 1) / tileSize;
+        this.tiles = new BitSet(columns * ((height + tileSize - 1) / tileSize));
+        // the first frame draws everything
+        this.full = true;
+    }
+
+    /**
+     * Creates the scheduler described by the {@code fps} option of the configuration.
+     * @param config the configuration of the run
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @return the configured scheduler, running at {@link #DEFAULT_FPS} by default
+     * @throws IllegalArgumentException if the frame rate is not valid
+     */
+    public static RenderScheduler fromConfig(FactoryConfig config, int width, int height) {
+        return new RenderScheduler(width, height, config.getInt("fps", DEFAULT_FPS));
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
+    /**
+     * Returns the time between two frames.
+     * @return the frame period in milliseconds
+     */
+    public int getFrameMillis() {
+        return Math.max(1, 1000 / fps);
+    }
+
+    /**
+     * Marks a cell to be repainted by the next frame. Cells outside the grid are ignored.
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     */
+    public synchronized void markCell(int x, int y) {
+        marks++;
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            tiles.set(y / tileSize * columns + x / tileSize);
+        }
+    }
+
+    /**
+     * Marks an agent whose drawing or label must be refreshed by the next frame.
+     * @param agentId the id of the agent
+     */
+    public synchronized void markAgent(int agentId) {
+        marks++;
+        if (agentId >= 0) {
+            agents.set(agentId);
+        }
+    }
+
+    /**
+     * Marks the whole grid and every agent, e.g. when the view is resized.
+     */
+    public synchronized void markAll() {
+        marks++;
+        full = true;
+    }
+
+    /**
+     * Takes the marks made since the previous frame, leaving none.
+     * @return the frame to render, or null if nothing changed
+     */
+    public synchronized Frame takeFrame() {
+        if (!full && tiles.isEmpty() && agents.isEmpty()) {
+            return null;
+        }
+        Frame frame = new Frame(tiles, agents, full);
+        tiles = new BitSet(tiles.size());
+        agents = new BitSet();
+        full = false;
+        frames++;
+        return frame;
+    }
+
+    /**
+     * Returns the number of marks made so far, each model event making one or more.
+     * @return the number of marks
+     */
+    public synchronized long getMarkCount() {
+        return marks;
+    }
+
+    /**
+     * Returns the number of frames taken so far.
+     * @return the number of frames
+     */
+    public synchronized long getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * What a frame repaints: the marked tiles and agents, or everything.
+     * A frame is owned by the thread rendering it, which may add the cells it also needs to repaint.
+     */
+    public final class Frame {
+        private final BitSet dirtyTiles;
+        private final BitSet dirtyAgents;
+        private final boolean complete;
+
+        private Frame(BitSet dirtyTiles, BitSet dirtyAgents, boolean complete) {
+            this.dirtyTiles = dirtyTiles;
+            this.dirtyAgents = dirtyAgents;
+            this.complete = complete;
+        }
+
+        /**
+         * Checks whether the frame repaints the whole grid and every label.
+         * @return true if everything is to be repainted
+         */
+        public boolean isFull() {
+            return complete;
+        }
+
+        /**
+         * Returns the agents whose drawing or label changed.
+         * @return the ids of the agents
+         */
+        public BitSet getAgents() {
+            return dirtyAgents;
+        }
+
+        /**
+         * Adds a cell to the regions of this frame, e.g. where a moved agent was drawn last.
+         * @param x the x-coordinate of the cell
+         * @param y the y-coordinate of the cell
+         */
+        public void addCell(int x, int y) {
+            if (x >= 0 && x < width && y >= 0 && y < height) {
+                dirtyTiles.set(y / tileSize * columns + x / tileSize);
+            }
+        }
+
+        /**
+         * Returns the number of grid cells the regions of this frame cover.
+         * @return the number of cells to repaint
+         */
+        public long getCellCount() {
+            long cells = 0;
+            for (Rectangle region : getRegions()) {
+                cells += (long) region.width * region.height;
+            }
+            return cells;
+        }
+
+        /**
+         * Returns the regions to repaint, in cells, joining the marked tiles that follow each other on a row of tiles.
+         * @return the regions, clipped to the grid, row of tiles by row of tiles
+         */
+        public List<Rectangle> getRegions() {
+            List<Rectangle> regions = new ArrayList<>();
+            if (complete) {
+                regions.add(new Rectangle(0, 0, width, height));
+                return regions;
+            }
+            for (int tile = dirtyTiles.nextSetBit(0); tile >= 0; ) {
+                int row = tile / columns;
+                int end = dirtyTiles.nextClearBit(tile);
+                // a run of tiles ends with its row
+                end = Math.min(end, (row + 1) * columns);
+                int x = tile % columns * tileSize;
+                int y = row * tileSize;
+                int right = Math.min(width, (end - row * columns) * tileSize);
+                regions.add(new Rectangle(x, y, right - x, Math.min(tileSize, height - y)));
+                tile = dirtyTiles.nextSetBit(end);
+            }
+            return regions;
+        }
+    }
+}
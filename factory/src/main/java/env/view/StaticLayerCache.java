@@ -0,0 +1,257 @@
+package env.view;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * StaticLayerCache keeps the content of the grid that does not move — grid lines, obstacles, truck, delivery place
+ * and charging stations — pre-rendered in images of square tiles of cells, so that a paint only copies images
+ * and draws the agents on top. A tile is rendered the first time it is drawn and kept until a cell of it is
+ * invalidated; the least recently drawn tiles are dropped once the images hold more than a budget of pixels, so
+ * that large grids only keep the tiles around the part on screen. The tiles of the paint in progress are never
+ * dropped, so a view larger than the budget does not render its own tiles again on every paint.
+ * Cells may be invalidated from any thread; tiles are drawn on one thread.
+ */
+public final class StaticLayerCache {
+    /** Side of the tiles used by default, in cells. */
+    public static final int DEFAULT_TILE_SIZE = 16;
+    /** Number of pixels of the tile images kept by default, 64 MB of {@code TYPE_INT_RGB} images. */
+    public static final long DEFAULT_MAX_PIXELS = 1L << 24;
+
+    /**
+     * Draws the static content of a block of cells.
+     */
+    public interface TileRenderer {
+        /**
+         * Draws the static content of the cells from (x, y) included to (x + width, y + height) excluded,
+         * the graphics being translated so that cell (x, y) starts at pixel (0, 0).
+         * The closing grid lines on the right and at the bottom of the block are also drawn.
+         * @param g        the graphics of the tile image
+         * @param x        the x-coordinate of the first cell
+         * @param y        the y-coordinate of the first cell
+         * @param width    the number of columns of cells
+         * @param height   the number of rows of cells
+         * @param cellSize the side of a cell, in pixels
+         */
+        void render(Graphics2D g, int x, int y, int width, int height, int cellSize);
+    }
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int columns;
+    private final TileRenderer renderer;
+    private final long maxPixels;
+    private final Map<Integer, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private final BitSet stale = new BitSet();
+    private boolean allStale;
+    private int cellSize;
+    private long renderedTiles;
+    private long pixels;
+    private long paint;
+
+    /**
+     * Creates an empty cache with tiles of {@link #DEFAULT_TILE_SIZE} cells, within {@link #DEFAULT_MAX_PIXELS} pixels.
+     * @param width    the number of columns of the grid
+     * @param height   the number of rows of the grid
+     * @param cellSize the side of a cell, in pixels
+     * @param renderer draws the static content of the tiles
+     */
+    public StaticLayerCache(int width, int height, int cellSize, TileRenderer renderer) {
+        this(width, height, cellSize, DEFAULT_TILE_SIZE, DEFAULT_MAX_PIXELS, renderer);
+    }
+
+    /**
+     * Creates an empty cache.
+     * @param width    the number of columns of the grid
+     * @param height   the number of rows of the grid
+     * @param cellSize the side of a cell, in pixels
+     * @param tileSize the side of the tiles, in cells
+     * @param maxPixels the number of pixels of the tile images kept beyond the tiles of the paint in progress
+     * @param renderer draws the static content of the tiles
+     * @throws IllegalArgumentException if a dimension, the cell size, the tile size or the number of pixels is not positive
+     */
+    public StaticLayerCache(int width, int height, int cellSize, int tileSize, long maxPixels, TileRenderer renderer) {
+        if (width <= 0 || height <= 0 || cellSize <= 0 || tileSize <= 0 || maxPixels <= 0) {
+            throw new IllegalArgumentException("Cache of a " + width + "x" + height + " grid with cells of " + cellSize
+                + " pixels and tiles of " + tileSize + " cells within " + maxPixels + " pixels is not valid");
+        }
+        this.width = width;
+        this.height = height;
+        this.cellSize = cellSize;
+        this.tileSize = tileSize;
+        this.columns = (width + tileSize - 1) / tileSize;
+        this.maxPixels = maxPixels;
+        this.renderer = renderer;
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Changes the side of the cells, e.g. when zooming, dropping every tile.
+     * @param cellSize the side of a cell, in pixels
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public void setCellSize(int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive but was " + cellSize);
+        }
+        if (cellSize != this.cellSize) {
+            this.cellSize = cellSize;
+            clear();
+        }
+    }
+
+    /**
+     * Marks the tile of a cell to be rendered again when next drawn. Cells outside the grid are ignored.
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     */
+    public synchronized void invalidate(int x, int y) {
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            stale.set(y / tileSize * columns + x / tileSize);
+        }
+    }
+
+    /**
+     * Marks every tile to be rendered again when next drawn.
+     */
+    public synchronized void invalidateAll() {
+        allStale = true;
+    }
+
+    /**
+     * Draws the static content of a block of cells, rendering the tiles that are missing or invalidated.
+     * @param g     the graphics of the grid, cell (0, 0) starting at pixel (0, 0)
+     * @param cells the cells to draw
+     */
+    public void draw(Graphics2D g, Rectangle cells) {
+        dropStaleTiles();
+        paint++;
+        int fromColumn = Math.max(0, cells.x) / tileSize;
+        int fromRow = Math.max(0, cells.y) / tileSize;
+        int toColumn = Math.min(width - 1, cells.x + cells.width - 1) / tileSize;
+        int toRow = Math.min(height - 1, cells.y + cells.height - 1) / tileSize;
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                g.drawImage(tile(column, row), column * tileSize * cellSize, row * tileSize * cellSize, null);
+            }
+        }
+        trim();
+    }
+
+    /**
+     * Returns the number of tile images currently kept.
+     * @return the number of tiles
+     */
+    public int size() {
+        return tiles.size();
+    }
+
+    /**
+     * Returns the number of tiles rendered so far, a tile drawn from the cache not counting.
+     * @return the number of renderings
+     */
+    public long getRenderedTiles() {
+        return renderedTiles;
+    }
+
+    /**
+     * Returns the number of pixels of the tile images currently kept.
+     * @return the number of pixels
+     */
+    public long getPixels() {
+        return pixels;
+    }
+
+    private void dropStaleTiles() {
+        synchronized (this) {
+            if (allStale) {
+                clear();
+                stale.clear();
+                allStale = false;
+                return;
+            }
+            if (stale.isEmpty()) {
+                return;
+            }
+            for (Iterator<Map.Entry<Integer, Tile>> it = tiles.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Integer, Tile> entry = it.next();
+                if (stale.get(entry.getKey())) {
+                    pixels -= entry.getValue().pixels();
+                    it.remove();
+                }
+            }
+            stale.clear();
+        }
+    }
+
+    private void clear() {
+        tiles.clear();
+        pixels = 0;
+    }
+
+    /**
+     * Drops the least recently drawn tiles until the images fit the budget, stopping at the first tile of the
+     * paint in progress: the access order puts all of them after the tiles of earlier paints.
+     */
+    private void trim() {
+        for (Iterator<Tile> it = tiles.values().iterator(); pixels > maxPixels && it.hasNext(); ) {
+            Tile eldest = it.next();
+            if (eldest.paint == paint) {
+                return;
+            }
+            pixels -= eldest.pixels();
+            it.remove();
+        }
+    }
+
+    private BufferedImage tile(int column, int row) {
+        int index = row * columns + column;
+        Tile tile = tiles.get(index);
+        if (tile != null) {
+            tile.paint = paint;
+            return tile.image;
+        }
+        int x = column * tileSize;
+        int y = row * tileSize;
+        int cellsWide = Math.min(tileSize, width - x);
+        int cellsHigh = Math.min(tileSize, height - y);
+        // one more pixel for the closing grid lines
+        BufferedImage image = new BufferedImage(cellsWide * cellSize + 1, cellsHigh * cellSize + 1,
+            BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            renderer.render(g, x, y, cellsWide, cellsHigh, cellSize);
+        } finally {
+            g.dispose();
+        }
+        tile = new Tile(image, paint);
+        tiles.put(index, tile);
+        pixels += tile.pixels();
+        renderedTiles++;
+        trim();
+        return image;
+    }
+
+    private static final class Tile {
+        final BufferedImage image;
+        long paint;
+
+        Tile(BufferedImage image, long paint) {
+            this.image = image;
+            this.paint = paint;
+        }
+
+        long pixels() {
+            return (long) image.getWidth() * image.getHeight();
+        }
+    }
+}
@@ -15,7 +15,6 @@ import jason.asSyntax.Term;
  * and adds a belief about the charging station's location.
  */
 public class charging_station_init extends DefaultInternalAction {
-    private static final FactoryModel FACTORY_MODEL = new FactoryModel();
     private int x;
     private int y;
 
@@ -46,10 +45,11 @@ public class charging_station_init extends DefaultInternalAction {
      * @throws RevisionFailedException if the belief cannot be added
      */
     private void addRandomLocationBelief(Agent currentAgent) throws RevisionFailedException {
+        FactoryModel model = FactoryModel.current();
         do {
-            x = (int) (Math.random() * FactoryModel.GSize);
-            y = (int) (Math.random() * FactoryModel.GSize);
-        } while (!(FACTORY_MODEL.isFree(x,y) && !FACTORY_MODEL.isAdjacentToKeyLocation(x,y)));
+            x = (int) (Math.random() * model.getWidth());
+            y = (int) (Math.random() * model.getHeight());
+        } while (!(model.isFree(x,y) && !model.isAdjacentToKeyLocation(x,y)));
 
         currentAgent.addBel(Literal.parseLiteral(String.format("location(%d, %d)", x, y)));
     }
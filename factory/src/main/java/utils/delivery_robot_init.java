@@ -18,7 +18,6 @@ import jason.asSyntax.Term;
  */
 public class delivery_robot_init extends DefaultInternalAction {
     private static Random random = new Random();
-    private static final FactoryModel FACTORY_MODEL = new FactoryModel();
     private int x;
     private int y;
 
@@ -63,7 +62,8 @@ public class delivery_robot_init extends DefaultInternalAction {
      * @throws RevisionFailedException if the belief cannot be added
      */
     private void addDeliveryPositionBelief(Agent currentAgent) throws RevisionFailedException {
-        currentAgent.addBel(Literal.parseLiteral(String.format("delivery_position(%d, %d, %d)", FACTORY_MODEL.getDeliveryId(), FACTORY_MODEL.getDeliveryLocation().x, FACTORY_MODEL.getDeliveryLocation().y)));
+        FactoryModel model = FactoryModel.current();
+        currentAgent.addBel(Literal.parseLiteral(String.format("delivery_position(%d, %d, %d)", model.getDeliveryId(), model.getDeliveryLocation().x, model.getDeliveryLocation().y)));
     }
 
     /**
@@ -74,10 +74,11 @@ public class delivery_robot_init extends DefaultInternalAction {
      * @throws RevisionFailedException if the belief cannot be added
      */
     private void addCurrentPositionBelief(Agent currentAgent) throws RevisionFailedException {
+        FactoryModel model = FactoryModel.current();
         do {
-            x = (int) (Math.random() * FactoryModel.GSize);
-            y = (int) (Math.random() * FactoryModel.GSize);
-        } while (!FACTORY_MODEL.isFree(x, y));
+            x = (int) (Math.random() * model.getWidth());
+            y = (int) (Math.random() * model.getHeight());
+        } while (!model.isFree(x, y));
         
         currentAgent.addBel(Literal.parseLiteral(String.format("current_position(%d, %d)", x, y)));
     }
@@ -90,6 +91,7 @@ public class delivery_robot_init extends DefaultInternalAction {
      * @throws RevisionFailedException if the belief cannot be added
      */
     private void addTruckPositionBelief(Agent currentAgent) throws RevisionFailedException {
-        currentAgent.addBel(Literal.parseLiteral(String.format("truck_position(%d, %d)", FACTORY_MODEL.getTruckLocation().x, FACTORY_MODEL.getTruckLocation().y)));
+        FactoryModel model = FactoryModel.current();
+        currentAgent.addBel(Literal.parseLiteral(String.format("truck_position(%d, %d)", model.getTruckLocation().x, model.getTruckLocation().y)));
     }
 }
\ No newline at end of file
@@ -15,7 +15,6 @@ import jason.asSyntax.Term;
  * of the human agent.
  */
 public class human_init extends DefaultInternalAction {
-    private static final FactoryModel FACTORY_MODEL = new FactoryModel();
     private int x;
     private int y;
 
@@ -46,10 +45,11 @@ public class human_init extends DefaultInternalAction {
      * @throws RevisionFailedException if the belief cannot be added
      */
     private void addLocationBelief(Agent currentAgent) throws RevisionFailedException {
+        FactoryModel model = FactoryModel.current();
         do {
-            x = (int) (Math.random() * FactoryModel.GSize);
-            y = (int) (Math.random() * FactoryModel.GSize);
-        } while (!FACTORY_MODEL.isFree(x, y));
+            x = (int) (Math.random() * model.getWidth());
+            y = (int) (Math.random() * model.getHeight());
+        } while (!model.isFree(x, y));
         
         currentAgent.addBel(Literal.parseLiteral(String.format("current_position(%d, %d)", x, y)));
     }
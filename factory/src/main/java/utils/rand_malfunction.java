@@ -1,5 +1,6 @@
 package utils;
 
+import env.FactoryModel;
 import jason.asSemantics.DefaultInternalAction;
 import jason.asSemantics.TransitionSystem;
 import jason.asSemantics.Unifier;
@@ -12,6 +13,7 @@ import java.util.Random;
 /**
  * Internal action to generate a random malfunction value.
  * It unifies the result with a variable provided as the first argument.
+ * When the run sets a malfunction probability, the value is 1 with that probability and 0 otherwise.
  */
 public class rand_malfunction extends DefaultInternalAction {
     
@@ -39,8 +41,13 @@ public class rand_malfunction extends DefaultInternalAction {
      */
     @Override
     public Object execute(TransitionSystem ts, Unifier un, Term[] args) throws Exception {        
-        // Generate random double between 0.0 and 1.0
+        // Generate random double between 0.0 and 1.0, or 1.0 and 0.0 at the configured rate
+        FactoryModel model = FactoryModel.current();
+        double probability = model != null ? model.getMalfunctionProbability() : -1;
         double randomValue = random.nextDouble();
+        if (probability >= 0) {
+            randomValue = randomValue < probability ? 1.0 : 0.0;
+        }
         
         // Create a NumberTerm with the random value
         NumberTerm randomTerm = new NumberTermImpl(randomValue);
@@ -0,0 +1,51 @@
+package utils;
+
+import env.SimulationClock;
+import jason.asSemantics.DefaultInternalAction;
+import jason.asSemantics.TransitionSystem;
+import jason.asSemantics.Unifier;
+import jason.asSyntax.NumberTermImpl;
+import jason.asSyntax.Term;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Internal action that gives the date and time of the simulation clock,
+ * as {@code .date} and {@code .time} give the wall-clock ones.
+ * It unifies the arguments with the year, month, day, hour, minute and second.
+ */
+public class sim_time extends DefaultInternalAction {
+
+    @Override
+    public int getMinArgs() {
+        return 6;
+    }
+
+    @Override
+    public int getMaxArgs() {
+        return 6;
+    }
+
+    /**
+     * Executes the internal action to read the simulated date and time.
+     *
+     * @param ts   the transition system
+     * @param un   the unifier
+     * @param args the arguments (year, month, day, hour, minute, second)
+     * @return true if the unification was successful
+     * @throws Exception if an error occurs during execution
+     */
+    @Override
+    public Object execute(TransitionSystem ts, Unifier un, Term[] args) throws Exception {
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(SimulationClock.current().epochMillis()), ZoneId.systemDefault());
+
+        return un.unifies(args[0], new NumberTermImpl(now.getYear()))
+            && un.unifies(args[1], new NumberTermImpl(now.getMonthValue()))
+            && un.unifies(args[2], new NumberTermImpl(now.getDayOfMonth()))
+            && un.unifies(args[3], new NumberTermImpl(now.getHour()))
+            && un.unifies(args[4], new NumberTermImpl(now.getMinute()))
+            && un.unifies(args[5], new NumberTermImpl(now.getSecond()));
+    }
+}
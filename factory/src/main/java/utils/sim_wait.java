@@ -0,0 +1,43 @@
+package utils;
+
+import env.SimulationClock;
+import jason.asSemantics.TransitionSystem;
+import jason.asSemantics.Unifier;
+import jason.asSyntax.NumberTerm;
+import jason.asSyntax.NumberTermImpl;
+import jason.asSyntax.Term;
+import jason.stdlib.wait;
+
+/**
+ * Internal action that behaves like {@code .wait}, with its timeout measured on the simulation clock.
+ * The timeout is shortened by the speedup of the clock, so the agents keep their pace relative to
+ * simulated time. In real time it is the same as {@code .wait}.
+ */
+public class sim_wait extends wait {
+
+    /**
+     * Executes the wait with the timeout converted to wall-clock time.
+     * The timeout is the first argument, as in {@code utils.sim_wait(750)}, or the second one,
+     * as in {@code utils.sim_wait({+event}, 2000)}.
+     *
+     * @param ts   the transition system
+     * @param un   the unifier
+     * @param args the arguments of {@code .wait}
+     * @return the result of {@code .wait}
+     * @throws Exception if an error occurs during execution
+     */
+    @Override
+    public Object execute(TransitionSystem ts, Unifier un, Term[] args) throws Exception {
+        SimulationClock clock = SimulationClock.current();
+        if (!clock.isRealTime() && args.length > 0) {
+            int timeout = args[0].isNumeric() ? 0 : 1;
+            if (timeout < args.length && args[timeout].isNumeric()) {
+                Term[] scaled = args.clone();
+                long simulated = (long) ((NumberTerm) args[timeout]).solve();
+                scaled[timeout] = new NumberTermImpl(clock.toRealMillis(simulated));
+                return super.execute(ts, un, scaled);
+            }
+        }
+        return super.execute(ts, un, args);
+    }
+}
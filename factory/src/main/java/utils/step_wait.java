@@ -0,0 +1,31 @@
+package utils;
+
+import env.action.StepCoordinator;
+import jason.asSemantics.TransitionSystem;
+import jason.asSemantics.Unifier;
+import jason.asSyntax.Term;
+
+/**
+ * Internal action pacing the steps of an agent, as in {@code utils.step_wait(750)} after a move.
+ * It waits like {@code utils.sim_wait}, unless the environment runs in lockstep: the action before it
+ * was then already held until the end of its tick, and waiting again would halve the pace of the agent.
+ */
+public class step_wait extends sim_wait {
+
+    /**
+     * Returns right away in lockstep, and executes the wait of {@code utils.sim_wait} otherwise.
+     *
+     * @param ts   the transition system
+     * @param un   the unifier
+     * @param args the arguments of {@code .wait}
+     * @return the result of {@code .wait}, or true in lockstep
+     * @throws Exception if an error occurs during execution
+     */
+    @Override
+    public Object execute(TransitionSystem ts, Unifier un, Term[] args) throws Exception {
+        if (StepCoordinator.current() != null) {
+            return true;
+        }
+        return super.execute(ts, un, args);
+    }
+}
@@ -0,0 +1,260 @@
+package env;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import env.agent.DeliveryRobot;
+import env.behaviour.MovementManager;
+import env.grid.CellLayers;
+import env.journal.JournalReader;
+import env.journal.ModelJournal;
+import env.journal.RecordType;
+import jason.environment.grid.Location;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Drives the model, the robots and the cell layers from several threads at once
+ * and checks that no update is lost and no two agents ever share a cell.
+ */
+class ConcurrencyStressTest {
+
+    private static final int THREADS = 8;
+
+    /**
+     * Runs a task on every thread, all of them starting together, and rethrows the first failure.
+     */
+    private static void runConcurrently(int threads, IntConsumer task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.accept(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should never put two robots on one cell when many robots move at once")
+    void testCrowdedMoves() throws Exception {
+        int size = 32;
+        int robots = 256;
+        FactoryModel model = TestModels.empty(size);
+        for (int id = 0; id < robots; id++) {
+            Location location = new Location(id % size, id / size * 4);
+            model.addDeliveryRobot(new DeliveryRobot("robot" + id, 100, location));
+            model.setAgPos(model.getAgentRegistry().getId("robot" + id), location);
+        }
+        AtomicInteger moves = new AtomicInteger();
+
+        // each thread moves its own robots at random, so the cells are contended but no robot is moved twice at once
+        runConcurrently(THREADS, thread -> {
+            Random random = new Random(thread);
+            for (int step = 0; step < 2000; step++) {
+                int id = model.getAgentRegistry().getId("robot" + (thread + THREADS * random.nextInt(robots / THREADS)));
+                Location from = model.getAgPos(id);
+                Location to = new Location(from.x + random.nextInt(3) - 1, from.y + random.nextInt(3) - 1);
+                if (model.tryMoveAgent(id, to)) {
+                    moves.incrementAndGet();
+                }
+            }
+        });
+
+        Set<Location> cells = new HashSet<>();
+        for (int id = 0; id < robots; id++) {
+            int agentId = model.getAgentRegistry().getId("robot" + id);
+            Location position = model.getAgPos(agentId);
+            assertTrue(cells.add(position), "two robots on " + position);
+            assertEquals(agentId, model.getAgAtPos(position));
+        }
+        assertAll(
+            () -> assertTrue(moves.get() > 0),
+            () -> assertEquals(robots, model.getOccupancy().count()),
+            () -> assertEquals(robots, model.countObjects(FactoryModel.AGENT))
+        );
+    }
+
+    @Test
+    @DisplayName("Should keep the position index in step with the grid when robots walk at once")
+    void testIndexFollowsMoves() throws Exception {
+        int size = 48;
+        int robots = 128;
+        FactoryModel model = TestModels.empty(size);
+        for (int id = 0; id < robots; id++) {
+            Location location = new Location(id % size, id / size * 8);
+            model.addDeliveryRobot(new DeliveryRobot("robot" + id, 100, location));
+            model.setAgPos(model.getAgentRegistry().getId("robot" + id), location);
+        }
+        MovementManager movement = model.getMovementManager();
+
+        // each thread walks its own robots towards random cells, across the buckets of the index
+        runConcurrently(THREADS, thread -> {
+            Random random = new Random(thread);
+            for (int step = 0; step < 2000; step++) {
+                int id = model.getAgentRegistry().getId("robot" + (thread + THREADS * random.nextInt(robots / THREADS)));
+                Location destination = new Location(random.nextInt(size), random.nextInt(size));
+                movement.moveTowards(id, destination, model.getAgPos(id));
+            }
+        });
+
+        for (int id = 0; id < robots; id++) {
+            String name = "robot" + id;
+            Location position = model.getAgPos(model.getAgentRegistry().getId(name));
+            List<String> names = new ArrayList<>();
+            model.getAgentsAt(position).forEach(agent -> names.add(agent.getName()));
+            assertEquals(List.of(name), names, "index at " + position);
+        }
+        assertAll(
+            () -> assertTrue(movement.getMovedSteps() > 0),
+            () -> assertEquals(robots, model.getAgentsIn(0, 0, size, size).size())
+        );
+    }
+
+    @Test
+    @DisplayName("Should give a contested cell to exactly one robot")
+    void testContestedCell() throws Exception {
+        FactoryModel model = TestModels.empty(FactoryModel.GSize);
+        Location target = new Location(6, 6);
+        Location[] starts = {new Location(5, 6), new Location(7, 6), new Location(6, 5), new Location(6, 7)};
+        int[] ids = new int[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            model.addDeliveryRobot(new DeliveryRobot("robot" + i, 100, starts[i]));
+            ids[i] = model.getAgentRegistry().getId("robot" + i);
+        }
+
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < starts.length; i++) {
+                model.setAgPos(ids[i], starts[i]);
+            }
+            ConcurrentLinkedQueue<Integer> winners = new ConcurrentLinkedQueue<>();
+            runConcurrently(starts.length, thread -> {
+                if (model.tryMoveAgent(ids[thread], target)) {
+                    winners.add(ids[thread]);
+                }
+            });
+
+            assertEquals(1, winners.size(), "round " + round);
+            assertEquals((int) winners.peek(), model.getAgAtPos(target));
+        }
+    }
+
+    @Test
+    @DisplayName("Should lose no battery update when several threads drain one robot")
+    void testBatteryDrain() throws Exception {
+        DeliveryRobot robot = new DeliveryRobot("robot1", 100, new Location(0, 0));
+
+        for (int round = 0; round < 50; round++) {
+            robot.getAndSetBattery(100);
+            ConcurrentLinkedQueue<Integer> levels = new ConcurrentLinkedQueue<>();
+            runConcurrently(THREADS, thread -> {
+                for (int i = 0; i < 100 / THREADS + 1; i++) {
+                    levels.add(robot.getAndDecreaseBattery(1));
+                }
+            });
+
+            // every level from 100 down to 1 was seen by exactly one decrement, the rest found the battery empty
+            Set<Integer> seen = new HashSet<>();
+            for (int level : levels) {
+                assertTrue(level == 0 || seen.add(level), "level " + level + " seen twice");
+            }
+            assertEquals(100, seen.size());
+            assertEquals(0, robot.getBattery());
+        }
+    }
+
+    @Test
+    @DisplayName("Should lose no state flag when several threads toggle different flags of one robot")
+    void testStateFlags() throws Exception {
+        DeliveryRobot robot = new DeliveryRobot("robot1", 100, new Location(0, 0));
+        int[] flags = {DeliveryRobot.CARRYING_PACKAGE, DeliveryRobot.MALFUNCTIONING, DeliveryRobot.CHARGING,
+            DeliveryRobot.SEEKING_CHARGING_STATION, DeliveryRobot.BATTERY_SHARING, DeliveryRobot.HELPING_ROBOT};
+
+        // threads of even index end with their flag set, the others with it cleared
+        runConcurrently(flags.length, thread -> {
+            for (int i = 0; i < 10000 + thread % 2; i++) {
+                robot.getAndSetFlag(flags[thread], i % 2 == 1);
+            }
+        });
+
+        for (int i = 0; i < flags.length; i++) {
+            assertEquals(i % 2 == 0, robot.hasFlag(flags[i]), "flag " + flags[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep every object added at once to cells sharing a word")
+    void testCellLayersAdds() throws Exception {
+        int size = 256;
+        CellLayers cells = new CellLayers(size, size);
+
+        // thread t adds an obstacle to every cell whose index is t modulo the number of threads
+        runConcurrently(THREADS, thread -> {
+            for (int index = thread; index < size * size; index += THREADS) {
+                cells.add(FactoryModel.OBSTACLE, index % size, index / size);
+            }
+        });
+
+        assertEquals(size * size, cells.count(FactoryModel.OBSTACLE));
+    }
+
+    @Test
+    @DisplayName("Should keep every record appended at once to the journal, in order for each thread")
+    void testConcurrentJournal(@TempDir Path dir) throws Exception {
+        int records = 2000;
+        // small segments, so that the threads roll over all the time, named records spanning two of them
+        try (ModelJournal journal = new ModelJournal(dir, 8 * ModelJournal.RECORD_BYTES, new SimulationClock(1.0))) {
+            runConcurrently(THREADS, thread -> {
+                for (int i = 0; i < records; i++) {
+                    if (i % 50 == 0) {
+                        journal.append(RecordType.ROBOT_ADDED, "robot_with_a_long_name_" + thread, thread, 0, 0, i, 0);
+                    } else {
+                        journal.append(RecordType.BATTERY, thread, 0, 0, i, 0);
+                    }
+                }
+            });
+            assertEquals(0, journal.getDropped());
+        }
+
+        int[] next = new int[THREADS];
+        try (JournalReader reader = new JournalReader(dir)) {
+            while (reader.next()) {
+                int thread = reader.agent();
+                assertEquals(next[thread]++, reader.value());
+                if (reader.type() == RecordType.ROBOT_ADDED) {
+                    assertEquals("robot_with_a_long_name_" + thread, reader.name());
+                } else {
+                    assertNull(reader.name());
+                }
+            }
+        }
+        for (int thread = 0; thread < THREADS; thread++) {
+            assertEquals(records, next[thread]);
+        }
+    }
+}
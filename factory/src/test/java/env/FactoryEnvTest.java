@@ -9,12 +9,17 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.api.io.TempDir;
 
 import jason.asSyntax.*;
 import jason.environment.grid.Location;
 import env.agent.DeliveryRobot;
 
 import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 class FactoryEnvTest {
@@ -46,6 +51,26 @@ class FactoryEnvTest {
             assertDoesNotThrow(() -> env.init(new String[]{"gui"}));
         }
 
+        @Test
+        @DisplayName("Should run on a virtual clock when a speedup is provided")
+        void testInitWithSpeedup() {
+            FactoryEnv env = new FactoryEnv();
+            env.init(new String[]{"speedup=max"});
+
+            assertEquals(SimulationClock.MAX_SPEEDUP, env.getClock().getSpeedup());
+            assertSame(env.getClock(), SimulationClock.current());
+            env.getClock().advance(8 * 60 * 60 * 1000L);
+            assertTrue(env.getSimulationTime() >= 8 * 60 * 60 * 1000L);
+        }
+
+        @Test
+        @DisplayName("Should fall back to real time with an invalid speedup")
+        void testInitWithInvalidSpeedup() {
+            FactoryEnv env = new FactoryEnv();
+            assertDoesNotThrow(() -> env.init(new String[]{"speedup=fast"}));
+            assertTrue(env.getClock().isRealTime());
+        }
+
         @Test
         @DisplayName("Should initialize without GUI when non-gui arg provided")
         void testInitWithNonGuiArg() {
@@ -237,6 +262,298 @@ class FactoryEnvTest {
             boolean result = factoryEnv.executeAction("d_bot_1", updateAction);
             assertFalse(result);
         }
+
+        @Test
+        @DisplayName("Should fail move_towards_target when the robot has to wait and keep its battery")
+        void testExecuteActionMoveTowardsTargetWaits() {
+            FactoryEnv env = new FactoryEnv();
+            env.init(new String[]{"walls=0", "movement=astar"});
+            env.executeAction("d_bot_1", Structure.parse("register_dbot(d_bot_1, 80, 2, 2)"));
+            // the four neighbours of the robot are taken by robots moving onto their own cell
+            int[][] neighbours = {{1, 2}, {3, 2}, {2, 1}, {2, 3}};
+            for (int i = 0; i < neighbours.length; i++) {
+                String name = "d_bot_" + (i + 2);
+                String cell = neighbours[i][0] + ", " + neighbours[i][1];
+                env.executeAction(name, Structure.parse("register_dbot(" + name + ", 80, " + cell + ")"));
+                env.executeAction(name, Structure.parse("move_towards_target(" + cell + ", " + cell + ")"));
+            }
+
+            assertFalse(env.executeAction("d_bot_1", Structure.parse("move_towards_target(5, 5, 2, 2)")));
+            assertEquals(new Location(2, 2), env.getDeliveryRobotById(0).getLocation());
+            assertEquals(80, env.getCurrentBatteryLevel("d_bot_1"));
+            env.stop();
+        }
+
+        @Test
+        @DisplayName("Should time the actions and count their failures by functor")
+        void testExecuteActionMetrics() {
+            factoryEnv.executeAction("d_bot_1", Structure.parse("update_battery_level(75)"));
+            factoryEnv.executeAction("d_bot_1", Structure.parse("update_battery_level(150)"));
+
+            String series = "factory_action_seconds{functor=\"update_battery_level\"}";
+            assertEquals(2, factoryEnv.getMetrics().histograms().get(series).count());
+            assertEquals(1L, (long) factoryEnv.getMetrics().counters().get("factory_action_failures{functor=\"update_battery_level\"}"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Action Dispatch Tests")
+    class ActionDispatchTests {
+
+        @Test
+        @DisplayName("Should update status flag of a registered robot")
+        void testStatusActionUpdatesRegisteredRobot() {
+            factoryEnv.executeAction("d_bot_1", Structure.parse("register_dbot(d_bot_1, 80, 1, 1)"));
+
+            assertTrue(factoryEnv.executeAction("d_bot_1", Structure.parse("going_towards_delivery_location(true)")));
+            assertTrue(factoryEnv.getDeliveryRobotById(0).isCarryingPackage());
+
+            assertTrue(factoryEnv.executeAction("d_bot_1", Structure.parse("going_towards_delivery_location(false)")));
+            assertFalse(factoryEnv.getDeliveryRobotById(0).isCarryingPackage());
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {
+            "going_towards_delivery_location(true)",
+            "moving_to_robot_to_repair_it(true)",
+            "recharging_robot_after_malfunction(true)",
+            "battery_charging_update(true)",
+            "going_towards_charging_station(true)",
+            "waiting_reparations_due_to_malfunction(true)"
+        })
+        @DisplayName("Should fail status actions for robots that are not registered")
+        void testStatusActionUnknownRobot(String action) {
+            assertFalse(factoryEnv.executeAction("d_bot_2", Structure.parse(action)));
+        }
+
+        @Test
+        @DisplayName("Should fail status action with wrong parameter count")
+        void testStatusActionWrongArity() {
+            factoryEnv.executeAction("d_bot_1", Structure.parse("register_dbot(d_bot_1, 80, 1, 1)"));
+            assertFalse(factoryEnv.executeAction("d_bot_1", Structure.parse("battery_charging_update(true, false)")));
+        }
+
+        @Test
+        @DisplayName("Should fail move_towards_target with non numeric parameters")
+        void testMoveTowardsTargetWrongTypes() {
+            factoryEnv.executeAction("d_bot_1", Structure.parse("register_dbot(d_bot_1, 80, 1, 1)"));
+            assertFalse(factoryEnv.executeAction("d_bot_1", Structure.parse("move_towards_target(a, 2, 1, 1)")));
+        }
+
+        @Test
+        @DisplayName("Should resolve the robot registered after the agent's first action")
+        void testHandleResolvesLateRegistration() {
+            assertFalse(factoryEnv.executeAction("d_bot_1", Structure.parse("battery_charging_update(true)")));
+            factoryEnv.executeAction("d_bot_1", Structure.parse("register_dbot(d_bot_1, 80, 1, 1)"));
+            assertTrue(factoryEnv.executeAction("d_bot_1", Structure.parse("battery_charging_update(true)")));
+            assertTrue(factoryEnv.getDeliveryRobotById(0).isCharging());
+        }
+    }
+
+    @Nested
+    @DisplayName("Dynamic Fleet Tests")
+    class DynamicFleetTests {
+
+        @Test
+        @DisplayName("Should register and move robots beyond the default fleet")
+        void testLargeFleet() {
+            for (int i = 1; i <= 200; i++) {
+                assertTrue(factoryEnv.executeAction("robot" + i, Structure.parse("register_dbot(robot" + i + ", 80, 0, 0)")));
+            }
+            assertTrue(factoryEnv.executeAction("robot200", Structure.parse("going_towards_delivery_location(true)")));
+            assertTrue(factoryEnv.executeAction("robot200", Structure.parse("move_towards_target(5, 5, 0, 0)")));
+
+            assertEquals(79, factoryEnv.getCurrentBatteryLevel("robot200"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Percept Update Tests")
+    class PerceptUpdateTests {
+
+        @Test
+        @DisplayName("Should replace the battery percept only when the level changes")
+        void testBatteryPerceptReplaced() {
+            factoryEnv.executeAction("d_bot_1", Structure.parse("register_dbot(d_bot_1, 80, 1, 1)"));
+            factoryEnv.executeAction("d_bot_1", Structure.parse("update_battery_level(70)"));
+            long updates = factoryEnv.getPerceptStore().getUpdateCount();
+
+            factoryEnv.executeAction("d_bot_1", Structure.parse("update_battery_level(70)"));
+
+            assertEquals(updates, factoryEnv.getPerceptStore().getUpdateCount());
+            assertTrue(factoryEnv.containsPercept("d_bot_1", Literal.parseLiteral("batteryLevel(70)")));
+            assertFalse(factoryEnv.containsPercept("d_bot_1", Literal.parseLiteral("batteryLevel(80)")));
+        }
+
+        @Test
+        @DisplayName("Should keep a single closest station percept with a string name")
+        void testClosestStationPercept() {
+            factoryEnv.executeAction("d_bot_1", Structure.parse("compute_closest_charging_station([[ch_st_1, 1, 1], [\"ch_st_2\", 9, 9]], 0, 0)"));
+            factoryEnv.executeAction("d_bot_1", Structure.parse("compute_closest_charging_station([[ch_st_1, 1, 1], [\"ch_st_2\", 9, 9]], 10, 10)"));
+
+            assertTrue(factoryEnv.containsPercept("d_bot_1", Literal.parseLiteral("closestChargingStation(\"ch_st_2\", 9, 9)")));
+            assertFalse(factoryEnv.containsPercept("d_bot_1", Literal.parseLiteral("closestChargingStation(\"ch_st_1\", 1, 1)")));
+        }
+
+        @Test
+        @DisplayName("Should answer the closest station query from the registered stations")
+        void testQueryClosestStation() {
+            factoryEnv.executeAction("ch_st_1", Structure.parse("register_charging_station(1, 1)"));
+            factoryEnv.executeAction("ch_st_2", Structure.parse("register_charging_station(9, 9)"));
+
+            assertTrue(factoryEnv.executeAction("d_bot_1", Structure.parse("query_closest_charging_station(10, 8)")));
+            assertTrue(factoryEnv.containsPercept("d_bot_1", Literal.parseLiteral("closestChargingStation(\"ch_st_2\", 9, 9)")));
+
+            factoryEnv.unregisterChargingStation("ch_st_2");
+            factoryEnv.executeAction("d_bot_1", Structure.parse("query_closest_charging_station(10, 8)"));
+            assertTrue(factoryEnv.containsPercept("d_bot_1", Literal.parseLiteral("closestChargingStation(\"ch_st_1\", 1, 1)")));
+
+            factoryEnv.unregisterChargingStation("ch_st_1");
+            factoryEnv.executeAction("d_bot_1", Structure.parse("query_closest_charging_station(10, 8)"));
+            assertFalse(factoryEnv.containsPercept("d_bot_1", Literal.parseLiteral("closestChargingStation(\"ch_st_1\", 1, 1)")));
+        }
+    }
+
+    @Nested
+    @DisplayName("Lockstep Tests")
+    class LockstepTests {
+
+        private FactoryEnv lockstepEnv(long seed) {
+            FactoryEnv env = new FactoryEnv();
+            // a tick long enough for the steps to be run by the test only
+            env.init(new String[]{"lockstep", "tick=3600000", "seed=" + seed});
+            env.executeAction("d_bot_1", Structure.parse("register_dbot(d_bot_1, 80, 2, 2)"));
+            env.executeAction("d_bot_2", Structure.parse("register_dbot(d_bot_2, 80, 4, 2)"));
+            return env;
+        }
+
+        @Test
+        @DisplayName("Should run in lockstep only when requested")
+        void testLockstepFlag() {
+            assertNull(factoryEnv.getStepCoordinator());
+            FactoryEnv env = lockstepEnv(1);
+            assertNotNull(env.getStepCoordinator());
+            env.stop();
+        }
+
+        @Test
+        @DisplayName("Should apply the moves of a tick only when the step runs")
+        void testMovesWaitForStep() {
+            FactoryEnv env = lockstepEnv(1);
+            env.scheduleAction("d_bot_1", Structure.parse("move_towards_target(2, 8, 2, 2)"), null);
+
+            assertEquals(new Location(2, 2), env.getDeliveryRobotById(0).getLocation());
+            assertEquals(1, env.getStepCoordinator().runStep());
+            assertNotEquals(new Location(2, 2), env.getDeliveryRobotById(0).getLocation());
+            env.stop();
+        }
+
+        @Test
+        @DisplayName("Should give a contested cell to the lower id and publish the moves at the end of the step")
+        void testConflictingMoves() {
+            Literal bot1Moved = Literal.parseLiteral("current_position(3,2)");
+            List<Boolean> seenDuringStep = new ArrayList<>();
+            FactoryEnv env = new FactoryEnv() {
+                @Override
+                public boolean executeAction(String agName, Structure action) {
+                    boolean result = super.executeAction(agName, action);
+                    seenDuringStep.add(containsPercept("d_bot_1", bot1Moved));
+                    return result;
+                }
+            };
+            env.init(new String[]{"lockstep", "tick=3600000", "seed=1", "walls=0", "movement=astar"});
+            env.executeAction("d_bot_1", Structure.parse("register_dbot(d_bot_1, 80, 2, 2)"));
+            env.executeAction("d_bot_2", Structure.parse("register_dbot(d_bot_2, 80, 4, 2)"));
+            env.getStepCoordinator().runStep();
+            seenDuringStep.clear();
+
+            // d_bot_2 asks first, but d_bot_1 has the lower id
+            env.scheduleAction("d_bot_2", Structure.parse("move_towards_target(3, 2, 4, 2)"), null);
+            env.scheduleAction("d_bot_1", Structure.parse("move_towards_target(3, 2, 2, 2)"), null);
+            assertEquals(2, env.getStepCoordinator().runStep());
+
+            assertEquals(List.of(false, false), seenDuringStep);
+            assertTrue(env.containsPercept("d_bot_1", bot1Moved));
+            assertEquals(new Location(3, 2), env.getDeliveryRobotById(0).getLocation());
+            assertNotEquals(new Location(3, 2), env.getDeliveryRobotById(1).getLocation());
+            env.stop();
+        }
+
+        @Test
+        @DisplayName("Should give the same positions for the same seed")
+        void testDeterministicSteps() {
+            FactoryEnv first = lockstepEnv(42);
+            FactoryEnv second = lockstepEnv(42);
+            for (FactoryEnv env : new FactoryEnv[]{first, second}) {
+                for (int step = 0; step < 10; step++) {
+                    Location bot1 = env.getDeliveryRobotById(0).getLocation();
+                    Location bot2 = env.getDeliveryRobotById(1).getLocation();
+                    // both robots head for the same cell
+                    env.scheduleAction("d_bot_2", Structure.parse("move_towards_target(3, 9, " + bot2.x + ", " + bot2.y + ")"), null);
+                    env.scheduleAction("d_bot_1", Structure.parse("move_towards_target(3, 9, " + bot1.x + ", " + bot1.y + ")"), null);
+                    env.getStepCoordinator().runStep();
+                }
+            }
+
+            assertEquals(first.getDeliveryRobotById(0).getLocation(), second.getDeliveryRobotById(0).getLocation());
+            assertEquals(first.getDeliveryRobotById(1).getLocation(), second.getDeliveryRobotById(1).getLocation());
+            assertNotEquals(first.getDeliveryRobotById(0).getLocation(), first.getDeliveryRobotById(1).getLocation());
+            first.stop();
+            second.stop();
+        }
+    }
+
+    @Nested
+    @DisplayName("Run Summary Tests")
+    class RunSummaryTests {
+
+        @Test
+        @DisplayName("Should count a package delivered by a robot")
+        void testDeliveryCounted() {
+            factoryEnv.executeAction("d_bot_1", Structure.parse("register_dbot(d_bot_1, 80, 1, 1)"));
+            factoryEnv.executeAction("d_bot_1", Structure.parse("going_towards_delivery_location(true)"));
+            factoryEnv.executeAction("d_bot_1", Structure.parse("going_towards_delivery_location(false)"));
+
+            assertEquals(1, factoryEnv.getRunSummary().getDeliveredPackages());
+            assertEquals(3L, factoryEnv.getRunSummary().toMap().get("actions"));
+        }
+
+        @Test
+        @DisplayName("Should count a battery running out once")
+        void testBatteryDepletion() {
+            factoryEnv.executeAction("d_bot_1", Structure.parse("register_dbot(d_bot_1, 80, 1, 1)"));
+            factoryEnv.executeAction("d_bot_1", Structure.parse("update_battery_level(0)"));
+            factoryEnv.executeAction("d_bot_1", Structure.parse("update_battery_level(0)"));
+
+            assertEquals(1L, factoryEnv.getRunSummary().toMap().get("battery_depletions"));
+        }
+
+        @Test
+        @DisplayName("Should write the summary when a headless run stops")
+        void testHeadlessSummary(@TempDir Path dir) throws Exception {
+            Path summary = dir.resolve("summary.json");
+            FactoryEnv env = new FactoryEnv();
+            env.init(new String[]{"gui", "headless", "duration=3600", "summary=" + summary});
+            env.stop();
+
+            assertTrue(Files.readString(summary).contains("\"packages_delivered\": 0"));
+        }
+
+        @Test
+        @DisplayName("Should end a headless run once its duration has elapsed")
+        void testHeadlessDuration(@TempDir Path dir) throws Exception {
+            Path summary = dir.resolve("summary.csv");
+            FactoryEnv env = new FactoryEnv();
+            env.init(new String[]{"headless", "duration=3600", "summary=" + summary});
+            env.getClock().advance(3_600_000);
+
+            // the run is checked every 100 ms
+            for (int i = 0; i < 50 && !Files.exists(summary); i++) {
+                Thread.sleep(100);
+            }
+            assertTrue(Files.exists(summary));
+            env.stop();
+        }
     }
 
     @Nested
@@ -9,7 +9,11 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
 
 class FactoryModelTest {
     
@@ -187,6 +191,23 @@ class FactoryModelTest {
             );
         }
         
+        @Test
+        @DisplayName("Should keep the cell of a station while another station stands on it")
+        void shouldKeepSharedChargingStationCell() {
+            Location testLocation = new Location(5, 5);
+            factoryModel.addChargingStation("station1", testLocation);
+            factoryModel.addChargingStation("station2", testLocation);
+
+            factoryModel.removeChargingStation("station1");
+
+            assertAll(
+                () -> assertTrue(factoryModel.hasChargingStationAt(testLocation)),
+                () -> assertTrue(factoryModel.hasObject(FactoryModel.CHARGING_STATION, testLocation)),
+                () -> assertEquals(testLocation, factoryModel.getChargingStationLocation("station2")),
+                () -> assertNull(factoryModel.getChargingStationLocation("station1"))
+            );
+        }
+
         @Test
         @DisplayName("Should notify observers when removing charging station")
         void shouldNotifyObserversWhenRemovingChargingStation() {
@@ -375,6 +396,205 @@ class FactoryModelTest {
         }
     }
     
+    @Nested
+    @DisplayName("Dynamic Registration Tests")
+    class DynamicRegistrationTests {
+
+        @Test
+        @DisplayName("Should give new agents the ids after the default ones")
+        void shouldAssignIdsAfterDefaultAgents() {
+            factoryModel.addObserver(testObserver);
+            factoryModel.addDeliveryRobot(new DeliveryRobot("robot1", 100, new Location(1, 1)));
+
+            int id = factoryModel.getAgentRegistry().getId("robot1");
+            assertAll(
+                () -> assertEquals(11, id),
+                () -> assertEquals(id, testObserver.lastAgentId),
+                () -> assertNull(factoryModel.getAgentById(0)),
+                () -> assertEquals("robot1", factoryModel.getAgentById(id).getName())
+            );
+        }
+
+        @Test
+        @DisplayName("Should grow the agent storage beyond its initial capacity")
+        void shouldGrowBeyondInitialCapacity() {
+            int fleet = 250;
+            for (int i = 0; i < fleet; i++) {
+                factoryModel.addDeliveryRobot(new DeliveryRobot("robot" + i, 100, new Location(i % FactoryModel.GSize, 0)));
+            }
+            int lastId = factoryModel.getAgentRegistry().getId("robot" + (fleet - 1));
+            factoryModel.setAgPos(lastId, new Location(3, 3));
+
+            assertAll(
+                () -> assertEquals(fleet, factoryModel.getDeliveryRobots().size()),
+                () -> assertTrue(lastId >= FactoryModel.INITIAL_AGENT_CAPACITY),
+                () -> assertEquals(new Location(3, 3), factoryModel.getAgPos(lastId)),
+                () -> assertEquals("robot0", factoryModel.getDeliveryRobots().get(0).getName())
+            );
+        }
+
+        @Test
+        @DisplayName("Should register charging stations as agents")
+        void shouldRegisterChargingStations() {
+            factoryModel.addChargingStation("ch_st_9", new Location(2, 2));
+            assertNotEquals(-1, factoryModel.getAgentRegistry().getId("ch_st_9"));
+            assertEquals(5, factoryModel.getAgentRegistry().getId("ch_st_1"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Position Index Tests")
+    class PositionIndexTests {
+
+        @Test
+        @DisplayName("Should follow the grid position of the agents, not the location of their objects")
+        void shouldFollowMovedAgents() {
+            DeliveryRobot robot = new DeliveryRobot("robot1", 100, new Location(1, 1));
+            factoryModel.addDeliveryRobot(robot);
+            int id = factoryModel.getAgentRegistry().getId("robot1");
+
+            factoryModel.setAgPos(id, new Location(2, 1));
+            assertAll(
+                () -> assertSame(robot, factoryModel.getDeliveryRobotByLocation(new Location(2, 1))),
+                () -> assertNull(factoryModel.getDeliveryRobotByLocation(new Location(1, 1)))
+            );
+
+            factoryModel.setAgentLocation(robot, new Location(3, 1));
+            assertAll(
+                () -> assertEquals(new Location(3, 1), robot.getLocation()),
+                () -> assertSame(robot, factoryModel.getDeliveryRobotByLocation(new Location(2, 1))),
+                () -> assertTrue(factoryModel.getAgentsAt(new Location(3, 1)).isEmpty())
+            );
+        }
+
+        @Test
+        @DisplayName("Should find the agents standing in a rectangle of cells")
+        void shouldFindAgentsInRectangle() {
+            DeliveryRobot inside = new DeliveryRobot("robot1", 100, new Location(2, 2));
+            DeliveryRobot outside = new DeliveryRobot("robot2", 100, new Location(8, 8));
+            factoryModel.addDeliveryRobot(inside);
+            factoryModel.addDeliveryRobot(outside);
+            factoryModel.setAgPos(factoryModel.getAgentRegistry().getId("robot1"), new Location(2, 2));
+            factoryModel.setAgPos(factoryModel.getAgentRegistry().getId("robot2"), new Location(8, 8));
+
+            assertAll(
+                () -> assertEquals(List.of(inside), factoryModel.getAgentsIn(0, 0, 5, 5)),
+                () -> assertTrue(factoryModel.getAgentsIn(3, 3, 5, 5).isEmpty()),
+                () -> assertEquals(2, factoryModel.getAgentsIn(0, 0, factoryModel.getWidth(), factoryModel.getHeight()).size())
+            );
+        }
+
+        @Test
+        @DisplayName("Should find the charging stations by cell")
+        void shouldFindStationsByCell() {
+            factoryModel.addChargingStation("ch_st_9", new Location(2, 2));
+            assertTrue(factoryModel.hasChargingStationAt(new Location(2, 2)));
+
+            factoryModel.removeChargingStation("ch_st_9");
+            assertFalse(factoryModel.hasChargingStationAt(new Location(2, 2)));
+        }
+
+        @Test
+        @DisplayName("Should find the nearest robots available to help")
+        void shouldFindNearestAvailableRobots() {
+            DeliveryRobot near = new DeliveryRobot("robot1", 100, new Location(1, 0));
+            DeliveryRobot charging = new DeliveryRobot("robot2", 100, new Location(0, 1));
+            DeliveryRobot far = new DeliveryRobot("robot3", 100, new Location(6, 6));
+            DeliveryRobot helping = new DeliveryRobot("robot4", 100, new Location(1, 1));
+            charging.setCharging(true);
+            helping.setHelpingRobot(true);
+            factoryModel.addDeliveryRobot(near);
+            factoryModel.addDeliveryRobot(charging);
+            factoryModel.addDeliveryRobot(far);
+            factoryModel.addDeliveryRobot(helping);
+
+            assertAll(
+                () -> assertEquals(List.of(near, far), factoryModel.getClosestAvailableRobots(new Location(0, 0), 3)),
+                () -> assertEquals(List.of(far), factoryModel.getClosestAvailableRobots(new Location(0, 0), 3, Set.of("robot2", "robot3")))
+            );
+
+            near.setMalfunctioning(true);
+            assertEquals(List.of(far), factoryModel.getClosestAvailableRobots(new Location(0, 0), 1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Grid Size Tests")
+    class GridSizeTests {
+
+        private FactoryModel configure(String... args) {
+            return FactoryModel.fromConfig(FactoryConfig.parse(args, new Properties()));
+        }
+
+        @Test
+        @DisplayName("Should read the grid size from the configuration")
+        void shouldReadGridSizeFromConfig() {
+            FactoryModel square = configure("grid=200");
+            FactoryModel wide = configure("grid=300x150");
+            assertAll(
+                () -> assertEquals(200, square.getWidth()),
+                () -> assertEquals(200, square.getHeight()),
+                () -> assertEquals(300, wide.getWidth()),
+                () -> assertEquals(150, wide.getHeight()),
+                () -> assertEquals(FactoryModel.GSize, configure().getWidth())
+            );
+        }
+
+        @Test
+        @DisplayName("Should reject grids that are too small or malformed")
+        void shouldRejectInvalidGrids() {
+            assertAll(
+                () -> assertThrows(IllegalArgumentException.class, () -> configure("grid=10")),
+                () -> assertThrows(IllegalArgumentException.class, () -> configure("grid=large")),
+                () -> assertThrows(IllegalArgumentException.class, () -> new FactoryModel(13, 12, new Random()))
+            );
+        }
+
+        @Test
+        @DisplayName("Should support a 2000x2000 grid")
+        void shouldSupportLargeGrid() {
+            FactoryModel large = new FactoryModel(2000, 2000, new Random(7));
+            Location corner = new Location(1999, 1999);
+            large.remove(FactoryModel.OBSTACLE, corner);
+            large.addDeliveryRobot(new DeliveryRobot("robot1", 100, corner));
+            int id = large.getAgentRegistry().getId("robot1");
+            large.setAgPos(id, corner);
+
+            assertAll(
+                () -> assertTrue(large.hasObject(FactoryModel.TRUCK, large.getTruckLocation())),
+                () -> assertTrue(large.countObjects(FactoryModel.OBSTACLE) > 200_000),
+                () -> assertFalse(large.isFree(corner)),
+                () -> assertTrue(large.isFreeOfObstacle(corner)),
+                () -> assertFalse(large.isFree(2000, 0)),
+                () -> assertTrue(large.getCells().sizeInBytes() < 4L * 2000 * 2000)
+            );
+        }
+
+        @Test
+        @DisplayName("Should scale the walls with the configured count per block")
+        void shouldReadWallsFromConfig() {
+            assertAll(
+                () -> assertEquals(0, configure("grid=40", "walls=0").countObjects(FactoryModel.OBSTACLE)),
+                () -> assertTrue(configure("grid=40", "walls=40", "seed=1").countObjects(FactoryModel.OBSTACLE)
+                    > configure("grid=40", "walls=2", "seed=1").countObjects(FactoryModel.OBSTACLE)),
+                () -> assertThrows(IllegalArgumentException.class, () -> configure("walls=-1")),
+                () -> assertThrows(IllegalArgumentException.class, () -> configure("walls=many"))
+            );
+        }
+
+        @Test
+        @DisplayName("Should lay out the same walls for the same seed")
+        void shouldBeReproducible() {
+            FactoryModel first = configure("grid=50", "seed=3");
+            FactoryModel second = configure("grid=50", "seed=3");
+            for (int x = 0; x < 50; x++) {
+                for (int y = 0; y < 50; y++) {
+                    assertEquals(first.hasObject(FactoryModel.OBSTACLE, x, y), second.hasObject(FactoryModel.OBSTACLE, x, y));
+                }
+            }
+        }
+    }
+
     @Nested
     @DisplayName("Location Utility Tests")
     class LocationUtilityTests {
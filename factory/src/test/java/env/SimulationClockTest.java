@@ -0,0 +1,81 @@
+package env;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+class SimulationClockTest {
+
+    private static SimulationClock clockFor(String... args) {
+        return SimulationClock.fromConfig(FactoryConfig.parse(args, new Properties()));
+    }
+
+    @Nested
+    @DisplayName("Configuration Tests")
+    class ConfigurationTests {
+
+        @Test
+        @DisplayName("Should run in real time by default")
+        void testDefaultRealTime() {
+            SimulationClock clock = clockFor();
+            assertTrue(clock.isRealTime());
+            assertEquals(750, clock.toRealMillis(750));
+        }
+
+        @Test
+        @DisplayName("Should parse a speedup factor and the max setting")
+        void testSpeedup() {
+            assertEquals(20.0, clockFor("speedup=20").getSpeedup());
+            assertEquals(SimulationClock.MAX_SPEEDUP, clockFor("speedup=max").getSpeedup());
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"speedup=0", "speedup=-2", "speedup=fast", "speedup=Infinity"})
+        @DisplayName("Should reject invalid speedups")
+        void testInvalidSpeedup(String arg) {
+            assertThrows(IllegalArgumentException.class, () -> clockFor(arg));
+        }
+    }
+
+    @Nested
+    @DisplayName("Time Tests")
+    class TimeTests {
+
+        @Test
+        @DisplayName("Should shorten waits by the speedup without dropping them")
+        void testToRealMillis() {
+            SimulationClock clock = new SimulationClock(100);
+            assertEquals(300, clock.toRealMillis(30000));
+            assertEquals(8, clock.toRealMillis(750));
+            assertEquals(1, clock.toRealMillis(10));
+            assertEquals(0, clock.toRealMillis(0));
+        }
+
+        @Test
+        @DisplayName("Should let simulated time run faster than the wall clock")
+        void testScaledTime() throws InterruptedException {
+            SimulationClock clock = new SimulationClock(50);
+            Thread.sleep(20);
+            assertTrue(clock.currentTimeMillis() >= 1000);
+        }
+
+        @Test
+        @DisplayName("Should skip a long horizon without waiting")
+        void testAdvance() {
+            SimulationClock clock = new SimulationClock(1);
+            long start = clock.epochMillis();
+            clock.advance(TimeUnit.HOURS.toMillis(8));
+
+            assertTrue(clock.currentTimeMillis() >= TimeUnit.HOURS.toMillis(8));
+            assertTrue(clock.epochMillis() - start >= TimeUnit.HOURS.toMillis(8));
+            assertThrows(IllegalArgumentException.class, () -> clock.advance(-1));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package env;
+
+import java.util.Random;
+
+/**
+ * Builds the models shared by the tests, always from the same seed.
+ */
+public final class TestModels {
+
+    private TestModels() {
+    }
+
+    /**
+     * Creates a square model without any wall.
+     * @param size the side of the grid
+     * @return the model, every cell free
+     */
+    public static FactoryModel empty(int size) {
+        return new FactoryModel(size, size, 0, new Random(1));
+    }
+}
@@ -0,0 +1,104 @@
+package env.action;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import env.log.EventLog;
+import jason.asSyntax.Structure;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class StepCoordinatorTest {
+
+    private List<String> executed;
+    private List<String> completed;
+    private StepCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() {
+        executed = new ArrayList<>();
+        completed = new ArrayList<>();
+        coordinator = new StepCoordinator(
+            agName -> agName.equals("unknown") ? -1 : Integer.parseInt(agName.substring(agName.length() - 1)),
+            (agName, action) -> {
+                // every action runs before any outcome is reported
+                assertTrue(completed.isEmpty());
+                executed.add(agName + ":" + action);
+                return !action.getFunctor().equals("fail");
+            },
+            // the percepts are published once, after every action and before any outcome
+            () -> executed.add("publish"),
+            (agName, action, success, infraData) -> completed.add(agName + ":" + success + ":" + infraData),
+            EventLog.disabled());
+    }
+
+    @Test
+    @DisplayName("Should execute the actions of a step by agent id, then by arrival")
+    void testExecutionOrder() {
+        coordinator.submit("d_bot_3", Structure.parse("move"), "a");
+        coordinator.submit("unknown", Structure.parse("move"), "b");
+        coordinator.submit("d_bot_1", Structure.parse("move"), "c");
+        coordinator.submit("d_bot_1", Structure.parse("fail"), "d");
+
+        assertTrue(executed.isEmpty());
+        assertEquals(4, coordinator.runStep());
+
+        assertEquals(List.of("d_bot_1:move", "d_bot_1:fail", "d_bot_3:move", "unknown:move", "publish"), executed);
+        assertEquals(List.of("d_bot_1:true:c", "d_bot_1:false:d", "d_bot_3:true:a", "unknown:true:b"), completed);
+        assertEquals(1, coordinator.getStep());
+        assertEquals(4, coordinator.getExecutedActions());
+    }
+
+    @Test
+    @DisplayName("Should leave actions submitted after a step to the next one")
+    void testActionsWaitForNextStep() {
+        coordinator.runStep();
+        coordinator.submit("d_bot_2", Structure.parse("move"), null);
+
+        assertEquals(List.of("publish"), executed);
+        assertEquals(1, coordinator.runStep());
+        assertEquals(0, coordinator.runStep());
+        assertEquals(3, coordinator.getStep());
+    }
+
+    @Test
+    @DisplayName("Should fail every unreported action of a step that throws, and not run it again")
+    void testFailingStep() {
+        StepCoordinator failing = new StepCoordinator(
+            agName -> Integer.parseInt(agName.substring(agName.length() - 1)),
+            (agName, action) -> {
+                if (action.getFunctor().equals("boom")) {
+                    throw new IllegalStateException("boom");
+                }
+                executed.add(agName + ":" + action);
+                return true;
+            },
+            (agName, action, success, infraData) -> completed.add(agName + ":" + success + ":" + infraData),
+            EventLog.disabled());
+        failing.submit("d_bot_1", Structure.parse("move"), "a");
+        failing.submit("d_bot_2", Structure.parse("boom"), "b");
+        failing.submit("d_bot_3", Structure.parse("move"), "c");
+
+        assertThrows(IllegalStateException.class, failing::runStep);
+        assertEquals(List.of("d_bot_1:move"), executed);
+        assertEquals(List.of("d_bot_1:false:a", "d_bot_2:false:b", "d_bot_3:false:c"), completed);
+
+        assertEquals(0, failing.runStep());
+        assertEquals(List.of("d_bot_1:move"), executed);
+        assertEquals(2, failing.getStep());
+    }
+
+    @Test
+    @DisplayName("Should fail the queued actions when stopped")
+    void testStopFailsPending() {
+        coordinator.submit("d_bot_2", Structure.parse("move"), "x");
+        coordinator.stop();
+
+        assertTrue(executed.isEmpty());
+        assertEquals(List.of("d_bot_2:false:x"), completed);
+    }
+}
@@ -0,0 +1,72 @@
+package env.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AgentRegistryTest {
+
+    @Test
+    public void testPredefinedNamesKeepTheirIds() {
+        AgentRegistry registry = new AgentRegistry("d_bot_1", "d_bot_2");
+
+        assertAll(
+            () -> assertEquals(0, registry.getId("d_bot_1")),
+            () -> assertEquals(1, registry.getId("d_bot_2")),
+            () -> assertEquals(2, registry.register("robot1")),
+            () -> assertEquals(0, registry.register("d_bot_1")),
+            () -> assertEquals(3, registry.size())
+        );
+    }
+
+    @Test
+    public void testUnknownNames() {
+        AgentRegistry registry = new AgentRegistry();
+
+        assertAll(
+            () -> assertEquals(-1, registry.getId("robot1")),
+            () -> assertEquals(-1, registry.getId(null)),
+            () -> assertNull(registry.getName(0)),
+            () -> assertNull(registry.getName(-1)),
+            () -> assertThrows(IllegalArgumentException.class, () -> registry.register(null))
+        );
+    }
+
+    @Test
+    public void testDenseIdsForLargeFleets() {
+        AgentRegistry registry = new AgentRegistry();
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            ids.add(registry.register("robot" + i));
+        }
+
+        assertEquals(500, ids.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, registry.getId("robot" + i));
+            assertEquals("robot" + i, registry.getName(i));
+        }
+    }
+
+    @Test
+    public void testConcurrentRegistration() throws InterruptedException {
+        AgentRegistry registry = new AgentRegistry();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    registry.register("robot" + i);
+                    assertNotEquals(-1, registry.getId("robot" + i));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(200, registry.size());
+    }
+}
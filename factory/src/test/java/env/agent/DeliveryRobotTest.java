@@ -120,4 +120,22 @@ public class DeliveryRobotTest {
         robot.setHelpingRobot(true);
         assertTrue(robot.isHelpingRobot());
     }
+
+    @Test
+    public void testGetAndDecreaseBatteryStopsAtZero() {
+        robot.getAndSetBattery(3);
+        assertEquals(3, robot.getAndDecreaseBattery(5));
+        assertEquals(0, robot.getAndDecreaseBattery(1));
+        assertEquals(0, robot.getBattery());
+    }
+
+    @Test
+    public void testGetAndSetFlag() {
+        assertFalse(robot.getAndSetFlag(DeliveryRobot.CHARGING, true));
+        assertTrue(robot.getAndSetFlag(DeliveryRobot.CHARGING, true));
+        assertTrue(robot.isCharging());
+        assertFalse(robot.isCarryingPackage());
+        assertTrue(robot.getAndSetFlag(DeliveryRobot.CHARGING, false));
+        assertFalse(robot.hasFlag(DeliveryRobot.CHARGING));
+    }
 }
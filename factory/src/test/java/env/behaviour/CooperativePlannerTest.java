@@ -0,0 +1,197 @@
+package env.behaviour;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import env.FactoryModel;
+import env.TestModels;
+import env.agent.DeliveryRobot;
+import env.metrics.MetricsRegistry;
+import jason.environment.grid.Location;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CooperativePlannerTest {
+
+    private FactoryModel model;
+    private MovementManager movement;
+
+    @BeforeEach
+    void setUp() {
+        model = TestModels.empty(FactoryModel.GSize);
+        movement = model.getMovementManager();
+        movement.setMode(MovementMode.COOPERATIVE);
+    }
+
+    private int addRobot(String name, Location location) {
+        model.addDeliveryRobot(new DeliveryRobot(name, 100, location));
+        int id = model.getAgentRegistry().getId(name);
+        model.setAgPos(id, location);
+        return id;
+    }
+
+    /**
+     * Moves every robot once per tick, in id order, until all of them are at their goal,
+     * checking that no two robots ever share a cell or swap cells.
+     * @return the positions of the robots after each tick
+     */
+    private List<Location[]> run(int[] ids, Location[] goals, int maxTicks) {
+        List<Location[]> ticks = new ArrayList<>();
+        for (int tick = 0; tick < maxTicks; tick++) {
+            Location[] before = positions(ids);
+            boolean arrived = true;
+            for (int i = 0; i < ids.length; i++) {
+                movement.moveTowards(ids[i], goals[i], model.getAgPos(ids[i]));
+                arrived &= goals[i].equals(model.getAgPos(ids[i]));
+            }
+            Location[] after = positions(ids);
+            for (int i = 0; i < ids.length; i++) {
+                assertTrue(before[i].distanceManhattan(after[i]) <= 1, "robot jumped");
+                for (int j = i + 1; j < ids.length; j++) {
+                    assertNotEquals(after[i], after[j], "robots share a cell");
+                    assertFalse(after[i].equals(before[j]) && after[j].equals(before[i]), "robots swapped cells");
+                }
+            }
+            ticks.add(after);
+            if (arrived) {
+                return ticks;
+            }
+        }
+        fail("robots did not reach their goals in " + maxTicks + " ticks");
+        return ticks;
+    }
+
+    private Location[] positions(int[] ids) {
+        Location[] positions = new Location[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            Location position = model.getAgPos(ids[i]);
+            positions[i] = new Location(position.x, position.y);
+        }
+        return positions;
+    }
+
+    @Test
+    @DisplayName("Should let two robots heading at each other in an aisle pass")
+    void testHeadOn() {
+        // aisle of two rows: y = 5 and y = 6, walled above and below
+        model.addWall(0, 4, 12, 4);
+        model.addWall(0, 7, 12, 7);
+        int left = addRobot("robot1", new Location(1, 5));
+        int right = addRobot("robot2", new Location(11, 5));
+
+        List<Location[]> ticks = run(new int[] {left, right}, new Location[] {new Location(11, 5), new Location(1, 5)}, 40);
+
+        assertTrue(ticks.size() <= 12, "took " + ticks.size() + " ticks");
+    }
+
+    @Test
+    @DisplayName("Should give a contested cell to the robot that plans first")
+    void testContestedCell() {
+        int first = addRobot("robot1", new Location(2, 5));
+        int second = addRobot("robot2", new Location(1, 6));
+
+        movement.moveTowards(first, new Location(2, 7), model.getAgPos(first));
+        movement.moveTowards(second, new Location(3, 6), model.getAgPos(second));
+
+        assertEquals(new Location(2, 6), model.getAgPos(first));
+        assertNotEquals(new Location(2, 6), model.getAgPos(second));
+    }
+
+    @Test
+    @DisplayName("Should wait without moving when the way is held, and say so")
+    void testWaitReturnsFalse() {
+        // dead end of one cell: (0, 0) only opens on (1, 0), which another robot holds
+        model.addWall(0, 1, 0, 1);
+        int boxed = addRobot("robot1", new Location(0, 0));
+        addRobot("robot2", new Location(1, 0));
+        long waited = movement.getWaitedSteps();
+        MetricsRegistry metrics = new MetricsRegistry();
+        model.setMetrics(metrics);
+
+        assertFalse(movement.moveTowards(boxed, new Location(5, 5), model.getAgPos(boxed)));
+        assertEquals(new Location(0, 0), model.getAgPos(boxed));
+        assertEquals(waited + 1, movement.getWaitedSteps());
+        assertEquals(1L, (long) metrics.counters().get("factory_moves{outcome=\"blocked\"}"));
+        assertEquals(1, metrics.histogram("factory_move_seconds").count());
+    }
+
+    @Test
+    @DisplayName("Should give the same moves for the same runs")
+    void testDeterministic() {
+        List<String> trajectories = new ArrayList<>();
+        for (int run = 0; run < 2; run++) {
+            setUp();
+            int[] ids = new int[4];
+            Location[] goals = new Location[4];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = addRobot("robot" + i, new Location(i, i % 2 == 0 ? 0 : 12));
+                goals[i] = new Location(12 - i, i % 2 == 0 ? 12 : 0);
+            }
+            StringBuilder trajectory = new StringBuilder();
+            for (Location[] tick : run(ids, goals, 60)) {
+                for (Location position : tick) {
+                    trajectory.append(position);
+                }
+            }
+            trajectories.add(trajectory.toString());
+        }
+        assertEquals(trajectories.get(0), trajectories.get(1));
+    }
+
+    @Test
+    @DisplayName("Should hold, check and release reservations")
+    void testReservationTable() {
+        ReservationTable table = new ReservationTable(4);
+
+        assertEquals(2, table.reserve(1, 10, new int[] {5, 6}));
+        // robot 2 stops at the cell robot 1 holds
+        assertEquals(1, table.reserve(2, 10, new int[] {7, 6}));
+        assertAll(
+            () -> assertEquals(1, table.holder(5, 10)),
+            () -> assertEquals(1, table.holder(6, 11)),
+            () -> assertEquals(-1, table.holder(6, 10)),
+            () -> assertTrue(table.isFree(6, 11, 1)),
+            () -> assertFalse(table.isFree(6, 11, 2))
+        );
+
+        table.release(1);
+        assertEquals(-1, table.holder(5, 10));
+
+        // the ring forgets the ticks it no longer holds
+        table.reserve(3, 14, new int[] {9});
+        assertEquals(-1, table.holder(7, 10));
+    }
+
+    @Test
+    @DisplayName("Should keep a parked agent on its cell until released")
+    void testPark() {
+        ReservationTable table = new ReservationTable(4);
+        table.reserve(1, 10, new int[] {5, 6}, true);
+
+        assertAll(
+            () -> assertEquals(1, table.holder(6, 11)),
+            () -> assertEquals(1, table.holder(6, 100)),
+            () -> assertEquals(-1, table.holder(5, 100)),
+            () -> assertEquals(-1, table.holder(6, 9))
+        );
+
+        table.release(1);
+        assertEquals(-1, table.holder(6, 100));
+    }
+
+    @Test
+    @DisplayName("Should detect head-on swaps")
+    void testSwap() {
+        ReservationTable table = new ReservationTable(4);
+        // robot 3 goes from cell 6 to cell 5
+        table.reserve(3, 10, new int[] {6, 5});
+
+        assertAll(
+            () -> assertTrue(table.isSwap(5, 6, 11, 1)),
+            () -> assertFalse(table.isSwap(5, 6, 11, 3)),
+            () -> assertFalse(table.isSwap(4, 6, 11, 1))
+        );
+    }
+}
@@ -0,0 +1,115 @@
+package env.behaviour;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import env.FactoryModel;
+import env.TestModels;
+import env.agent.DeliveryRobot;
+import jason.environment.grid.Location;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class DistanceFieldTest {
+
+    private FactoryModel model;
+
+    @BeforeEach
+    void setUp() {
+        model = TestModels.empty(FactoryModel.GSize);
+    }
+
+    private static void assertSameDistances(DistanceField expected, DistanceField actual) {
+        for (int x = 0; x < FactoryModel.GSize; x++) {
+            for (int y = 0; y < FactoryModel.GSize; y++) {
+                assertEquals(expected.distance(x, y), actual.distance(x, y), "distance of (" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should flood the geodesic distances to the target")
+    void testFlood() {
+        model.addWall(3, 0, 3, 11);
+        DistanceField field = new DistanceField(model, new Location(0, 0));
+
+        assertAll(
+            () -> assertEquals(0, field.distance(0, 0)),
+            () -> assertEquals(2, field.distance(2, 0)),
+            () -> assertEquals(30, field.distance(6, 0)),
+            () -> assertEquals(DistanceField.UNREACHABLE, field.distance(3, 5)),
+            () -> assertEquals(DistanceField.UNREACHABLE, field.distance(-1, 0))
+        );
+    }
+
+    @Test
+    @DisplayName("Should repair the distances as obstacles come and go")
+    void testIncrementalUpdates() {
+        DistanceField field = model.getDistanceField(model.getTruckLocation());
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            int x = random.nextInt(FactoryModel.GSize);
+            int y = random.nextInt(FactoryModel.GSize);
+            if (random.nextInt(3) == 0) {
+                model.remove(FactoryModel.OBSTACLE, x, y);
+            } else {
+                model.add(FactoryModel.OBSTACLE, x, y);
+            }
+            assertSameDistances(new DistanceField(model, model.getTruckLocation()), field);
+        }
+    }
+
+    @Test
+    @DisplayName("Should repair the distances when a cell is overwritten")
+    void testIncrementalSet() {
+        DistanceField field = model.getDistanceField(model.getTruckLocation());
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            int x = random.nextInt(FactoryModel.GSize);
+            int y = random.nextInt(FactoryModel.GSize);
+            // the other objects of the cell come and go too, but only the obstacle bit moves the field
+            int value = (random.nextBoolean() ? FactoryModel.OBSTACLE : 0) | (random.nextBoolean() ? FactoryModel.CHARGING_STATION : 0);
+            model.set(value, x, y);
+            assertSameDistances(new DistanceField(model, model.getTruckLocation()), field);
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep a field for the static targets only")
+    void testStaticTargets() {
+        Location station = new Location(1, 1);
+        model.addChargingStation("ch_st_1", station);
+        DistanceField stationField = model.getDistanceField(station);
+        model.removeChargingStation("ch_st_1");
+
+        assertAll(
+            () -> assertNotNull(model.getDistanceField(model.getTruckLocation())),
+            () -> assertSame(model.getDistanceField(model.getDeliveryLocation()), model.getDistanceField(model.getDeliveryLocation())),
+            () -> assertNotNull(stationField),
+            () -> assertNull(model.getDistanceField(station)),
+            () -> assertNull(model.getDistanceField(new Location(6, 6)))
+        );
+    }
+
+    @Test
+    @DisplayName("Should step down the field without planning a path")
+    void testMovementFollowsField() {
+        MovementManager movement = model.getMovementManager();
+        movement.setMode(MovementMode.SHORTEST_PATH);
+        model.addDeliveryRobot(new DeliveryRobot("robot1", 100, new Location(0, 0)));
+        int id = model.getAgentRegistry().getId("robot1");
+        model.setAgPos(id, new Location(0, 0));
+        Location truck = model.getTruckLocation();
+
+        int steps = 0;
+        while (!truck.equals(model.getAgPos(id)) && steps < 100) {
+            movement.moveTowards(id, truck, model.getAgPos(id));
+            steps++;
+        }
+
+        assertEquals(truck, model.getAgPos(id));
+        assertEquals(truck.x + truck.y, steps);
+        assertEquals(0, movement.getPathPlanner().getCacheMisses());
+    }
+}
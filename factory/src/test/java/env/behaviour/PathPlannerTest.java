@@ -0,0 +1,122 @@
+package env.behaviour;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import env.FactoryModel;
+import env.TestModels;
+import env.agent.DeliveryRobot;
+import jason.environment.grid.Location;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PathPlannerTest {
+
+    private FactoryModel model;
+    private PathPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        model = TestModels.empty(FactoryModel.GSize);
+        planner = model.getMovementManager().getPathPlanner();
+    }
+
+    @Test
+    @DisplayName("Should find a straight path on an empty floor")
+    void testStraightPath() {
+        List<Location> path = planner.findPath(new Location(0, 0), new Location(5, 0));
+
+        assertEquals(5, path.size());
+        assertEquals(new Location(1, 0), path.get(0));
+        assertEquals(new Location(5, 0), path.get(4));
+    }
+
+    @Test
+    @DisplayName("Should go around a wall")
+    void testPathAroundWall() {
+        // vertical wall at x = 3 from y = 0 to y = 11, leaving a gap at y = 12
+        model.addWall(3, 0, 3, 11);
+        List<Location> path = planner.findPath(new Location(0, 0), new Location(6, 0));
+
+        assertEquals(30, path.size());
+        assertTrue(path.contains(new Location(3, 12)));
+        for (int i = 1; i < path.size(); i++) {
+            assertEquals(1, path.get(i - 1).distanceManhattan(path.get(i)));
+            assertFalse(model.hasObject(FactoryModel.OBSTACLE, path.get(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should report unreachable goals")
+    void testUnreachableGoal() {
+        model.addWall(3, 0, 3, 12);
+
+        assertAll(
+            () -> assertNull(planner.getPath(new Location(0, 0), new Location(6, 0))),
+            () -> assertNull(planner.getPath(new Location(0, 0), new Location(3, 5))),
+            () -> assertNull(planner.getPath(new Location(0, 0), new Location(13, 0))),
+            () -> assertEquals(0, planner.getPath(new Location(1, 1), new Location(1, 1)).length)
+        );
+    }
+
+    @Test
+    @DisplayName("Should reuse cached paths until the layout changes")
+    void testCacheFollowsLayoutVersion() {
+        Location start = new Location(0, 0);
+        Location goal = new Location(6, 0);
+        int[] first = planner.getPath(start, goal);
+        int[] second = planner.getPath(start, goal);
+        long version = model.getLayoutVersion();
+        model.add(FactoryModel.OBSTACLE, 3, 0);
+        int[] third = planner.getPath(start, goal);
+
+        assertAll(
+            () -> assertSame(first, second),
+            () -> assertEquals(1, planner.getCacheHits()),
+            () -> assertEquals(2, planner.getCacheMisses()),
+            () -> assertTrue(model.getLayoutVersion() > version),
+            () -> assertEquals(8, third.length)
+        );
+    }
+
+    @Test
+    @DisplayName("Should plan across a 2000x2000 grid")
+    void testLargeGrid() {
+        FactoryModel large = new FactoryModel(2000, 2000, new Random(5));
+        PathPlanner largePlanner = new PathPlanner(large);
+        Location start = new Location(0, 0);
+        Location goal = new Location(1999, 1999);
+        large.remove(FactoryModel.OBSTACLE, start);
+        large.remove(FactoryModel.OBSTACLE, goal);
+
+        int[] path = largePlanner.getPath(start, goal);
+
+        assertNotNull(path);
+        assertTrue(path.length >= 2 * 1999);
+        assertEquals(largePlanner.index(goal), path[path.length - 1]);
+    }
+
+    @Test
+    @DisplayName("Should move robots along the shortest path in shortest path mode")
+    void testMovementFollowsPath() {
+        MovementManager movement = model.getMovementManager();
+        movement.setMode(MovementMode.SHORTEST_PATH);
+        model.addWall(3, 0, 3, 11);
+        model.addDeliveryRobot(new DeliveryRobot("robot1", 100, new Location(0, 0)));
+        int id = model.getAgentRegistry().getId("robot1");
+        model.setAgPos(id, new Location(0, 0));
+        Location goal = new Location(6, 0);
+
+        int steps = 0;
+        while (!goal.equals(model.getAgPos(id)) && steps < 100) {
+            movement.moveTowards(id, goal, model.getAgPos(id));
+            steps++;
+        }
+
+        assertEquals(goal, model.getAgPos(id));
+        assertEquals(30, steps);
+        assertEquals(1, planner.getCacheMisses());
+    }
+}
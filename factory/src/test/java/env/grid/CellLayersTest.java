@@ -0,0 +1,75 @@
+package env.grid;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CellLayersTest {
+
+    private static final int AGENT = 2;
+    private static final int OBSTACLE = 4;
+    private static final int TRUCK = 16;
+
+    @Test
+    @DisplayName("Should keep each object in its own layer")
+    void testLayersAreIndependent() {
+        CellLayers cells = new CellLayers(13, 13);
+        cells.add(OBSTACLE, 3, 4);
+        cells.add(AGENT | TRUCK, 5, 6);
+        cells.remove(AGENT, 5, 6);
+
+        assertAll(
+            () -> assertTrue(cells.hasAny(OBSTACLE, 3, 4)),
+            () -> assertFalse(cells.hasAny(AGENT | TRUCK, 3, 4)),
+            () -> assertTrue(cells.hasAny(OBSTACLE | TRUCK, 5, 6)),
+            () -> assertFalse(cells.hasAny(AGENT, 5, 6)),
+            () -> assertEquals(TRUCK, cells.get(5, 6)),
+            () -> assertEquals(0, cells.get(4, 3))
+        );
+    }
+
+    @Test
+    @DisplayName("Should replace the content of a cell")
+    void testSet() {
+        CellLayers cells = new CellLayers(13, 13);
+        cells.add(OBSTACLE | AGENT, 1, 1);
+        cells.set(TRUCK, 1, 1);
+
+        assertEquals(TRUCK, cells.get(1, 1));
+    }
+
+    @Test
+    @DisplayName("Should treat cells outside the grid as empty and reject changes to them")
+    void testOutsideTheGrid() {
+        CellLayers cells = new CellLayers(13, 13);
+
+        assertAll(
+            () -> assertFalse(cells.contains(13, 0)),
+            () -> assertFalse(cells.hasAny(OBSTACLE, -1, 0)),
+            () -> assertEquals(0, cells.get(0, 13)),
+            () -> assertThrows(IndexOutOfBoundsException.class, () -> cells.add(OBSTACLE, 13, 0)),
+            () -> assertThrows(IllegalArgumentException.class, () -> new CellLayers(0, 13)),
+            () -> assertThrows(IllegalArgumentException.class, () -> new CellLayers(100_000, 100_000))
+        );
+    }
+
+    @Test
+    @DisplayName("Should count the cells of a large grid and allocate only the layers in use")
+    void testLargeGrid() {
+        CellLayers cells = new CellLayers(2000, 2000);
+        for (int i = 0; i < 2000; i++) {
+            cells.add(OBSTACLE, i, i);
+        }
+        cells.add(AGENT, 1999, 0);
+
+        assertAll(
+            () -> assertEquals(2000, cells.count(OBSTACLE)),
+            () -> assertEquals(2001, cells.count(OBSTACLE | AGENT)),
+            () -> assertEquals(0, cells.count(TRUCK)),
+            () -> assertTrue(cells.hasAny(OBSTACLE, 1999, 1999)),
+            () -> assertTrue(cells.hasAny(AGENT, 1999, 0)),
+            () -> assertEquals(2 * 62_500L * Long.BYTES, cells.sizeInBytes())
+        );
+    }
+}
@@ -0,0 +1,165 @@
+package env.grid;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import jason.environment.grid.Location;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SpatialIndexTest {
+
+    @Test
+    @DisplayName("Should find nothing in an empty index")
+    void testEmpty() {
+        SpatialIndex index = new SpatialIndex(13, 13);
+
+        assertNull(index.nearest(3, 3));
+        assertFalse(index.remove("ch_st_1"));
+    }
+
+    @Test
+    @DisplayName("Should follow added, moved and removed points")
+    void testUpdates() {
+        SpatialIndex index = new SpatialIndex(100, 100, 8);
+        index.put("ch_st_1", new Location(1, 1));
+        index.put("ch_st_2", new Location(90, 90));
+        index.put("ch_st_1", new Location(95, 95));
+
+        assertAll(
+            () -> assertEquals("ch_st_2", index.nearest(0, 0)),
+            () -> assertEquals(new Location(95, 95), index.get("ch_st_1")),
+            () -> assertEquals(2, index.size())
+        );
+
+        index.remove("ch_st_2");
+        assertEquals("ch_st_1", index.nearest(0, 0));
+    }
+
+    @Test
+    @DisplayName("Should break ties by name")
+    void testTies() {
+        SpatialIndex index = new SpatialIndex(13, 13, 4);
+        index.put("b", new Location(2, 6));
+        index.put("a", new Location(10, 6));
+
+        assertEquals("a", index.nearest(6, 6));
+    }
+
+    @Test
+    @DisplayName("Should agree with a linear scan")
+    void testMatchesLinearScan() {
+        Random random = new Random(11);
+        SpatialIndex index = new SpatialIndex(500, 300, 16);
+        Location[] stations = new Location[40];
+        for (int i = 0; i < stations.length; i++) {
+            stations[i] = new Location(random.nextInt(500), random.nextInt(300));
+            index.put("ch_st_" + i, stations[i]);
+        }
+        for (int query = 0; query < 500; query++) {
+            int x = random.nextInt(500);
+            int y = random.nextInt(300);
+            double best = Double.MAX_VALUE;
+            for (Location station : stations) {
+                best = Math.min(best, Math.hypot(station.x - x, station.y - y));
+            }
+            Location found = index.get(index.nearest(x, y));
+            assertEquals(best, Math.hypot(found.x - x, found.y - y), 1e-9);
+        }
+    }
+
+    @Test
+    @DisplayName("Should list the points lying on a cell")
+    void testNamesAt() {
+        SpatialIndex index = new SpatialIndex(40, 40, 8);
+        index.put("robot2", new Location(3, 3));
+        index.put("robot1", new Location(3, 3));
+        index.put("robot3", new Location(3, 4));
+
+        assertAll(
+            () -> assertEquals(List.of("robot1", "robot2"), index.namesAt(3, 3)),
+            () -> assertEquals(List.of("robot3"), index.namesAt(3, 4)),
+            () -> assertTrue(index.namesAt(39, 39).isEmpty())
+        );
+    }
+
+    @Test
+    @DisplayName("Should find the k nearest points accepted by the filter")
+    void testKNearest() {
+        SpatialIndex index = new SpatialIndex(100, 100, 8);
+        index.put("robot1", new Location(10, 10));
+        index.put("robot2", new Location(12, 10));
+        index.put("robot3", new Location(40, 40));
+        index.put("robot4", new Location(90, 90));
+
+        assertAll(
+            () -> assertEquals(List.of("robot1", "robot2"), index.nearest(10, 11, 2, null)),
+            () -> assertEquals(List.of("robot2", "robot3"), index.nearest(10, 11, 2, name -> !name.equals("robot1"))),
+            () -> assertEquals(4, index.nearest(0, 0, 10, null).size()),
+            () -> assertTrue(index.nearest(0, 0, 0, null).isEmpty()),
+            () -> assertTrue(index.nearest(0, 0, 3, name -> false).isEmpty())
+        );
+    }
+
+    @Test
+    @DisplayName("Should agree with a sorted linear scan for k nearest")
+    void testKNearestMatchesLinearScan() {
+        Random random = new Random(13);
+        SpatialIndex index = new SpatialIndex(300, 300, 16);
+        Location[] robots = new Location[60];
+        for (int i = 0; i < robots.length; i++) {
+            robots[i] = new Location(random.nextInt(300), random.nextInt(300));
+            index.put("robot" + i, robots[i]);
+        }
+        for (int query = 0; query < 200; query++) {
+            int x = random.nextInt(300);
+            int y = random.nextInt(300);
+            List<Long> expected = new ArrayList<>();
+            for (Location robot : robots) {
+                expected.add(squared(robot, x, y));
+            }
+            Collections.sort(expected);
+            List<String> found = index.nearest(x, y, 5, null);
+            for (int i = 0; i < 5; i++) {
+                assertEquals((long) expected.get(i), squared(index.get(found.get(i)), x, y));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should find the points in a rectangle, as a linear scan would")
+    void testNamesIn() {
+        Random random = new Random(17);
+        SpatialIndex index = new SpatialIndex(200, 200, 16);
+        Location[] robots = new Location[80];
+        for (int i = 0; i < robots.length; i++) {
+            robots[i] = new Location(random.nextInt(200), random.nextInt(200));
+            index.put("robot" + i, robots[i]);
+        }
+        for (int query = 0; query < 100; query++) {
+            int x = random.nextInt(220) - 10;
+            int y = random.nextInt(220) - 10;
+            int width = random.nextInt(60);
+            int height = random.nextInt(60);
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < robots.length; i++) {
+                if (robots[i].x >= x && robots[i].x < x + width && robots[i].y >= y && robots[i].y < y + height) {
+                    expected.add("robot" + i);
+                }
+            }
+            List<String> found = index.namesIn(x, y, width, height);
+            Collections.sort(expected);
+            Collections.sort(found);
+            assertEquals(expected, found);
+        }
+    }
+
+    private static long squared(Location location, int x, int y) {
+        long dx = location.x - x;
+        long dy = location.y - y;
+        return dx * dx + dy * dy;
+    }
+}
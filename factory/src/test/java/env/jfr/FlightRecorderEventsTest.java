@@ -0,0 +1,67 @@
+package env.jfr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import env.FactoryEnv;
+import jason.asSyntax.Structure;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.nio.file.Path;
+import java.util.List;
+
+class FlightRecorderEventsTest {
+
+    private List<RecordedEvent> record(Path dir, boolean enabled) throws Exception {
+        FactoryEnv env = new FactoryEnv();
+        env.init(new String[] {"log=off"});
+        Path file = dir.resolve("factory.jfr");
+        try (Recording recording = new Recording()) {
+            if (enabled) {
+                recording.enable(ActionEvent.class).withoutThreshold();
+                recording.enable(MovementEvent.class).withoutThreshold();
+                recording.enable(PerceptReplaceEvent.class).withoutThreshold();
+            }
+            recording.start();
+            env.executeAction("d_bot_1", Structure.parse("register_dbot(d_bot_1, 100, 1, 1)"));
+            env.executeAction("d_bot_1", Structure.parse("move_towards_target(1, 5, 1, 1)"));
+            env.executeAction("d_bot_1", Structure.parse("update_battery_level(150)"));
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            env.stop();
+        }
+        return RecordingFile.readAllEvents(file).stream()
+            .filter(event -> event.getEventType().getName().startsWith("env."))
+            .toList();
+    }
+
+    @Test
+    @DisplayName("Should record actions, movement decisions and percept replacements when enabled")
+    void testEnabled(@TempDir Path dir) throws Exception {
+        List<RecordedEvent> events = record(dir, true);
+
+        List<RecordedEvent> actions = events.stream().filter(event -> event.getEventType().getName().equals("env.Action")).toList();
+        assertEquals(3, actions.size());
+        RecordedEvent failed = actions.get(2);
+        assertEquals("d_bot_1", failed.getString("agent"));
+        assertEquals("update_battery_level", failed.getString("functor"));
+        assertFalse(failed.getBoolean("success"));
+
+        RecordedEvent movement = events.stream().filter(event -> event.getEventType().getName().equals("env.Movement")).findFirst().orElseThrow();
+        assertEquals("GREEDY", movement.getString("mode"));
+        assertTrue(movement.getInt("attempts") >= 1);
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("env.PerceptReplace")));
+    }
+
+    @Test
+    @DisplayName("Should record nothing unless the events are enabled")
+    void testDisabledByDefault(@TempDir Path dir) throws Exception {
+        assertTrue(record(dir, false).isEmpty());
+    }
+}
@@ -0,0 +1,135 @@
+package env.journal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import env.FactoryModel;
+import env.ModelObserver;
+import env.SimulationClock;
+import env.agent.DeliveryRobot;
+import jason.environment.grid.Location;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+class JournalReplayTest {
+
+    /**
+     * Records a robot stepping right once per simulated second for ten seconds,
+     * with a charging station from 2 s to 8 s, a package picked up at 3 s and a battery drop at 5 s.
+     */
+    private static void record(Path dir) throws IOException {
+        // a clock that only moves when advanced
+        SimulationClock clock = new SimulationClock(1e-9);
+        FactoryModel model = new FactoryModel(FactoryModel.GSize, FactoryModel.GSize, 0, new Random(1));
+        try (ModelJournal journal = new ModelJournal(dir, 1 << 16, clock)) {
+            model.setJournal(journal);
+            DeliveryRobot robot = new DeliveryRobot("d_bot_1", 100, new Location(0, 0));
+            model.addDeliveryRobot(robot);
+            int id = model.getAgentRegistry().getId("d_bot_1");
+            model.setAgPos(id, new Location(0, 0));
+            for (int second = 1; second <= 10; second++) {
+                clock.advance(1000);
+                model.tryMoveAgent(id, new Location(second, 0));
+                model.setAgentLocation(robot, new Location(second, 0));
+                if (second == 2) {
+                    model.addChargingStation("charger_1", new Location(5, 5));
+                } else if (second == 3) {
+                    model.setRobotFlag(id, DeliveryRobot.CARRYING_PACKAGE, true);
+                } else if (second == 5) {
+                    model.consumeRobotBattery(id, 10);
+                } else if (second == 8) {
+                    model.removeChargingStation("charger_1");
+                }
+            }
+        }
+    }
+
+    private static DeliveryRobot robot(JournalReplay replay) {
+        return (DeliveryRobot) replay.getModel().getAgentByName("d_bot_1");
+    }
+
+    @Test
+    @DisplayName("Should play the run through the model and its observers")
+    void testPlaysThroughObservers(@TempDir Path dir) throws Exception {
+        record(dir);
+        int[] moves = new int[1];
+        try (JournalReplay replay = new JournalReplay(dir, 2000)) {
+            replay.getModel().addObserver(new ModelObserver() {
+                @Override
+                public void onAgentUpdated(Location location, int agentId) {
+                }
+
+                @Override
+                public void onAgentMoved(Location oldLocation, Location newLocation, int agentId) {
+                    moves[0]++;
+                }
+
+                @Override
+                public void onCellUpdated(Location location) {
+                }
+            });
+            replay.play();
+
+            assertTrue(replay.isEnded());
+            DeliveryRobot robot = robot(replay);
+            assertEquals(new Location(10, 0), robot.getLocation());
+            assertEquals(new Location(10, 0), replay.getModel().getAgPos(replay.getModel().getAgentRegistry().getId("d_bot_1")));
+            assertTrue(robot.isCarryingPackage());
+            assertEquals(90, robot.getBattery());
+            assertTrue(replay.getModel().getChargingStationLocations().isEmpty());
+            // the placement and the ten steps
+            assertEquals(11, moves[0]);
+            assertTrue(replay.getKeyframes() > 1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should seek backwards and forwards from the keyframes")
+    void testSeek(@TempDir Path dir) throws Exception {
+        record(dir);
+        try (JournalReplay replay = new JournalReplay(dir, 2000)) {
+            long start = replay.getTime();
+            replay.play();
+
+            replay.seek(start + 4500);
+            DeliveryRobot robot = robot(replay);
+            assertEquals(new Location(4, 0), robot.getLocation());
+            assertTrue(robot.isCarryingPackage());
+            assertEquals(100, robot.getBattery());
+            assertEquals(new Location(5, 5), replay.getModel().getChargingStationLocations().get("charger_1"));
+
+            replay.seek(start + 2500);
+            assertFalse(robot(replay).isCarryingPackage());
+
+            replay.seek(start - 1);
+            assertNull(replay.getModel().getAgentByName("d_bot_1"));
+            assertTrue(replay.getModel().getChargingStationLocations().isEmpty());
+
+            replay.seek(start + 9000);
+            assertEquals(new Location(9, 0), robot(replay).getLocation());
+            assertEquals(90, robot(replay).getBattery());
+            assertTrue(replay.getModel().getChargingStationLocations().isEmpty());
+            assertFalse(replay.isEnded());
+        }
+    }
+
+    @Test
+    @DisplayName("Should pace the playback at the chosen rate")
+    void testRate(@TempDir Path dir) throws Exception {
+        record(dir);
+        try (JournalReplay replay = new JournalReplay(dir)) {
+            long start = replay.getTime();
+            replay.setRate(10);
+            long startNanos = System.nanoTime();
+            replay.playUntil(start + 1000);
+            assertTrue(System.nanoTime() - startNanos >= 90_000_000L);
+            assertEquals(new Location(1, 0), robot(replay).getLocation());
+            assertThrows(IllegalArgumentException.class, () -> replay.setRate(0));
+        }
+    }
+}
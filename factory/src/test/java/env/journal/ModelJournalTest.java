@@ -0,0 +1,221 @@
+package env.journal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import env.FactoryConfig;
+import env.FactoryModel;
+import env.SimulationClock;
+import env.agent.DeliveryRobot;
+import jason.environment.grid.Location;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+class ModelJournalTest {
+
+    private static List<RecordType> readTypes(Path dir) throws IOException {
+        List<RecordType> types = new ArrayList<>();
+        try (JournalReader reader = new JournalReader(dir)) {
+            while (reader.next()) {
+                types.add(reader.type());
+            }
+        }
+        return types;
+    }
+
+    @Nested
+    @DisplayName("Segment Tests")
+    class SegmentTests {
+
+        @Test
+        @DisplayName("Should read back the records in order across segments")
+        void testRollsOverSegments(@TempDir Path dir) throws Exception {
+            SimulationClock clock = new SimulationClock(1.0);
+            // a header and three records per segment
+            try (ModelJournal journal = new ModelJournal(dir, 4 * ModelJournal.RECORD_BYTES, clock)) {
+                for (int i = 0; i < 10; i++) {
+                    journal.append(RecordType.MOVE, 7, i, i + 1, -1, -1);
+                }
+                assertEquals(4, journal.getSegments());
+            }
+
+            try (JournalReader reader = new JournalReader(dir)) {
+                assertEquals(4, reader.getSegments());
+                for (int i = 0; i < 10; i++) {
+                    assertTrue(reader.next());
+                    assertEquals(RecordType.MOVE, reader.type());
+                    assertEquals(7, reader.agent());
+                    assertEquals(i, reader.x());
+                    assertEquals(i + 1, reader.y());
+                    assertNull(reader.name());
+                }
+                assertFalse(reader.next());
+            }
+            // the last segment is trimmed to its header and its record
+            assertEquals(2L * ModelJournal.RECORD_BYTES, Files.size(dir.resolve(ModelJournal.segmentName(3))));
+        }
+
+        @Test
+        @DisplayName("Should gather long names over several records and segments")
+        void testNames(@TempDir Path dir) throws Exception {
+            String name = "charging_station_with_a_long_name";
+            try (ModelJournal journal = new ModelJournal(dir, 3 * ModelJournal.RECORD_BYTES, new SimulationClock(1.0))) {
+                journal.append(RecordType.STATION_ADDED, name, 3, 4, 5, 0, 0);
+                journal.append(RecordType.STATION_REMOVED, 3, 4, 5, 0, 0);
+            }
+
+            try (JournalReader reader = new JournalReader(dir)) {
+                assertTrue(reader.next());
+                assertEquals(RecordType.STATION_ADDED, reader.type());
+                assertEquals(name, reader.name());
+                assertTrue(reader.next());
+                assertEquals(RecordType.STATION_REMOVED, reader.type());
+                assertNull(reader.name());
+            }
+        }
+
+        @Test
+        @DisplayName("Should come back to a position of the reader")
+        void testSeek(@TempDir Path dir) throws Exception {
+            try (ModelJournal journal = new ModelJournal(dir, 4 * ModelJournal.RECORD_BYTES, new SimulationClock(1.0))) {
+                for (int i = 0; i < 10; i++) {
+                    journal.append(RecordType.BATTERY, 1, 0, 0, i, i + 1);
+                }
+            }
+
+            try (JournalReader reader = new JournalReader(dir)) {
+                for (int i = 0; i < 5; i++) {
+                    reader.next();
+                }
+                long position = reader.position();
+                reader.next();
+                assertEquals(5, reader.value());
+                while (reader.next()) {
+                    // read to the end
+                }
+                reader.seek(position);
+                assertTrue(reader.next());
+                assertEquals(5, reader.value());
+            }
+        }
+
+        @Test
+        @DisplayName("Should not overwrite an existing journal")
+        void testRefusesExistingJournal(@TempDir Path dir) throws Exception {
+            new ModelJournal(dir, 1024, new SimulationClock(1.0)).close();
+            assertThrows(IOException.class, () -> new ModelJournal(dir, 1024, new SimulationClock(1.0)));
+        }
+
+        @Test
+        @DisplayName("Should count the records appended once closed")
+        void testDropsAfterClose(@TempDir Path dir) throws Exception {
+            ModelJournal journal = new ModelJournal(dir, 1024, new SimulationClock(1.0));
+            journal.close();
+            journal.append(RecordType.MOVE, 1, 0, 0, -1, -1);
+            assertEquals(1, journal.getDropped());
+        }
+    }
+
+    @Nested
+    @DisplayName("Configuration Tests")
+    class ConfigurationTests {
+
+        @Test
+        @DisplayName("Should be disabled unless a directory is given")
+        void testDisabledByDefault() throws Exception {
+            ModelJournal journal = ModelJournal.fromConfig(FactoryConfig.parse(new String[0]), new SimulationClock(1.0));
+            assertFalse(journal.isEnabled());
+            assertDoesNotThrow(() -> journal.append(RecordType.MOVE, 1, 0, 0, -1, -1));
+        }
+
+        @Test
+        @DisplayName("Should reject a segment size that is not positive")
+        void testRejectsSegmentSize(@TempDir Path dir) {
+            FactoryConfig config = FactoryConfig.parse(new String[]{"journal=" + dir, "journal.segment=0"}, new Properties());
+            assertThrows(IllegalArgumentException.class, () -> ModelJournal.fromConfig(config, new SimulationClock(1.0)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Model Tests")
+    class ModelTests {
+
+        @Test
+        @DisplayName("Should record the layout and every change of the model")
+        void testRecordsModelChanges(@TempDir Path dir) throws Exception {
+            FactoryModel model = new FactoryModel(FactoryModel.GSize, FactoryModel.GSize, 0, new Random(1));
+            try (ModelJournal journal = new ModelJournal(dir, 1 << 16, new SimulationClock(1.0))) {
+                model.setJournal(journal);
+                DeliveryRobot robot = new DeliveryRobot("d_bot_1", 100, new Location(1, 1));
+                model.addDeliveryRobot(robot);
+                int id = model.getAgentRegistry().getId("d_bot_1");
+                model.setAgPos(id, new Location(1, 1));
+                model.tryMoveAgent(id, new Location(1, 2));
+                model.setAgPos(id, new Location(1, 2));
+                model.setRobotFlag(id, DeliveryRobot.CARRYING_PACKAGE, true);
+                model.setRobotFlag(id, DeliveryRobot.CARRYING_PACKAGE, true);
+                model.setRobotFlag(id, DeliveryRobot.CHARGING, true);
+                model.consumeRobotBattery(id, 5);
+                model.setRobotBattery(id, 95);
+                model.setRobotFlag(id, DeliveryRobot.CARRYING_PACKAGE, false);
+                model.addChargingStation("charger_1", new Location(2, 2));
+                model.removeChargingStation("charger_1");
+            }
+
+            assertEquals(List.of(RecordType.GRID, RecordType.ROBOT_ADDED, RecordType.MOVE, RecordType.MOVE,
+                    RecordType.PACKAGE_PICKED_UP, RecordType.FLAG, RecordType.BATTERY, RecordType.PACKAGE_DROPPED,
+                    RecordType.STATION_ADDED, RecordType.STATION_REMOVED),
+                readTypes(dir));
+            try (JournalReader reader = new JournalReader(dir)) {
+                reader.next();
+                assertEquals(FactoryModel.GSize, reader.x());
+                reader.next();
+                assertEquals("d_bot_1", reader.name());
+                assertEquals(100, reader.value());
+                reader.next();
+                reader.next();
+                assertEquals(1, reader.x());
+                assertEquals(2, reader.y());
+                assertEquals(1, reader.value());
+                assertEquals(1, reader.detail());
+            }
+        }
+
+        @Test
+        @DisplayName("Should start with the obstacles already on the grid")
+        void testRecordsObstacles(@TempDir Path dir) throws Exception {
+            FactoryModel model = new FactoryModel(new Random(3));
+            try (ModelJournal journal = new ModelJournal(dir, 1 << 16, new SimulationClock(1.0))) {
+                model.setJournal(journal);
+            }
+            long obstacles = readTypes(dir).stream().filter(type -> type == RecordType.OBSTACLE_ADDED).count();
+            assertEquals(model.getCells().count(FactoryModel.OBSTACLE), obstacles);
+        }
+
+        @Test
+        @DisplayName("Should record an obstacle only when the cell actually changes")
+        void testRecordsObstacleChangesOnce(@TempDir Path dir) throws Exception {
+            FactoryModel model = new FactoryModel(FactoryModel.GSize, FactoryModel.GSize, 0, new Random(1));
+            try (ModelJournal journal = new ModelJournal(dir, 1 << 16, new SimulationClock(1.0))) {
+                model.setJournal(journal);
+                model.add(FactoryModel.OBSTACLE, 3, 3);
+                model.add(FactoryModel.OBSTACLE, 3, 3);
+                model.remove(FactoryModel.OBSTACLE, 3, 3);
+                model.remove(FactoryModel.OBSTACLE, 3, 3);
+            }
+
+            assertEquals(List.of(RecordType.GRID, RecordType.OBSTACLE_ADDED, RecordType.OBSTACLE_REMOVED),
+                readTypes(dir));
+        }
+    }
+}
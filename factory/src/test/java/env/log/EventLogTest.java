@@ -0,0 +1,158 @@
+package env.log;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import env.FactoryConfig;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+class EventLogTest {
+
+    @Nested
+    @DisplayName("Level Tests")
+    class LevelTests {
+
+        @Test
+        @DisplayName("Should record nothing when disabled")
+        void testDisabled() {
+            EventLog log = EventLog.disabled();
+            for (LogCategory category : LogCategory.values()) {
+                assertFalse(log.isEnabled(category, LogLevel.ERROR));
+            }
+            assertDoesNotThrow(() -> log.log(LogCategory.ACTION, LogLevel.ERROR, "ignored {}", 1));
+        }
+
+        @Test
+        @DisplayName("Should apply per-category levels over the default level")
+        void testCategoryLevels() {
+            Map<LogCategory, LogLevel> levels = new EnumMap<>(LogCategory.class);
+            levels.put(LogCategory.MOVEMENT, LogLevel.DEBUG);
+            EventLog log = new EventLog(levels, LogLevel.WARN, new StringWriter(), 16, false);
+
+            assertTrue(log.isEnabled(LogCategory.MOVEMENT, LogLevel.DEBUG));
+            assertTrue(log.isEnabled(LogCategory.ACTION, LogLevel.WARN));
+            assertFalse(log.isEnabled(LogCategory.ACTION, LogLevel.INFO));
+
+            log.setLevel(LogCategory.ACTION, LogLevel.OFF);
+            assertFalse(log.isEnabled(LogCategory.ACTION, LogLevel.ERROR));
+            log.close();
+        }
+    }
+
+    @Nested
+    @DisplayName("Output Tests")
+    class OutputTests {
+
+        @Test
+        @DisplayName("Should write formatted events once closed")
+        void testWritesEvents() {
+            StringWriter out = new StringWriter();
+            EventLog log = new EventLog(new EnumMap<>(LogCategory.class), LogLevel.INFO, out, 16, false);
+
+            log.log(LogCategory.ACTION, LogLevel.INFO, "[{}] doing: {}", "d_bot_1", "move_to(1,2)");
+            log.log(LogCategory.ACTION, LogLevel.DEBUG, "filtered");
+            log.close();
+
+            String text = out.toString();
+            assertTrue(text.contains("INFO ACTION [d_bot_1] doing: move_to(1,2)"));
+            assertFalse(text.contains("filtered"));
+        }
+
+        @Test
+        @DisplayName("Should log a mutable argument as it was when the event was recorded")
+        void testSnapshotsMutableArguments() {
+            StringWriter out = new StringWriter();
+            EventLog log = new EventLog(new EnumMap<>(LogCategory.class), LogLevel.INFO, out, 16, false);
+            StringBuilder position = new StringBuilder("(1, 2)");
+
+            log.log(LogCategory.MOVEMENT, LogLevel.INFO, "robot at {}", position);
+            position.replace(0, position.length(), "(3, 4)");
+            log.close();
+
+            assertTrue(out.toString().contains("INFO MOVEMENT robot at (1, 2)"));
+        }
+
+        @Test
+        @DisplayName("Should count events dropped when the buffer is full")
+        void testDropsWhenFull() {
+            StringWriter out = new StringWriter();
+            EventLog log = new EventLog(new EnumMap<>(LogCategory.class), LogLevel.INFO, out, 4, false);
+
+            // the writer is parked between drains, so a burst larger than the buffer loses events
+            for (int i = 0; i < 10_000; i++) {
+                log.log(LogCategory.SYSTEM, LogLevel.INFO, "event {}", i);
+            }
+            log.close();
+
+            long written = out.toString().lines().filter(line -> line.contains("SYSTEM event")).count();
+            assertEquals(10_000, written + log.getDroppedCount());
+        }
+
+        @Test
+        @DisplayName("Should create the log file named by the configuration")
+        void testFromConfig(@TempDir Path dir) throws Exception {
+            Path file = dir.resolve("logs/run.log");
+            FactoryConfig config = FactoryConfig.parse(
+                new String[]{"log=" + file, "log.level=WARN", "log.level.model=INFO"}, new Properties());
+
+            EventLog log = EventLog.fromConfig(config);
+            log.log(LogCategory.MODEL, LogLevel.INFO, "station {} added", "ch_st_1");
+            log.log(LogCategory.ACTION, LogLevel.INFO, "filtered");
+            log.close();
+
+            String text = Files.readString(file, StandardCharsets.UTF_8);
+            assertTrue(text.contains("station ch_st_1 added"));
+            assertFalse(text.contains("filtered"));
+        }
+
+        @Test
+        @DisplayName("Should fall back to the console log without log options")
+        void testDefaultsToConsole() throws Exception {
+            FactoryConfig config = FactoryConfig.parse(new String[]{"gui"}, new Properties());
+            assertSame(EventLog.console(), EventLog.fromConfig(config));
+            assertSame(EventLog.disabled(), EventLog.fromConfig(FactoryConfig.parse(new String[]{"log=off"}, new Properties())));
+        }
+    }
+
+    @Nested
+    @DisplayName("Configuration Tests")
+    class ConfigurationTests {
+
+        @Test
+        @DisplayName("Should parse flags and quoted key=value pairs")
+        void testParseArgs() {
+            FactoryConfig config = FactoryConfig.parse(new String[]{"gui", "\"speedup=4\""}, new Properties());
+
+            assertTrue(config.hasFlag("gui"));
+            assertFalse(config.hasFlag("headless"));
+            assertEquals(4, config.getInt("speedup", 1));
+            assertEquals(7, config.getInt("missing", 7));
+        }
+
+        @Test
+        @DisplayName("Should let system properties override arguments")
+        void testPropertiesOverride() {
+            Properties properties = new Properties();
+            properties.setProperty("factory.gui", "false");
+            properties.setProperty("factory.log.level", "DEBUG");
+            properties.setProperty("other.key", "ignored");
+
+            FactoryConfig config = FactoryConfig.parse(new String[]{"gui", "log.level=INFO"}, properties);
+
+            assertFalse(config.hasFlag("gui"));
+            assertEquals("DEBUG", config.get("log.level", null));
+            assertFalse(config.has("other.key"));
+        }
+    }
+}
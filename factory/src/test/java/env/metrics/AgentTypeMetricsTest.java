@@ -0,0 +1,67 @@
+package env.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+class AgentTypeMetricsTest {
+
+    private MetricsRegistry registry;
+    private AgentTypeMetrics robots;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricsRegistry();
+        robots = new AgentTypeMetrics(registry, "delivery_robot");
+    }
+
+    @Test
+    @DisplayName("Should name the type after the source of the agent, or its name without number")
+    void testTypeOf() {
+        assertEquals("delivery_robot", AgentTypeMetrics.typeOf("src/main/asl/delivery_robot.asl", "d_bot_3"));
+        assertEquals("human", AgentTypeMetrics.typeOf("C:\\factory\\human.asl", "humn_1"));
+        assertEquals("ch_st", AgentTypeMetrics.typeOf(null, "ch_st_12"));
+        assertEquals("truck", AgentTypeMetrics.typeOf("", "truck"));
+    }
+
+    @Test
+    @DisplayName("Should sum the queues of the agents of a type as gauges")
+    void testQueues() {
+        AgentTypeMetrics sameType = new AgentTypeMetrics(registry, "delivery_robot");
+        robots.agents(1);
+        sameType.agents(1);
+        robots.queues(3, 1, 2, 4);
+        sameType.queues(2, 0, 1, 1);
+        robots.queues(-3, 0, -1, -4);
+
+        Map<String, Long> gauges = registry.gauges();
+        assertEquals(2L, (long) gauges.get("factory_agents{type=\"delivery_robot\"}"));
+        assertEquals(2L, (long) gauges.get("factory_agent_mailbox_depth{type=\"delivery_robot\"}"));
+        assertEquals(1L, (long) gauges.get("factory_agent_intentions{type=\"delivery_robot\",state=\"running\"}"));
+        assertEquals(2L, (long) gauges.get("factory_agent_intentions{type=\"delivery_robot\",state=\"pending\"}"));
+        assertEquals(1L, (long) gauges.get("factory_agent_events{type=\"delivery_robot\"}"));
+    }
+
+    @Test
+    @DisplayName("Should count the messages by performative and content, broadcasts apart")
+    void testMessages() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            robots.sent("askOne", "robotMalfunctioning", true);
+        }
+        robots.sent("tell", "batteryLevel", false);
+        robots.cycle(40_000);
+
+        Map<String, Long> counters = registry.counters();
+        assertEquals(5L, (long) counters.get("factory_agent_broadcasts{type=\"delivery_robot\",performative=\"askOne\",content=\"robotMalfunctioning\"}"));
+        assertEquals(1L, (long) counters.get("factory_agent_messages{type=\"delivery_robot\",performative=\"tell\",content=\"batteryLevel\"}"));
+        assertEquals(1, registry.histogram("factory_reasoning_cycle_seconds", "type", "delivery_robot").count());
+
+        StringBuilder text = new StringBuilder();
+        registry.writeOpenMetrics(text);
+        assertTrue(text.toString().contains("# TYPE factory_agent_mailbox_depth gauge\n"));
+    }
+}
@@ -0,0 +1,180 @@
+package env.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+class MetricsRegistryTest {
+
+    private MetricsRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricsRegistry();
+    }
+
+    @Nested
+    @DisplayName("Histogram Tests")
+    class HistogramTests {
+
+        @Test
+        @DisplayName("Should count small values exactly")
+        void testSmallValues() {
+            LatencyHistogram histogram = new LatencyHistogram();
+            for (int i = 1; i <= 100; i++) {
+                histogram.record(i);
+            }
+            assertEquals(100, histogram.count());
+            assertEquals(50, histogram.percentile(50));
+            assertEquals(99, histogram.percentile(99));
+            assertEquals(100, histogram.max());
+            assertEquals(50.5, histogram.mean());
+        }
+
+        @Test
+        @DisplayName("Should report large values within the bucket precision")
+        void testPrecision() {
+            for (long value : new long[] {200, 12_345, 987_654_321, 3_600_000_000_000L, Long.MAX_VALUE / 2}) {
+                LatencyHistogram histogram = new LatencyHistogram();
+                histogram.record(value / 2);
+                histogram.record(value);
+                long reported = histogram.percentile(50);
+                assertTrue(reported >= value / 2 && reported <= value / 2 * 1.016, value + " -> " + reported);
+                assertEquals(value, histogram.percentile(100));
+            }
+        }
+
+        @Test
+        @DisplayName("Should map every bucket back to values it holds")
+        void testBuckets() {
+            for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+                int bucket = LatencyHistogram.bucketOf(value);
+                assertTrue(LatencyHistogram.highestValueOf(bucket) >= value);
+                assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.highestValueOf(bucket)));
+            }
+        }
+
+        @Test
+        @DisplayName("Should forget everything on reset")
+        void testReset() {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(1_000);
+            histogram.reset();
+            assertEquals(0, histogram.count());
+            assertEquals(0, histogram.percentile(99));
+            assertEquals(0, histogram.max());
+            assertThrows(IllegalArgumentException.class, () -> histogram.percentile(101));
+        }
+    }
+
+    @Nested
+    @DisplayName("Registry Tests")
+    class RegistryTests {
+
+        @Test
+        @DisplayName("Should return the same series for the same name and labels")
+        void testSeries() {
+            registry.counter("factory_moves", "outcome", "direct").increment();
+            registry.counter("factory_moves", "outcome", "direct").increment();
+            registry.counter("factory_moves", "outcome", "blocked").increment();
+
+            assertEquals(2L, (long) registry.counters().get("factory_moves{outcome=\"direct\"}"));
+            assertEquals(1L, (long) registry.counters().get("factory_moves{outcome=\"blocked\"}"));
+            assertSame(registry.histogram("factory_move_seconds"), registry.histogram("factory_move_seconds"));
+            assertThrows(IllegalArgumentException.class, () -> registry.counter("factory_moves", "outcome"));
+        }
+
+        @Test
+        @DisplayName("Should write counters and summaries in the OpenMetrics text format")
+        void testOpenMetrics() throws Exception {
+            registry.counter("factory_action_failures", "functor", "move_randomly").add(3);
+            registry.histogram("factory_action_seconds", "functor", "move_randomly").record(2_000);
+            registry.histogram("factory_action_seconds", "functor", "say \"hi\"").record(1_000);
+            StringBuilder text = new StringBuilder();
+            registry.writeOpenMetrics(text);
+
+            String metrics = text.toString();
+            assertTrue(metrics.contains("# TYPE factory_action_failures counter\nfactory_action_failures_total{functor=\"move_randomly\"} 3\n"));
+            assertEquals(1, metrics.split("# TYPE factory_action_seconds summary", -1).length - 1);
+            assertTrue(metrics.contains("factory_action_seconds{functor=\"move_randomly\",quantile=\"0.99\"} 2.0E-6\n"));
+            assertTrue(metrics.contains("factory_action_seconds_count{functor=\"say \\\"hi\\\"\"} 1\n"));
+            assertTrue(metrics.endsWith("# EOF\n"));
+        }
+
+        @Test
+        @DisplayName("Should keep the series of a family together")
+        void testFamilyOrder() throws Exception {
+            registry.counter("a");
+            registry.counter("a_b");
+            registry.counter("a", "x", "1");
+            StringBuilder text = new StringBuilder();
+            registry.writeOpenMetrics(text);
+
+            assertEquals(1, text.toString().split("# TYPE a counter", -1).length - 1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Exporter Tests")
+    class ExporterTests {
+
+        private MetricsExporter exporter;
+
+        @AfterEach
+        void tearDown() {
+            if (exporter != null) {
+                exporter.close();
+            }
+        }
+
+        @Test
+        @DisplayName("Should publish the metrics as an MBean until closed")
+        void testMBean() throws Exception {
+            registry.counter("factory_moves", "outcome", "sidestep").increment();
+            exporter = new MetricsExporter(registry, -1);
+            exporter.registerMBean();
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MetricsExporter.OBJECT_NAME);
+            assertTrue(((String) server.getAttribute(name, "OpenMetrics")).contains("factory_moves_total{outcome=\"sidestep\"} 1"));
+            assertNotNull(server.getAttribute(name, "Counters"));
+            exporter.close();
+            assertFalse(server.isRegistered(name));
+        }
+
+        @Test
+        @DisplayName("Should serve the metrics over HTTP on the loopback interface")
+        void testHttp() throws Exception {
+            registry.histogram("factory_move_seconds").record(5_000);
+            exporter = new MetricsExporter(registry, 0);
+            int port = exporter.startHttp();
+
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + MetricsExporter.PATH).openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("application/openmetrics-text"));
+            try (InputStream in = connection.getInputStream()) {
+                assertTrue(new String(in.readAllBytes(), StandardCharsets.UTF_8).contains("factory_move_seconds_count 1"));
+            }
+        }
+
+        @Test
+        @DisplayName("Should not serve HTTP without a port")
+        void testNoHttp() throws Exception {
+            exporter = new MetricsExporter(registry, -1);
+            assertEquals(-1, exporter.startHttp());
+        }
+    }
+}
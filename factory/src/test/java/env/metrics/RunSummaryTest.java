@@ -0,0 +1,134 @@
+package env.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import env.SimulationClock;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+class RunSummaryTest {
+
+    private SimulationClock clock;
+    private RunSummary summary;
+
+    @BeforeEach
+    void setUp() {
+        clock = new SimulationClock(1);
+        summary = new RunSummary(clock);
+    }
+
+    @Nested
+    @DisplayName("Samples Tests")
+    class SamplesTests {
+
+        @Test
+        @DisplayName("Should compute mean and nearest-rank percentiles")
+        void testStatistics() {
+            Samples samples = new Samples();
+            for (int i = 1; i <= 100; i++) {
+                samples.add(i);
+            }
+            assertEquals(100, samples.count());
+            assertEquals(50.5, samples.mean());
+            assertEquals(99, samples.percentile(99));
+            assertEquals(1, samples.percentile(0));
+        }
+
+        @Test
+        @DisplayName("Should report zero without samples")
+        void testEmpty() {
+            Samples samples = new Samples();
+            assertEquals(0, samples.mean());
+            assertEquals(0, samples.percentile(99));
+            assertThrows(IllegalArgumentException.class, () -> samples.percentile(101));
+        }
+    }
+
+    @Nested
+    @DisplayName("Figures Tests")
+    class FiguresTests {
+
+        @Test
+        @DisplayName("Should measure delivery latency and repair times on the simulation clock")
+        void testLatencies() {
+            summary.deliveryStarted("d_bot_1");
+            summary.malfunctionStarted("d_bot_2");
+            clock.advance(60_000);
+            summary.deliveryCompleted("d_bot_1");
+            summary.malfunctionRepaired("d_bot_2");
+            summary.deliveryCompleted("d_bot_3");
+
+            Map<String, Object> figures = summary.toMap();
+            assertEquals(1, figures.get("packages_delivered"));
+            assertTrue((Long) figures.get("delivery_latency_p99_ms") >= 60_000);
+            assertEquals(1L, figures.get("malfunctions"));
+            assertEquals(1, figures.get("repairs"));
+            assertTrue((Long) figures.get("repair_time_p99_ms") >= 60_000);
+        }
+
+        @Test
+        @DisplayName("Should count actions and battery depletions")
+        void testCounters() {
+            summary.actionExecuted();
+            summary.actionExecuted();
+            summary.batteryDepleted("d_bot_1");
+
+            Map<String, Object> figures = summary.toMap();
+            assertEquals(2L, figures.get("actions"));
+            assertEquals(1L, figures.get("battery_depletions"));
+        }
+
+        @Test
+        @DisplayName("Should rate deliveries per simulated hour")
+        void testDeliveryRate() {
+            for (int i = 1; i <= 3; i++) {
+                summary.deliveryStarted("d_bot_" + i);
+                summary.deliveryCompleted("d_bot_" + i);
+            }
+            clock.advance(30 * 60_000);
+
+            assertEquals(6.0, (Double) summary.toMap().get("packages_per_simulated_hour"), 0.01);
+        }
+    }
+
+    @Nested
+    @DisplayName("Output Tests")
+    class OutputTests {
+
+        @Test
+        @DisplayName("Should write every figure as JSON")
+        void testJson() throws Exception {
+            StringWriter out = new StringWriter();
+            summary.writeJson(out);
+
+            String json = out.toString().trim();
+            assertTrue(json.startsWith("{") && json.endsWith("}"));
+            for (String key : summary.toMap().keySet()) {
+                assertTrue(json.contains("\"" + key + "\": "), key);
+            }
+        }
+
+        @Test
+        @DisplayName("Should pick CSV from the file extension")
+        void testCsvFile(@TempDir Path dir) throws Exception {
+            Path file = dir.resolve("out/summary.csv");
+            summary.write(file);
+
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(2, lines.size());
+            assertTrue(lines.get(0).contains("packages_delivered"));
+            assertEquals(lines.get(0).split(",").length, lines.get(1).split(",").length);
+        }
+    }
+}
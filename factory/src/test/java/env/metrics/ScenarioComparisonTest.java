@@ -0,0 +1,57 @@
+package env.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import env.SimulationClock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+class ScenarioComparisonTest {
+
+    private final PrintStream out = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+
+    @Test
+    @DisplayName("Should read back every figure of a run summary")
+    void testParseSummary() throws Exception {
+        RunSummary summary = new RunSummary(new SimulationClock(1));
+        StringWriter json = new StringWriter();
+        summary.writeJson(json);
+
+        Map<String, Double> figures = ScenarioComparison.parse(json.toString());
+        assertEquals(summary.toMap().keySet(), figures.keySet());
+        assertEquals(1.0, (double) figures.get("speedup"));
+    }
+
+    @Test
+    @DisplayName("Should report throughput drops beyond the tolerance only")
+    void testCompare() {
+        Map<String, Double> baseline = Map.of("packages_per_simulated_hour", 100.0, "actions_per_second", 1000.0, "heap_peak_bytes", 10.0);
+        Map<String, Double> current = Map.of("packages_per_simulated_hour", 95.0, "actions_per_second", 800.0, "heap_peak_bytes", 50.0);
+
+        assertEquals(List.of("actions_per_second"), ScenarioComparison.compare(baseline, current, 0.1, out));
+        assertTrue(ScenarioComparison.compare(baseline, current, 0.25, out).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should compare the scenarios present in both directories")
+    void testCompareDirectories(@TempDir Path dir) throws Exception {
+        Path baseline = Files.createDirectories(dir.resolve("baseline"));
+        Path current = Files.createDirectories(dir.resolve("current"));
+        Files.writeString(baseline.resolve("small5.json"), "{\n  \"actions_per_second\": 1000.000\n}\n");
+        Files.writeString(current.resolve("small5.json"), "{\n  \"actions_per_second\": 500.000\n}\n");
+        Files.writeString(current.resolve("large500.json"), "{\n  \"actions_per_second\": 1.000\n}\n");
+
+        assertEquals(List.of("small5.actions_per_second"), ScenarioComparison.compareDirectories(baseline, current, 0.1, out));
+    }
+}
@@ -0,0 +1,91 @@
+package env.percept;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+import jason.environment.Environment;
+
+class PerceptStoreTest {
+
+    private Environment environment;
+    private PerceptStore store;
+    private PerceptTemplate position;
+    private PerceptTemplate closest;
+
+    @BeforeEach
+    void setUp() {
+        environment = new Environment();
+        store = new PerceptStore(environment);
+        position = store.define("current_position", 2);
+        closest = store.define("closestRobot", 3);
+    }
+
+    @Test
+    @DisplayName("Should replace the previous value of a percept")
+    void testReplacesValue() {
+        assertTrue(store.update("d_bot_1", position, 1, 2));
+        assertTrue(store.update("d_bot_1", position, 1, 3));
+
+        assertTrue(environment.containsPercept("d_bot_1", Literal.parseLiteral("current_position(1,3)")));
+        assertFalse(environment.containsPercept("d_bot_1", Literal.parseLiteral("current_position(1,2)")));
+        assertEquals(Literal.parseLiteral("current_position(1,3)"), store.get("d_bot_1", position));
+    }
+
+    @Test
+    @DisplayName("Should skip updates that do not change the value")
+    void testSkipsUnchangedValue() {
+        store.update("d_bot_1", closest, ASSyntax.createString("d_bot_2"), 4, 5);
+        assertFalse(store.update("d_bot_1", closest, ASSyntax.createString("d_bot_2"), 4, 5));
+        assertTrue(store.update("d_bot_1", closest, ASSyntax.createString("d_bot_3"), 4, 5));
+
+        assertEquals(2, store.getUpdateCount());
+        assertEquals(1, store.getUnchangedCount());
+    }
+
+    @Test
+    @DisplayName("Should keep the percepts of each agent apart")
+    void testAgentsAreIndependent() {
+        store.update("d_bot_1", position, 1, 1);
+        store.update("d_bot_2", position, 1, 1);
+
+        assertTrue(store.update("d_bot_2", position, 2, 2));
+        assertEquals(Literal.parseLiteral("current_position(1,1)"), store.get("d_bot_1", position));
+        assertNull(store.get("d_bot_3", position));
+    }
+
+    @Test
+    @DisplayName("Should publish the deferred updates together, with the last value of each percept")
+    void testDeferredUpdates() {
+        store.update("d_bot_1", position, 1, 1);
+        store.setDeferred(true);
+        store.update("d_bot_1", position, 1, 2);
+        store.update("d_bot_1", position, 1, 3);
+        store.update("d_bot_2", position, 5, 5);
+
+        assertTrue(environment.containsPercept("d_bot_1", Literal.parseLiteral("current_position(1,1)")));
+        assertFalse(environment.containsPercept("d_bot_2", Literal.parseLiteral("current_position(5,5)")));
+        assertEquals(Literal.parseLiteral("current_position(1,3)"), store.get("d_bot_1", position));
+
+        store.publish();
+        assertFalse(environment.containsPercept("d_bot_1", Literal.parseLiteral("current_position(1,1)")));
+        assertFalse(environment.containsPercept("d_bot_1", Literal.parseLiteral("current_position(1,2)")));
+        assertTrue(environment.containsPercept("d_bot_1", Literal.parseLiteral("current_position(1,3)")));
+        assertTrue(environment.containsPercept("d_bot_2", Literal.parseLiteral("current_position(5,5)")));
+
+        store.clear("d_bot_2", position);
+        store.setDeferred(false);
+        assertFalse(environment.containsPercept("d_bot_2", Literal.parseLiteral("current_position(5,5)")));
+    }
+
+    @Test
+    @DisplayName("Should refuse new templates after the first update")
+    void testDefineAfterUpdate() {
+        store.update("d_bot_1", position, 0, 0);
+        assertThrows(IllegalStateException.class, () -> store.define("batteryLevel", 1));
+    }
+}
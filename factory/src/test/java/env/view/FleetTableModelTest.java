@@ -0,0 +1,94 @@
+package env.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import env.agent.DeliveryRobot;
+import jason.environment.grid.Location;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JTable;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.TableRowSorter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class FleetTableModelTest {
+
+    private final List<TableModelEvent> events = new ArrayList<>();
+    private FleetTableModel fleet;
+
+    @BeforeEach
+    void setUp() {
+        fleet = new FleetTableModel();
+        fleet.addTableModelListener(events::add);
+    }
+
+    @Test
+    @DisplayName("Should add a row per robot and report only the rows that changed")
+    void testIncrementalUpdates() {
+        DeliveryRobot robot = new DeliveryRobot("d_bot_1", 80, new Location(2, 3));
+        assertTrue(fleet.update(robot));
+        assertTrue(fleet.update("d_bot_2", 5, 5, 60, 0));
+        assertFalse(fleet.update(robot));
+
+        robot.setCarryingPackage(true);
+        assertTrue(fleet.update(robot));
+
+        assertAll(
+            () -> assertEquals(2, fleet.getRowCount()),
+            () -> assertEquals(3, events.size()),
+            () -> assertEquals(TableModelEvent.INSERT, events.get(1).getType()),
+            () -> assertEquals(TableModelEvent.UPDATE, events.get(2).getType()),
+            () -> assertEquals(0, events.get(2).getFirstRow()),
+            () -> assertEquals(0, events.get(2).getLastRow()),
+            () -> assertEquals("PKG", fleet.getValueAt(0, FleetTableModel.STATUS_COLUMN)),
+            () -> assertEquals(3, fleet.getValueAt(0, FleetTableModel.Y_COLUMN))
+        );
+    }
+
+    @Test
+    @DisplayName("Should keep the counters of the fleet as rows change")
+    void testCounters() {
+        fleet.update("d_bot_1", 0, 0, 100, DeliveryRobot.CHARGING);
+        fleet.update("d_bot_2", 0, 1, 50, DeliveryRobot.MALFUNCTIONING | DeliveryRobot.CARRYING_PACKAGE);
+        fleet.update("d_bot_3", 0, 2, 0, DeliveryRobot.MALFUNCTIONING);
+        fleet.update("d_bot_2", 0, 1, 20, DeliveryRobot.CARRYING_PACKAGE);
+
+        assertAll(
+            () -> assertEquals(1, fleet.getFlagCount(DeliveryRobot.CHARGING)),
+            () -> assertEquals(1, fleet.getFlagCount(DeliveryRobot.MALFUNCTIONING)),
+            () -> assertEquals(1, fleet.getFlagCount(DeliveryRobot.CARRYING_PACKAGE)),
+            () -> assertEquals(0, fleet.getFlagCount(DeliveryRobot.HELPING_ROBOT)),
+            () -> assertEquals(40.0, fleet.getAverageBattery(), 1e-9)
+        );
+    }
+
+    @Test
+    @DisplayName("Should sort by battery and filter by status as rows change")
+    void testSortAndFilter() {
+        // the table hands the changes of its model over to its sorter
+        JTable table = new JTable(fleet);
+        TableRowSorter<FleetTableModel> sorter = new TableRowSorter<>(fleet);
+        sorter.setSortsOnUpdates(true);
+        table.setRowSorter(sorter);
+        for (int i = 0; i < 100; i++) {
+            fleet.update("d_bot_" + i, i, 0, i, i % 10 == 0 ? DeliveryRobot.MALFUNCTIONING : 0);
+        }
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(FleetTableModel.BATTERY_COLUMN, SortOrder.DESCENDING)));
+        sorter.setRowFilter(FleetTableModel.withAnyFlag(DeliveryRobot.MALFUNCTIONING | DeliveryRobot.CHARGING));
+        assertEquals(10, table.getRowCount());
+        assertEquals("d_bot_90", fleet.getValueAt(table.convertRowIndexToModel(0), FleetTableModel.NAME_COLUMN));
+
+        // a robot starts charging with the fullest battery
+        fleet.update("d_bot_5", 5, 0, 100, DeliveryRobot.CHARGING);
+
+        assertAll(
+            () -> assertEquals(11, table.getRowCount()),
+            () -> assertEquals("d_bot_5", fleet.getValueAt(table.convertRowIndexToModel(0), FleetTableModel.NAME_COLUMN)),
+            () -> assertNull(FleetTableModel.withAnyFlag(0))
+        );
+    }
+}
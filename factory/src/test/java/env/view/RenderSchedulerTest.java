@@ -0,0 +1,93 @@
+package env.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import env.FactoryConfig;
+import java.awt.Rectangle;
+import java.util.List;
+import java.util.Properties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RenderSchedulerTest {
+
+    private RenderScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new RenderScheduler(13, 13, 30);
+        // the first frame draws everything
+        assertTrue(scheduler.takeFrame().isFull());
+    }
+
+    @Test
+    @DisplayName("Should render nothing when nothing changed")
+    void testNoChange() {
+        assertNull(scheduler.takeFrame());
+    }
+
+    @Test
+    @DisplayName("Should coalesce the marks made between two frames into one frame")
+    void testCoalesce() {
+        for (int i = 0; i < 1000; i++) {
+            scheduler.markCell(1, 1);
+            scheduler.markAgent(i % 3);
+        }
+
+        RenderScheduler.Frame frame = scheduler.takeFrame();
+
+        assertAll(
+            () -> assertFalse(frame.isFull()),
+            () -> assertEquals(List.of(new Rectangle(0, 0, 4, 4)), frame.getRegions()),
+            () -> assertEquals(3, frame.getAgents().cardinality()),
+            () -> assertNull(scheduler.takeFrame()),
+            () -> assertEquals(2, scheduler.getFrameCount()),
+            () -> assertEquals(2000, scheduler.getMarkCount())
+        );
+    }
+
+    @Test
+    @DisplayName("Should join the marked tiles of a row and clip the regions to the grid")
+    void testRegions() {
+        scheduler.markCell(0, 0);
+        scheduler.markCell(5, 1);
+        scheduler.markCell(12, 12);
+        scheduler.markCell(20, 3);
+
+        RenderScheduler.Frame frame = scheduler.takeFrame();
+        frame.addCell(12, 0);
+
+        assertEquals(List.of(new Rectangle(0, 0, 8, 4), new Rectangle(12, 0, 1, 4), new Rectangle(12, 12, 1, 1)),
+            frame.getRegions());
+        assertEquals(32 + 4 + 1, frame.getCellCount());
+    }
+
+    @Test
+    @DisplayName("Should repaint the whole grid after markAll")
+    void testMarkAll() {
+        scheduler.markAll();
+
+        RenderScheduler.Frame frame = scheduler.takeFrame();
+
+        assertTrue(frame.isFull());
+        assertEquals(List.of(new Rectangle(0, 0, 13, 13)), frame.getRegions());
+    }
+
+    @Test
+    @DisplayName("Should read the frame rate from the configuration")
+    void testFromConfig() {
+        RenderScheduler configured = RenderScheduler.fromConfig(FactoryConfig.parse(new String[] {"fps=50"}, new Properties()), 13, 13);
+
+        assertAll(
+            () -> assertEquals(50, configured.getFps()),
+            () -> assertEquals(20, configured.getFrameMillis()),
+            () -> assertEquals(RenderScheduler.DEFAULT_FPS,
+                RenderScheduler.fromConfig(FactoryConfig.parse(new String[0], new Properties()), 13, 13).getFps()),
+            () -> assertThrows(IllegalArgumentException.class,
+                () -> RenderScheduler.fromConfig(FactoryConfig.parse(new String[] {"fps=0"}, new Properties()), 13, 13)),
+            () -> assertThrows(IllegalArgumentException.class,
+                () -> RenderScheduler.fromConfig(FactoryConfig.parse(new String[] {"fps=fast"}, new Properties()), 13, 13))
+        );
+    }
+}
@@ -0,0 +1,113 @@
+package env.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class StaticLayerCacheTest {
+
+    private static final int CELL = 10;
+    /** Pixels of a full tile of 16 cells, with its closing grid lines. */
+    private static final long TILE_PIXELS = (16 * CELL + 1) * (16 * CELL + 1);
+
+    private final List<Rectangle> rendered = new ArrayList<>();
+    private Color fill;
+    private StaticLayerCache cache;
+
+    @BeforeEach
+    void setUp() {
+        fill = Color.GRAY;
+        // a 40x40 grid in tiles of 16 cells: 3 columns and 3 rows of tiles, keeping the pixels of 4 full tiles
+        cache = new StaticLayerCache(40, 40, CELL, 16, 4 * TILE_PIXELS, (g, x, y, width, height, cellSize) -> {
+            rendered.add(new Rectangle(x, y, width, height));
+            g.setColor(fill);
+            g.fillRect(0, 0, width * cellSize + 1, height * cellSize + 1);
+        });
+    }
+
+    private BufferedImage draw(Rectangle cells) {
+        BufferedImage screen = new BufferedImage(40 * CELL + 1, 40 * CELL + 1, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = screen.createGraphics();
+        cache.draw(g, cells);
+        g.dispose();
+        return screen;
+    }
+
+    @Test
+    @DisplayName("Should render the tiles covering the cells once and reuse them")
+    void testReuse() {
+        draw(new Rectangle(10, 10, 10, 10));
+        draw(new Rectangle(10, 10, 10, 10));
+
+        assertEquals(List.of(new Rectangle(0, 0, 16, 16), new Rectangle(16, 0, 16, 16),
+            new Rectangle(0, 16, 16, 16), new Rectangle(16, 16, 16, 16)), rendered);
+        assertEquals(4, cache.getRenderedTiles());
+    }
+
+    @Test
+    @DisplayName("Should clip the last tiles to the grid and draw them at their place")
+    void testEdgeTile() {
+        BufferedImage screen = draw(new Rectangle(35, 35, 5, 5));
+
+        assertEquals(List.of(new Rectangle(32, 32, 8, 8)), rendered);
+        assertEquals(Color.GRAY.getRGB(), screen.getRGB(32 * CELL, 32 * CELL));
+        assertEquals(Color.BLACK.getRGB(), screen.getRGB(32 * CELL - 1, 32 * CELL - 1));
+    }
+
+    @Test
+    @DisplayName("Should render again only the tile of an invalidated cell")
+    void testInvalidate() {
+        draw(new Rectangle(0, 0, 32, 16));
+        rendered.clear();
+
+        cache.invalidate(20, 3);
+        fill = Color.YELLOW;
+        BufferedImage screen = draw(new Rectangle(0, 0, 32, 16));
+
+        assertEquals(List.of(new Rectangle(16, 0, 16, 16)), rendered);
+        assertEquals(Color.YELLOW.getRGB(), screen.getRGB(20 * CELL, 3 * CELL));
+        assertEquals(Color.GRAY.getRGB(), screen.getRGB(3 * CELL, 3 * CELL));
+    }
+
+    @Test
+    @DisplayName("Should keep the tiles within the budget of pixels and drop them all when the cell size changes")
+    void testBoundAndCellSize() {
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                draw(new Rectangle(column * 16, row * 16, 1, 1));
+            }
+        }
+        assertEquals(9, cache.getRenderedTiles());
+        assertTrue(cache.getPixels() <= 4 * TILE_PIXELS);
+        assertTrue(cache.size() < 9);
+
+        cache.setCellSize(CELL * 2);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getPixels());
+
+        cache.invalidateAll();
+        draw(new Rectangle(0, 0, 1, 1));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should keep every tile of a paint larger than the budget")
+    void testKeepsVisibleTiles() {
+        draw(new Rectangle(0, 0, 40, 40));
+        draw(new Rectangle(0, 0, 40, 40));
+        assertEquals(9, cache.getRenderedTiles());
+        assertEquals(9, cache.size());
+
+        draw(new Rectangle(0, 0, 1, 1));
+        assertTrue(cache.getPixels() <= 4 * TILE_PIXELS);
+        assertEquals(9, cache.getRenderedTiles());
+    }
+}
@@ -9,6 +9,7 @@ dependencyResolutionManagement {
 rootProject.name = "factory-simulation"
 
 include("factory")
+include("benchmarks")
 
 develocity {
     buildScan {